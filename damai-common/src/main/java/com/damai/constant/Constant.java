@@ -36,6 +36,8 @@ public class Constant {
 
     public static final String SPRING_INJECT_PREFIX_DISTINCTION_NAME = "${" + PREFIX_DISTINCTION_NAME + ":" + DEFAULT_PREFIX_DISTINCTION_NAME + "}";
 
+    public static final String REDIS_KEY_HASH_TAG = "redis.key.hashTag";
+
     public static final String SERVER_GRAY = "${spring.cloud.nacos.discovery.metadata.gray:false}";
 
 }
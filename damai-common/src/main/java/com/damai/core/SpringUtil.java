@@ -5,6 +5,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 
 import static com.damai.constant.Constant.DEFAULT_PREFIX_DISTINCTION_NAME;
 import static com.damai.constant.Constant.PREFIX_DISTINCTION_NAME;
+import static com.damai.constant.Constant.REDIS_KEY_HASH_TAG;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -17,14 +18,41 @@ public class SpringUtil implements ApplicationContextInitializer<ConfigurableApp
     // Sprin 的可配置上下文对象，静态存储，方便全局调用
     private static ConfigurableApplicationContext configurableApplicationContext;
 
+    // 前缀区分名称的缓存，每次构建redis key都会用到，避免每次都从Environment中解析
+    private static volatile String prefixDistinctionName;
+
+    // 是否启用redis key的hash tag布局的缓存，同样在每次构建redis key时用到
+    private static volatile Boolean redisKeyHashTag;
+
     /**
      * 从 Spring 环境配置中读取前缀区分名称（prefix distinction name）
      *
      * @return 配置文件中 prefix.distinction.name 的值，若未配置则返回默认值 DEFAULT_PREFIX_DISTINCTION_NAME
      */
     public static String getPrefixDistinctionName() {
-        return configurableApplicationContext.getEnvironment().getProperty(PREFIX_DISTINCTION_NAME,
-                DEFAULT_PREFIX_DISTINCTION_NAME);
+        String name = prefixDistinctionName;
+        if (name == null) {
+            name = configurableApplicationContext.getEnvironment().getProperty(PREFIX_DISTINCTION_NAME,
+                    DEFAULT_PREFIX_DISTINCTION_NAME);
+            prefixDistinctionName = name;
+        }
+        return name;
+    }
+
+    /**
+     * 从 Spring 环境配置中读取是否启用redis key的hash tag布局
+     * 启用后节目库存相关的key用{节目id}作为hash tag，同一节目的key在redis集群中落在同一个槽位上
+     *
+     * @return 配置文件中 redis.key.hashTag 的值，未配置返回false
+     */
+    public static boolean isRedisKeyHashTag() {
+        Boolean hashTag = redisKeyHashTag;
+        if (hashTag == null) {
+            hashTag = configurableApplicationContext.getEnvironment().getProperty(REDIS_KEY_HASH_TAG,
+                    Boolean.class, Boolean.FALSE);
+            redisKeyHashTag = hashTag;
+        }
+        return hashTag;
     }
 
     /**
@@ -36,5 +64,7 @@ public class SpringUtil implements ApplicationContextInitializer<ConfigurableApp
     @Override
     public void initialize(final ConfigurableApplicationContext applicationContext) {
         configurableApplicationContext = applicationContext;
+        prefixDistinctionName = null;
+        redisKeyHashTag = null;
     }
 }
@@ -249,6 +249,14 @@ public enum BaseCode {
     USER_EMAIL_NOT_EXIST(70002,"用户邮箱不存在"),
     
     NOT_FOUND_GENE(70003,"没有找到基因"),
+    
+    ORDER_SHARD_EXPANSION_COUNT_ERROR(70004,"扩容后的分库数量必须是当前分库数量的2的幂次倍"),
+    
+    ORDER_SHARD_EXPANSION_PHASE_ERROR(70005,"当前扩容阶段不允许此操作"),
+    
+    ORDER_SHARD_EXPANSION_COPY_NOT_FINISHED(70006,"订单数据还未复制完成"),
+    
+    ORDER_SHARD_GENE_NOT_ENOUGH(70007,"基因数量不足，存在分不到基因的库或表"),
     ;
     
     private final Integer code;
@@ -0,0 +1,69 @@
+package com.damai.enums;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 事务发件箱 事件类型
+ * @author: 阿星不是程序员
+ **/
+public enum OutboxEventType {
+    /**
+     * 节目服务：发送kafka创建订单消息
+     * */
+    ORDER_CREATE(1,"创建订单"),
+    /**
+     * 节目服务（kafka创建订单）、订单服务（rpc创建订单）：发送延迟取消订单消息
+     * */
+    DELAY_ORDER_CANCEL(2,"延迟取消订单"),
+    /**
+     * 订单服务：订单支付或取消后，执行节目缓存中座位和余票的变更脚本
+     * */
+    PROGRAM_CACHE_REVERSE(3,"节目缓存座位和余票变更"),
+    /**
+     * 订单服务：订单支付后，发送延迟更新节目座位和余票的消息
+     * */
+    DELAY_OPERATE_PROGRAM_DATA(4,"支付后更新节目数据"),
+    ;
+
+    private Integer code;
+
+    private String msg;
+
+    OutboxEventType(Integer code, String msg) {
+        this.code = code;
+        this.msg = msg;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public void setCode(Integer code) {
+        this.code = code;
+    }
+
+    public String getMsg() {
+        return this.msg == null ? "" : this.msg;
+    }
+
+    public void setMsg(String msg) {
+        this.msg = msg;
+    }
+
+    public static String getMsg(Integer code) {
+        for (OutboxEventType re : OutboxEventType.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re.msg;
+            }
+        }
+        return "";
+    }
+
+    public static OutboxEventType getRc(Integer code) {
+        for (OutboxEventType re : OutboxEventType.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re;
+            }
+        }
+        return null;
+    }
+}
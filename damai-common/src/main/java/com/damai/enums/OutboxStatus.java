@@ -0,0 +1,50 @@
+package com.damai.enums;
+
+import lombok.Getter;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 事务发件箱事件状态
+ * status同时是逻辑删除字段，只有待转发的事件会被查询到；转发失败的事件既不会再被拉取，也不会被清理，留给人工处理
+ * @author: 阿星不是程序员
+ **/
+public enum OutboxStatus {
+    /**
+     * 发件箱事件状态
+     */
+    CONSUMED(0, "已转发"),
+    PENDING(1, "待转发"),
+    FAILED(2, "转发失败");
+
+    @Getter
+    private Integer code;
+
+    private String msg;
+
+    OutboxStatus(Integer code, String msg) {
+        this.code = code;
+        this.msg = msg;
+    }
+
+    public String getMsg() {
+        return this.msg == null ? "" : this.msg;
+    }
+
+    public static String getMsg(Integer code) {
+        for (OutboxStatus re : OutboxStatus.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re.msg;
+            }
+        }
+        return "";
+    }
+
+    public static OutboxStatus getRc(Integer code) {
+        for (OutboxStatus re : OutboxStatus.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re;
+            }
+        }
+        return null;
+    }
+}
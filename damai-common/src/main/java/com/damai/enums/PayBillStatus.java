@@ -1,5 +1,7 @@
 package com.damai.enums;
 
+import java.util.Objects;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: 支付对账单状态
@@ -49,6 +51,38 @@ public enum PayBillStatus {
         return "";
     }
 
+    /**
+     * 是否允许从当前状态变更为目标状态
+     * 支付渠道是状态的权威来源：已取消的账单可能在关闭前被支付（变更为已支付）
+     * 已支付是终态，只能由本系统发起退款变更为已退单，不再按支付渠道的交易状态同步（全额退款后渠道显示的交易关闭对应已退单）
+     *
+     * @param target 目标状态
+     * @return 是否允许
+     */
+    public boolean canTransferTo(PayBillStatus target) {
+        switch (this) {
+            case NO_PAY:
+                return target == PAY || target == CANCEL;
+            case CANCEL:
+                return target == PAY;
+            case PAY:
+                return target == REFUND;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 是否为终态
+     * 终态的账单在支付渠道侧不会再自行变化，只会由本系统主动发起变更（如退款），查询支付状态时不需要再调用支付渠道
+     *
+     * @param code 状态码
+     * @return 是否为终态
+     */
+    public static boolean isFinal(Integer code) {
+        return Objects.equals(code, PAY.code) || Objects.equals(code, REFUND.code);
+    }
+
     public static PayBillStatus getRc(Integer code) {
         for (PayBillStatus re : PayBillStatus.values()) {
             if (re.code.intValue() == code.intValue()) {
@@ -0,0 +1,43 @@
+package com.damai.enums;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 节目es索引变更类型
+ * @author: 阿星不是程序员
+ **/
+public enum ProgramIndexChangeType {
+    /**
+     * 节目es索引变更类型
+     * */
+    PROGRAM(1,"节目"),
+    SHOW_TIME(2,"演出时间"),
+    TICKET_CATEGORY(3,"票档"),
+    INVALID(4,"节目失效"),
+    ;
+
+    private Integer code;
+
+    private String msg;
+
+    ProgramIndexChangeType(Integer code, String msg) {
+        this.code = code;
+        this.msg = msg;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public String getMsg() {
+        return this.msg == null ? "" : this.msg;
+    }
+
+    public static ProgramIndexChangeType getRc(Integer code) {
+        for (ProgramIndexChangeType re : ProgramIndexChangeType.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re;
+            }
+        }
+        return null;
+    }
+}
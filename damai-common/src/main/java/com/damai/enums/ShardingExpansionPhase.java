@@ -0,0 +1,69 @@
+package com.damai.enums;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 分库扩容阶段
+ * @author: 阿星不是程序员
+ **/
+public enum ShardingExpansionPhase {
+    /**
+     * 未扩容：按原分库数量读写
+     * */
+    NONE(0,"未扩容"),
+    /**
+     * 双写：按原分库数量读，写入原库和新库，后台复制存量数据
+     * */
+    DUAL_WRITE(1,"双写复制中"),
+    /**
+     * 切换：按新分库数量读，仍写入原库和新库，等待所有实例都切换完成
+     * */
+    CUTOVER(2,"已切换读"),
+    /**
+     * 完成：按新分库数量读写，清理原库中已迁走的数据
+     * */
+    FINISHED(3,"扩容完成"),
+    ;
+
+    private Integer code;
+
+    private String msg;
+
+    ShardingExpansionPhase(Integer code, String msg) {
+        this.code = code;
+        this.msg = msg;
+    }
+
+    public Integer getCode() {
+        return code;
+    }
+
+    public void setCode(Integer code) {
+        this.code = code;
+    }
+
+    public String getMsg() {
+        return this.msg == null ? "" : this.msg;
+    }
+
+    public void setMsg(String msg) {
+        this.msg = msg;
+    }
+
+    public static String getMsg(Integer code) {
+        for (ShardingExpansionPhase re : ShardingExpansionPhase.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re.msg;
+            }
+        }
+        return "";
+    }
+
+    public static ShardingExpansionPhase getRc(Integer code) {
+        for (ShardingExpansionPhase re : ShardingExpansionPhase.values()) {
+            if (re.code.intValue() == code.intValue()) {
+                return re;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.damai.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 虚拟线程工具
+ * 项目按java17编译，虚拟线程的api（java21）通过反射调用，运行在java21以下时回退为平台线程
+ * 开关统一使用spring boot的spring.threads.virtual.enabled
+ * @author: 阿星不是程序员
+ **/
+public class VirtualThreadUtil {
+
+	private final static Logger logger = LoggerFactory.getLogger(VirtualThreadUtil.class);
+
+	/**
+	 * 虚拟线程开关的配置项
+	 */
+	public static final String ENABLED_PROPERTY = "spring.threads.virtual.enabled";
+
+	private static final Method OF_VIRTUAL;
+
+	private static final Method BUILDER_NAME;
+
+	private static final Method BUILDER_FACTORY;
+
+	static {
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		if (Runtime.version().feature() >= 21) {
+			try {
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				builderName = builderClass.getMethod("name", String.class, long.class);
+				builderFactory = builderClass.getMethod("factory");
+			} catch (ReflectiveOperationException e) {
+				logger.warn("virtual thread api not found", e);
+				ofVirtual = null;
+			}
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+	}
+
+	/**
+	 * 当前jvm是否支持虚拟线程
+	 * @return
+	 */
+	public static boolean isAvailable() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * 按开关选择线程工厂，开启且支持时返回虚拟线程工厂，否则返回平台线程工厂
+	 * @param virtual 是否使用虚拟线程
+	 * @param namePrefix 虚拟线程名前缀，线程名为前缀加自增序号
+	 * @param platformThreadFactory 平台线程工厂
+	 * @return
+	 */
+	public static ThreadFactory threadFactory(boolean virtual, String namePrefix, ThreadFactory platformThreadFactory) {
+		if (!virtual || !isAvailable()) {
+			return platformThreadFactory;
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			builder = BUILDER_NAME.invoke(builder, namePrefix, 1L);
+			return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			logger.warn("create virtual thread factory error, fallback to platform thread", e);
+			return platformThreadFactory;
+		}
+	}
+}
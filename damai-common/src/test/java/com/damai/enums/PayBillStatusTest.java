@@ -0,0 +1,67 @@
+package com.damai.enums;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 支付账单状态机测试
+ * @author: 阿星不是程序员
+ **/
+class PayBillStatusTest {
+
+    @Test
+    void allowedTransitions() {
+        assertEquals(EnumSet.of(PayBillStatus.PAY, PayBillStatus.CANCEL), targets(PayBillStatus.NO_PAY));
+        assertEquals(EnumSet.of(PayBillStatus.PAY), targets(PayBillStatus.CANCEL));
+        assertEquals(EnumSet.of(PayBillStatus.REFUND), targets(PayBillStatus.PAY));
+        assertEquals(EnumSet.noneOf(PayBillStatus.class), targets(PayBillStatus.REFUND));
+    }
+
+    @Test
+    void noStatusTransfersToItself() {
+        for (PayBillStatus status : PayBillStatus.values()) {
+            assertFalse(status.canTransferTo(status), status.name());
+        }
+    }
+
+    @Test
+    void finalStatusesOnlyLeaveBySystemRefund() {
+        for (PayBillStatus status : PayBillStatus.values()) {
+            if (!PayBillStatus.isFinal(status.getCode())) {
+                continue;
+            }
+            // 终态在支付渠道侧不会再变化，不能按渠道的交易状态变回未支付或已取消
+            for (PayBillStatus target : targets(status)) {
+                assertEquals(PayBillStatus.REFUND, target, status.name());
+            }
+        }
+        assertTrue(PayBillStatus.isFinal(PayBillStatus.PAY.getCode()));
+        assertTrue(PayBillStatus.isFinal(PayBillStatus.REFUND.getCode()));
+        assertFalse(PayBillStatus.isFinal(PayBillStatus.NO_PAY.getCode()));
+        assertFalse(PayBillStatus.isFinal(PayBillStatus.CANCEL.getCode()));
+    }
+
+    @Test
+    void everyStatusCanBeRecoveredFromItsCode() {
+        for (PayBillStatus status : PayBillStatus.values()) {
+            assertEquals(status, PayBillStatus.getRc(status.getCode()));
+        }
+    }
+
+    private Set<PayBillStatus> targets(PayBillStatus status) {
+        Set<PayBillStatus> targets = EnumSet.noneOf(PayBillStatus.class);
+        for (PayBillStatus target : PayBillStatus.values()) {
+            if (status.canTransferTo(target)) {
+                targets.add(target);
+            }
+        }
+        return targets;
+    }
+}
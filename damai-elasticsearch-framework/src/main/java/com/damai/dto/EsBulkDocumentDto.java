@@ -0,0 +1,38 @@
+package com.damai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: elasticsearch批量操作的单条文档
+ * @author: 阿星不是程序员
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EsBulkDocumentDto {
+    
+    /**
+     * 文档id
+     * */
+    private String id;
+    
+    /**
+     * 需要更新的字段（局部更新），为空或delete为true时表示删除文档
+     * */
+    private Map<String, Object> params;
+    
+    /**
+     * 是否删除文档
+     * */
+    private boolean delete;
+    
+    /**
+     * 文档不存在时是否将params作为新文档写入
+     * */
+    private boolean upsert;
+}
@@ -4,6 +4,7 @@ import cn.hutool.core.collection.CollectionUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.damai.dto.EsBulkDocumentDto;
 import com.damai.dto.EsDataQueryDto;
 import com.damai.dto.EsDocumentMappingDto;
 import com.damai.dto.EsGeoPointDto;
@@ -279,6 +280,79 @@ public class BusinessEsHandle {
         }
     }
 
+    /**
+     * 批量局部更新/删除文档（_bulk）
+     * 一次请求提交多条update/delete动作，避免逐条写入的网络往返
+     *
+     * @param indexName 索引名字
+     * @param indexType 索引类型
+     * @param list      批量文档列表（update动作只提交params中的字段）
+     * @return 执行失败的文档id集合，空集合表示全部成功
+     */
+    public List<String> bulk(String indexName, String indexType, List<EsBulkDocumentDto> list) {
+        // 若ES功能未启用或参数为空，直接返回
+        if (!esSwitch || CollectionUtil.isEmpty(list)) {
+            return new ArrayList<>();
+        }
+        List<String> failIdList = new ArrayList<>();
+        try {
+            // 构建NDJSON格式的请求体：每个动作一行元数据，update动作再跟一行文档内容
+            StringBuilder body = new StringBuilder();
+            for (EsBulkDocumentDto esBulkDocumentDto : list) {
+                boolean delete = esBulkDocumentDto.isDelete() || CollectionUtil.isEmpty(esBulkDocumentDto.getParams());
+                Map<String, Object> metaData = new HashMap<>(4);
+                metaData.put("_index", indexName);
+                if (esTypeSwitch) {
+                    metaData.put("_type", indexType);
+                }
+                metaData.put("_id", esBulkDocumentDto.getId());
+                Map<String, Object> action = new HashMap<>(2);
+                action.put(delete ? "delete" : "update", metaData);
+                body.append(JSON.toJSONString(action)).append("\n");
+                if (!delete) {
+                    Map<String, Object> doc = new HashMap<>(4);
+                    doc.put("doc", esBulkDocumentDto.getParams());
+                    doc.put("doc_as_upsert", esBulkDocumentDto.isUpsert());
+                    body.append(JSON.toJSONString(doc)).append("\n");
+                }
+            }
+            HttpEntity entity = new NStringEntity(body.toString(), ContentType.create("application/x-ndjson", "UTF-8"));
+            Request request = new Request("POST", "/_bulk");
+            request.setEntity(entity);
+            request.addParameters(Collections.emptyMap());
+            Response response = restClient.performRequest(request);
+            JSONObject result = JSONObject.parseObject(EntityUtils.toString(response.getEntity()));
+            // errors为false表示所有动作都执行成功
+            if (!result.getBooleanValue("errors")) {
+                return failIdList;
+            }
+            JSONArray items = result.getJSONArray("items");
+            for (int i = 0; i < items.size(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                for (String actionName : item.keySet()) {
+                    JSONObject actionResult = item.getJSONObject(actionName);
+                    int status = actionResult.getIntValue("status");
+                    // 删除不存在的文档视为成功
+                    if ("delete".equals(actionName) && status == RestStatus.NOT_FOUND.getStatus()) {
+                        continue;
+                    }
+                    if (actionResult.containsKey("error")) {
+                        log.error("bulk item error id : {} error : {}", actionResult.getString("_id"),
+                                actionResult.getString("error"));
+                        failIdList.add(actionResult.getString("_id"));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("bulk error", e);
+            failIdList.clear();
+            for (EsBulkDocumentDto esBulkDocumentDto : list) {
+                failIdList.add(esBulkDocumentDto.getId());
+            }
+        }
+        return failIdList;
+    }
+
     /**
      * 查询基础方法（无地理条件、无排序）
      *
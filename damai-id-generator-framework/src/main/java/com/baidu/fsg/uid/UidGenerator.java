@@ -43,7 +43,7 @@ public interface UidGenerator {
      * 获取订单编号
      *
      * @param userId     用户id
-     * @param tableCount 分表数量
+     * @param tableCount 基因数量，订单编号低位拼接 用户id % 基因数量
      * @return 结果
      */
     long getOrderNumber(long userId, long tableCount);
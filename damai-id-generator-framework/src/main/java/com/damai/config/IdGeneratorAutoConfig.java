@@ -1,10 +1,10 @@
 package com.damai.config;
 
+import com.damai.redis.script.RedisScriptRegistry;
 import com.damai.toolkit.SnowflakeIdGenerator;
 import com.damai.toolkit.WorkAndDataCenterIdHandler;
 import com.damai.toolkit.WorkDataCenterId;
 import org.springframework.context.annotation.Bean;
-import org.springframework.data.redis.core.StringRedisTemplate;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -16,12 +16,12 @@ public class IdGeneratorAutoConfig {
     /**
      * 创建并配置工作节点与数据中心id处理器Bean
      *
-     * @param stringRedisTemplate
+     * @param redisScriptRegistry
      * @return
      */
     @Bean
-    public WorkAndDataCenterIdHandler workAndDataCenterIdHandler(StringRedisTemplate stringRedisTemplate) {
-        return new WorkAndDataCenterIdHandler(stringRedisTemplate);
+    public WorkAndDataCenterIdHandler workAndDataCenterIdHandler(RedisScriptRegistry redisScriptRegistry) {
+        return new WorkAndDataCenterIdHandler(redisScriptRegistry);
     }
 
     /**
@@ -11,6 +11,9 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.util.Objects;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -51,6 +54,10 @@ public class SnowflakeIdGenerator {
     private long sequence = 0L;
     // 上一次生成ID的时间戳
     private long lastTimestamp = -1L;
+    // 生成id的锁，使用ReentrantLock代替synchronized，虚拟线程在等待时钟回拨时不会固定载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+    // 时钟回拨时等待的条件，等待期间释放锁（与原来Object.wait的语义一致）
+    private final Condition clockBackwards = lock.newCondition();
     // 网络地址（用于自动生成节点ID）
     private InetAddress inetAddress;
 
@@ -172,7 +179,7 @@ public class SnowflakeIdGenerator {
             if (offset <= five) {
                 try {
                     // 等待两倍的偏移时间（避免再次回拨）
-                    wait(offset << 1);
+                    clockBackwards.await(offset << 1, TimeUnit.MILLISECONDS);
                     timestamp = timeGen();
                     if (timestamp < lastTimestamp) {
                         // 重试后仍回拨，抛出异常
@@ -207,14 +214,19 @@ public class SnowflakeIdGenerator {
      *
      * @return
      */
-    public synchronized long nextId() {
-        // 获取处理后的时间戳
-        long timestamp = getBase();
-        // 组合ID：时间戳差 + 数据中心ID + 工作节点ID + 序列号
-        return ((timestamp - BASIS_TIME) << timestampLeftShift)
-                | (datacenterId << datacenterIdShift)
-                | (workerId << workerIdShift)
-                | sequence;
+    public long nextId() {
+        lock.lock();
+        try {
+            // 获取处理后的时间戳
+            long timestamp = getBase();
+            // 组合ID：时间戳差 + 数据中心ID + 工作节点ID + 序列号
+            return ((timestamp - BASIS_TIME) << timestampLeftShift)
+                    | (datacenterId << datacenterIdShift)
+                    | (workerId << workerIdShift)
+                    | sequence;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -224,16 +236,21 @@ public class SnowflakeIdGenerator {
      * @param tableCount 表数量（用于分表场景）
      * @return 包含分表信息的订单号
      */
-    public synchronized long getOrderNumber(long userId, long tableCount) {
-        long timestamp = getBase();
-        // 计算分表所需的移位位数
-        long sequenceShift = log2N(tableCount);
-        // 组合ID：时间戳差 + 数据中心ID + 工作节点ID + 序列号（移位后） + 用户ID取模（分表标识）
-        return ((timestamp - BASIS_TIME) << timestampLeftShift)
-                | (datacenterId << datacenterIdShift)
-                | (workerId << workerIdShift)
-                | (sequence << sequenceShift)
-                | (userId % tableCount);
+    public long getOrderNumber(long userId, long tableCount) {
+        lock.lock();
+        try {
+            long timestamp = getBase();
+            // 计算分表所需的移位位数
+            long sequenceShift = log2N(tableCount);
+            // 组合ID：时间戳差 + 数据中心ID + 工作节点ID + 序列号（移位后） + 用户ID取模（分表标识）
+            return ((timestamp - BASIS_TIME) << timestampLeftShift)
+                    | (datacenterId << datacenterIdShift)
+                    | (workerId << workerIdShift)
+                    | (sequence << sequenceShift)
+                    | (userId % tableCount);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -1,11 +1,9 @@
 package com.damai.toolkit;
 
 import com.alibaba.fastjson.JSON;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 
 import java.util.Arrays;
 import java.util.List;
@@ -24,28 +22,18 @@ public class WorkAndDataCenterIdHandler {
     private final String SNOWFLAKE_DATA_CENTER_ID_key = "snowflake_data_center_id";
     // redis操作中使用的键列表，包含工作节点id和数据中心的键名
     public final List<String> keys = Arrays.asList(SNOWFLAKE_WORK_ID_KEY, SNOWFLAKE_DATA_CENTER_ID_key);
-    // 注入redisTemplate
-    private final StringRedisTemplate stringRedisTemplate;
     // redis脚本对象，用于执行Lua脚本
-    private DefaultRedisScript<String> redisScript;
+    private final LuaScript<String> redisScript;
 
     /**
-     * 构造函数，初始化redisTemplate和redisScript
+     * 构造函数，注册redisScript
      *
-     * @param stringRedisTemplate
+     * @param redisScriptRegistry
      */
-    public WorkAndDataCenterIdHandler(StringRedisTemplate stringRedisTemplate) {
-        this.stringRedisTemplate = stringRedisTemplate;
-        try {
-            // 初始化redis脚本对象
-            redisScript = new DefaultRedisScript<>();
-            // 设置Lua脚本，从类路径下加载指定的Lua脚本
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/workAndDataCenterId.lua")));
-            // 设置脚本执行结果类型为String
-            redisScript.setResultType(String.class);
-        } catch (Exception e) {
-            log.error("redisScript init lua error", e);
-        }
+    public WorkAndDataCenterIdHandler(RedisScriptRegistry redisScriptRegistry) {
+        // 从类路径下加载指定的Lua脚本，脚本执行结果类型为String
+        this.redisScript = redisScriptRegistry.register("workAndDataCenterId", "lua/workAndDataCenterId.lua",
+                String.class);
     }
 
     /**
@@ -62,7 +50,7 @@ public class WorkAndDataCenterIdHandler {
             data[0] = String.valueOf(IdGeneratorConstant.MAX_WORKER_ID);
             data[1] = String.valueOf(IdGeneratorConstant.MAX_DATA_CENTER_ID);
             // 执行Lua脚本，获取工作节点id和数据中心的id
-            String result = stringRedisTemplate.execute(redisScript, keys, data);
+            String result = redisScript.execute(keys, data);
             // 将JSON字符串结果解析为WorkDataCenterId对象
             workDataCenterId = JSON.parseObject(result, WorkDataCenterId.class);
         } catch (Exception e) {
@@ -1,6 +1,7 @@
 package com.damai.core;
 
 
+import com.damai.redis.codec.RedisValueCodec;
 import lombok.Getter;
 
 /**
@@ -51,21 +52,23 @@ public enum RedisKeyManage {
     
     CHANNEL_DATA("channel_data_%s","channel_data的key","channel_data的value","k"),
     
-    PROGRAM("d_mai_program_%s","节目id","节目","k"),
+    PROGRAM("d_mai_program_%s","节目id","节目","k",RedisValueCodec.BINARY_CODEC,true),
     
-    PROGRAM_GROUP("d_mai_program_group_%s","节目分组id","节目分组","k"),
+    PROGRAM_GROUP("d_mai_program_group_%s","节目分组id","节目分组","k",RedisValueCodec.BINARY_CODEC,true),
     
-    PROGRAM_SHOW_TIME("d_mai_program_show_time_%s","节目演出时间id","节目演出时间","k"),
+    PROGRAM_SHOW_TIME("d_mai_program_show_time_%s","节目演出时间id","节目演出时间","k",RedisValueCodec.BINARY_CODEC,true),
     
-    PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH("d_mai_program_seat_no_sold_resolution_hash_%s_%s","节目座位未售卖集合_节目id_节目类型id","节目座位未售卖集合","k"),
+    PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH("d_mai_program_seat_no_sold_resolution_hash_%s_%s","节目座位未售卖集合_节目id_节目类型id","节目座位未售卖集合","k",true),
     
-    PROGRAM_SEAT_LOCK_RESOLUTION_HASH("d_mai_program_seat_lock_resolution_hash_%s_%s","节目座位锁定集合_节目id_节目类型id","节目座位锁定集合","k"),
+    PROGRAM_SEAT_LOCK_RESOLUTION_HASH("d_mai_program_seat_lock_resolution_hash_%s_%s","节目座位锁定集合_节目id_节目类型id","节目座位锁定集合","k",true),
     
-    PROGRAM_SEAT_SOLD_RESOLUTION_HASH("d_mai_program_seat_sold_resolution_hash_%s_%s","节目座位已售卖集合_节目id_节目类型id","节目座位已售卖集合","k"),
+    PROGRAM_SEAT_SOLD_RESOLUTION_HASH("d_mai_program_seat_sold_resolution_hash_%s_%s","节目座位已售卖集合_节目id_节目类型id","节目座位已售卖集合","k",true),
     
-    PROGRAM_TICKET_CATEGORY_LIST("d_mai_program_ticket_category_list_%s","节目票档集合id","节目票档集合","k"),
+    PROGRAM_TICKET_CATEGORY_LIST("d_mai_program_ticket_category_list_%s","节目票档集合id","节目票档集合","k",RedisValueCodec.JSON_CODEC,true),
     
-    PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION("d_mai_program_ticket_remain_number_hash_resolution_%s_%s","节目余票数量_节目id_节目票档id","节目余票数量","k"),
+    PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION("d_mai_program_ticket_remain_number_hash_resolution_%s_%s","节目余票数量_节目id_节目票档id","节目余票数量","k",true),
+    
+    PROGRAM_KEY_REGISTRY("d_mai_program_key_registry_%s","节目派生缓存key注册表_节目id","节目下按票档创建的座位、余票缓存key集合","k",true),
     
     PROGRAM_CATEGORY_HASH("d_mai_program_category_hash","节目类型hash集合","节目类型hash集合","k"),
     
@@ -85,7 +88,17 @@ public enum RedisKeyManage {
     
     LOGIN_USER_EMAIL_ERROR("d_mai_login_user_email_error_%s","登录错误的用户邮箱key","登录错误的用户邮箱次数","k"),
     
-    AREA_PROVINCE_LIST("d_mai_area_province_list","省地区集合","省地区集合数据","k")
+    AREA_PROVINCE_LIST("d_mai_area_province_list","省地区集合","省地区集合数据","k"),
+    
+    REFERENCE_DATA_VERSION("d_mai_reference_data_version_%s","参考数据版本号_数据名称","参考数据版本号","k"),
+    
+    PAY_BILL("d_mai_pay_bill_%s","支付账单_订单号","支付账单","k"),
+    
+    ORDER_USER_RECENT_LIST("d_mai_order_user_recent_list_%s","用户最近订单列表_用户id","用户最近订单列表","k"),
+    
+    ORDER_SHARD_EXPANSION_STATE("d_mai_order_shard_expansion_state","订单分库扩容状态","订单分库扩容状态","k"),
+    
+    ORDER_OUTBOX_EVENT_APPLIED("d_mai_order_outbox_event_applied_%s_%s","订单发件箱已执行的事件_节目id_事件id","订单发件箱已执行的事件","k",true)
     ;
 
     /**
@@ -108,11 +121,81 @@ public enum RedisKeyManage {
      * */
     private final String author;
 
+    /**
+     * value的编码方式，默认json
+     * */
+    private final String codec;
+
+    /**
+     * 是否缓存构建好的key，只适用于单个参数且取值范围有限的key（如按节目id区分的key）
+     * */
+    private final boolean intern;
+
+    /**
+     * 预编译的key模版
+     * */
+    private final RedisKeyTemplate template;
+
+    /**
+     * 是否支持hash tag布局，第一个占位符为节目id，启用redis.key.hashTag后包在{}中，
+     * 同一节目的库存相关key在redis集群中落在同一个槽位上，可以在同一个lua脚本中操作
+     * */
+    private final boolean hashTag;
+
+    /**
+     * hash tag布局的key，不支持hash tag时与key相同
+     * */
+    private final String hashTagKey;
+
+    /**
+     * hash tag布局的预编译key模版
+     * */
+    private final RedisKeyTemplate hashTagTemplate;
+
     RedisKeyManage(String key, String keyIntroduce, String valueIntroduce, String author){
+        this(key, keyIntroduce, valueIntroduce, author, RedisValueCodec.JSON_CODEC, false, false);
+    }
+
+    RedisKeyManage(String key, String keyIntroduce, String valueIntroduce, String author, boolean hashTag){
+        this(key, keyIntroduce, valueIntroduce, author, RedisValueCodec.JSON_CODEC, false, hashTag);
+    }
+
+    RedisKeyManage(String key, String keyIntroduce, String valueIntroduce, String author, String codec, boolean intern){
+        this(key, keyIntroduce, valueIntroduce, author, codec, intern, false);
+    }
+
+    RedisKeyManage(String key, String keyIntroduce, String valueIntroduce, String author, String codec, boolean intern,
+                   boolean hashTag){
         this.key = key;
         this.keyIntroduce = keyIntroduce;
         this.valueIntroduce = valueIntroduce;
         this.author = author;
+        this.codec = codec;
+        this.template = new RedisKeyTemplate(key);
+        this.intern = intern && template.getPlaceholderCount() == 1;
+        this.hashTag = hashTag && template.getPlaceholderCount() > 0;
+        this.hashTagKey = this.hashTag ? key.replaceFirst("%s", "{%s}") : key;
+        this.hashTagTemplate = this.hashTag ? new RedisKeyTemplate(hashTagKey) : template;
+    }
+
+    /**
+     * 当前布局下的key
+     *
+     * @param hashTagEnabled 是否启用hash tag布局
+     * @return key
+     */
+    public String getKey(boolean hashTagEnabled) {
+        return hashTagEnabled ? hashTagKey : key;
+    }
+
+    /**
+     * 当前布局下的预编译key模版
+     *
+     * @param hashTagEnabled 是否启用hash tag布局
+     * @return key模版
+     */
+    public RedisKeyTemplate getTemplate(boolean hashTagEnabled) {
+        return hashTagEnabled ? hashTagTemplate : template;
     }
 
     public static RedisKeyManage getRc(String keyCode) {
@@ -0,0 +1,96 @@
+package com.damai.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 预编译的redis key模版
+ * RedisKeyManage中的key在枚举初始化时按%s拆分成固定片段，构建key时直接按片段和参数拼接
+ * 避免每次构建都通过String.format解析格式串，整数参数直接追加到StringBuilder，不产生中间字符串
+ * 结果与String.format(key, args)一致：参数多于占位符时忽略多余参数，少于占位符时抛出MissingFormatArgumentException
+ * @author: 阿星不是程序员
+ **/
+public final class RedisKeyTemplate {
+    
+    private static final String PLACEHOLDER = "%s";
+    
+    /**
+     * 参数预估长度，用于初始化StringBuilder容量
+     */
+    private static final int ARG_ESTIMATE_LENGTH = 20;
+    
+    /**
+     * 占位符之间的固定片段，数量为占位符数量+1
+     */
+    private final String[] segments;
+    
+    /**
+     * 固定片段的总长度
+     */
+    private final int segmentLength;
+    
+    public RedisKeyTemplate(String pattern) {
+        List<String> segmentList = new ArrayList<>();
+        int from = 0;
+        int index;
+        while ((index = pattern.indexOf(PLACEHOLDER, from)) >= 0) {
+            segmentList.add(pattern.substring(from, index));
+            from = index + PLACEHOLDER.length();
+        }
+        segmentList.add(pattern.substring(from));
+        this.segments = segmentList.toArray(new String[0]);
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.segmentLength = length;
+    }
+    
+    /**
+     * 占位符数量
+     *
+     * @return 数量
+     */
+    public int getPlaceholderCount() {
+        return segments.length - 1;
+    }
+    
+    /**
+     * 构建带前缀的key
+     *
+     * @param prefix 前缀（含分隔符）
+     * @param args   占位符的值
+     * @return key
+     */
+    public String build(String prefix, Object... args) {
+        int placeholderCount = segments.length - 1;
+        int argLength = args == null ? 0 : args.length;
+        if (argLength < placeholderCount) {
+            throw new MissingFormatArgumentException(PLACEHOLDER);
+        }
+        if (placeholderCount == 0) {
+            return prefix.concat(segments[0]);
+        }
+        StringBuilder builder = new StringBuilder(prefix.length() + segmentLength + placeholderCount * ARG_ESTIMATE_LENGTH);
+        builder.append(prefix).append(segments[0]);
+        for (int i = 0; i < placeholderCount; i++) {
+            appendArg(builder, args[i]);
+            builder.append(segments[i + 1]);
+        }
+        return builder.toString();
+    }
+    
+    private static void appendArg(StringBuilder builder, Object arg) {
+        if (arg instanceof Long longArg) {
+            builder.append(longArg.longValue());
+        } else if (arg instanceof Integer intArg) {
+            builder.append(intArg.intValue());
+        } else if (arg instanceof String stringArg) {
+            builder.append(stringArg);
+        } else {
+            builder.append(arg);
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.damai.redis;
 
 import com.alibaba.fastjson.util.ParameterizedTypeImpl;
 import com.damai.util.StringUtil;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -124,6 +127,28 @@ public class CacheUtil {
         return list.stream().map(RedisKeyBuild::getRelKey).collect(Collectors.toList());
     }
 
+    /**
+     * 将key按redis集群的槽位分组，每组再按batchSize拆分
+     * 同一组内的key都在同一个槽位上（hash tag相同的key也会落在同一个槽位），可以在集群模式下用一条多key命令处理
+     *
+     * @param keys      key集合
+     * @param batchSize 每批最大数量
+     * @return 分批后的key
+     */
+    public static List<List<String>> partitionBySlot(Collection<String> keys, int batchSize) {
+        Map<Integer, List<String>> slotMap = new LinkedHashMap<>();
+        for (String key : keys) {
+            slotMap.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(key), k -> new ArrayList<>()).add(key);
+        }
+        List<List<String>> batchList = new ArrayList<>();
+        for (List<String> slotKeys : slotMap.values()) {
+            for (int from = 0; from < slotKeys.size(); from += batchSize) {
+                batchList.add(slotKeys.subList(from, Math.min(from + batchSize, slotKeys.size())));
+            }
+        }
+        return batchList;
+    }
+
     public static <T> List<T> optimizeRedisList(List<T> list){
         if (Objects.isNull(list)) {
             return new ArrayList<>();
@@ -0,0 +1,281 @@
+package com.damai.redis;
+
+import com.damai.exception.DaMaiFrameException;
+import com.damai.redis.codec.RedisValueCodecManager;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis批量操作构建器
+ * 先把多个操作加入队列，调用execute时通过一次executePipelined发送，只有一次网络往返
+ * 每个操作返回一个CompletableFuture，execute执行完成后可以直接取到对应类型的结果
+ * value的读写与RedisCacheImpl一致，都经过RedisValueCodecManager编解码
+ * 每个操作都直接使用连接上有返回值的命令（SET也返回Boolean），pipeline结果与操作一一对应
+ * 注意：pipeline不保证原子性，只是减少网络往返，需要原子性的场景仍然使用lua脚本
+ * 使用方式：
+ * RedisBatch batch = redisCache.batch();
+ * CompletableFuture<ProgramVo> programFuture = batch.get(programKey, ProgramVo.class);
+ * CompletableFuture<Boolean> loginFuture = batch.hasKey(loginKey);
+ * batch.execute();
+ * ProgramVo programVo = programFuture.join();
+ * @author: 阿星不是程序员
+ **/
+public final class RedisBatch {
+    
+    private final StringRedisTemplate redisTemplate;
+    
+    private final RedisValueCodecManager redisValueCodecManager;
+    
+    private final List<BatchOperation<?>> operationList = new ArrayList<>();
+    
+    private boolean executed;
+    
+    RedisBatch(StringRedisTemplate redisTemplate, RedisValueCodecManager redisValueCodecManager) {
+        this.redisTemplate = redisTemplate;
+        this.redisValueCodecManager = redisValueCodecManager;
+    }
+    
+    /**
+     * 获取字符串对象
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param clazz         类对象
+     * @return 结果
+     */
+    public <T> CompletableFuture<T> get(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        return add(connection -> connection.stringCommands().get(rawKey),
+                value -> redisValueCodecManager.decode((byte[]) value, clazz));
+    }
+    
+    /**
+     * 获取字符串对象, 并且字符串中是集合内容
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param clazz         类对象
+     * @return 结果，缓存不存在时为空集合
+     */
+    public <T> CompletableFuture<List<T>> getValueIsList(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        return add(connection -> connection.stringCommands().get(rawKey),
+                value -> redisValueCodecManager.decodeList((byte[]) value, clazz));
+    }
+    
+    /**
+     * 获取Hash中的单个值
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param hashKey       hash中的小key
+     * @param clazz         类对象
+     * @return 结果
+     */
+    public <T> CompletableFuture<T> getForHash(RedisKeyBuild redisKeyBuild, String hashKey, Class<T> clazz) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        CacheUtil.checkNotBlank(hashKey);
+        byte[] rawHashKey = hashKey.getBytes(StandardCharsets.UTF_8);
+        return add(connection -> connection.hashCommands().hGet(rawKey, rawHashKey),
+                value -> redisValueCodecManager.decode((byte[]) value, clazz));
+    }
+    
+    /**
+     * 判断key是否存在
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @return 结果
+     */
+    public CompletableFuture<Boolean> hasKey(RedisKeyBuild redisKeyBuild) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        return add(connection -> connection.keyCommands().exists(rawKey), RedisBatch::toBoolean);
+    }
+    
+    /**
+     * 设置缓存
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param object        对象
+     * @return 操作完成的通知
+     */
+    public CompletableFuture<Void> set(RedisKeyBuild redisKeyBuild, Object object) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        byte[] rawValue = redisValueCodecManager.encode(redisKeyBuild.getCodec(), object);
+        return add(connection -> connection.stringCommands().set(rawKey, rawValue), value -> null);
+    }
+    
+    /**
+     * 设置缓存并指定过期时间
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param object        对象
+     * @param ttl           过期时间
+     * @param timeUnit      时间单位
+     * @return 操作完成的通知
+     */
+    public CompletableFuture<Void> set(RedisKeyBuild redisKeyBuild, Object object, long ttl, TimeUnit timeUnit) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        byte[] rawValue = redisValueCodecManager.encode(redisKeyBuild.getCodec(), object);
+        // 使用SET PX而不是SETEX，SETEX在pipeline中只返回状态，驱动不会把它放进结果集合
+        return add(connection -> connection.stringCommands().set(rawKey, rawValue, Expiration.from(ttl, timeUnit),
+                RedisStringCommands.SetOption.upsert()), value -> null);
+    }
+    
+    /**
+     * 向Hash中放入值
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param hashKey       hash中的小key
+     * @param object        对象
+     * @return 操作完成的通知
+     */
+    public CompletableFuture<Void> putHash(RedisKeyBuild redisKeyBuild, String hashKey, Object object) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        CacheUtil.checkNotBlank(hashKey);
+        byte[] rawHashKey = hashKey.getBytes(StandardCharsets.UTF_8);
+        byte[] rawValue = redisValueCodecManager.encode(redisKeyBuild.getCodec(), object);
+        return add(connection -> connection.hashCommands().hSet(rawKey, rawHashKey, rawValue), value -> null);
+    }
+    
+    /**
+     * 按指定值自增
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param increment     增量
+     * @return 自增后的值
+     */
+    public CompletableFuture<Long> incrBy(RedisKeyBuild redisKeyBuild, long increment) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        return add(connection -> connection.stringCommands().incrBy(rawKey, increment),
+                value -> value == null ? null : Long.valueOf(String.valueOf(value)));
+    }
+    
+    /**
+     * 设置过期时间
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @param ttl           过期时间
+     * @param timeUnit      时间单位
+     * @return 是否设置成功
+     */
+    public CompletableFuture<Boolean> expire(RedisKeyBuild redisKeyBuild, long ttl, TimeUnit timeUnit) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        long millis = timeUnit.toMillis(ttl);
+        return add(connection -> connection.keyCommands().pExpire(rawKey, millis), RedisBatch::toBoolean);
+    }
+    
+    /**
+     * 删除key
+     *
+     * @param redisKeyBuild RedisKeyBuild
+     * @return 是否删除了key
+     */
+    public CompletableFuture<Boolean> del(RedisKeyBuild redisKeyBuild) {
+        byte[] rawKey = rawKey(redisKeyBuild);
+        return add(connection -> connection.keyCommands().del(rawKey), RedisBatch::toBoolean);
+    }
+    
+    /**
+     * 已加入的操作数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return operationList.size();
+    }
+    
+    /**
+     * 一次pipeline执行所有已加入的操作，并完成对应的future
+     * 执行失败时所有future都以异常结束，同时抛出异常
+     */
+    public void execute() {
+        if (executed) {
+            throw new DaMaiFrameException("redis batch already executed");
+        }
+        executed = true;
+        if (operationList.isEmpty()) {
+            return;
+        }
+        List<Object> results;
+        try {
+            // 结果保持原始字节，由各操作按自己的编码方式转换
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (BatchOperation<?> operation : operationList) {
+                    operation.command.apply(connection);
+                }
+                return null;
+            }, RedisSerializer.byteArray());
+        } catch (RuntimeException e) {
+            operationList.forEach(operation -> operation.future.completeExceptionally(e));
+            throw e;
+        }
+        // 每个操作都有返回值，数量不一致说明有命令的结果被丢弃，无法确定结果属于哪个操作
+        if (results.size() != operationList.size()) {
+            DaMaiFrameException exception = new DaMaiFrameException("redis batch result size mismatch, operation size : "
+                    + operationList.size() + " result size : " + results.size());
+            operationList.forEach(operation -> operation.future.completeExceptionally(exception));
+            throw exception;
+        }
+        for (int i = 0; i < operationList.size(); i++) {
+            operationList.get(i).complete(results.get(i));
+        }
+    }
+    
+    private <T> CompletableFuture<T> add(Function<RedisConnection, Object> command, Function<Object, T> converter) {
+        if (executed) {
+            throw new DaMaiFrameException("redis batch already executed");
+        }
+        BatchOperation<T> operation = new BatchOperation<>(command, converter);
+        operationList.add(operation);
+        return operation.future;
+    }
+    
+    private static byte[] rawKey(RedisKeyBuild redisKeyBuild) {
+        CacheUtil.checkNotBlank(redisKeyBuild);
+        return redisKeyBuild.getRelKey().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static Boolean toBoolean(Object value) {
+        if (value instanceof Long) {
+            return (Long) value > 0;
+        }
+        return Boolean.TRUE.equals(value);
+    }
+    
+    private static final class BatchOperation<T> {
+        
+        /**
+         * 在pipeline中执行的命令，pipeline中命令的返回值为null，结果在execute中统一取回
+         */
+        private final Function<RedisConnection, Object> command;
+        
+        /**
+         * pipeline结果到业务类型的转换
+         */
+        private final Function<Object, T> converter;
+        
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        
+        private BatchOperation(Function<RedisConnection, Object> command, Function<Object, T> converter) {
+            this.command = command;
+            this.converter = converter;
+        }
+        
+        private void complete(Object value) {
+            try {
+                future.complete(converter.apply(value));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
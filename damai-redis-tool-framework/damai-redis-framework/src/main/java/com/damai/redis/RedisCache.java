@@ -1281,6 +1281,24 @@ public interface RedisCache {
      * @return
      */
     <T> T getByType(RedisKeyBuild redisKeyBuild, Type genericReturnType);
+    /**
+     * 创建批量操作构建器，加入的操作在execute时通过一次pipeline发送
+     *
+     * @return RedisBatch
+     */
+    RedisBatch batch();
+
+    /**
+     * 批量获取字符串对象，结果顺序与传入的key顺序一致，不存在的key对应位置为null
+     * 集群模式下按slot分组，每个slot一次MGET，所有MGET通过一次pipeline发送，避免跨slot的MGET被拆成逐个GET
+     *
+     * @param keyList RedisKeyBuild集合
+     * @param clazz   类对象
+     * @param <T>     T
+     * @return 结果集合
+     */
+    <T> List<T> multiGet(List<RedisKeyBuild> keyList, Class<T> clazz);
+
     /**
      * 获取实例
      *
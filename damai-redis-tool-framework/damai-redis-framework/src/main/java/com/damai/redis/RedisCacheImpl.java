@@ -2,21 +2,32 @@ package com.damai.redis;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.damai.util.StringUtil;
-import lombok.AllArgsConstructor;
+import com.damai.redis.codec.RedisValueCodecManager;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisClusterConnection;
 import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,21 +40,52 @@ import java.util.stream.Collectors;
  * @description: redis方法实现
  * @author: 阿星不是程序员
  **/
-@AllArgsConstructor
 public class RedisCacheImpl implements RedisCache {
     
     private StringRedisTemplate redisTemplate;
+    
+    /**
+     * value按字节读写，所有value的序列化和反序列化都经过redisValueCodecManager
+     * key和hash的小key仍然是字符串，与redisTemplate共用连接
+     */
+    private RedisTemplate<String, byte[]> valueRedisTemplate;
+    
+    /**
+     * value编解码管理，按RedisKeyManage配置的编码方式写入，读取时按数据本身识别编码方式
+     */
+    private RedisValueCodecManager redisValueCodecManager;
+    
+    /**
+     * 是否为集群连接，首次使用时判断
+     */
+    private volatile Boolean cluster;
+    
+    public RedisCacheImpl(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, new RedisValueCodecManager(new ArrayList<>(), false));
+    }
+    
+    public RedisCacheImpl(StringRedisTemplate redisTemplate, RedisValueCodecManager redisValueCodecManager) {
+        this.redisTemplate = redisTemplate;
+        this.valueRedisTemplate = buildValueRedisTemplate(redisTemplate);
+        this.redisValueCodecManager = redisValueCodecManager;
+    }
+    
+    private static RedisTemplate<String, byte[]> buildValueRedisTemplate(StringRedisTemplate redisTemplate) {
+        RedisTemplate<String, byte[]> valueRedisTemplate = new RedisTemplate<>();
+        valueRedisTemplate.setConnectionFactory(redisTemplate.getConnectionFactory());
+        valueRedisTemplate.setKeySerializer(RedisSerializer.string());
+        valueRedisTemplate.setHashKeySerializer(RedisSerializer.string());
+        valueRedisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        valueRedisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        valueRedisTemplate.afterPropertiesSet();
+        return valueRedisTemplate;
+    }
 
     @Override
     public <T> T get(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        // 如果取String类型 则直接取出返回
-        String cachedValue = redisTemplate.opsForValue().get(key);
-        if (String.class.isAssignableFrom(clazz)) {
-            return (T) cachedValue;
-        }
-        return getComplex(cachedValue, clazz);
+        return redisValueCodecManager.decode(valueOps().get(key), clazz);
     }
     
     @Override
@@ -70,20 +112,14 @@ public class RedisCacheImpl implements RedisCache {
     public <T> List<T> getValueIsList(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String valueStr = redisTemplate.opsForValue().get(key);
-        if (StringUtil.isEmpty(valueStr)) {
-            return new ArrayList<>();
-        }
-        return JSON.parseArray(valueStr, clazz);
+        return redisValueCodecManager.decodeList(valueOps().get(key), clazz);
     }
     
     @Override
     public <T> List<T> getValueIsList(RedisKeyBuild redisKeyBuild, Class<T> clazz, Supplier<List<T>> supplier, long ttl, TimeUnit timeUnit) {
         CacheUtil.checkNotBlank(redisKeyBuild);
-        String key = redisKeyBuild.getRelKey();
-        String valueStr = redisTemplate.opsForValue().get(key);
-        List<T> tList = null;
-        if (CacheUtil.isEmpty(valueStr)) {
+        List<T> tList = getValueIsList(redisKeyBuild, clazz);
+        if (CacheUtil.isEmpty(tList)) {
             tList = supplier.get();
             if (CacheUtil.isEmpty(tList)) {
                 return null;
@@ -173,8 +209,7 @@ public class RedisCacheImpl implements RedisCache {
     public void set(RedisKeyBuild redisKeyBuild, Object object) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String json = object instanceof String ? (String) object : JSON.toJSONString(object);
-        redisTemplate.opsForValue().set(key, json);
+        valueOps().set(key, encode(redisKeyBuild, object));
     }
 
     @Override
@@ -186,16 +221,14 @@ public class RedisCacheImpl implements RedisCache {
     public void set(RedisKeyBuild redisKeyBuild, Object object, long ttl, TimeUnit timeUnit) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String json = object instanceof String ? (String) object : JSON.toJSONString(object);
-        redisTemplate.opsForValue().set(key, json, ttl, timeUnit);
+        valueOps().set(key, encode(redisKeyBuild, object), ttl, timeUnit);
     }
 
     @Override
     public boolean setIfAbsent(RedisKeyBuild redisKeyBuild, Object object) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String json = object instanceof String ? (String) object : JSON.toJSONString(object);
-        return redisTemplate.opsForValue().setIfAbsent(key, json);
+        return Boolean.TRUE.equals(valueOps().setIfAbsent(key, encode(redisKeyBuild, object)));
     }
 
     @Override
@@ -208,23 +241,17 @@ public class RedisCacheImpl implements RedisCache {
     @Override
     public void multiSet(Map<RedisKeyBuild, ?> map) {
         CacheUtil.checkNotEmpty(map);
-        Map<String, String> mapForSave = new HashMap<>(map.size());
-        map.forEach((hashKey, val) -> {
-            String jsonValue = val instanceof String ? (String) val : JSON.toJSONString(val);
-            mapForSave.put(hashKey.getRelKey(), jsonValue);
-        });
-        redisTemplate.opsForValue().multiSet(mapForSave);
+        Map<String, byte[]> mapForSave = new HashMap<>(map.size());
+        map.forEach((redisKeyBuild, val) -> mapForSave.put(redisKeyBuild.getRelKey(), encode(redisKeyBuild, val)));
+        valueOps().multiSet(mapForSave);
     }
 
     @Override
     public boolean multiSetIfAbsent(Map<RedisKeyBuild, ?> map) {
         CacheUtil.checkNotEmpty(map);
-        Map<String, String> mapForSave = new HashMap<>(map.size());
-        map.forEach((hashKey, val) -> {
-            String jsonValue = val instanceof String ? (String) val : JSON.toJSONString(val);
-            mapForSave.put(hashKey.getRelKey(), jsonValue);
-        });
-        return redisTemplate.opsForValue().multiSetIfAbsent(mapForSave);
+        Map<String, byte[]> mapForSave = new HashMap<>(map.size());
+        map.forEach((redisKeyBuild, val) -> mapForSave.put(redisKeyBuild.getRelKey(), encode(redisKeyBuild, val)));
+        return Boolean.TRUE.equals(valueOps().multiSetIfAbsent(mapForSave));
     }
 
     @Override
@@ -252,8 +279,7 @@ public class RedisCacheImpl implements RedisCache {
     public void putHash(RedisKeyBuild redisKeyBuild, String hashKey, Object value) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        redisTemplate.opsForHash().put(key, hashKey, jsonValue);
+        hashOps().put(key, hashKey, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -272,12 +298,9 @@ public class RedisCacheImpl implements RedisCache {
     public void putHash(RedisKeyBuild redisKeyBuild, Map<String, ?> map) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Map<String, String> mapForSave = new HashMap<>(map.size());
-        map.forEach((hashKey, val) -> {
-            String jsonValue = val instanceof String ? (String) val : JSON.toJSONString(val);
-            mapForSave.put(hashKey, jsonValue);
-        });
-        redisTemplate.opsForHash().putAll(key, mapForSave);
+        Map<String, byte[]> mapForSave = new HashMap<>(map.size());
+        map.forEach((hashKey, val) -> mapForSave.put(hashKey, encode(redisKeyBuild, val)));
+        hashOps().putAll(key, mapForSave);
     }
 
     @Override
@@ -296,8 +319,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotBlank(hashKey);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForHash().putIfAbsent(key, hashKey, jsonValue);
+        return hashOps().putIfAbsent(key, hashKey, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -305,12 +327,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotBlank(hashKey);
         String key = redisKeyBuild.getRelKey();
-        Object o = redisTemplate.opsForHash().get(key, hashKey);
-        // 如果取String类型 则直接取出返回
-        if (String.class.isAssignableFrom(clazz)) {
-            return (T) o;
-        }
-        return getComplex(o, clazz);
+        return redisValueCodecManager.decode(hashOps().get(key, hashKey), clazz);
     }
 
     @Override
@@ -318,15 +335,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotBlank(hashKey);
         String key = redisKeyBuild.getRelKey();
-        Object o = redisTemplate.opsForHash().get(key,hashKey);
-        if (o == null) {
-            return new ArrayList<>();
-        }
-        List<T> list = new ArrayList<>();
-        if (o instanceof String) {
-            list = JSON.parseArray((String)o, clazz);
-        }
-        return list;
+        return redisValueCodecManager.decodeList(hashOps().get(key, hashKey), clazz);
     }
 
     @Override
@@ -334,43 +343,31 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotBlank(hashKeys);
         String key = redisKeyBuild.getRelKey();
-        List<Object> objHashKeys = new ArrayList<>(hashKeys);
-        List<Object> multiGetObj = redisTemplate.opsForHash().multiGet(key, objHashKeys);
-        
+        List<byte[]> multiGetObj = hashOps().multiGet(key, hashKeys);
         if (CacheUtil.checkRedisListIsEmpty(multiGetObj)){
             return new ArrayList<>();
         }
-        if (String.class.isAssignableFrom(clazz)) {
-            return (List<T>) multiGetObj;
-        }
-
-        return parseObjects(multiGetObj, clazz);
+        return decode(multiGetObj, clazz);
     }
 
     @Override
     public <T> List<T> getAllForHash(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        List<Object> valuesObj = redisTemplate.opsForHash().values(key);
+        List<byte[]> valuesObj = hashOps().values(key);
         if (CacheUtil.checkRedisListIsEmpty(valuesObj)){
             return new ArrayList<>();
         }
-        if (String.class.isAssignableFrom(clazz)) {
-            return (List<T>) valuesObj;
-        }
-
-        return parseObjects(valuesObj, clazz);
+        return decode(valuesObj, clazz);
     }
     
     @Override
     public <T> Map<String,T> getAllMapForHash(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+        Map<String, byte[]> entries = hashOps().entries(key);
         Map<String,T> map = new HashMap<>(64);
-        entries.forEach((k,v) -> {
-            map.put(String.valueOf(k),getComplex(v, clazz));
-        });
+        entries.forEach((k,v) -> map.put(k, redisValueCodecManager.decode(v, clazz)));
         return map;
     }
 
@@ -378,14 +375,11 @@ public class RedisCacheImpl implements RedisCache {
     public <T> T indexForList(RedisKeyBuild redisKeyBuild, long index, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String cachedValue = redisTemplate.opsForList().index(key, index);
-        if (StringUtil.isEmpty(cachedValue)) {
+        byte[] cachedValue = listOps().index(key, index);
+        if (cachedValue == null || cachedValue.length == 0) {
             return null;
         }
-        if (String.class.isAssignableFrom(clazz)) {
-            return (T) cachedValue;
-        }
-        return getComplex(cachedValue, clazz);
+        return redisValueCodecManager.decode(cachedValue, clazz);
     }
 
     @Override
@@ -393,8 +387,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().leftPush(key, jsonValue);
+        return listOps().leftPush(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -402,12 +395,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(valueList);
         String key = redisKeyBuild.getRelKey();
-        List<String> jsonList = new ArrayList<>(valueList.size());
-        valueList.forEach(value -> {
-            String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-            jsonList.add(jsonValue);
-        });
-        return redisTemplate.opsForList().leftPushAll(key, jsonList);
+        List<byte[]> rawValueList = encodeAll(redisKeyBuild, valueList);
+        return listOps().leftPushAll(key, rawValueList);
     }
 
     @Override
@@ -415,8 +404,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().leftPushIfPresent(key, jsonValue);
+        return listOps().leftPushIfPresent(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -425,9 +413,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(pivot);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonPivot = value instanceof String ? (String) pivot : JSON.toJSONString(pivot);
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().leftPush(key, jsonPivot, jsonValue);
+        return listOps().leftPush(key, encode(redisKeyBuild, pivot), encode(redisKeyBuild, value));
     }
 
     @Override
@@ -435,8 +421,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().rightPush(key, jsonValue);
+        return listOps().rightPush(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -444,12 +429,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(valueList);
         String key = redisKeyBuild.getRelKey();
-        List<String> jsonList = new ArrayList<>(valueList.size());
-        valueList.forEach(value -> {
-            String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-            jsonList.add(jsonValue);
-        });
-        return redisTemplate.opsForList().rightPushAll(key, jsonList);
+        List<byte[]> rawValueList = encodeAll(redisKeyBuild, valueList);
+        return listOps().rightPushAll(key, rawValueList);
     }
 
     @Override
@@ -457,8 +438,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().rightPushIfPresent(key, jsonValue);
+        return listOps().rightPushIfPresent(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -467,9 +447,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(pivot);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonPivot = value instanceof String ? (String) pivot : JSON.toJSONString(pivot);
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().rightPush(key, jsonPivot, jsonValue);
+        return listOps().rightPush(key, encode(redisKeyBuild, pivot), encode(redisKeyBuild, value));
     }
 
     @Override
@@ -477,40 +455,39 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        redisTemplate.opsForList().set(key, index, jsonValue);
+        listOps().set(key, index, encode(redisKeyBuild, value));
     }
 
     @Override
     public <T> T leftPopForList(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.opsForList().leftPop(key);
-        return getComplex(s, clazz);
+        byte[] s = listOps().leftPop(key);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
     public <T> T leftPopBlockForList(RedisKeyBuild redisKeyBuild, Class<T> clazz, long timeout, TimeUnit unit) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.opsForList().leftPop(key, timeout, unit);
-        return getComplex(s, clazz);
+        byte[] s = listOps().leftPop(key, timeout, unit);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
     public <T> T rightPopForList(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.opsForList().rightPop(key);
-        return getComplex(s, clazz);
+        byte[] s = listOps().rightPop(key);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
     public <T> T rightPopBlockForList(RedisKeyBuild redisKeyBuild, Class<T> clazz, long timeout, TimeUnit unit) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.opsForList().rightPop(key, timeout, unit);
-        return getComplex(s, clazz);
+        byte[] s = listOps().rightPop(key, timeout, unit);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
@@ -519,8 +496,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(destinationKey);
         String sourceRelKey = sourceKey.getRelKey();
         String destinationRelKey = destinationKey.getRelKey();
-        String s = redisTemplate.opsForList().rightPopAndLeftPush(sourceRelKey, destinationRelKey);
-        return getComplex(s, clazz);
+        byte[] s = listOps().rightPopAndLeftPush(sourceRelKey, destinationRelKey);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
@@ -529,38 +506,37 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(destinationKey);
         String sourceRelKey = sourceKey.getRelKey();
         String destinationRelKey = destinationKey.getRelKey();
-        String s = redisTemplate.opsForList().rightPopAndLeftPush(sourceRelKey, destinationRelKey, timeout, unit);
-        return getComplex(s, clazz);
+        byte[] s = listOps().rightPopAndLeftPush(sourceRelKey, destinationRelKey, timeout, unit);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
     public <T> List<T> getAllForList(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        List list = redisTemplate.opsForList().range(key, 0, -1);
+        List<byte[]> list = listOps().range(key, 0, -1);
         if (CacheUtil.checkRedisListIsEmpty(list)){
             return new ArrayList<>();
         }
-        return parseObjects(list, clazz);
+        return decode(list, clazz);
     }
 
     @Override
     public <T> List<T> rangeForList(RedisKeyBuild redisKeyBuild, long start, long end, Class<T> clazz){
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        List range = redisTemplate.opsForList().range(key, start, end);
+        List<byte[]> range = listOps().range(key, start, end);
         if (CacheUtil.checkRedisListIsEmpty(range)){
             return new ArrayList<>();
         }
-        return parseObjects(range, clazz);
+        return decode(range, clazz);
     }
 
     @Override
     public Long removeForList(RedisKeyBuild redisKeyBuild, long index, Object value) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForList().remove(key, index, jsonValue);
+        return listOps().remove(key, index, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -658,8 +634,7 @@ public class RedisCacheImpl implements RedisCache {
     public Long addForSet(RedisKeyBuild redisKeyBuild, Object value) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForSet().add(key, jsonValue);
+        return setOps().add(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -667,12 +642,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(values);
         String key = redisKeyBuild.getRelKey();
-        List<String> jsonList = new ArrayList<>(values.size());
-        values.forEach(value -> {
-            String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-            jsonList.add(jsonValue);
-        });
-        return redisTemplate.opsForSet().add(key, jsonList.toArray(new String[]{}));
+        return setOps().add(key, encodeAll(redisKeyBuild, values).toArray(new byte[0][]));
     }
 
     @Override
@@ -680,8 +650,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForSet().remove(key, jsonValue);
+        return setOps().remove(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -689,18 +658,14 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(values);
         String key = redisKeyBuild.getRelKey();
-        List<String> jsonList = values.stream()
-                .map(value -> value instanceof String ? (String) value : JSON.toJSONString(value))
-                .collect(Collectors.toList());
-        return redisTemplate.opsForSet().remove(key, jsonList.toArray(new String[]{}));
+        return setOps().remove(key, encodeAll(redisKeyBuild, values).toArray());
     }
 
     @Override
     public <T> T popForSet(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String cachedValue = redisTemplate.opsForSet().pop(key);
-        return getComplex(cachedValue,clazz);
+        return redisValueCodecManager.decode(setOps().pop(key), clazz);
     }
 
     @Override
@@ -710,8 +675,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(destRedisKeyBuild);
         String key = redisKeyBuild.getRelKey();
         String destKey = destRedisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForSet().move(key, jsonValue, destKey);
+        return setOps().move(key, encode(redisKeyBuild, value), destKey);
     }
 
     @Override
@@ -726,8 +690,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForSet().isMember(key, jsonValue);
+        return setOps().isMember(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -736,8 +699,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(otherRedisKeyBuild);
         String key = redisKeyBuild.getRelKey();
         String otherKey = otherRedisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForSet().intersect(key, otherKey);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().intersect(key, otherKey);
+        return decode(set, clazz);
     }
 
     @Override
@@ -746,8 +709,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(otherRedisKeyBuilds);
         String key = redisKeyBuild.getRelKey();
         List<String> otherKeys = CacheUtil.getBatchKey(otherRedisKeyBuilds);
-        Set set = redisTemplate.opsForSet().intersect(key, otherKeys);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().intersect(key, otherKeys);
+        return decode(set, clazz);
     }
 
     @Override
@@ -778,8 +741,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(otherRedisKeyBuild);
         String key = redisKeyBuild.getRelKey();
         String otherKey = otherRedisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForSet().union(key, otherKey);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().union(key, otherKey);
+        return decode(set, clazz);
     }
 
     @Override
@@ -788,8 +751,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(otherRedisKeyBuilds);
         String key = redisKeyBuild.getRelKey();
         List<String> otherKeys = CacheUtil.getBatchKey(otherRedisKeyBuilds);
-        Set set = redisTemplate.opsForSet().union(key, otherKeys);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().union(key, otherKeys);
+        return decode(set, clazz);
     }
 
     @Override
@@ -820,8 +783,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(otherRedisKeyBuild);
         String key = redisKeyBuild.getRelKey();
         String otherKey = otherRedisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForSet().difference(key, otherKey);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().difference(key, otherKey);
+        return decode(set, clazz);
     }
 
     @Override
@@ -830,8 +793,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(otherRedisKeyBuilds);
         String key = redisKeyBuild.getRelKey();
         List<String> otherKeys = CacheUtil.getBatchKey(otherRedisKeyBuilds);
-        Set set = redisTemplate.opsForSet().difference(key, otherKeys);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().difference(key, otherKeys);
+        return decode(set, clazz);
     }
 
     @Override
@@ -860,35 +823,35 @@ public class RedisCacheImpl implements RedisCache {
     public <T> Set<T> membersForSet(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set members = redisTemplate.opsForSet().members(key);
-        return parseObjects(members,clazz);
+        Set<byte[]> members = setOps().members(key);
+        return decode(members, clazz);
     }
 
     @Override
     public <T> T randomMemberForSet(RedisKeyBuild redisKeyBuild, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.opsForSet().randomMember(key);
-        return getComplex(s, clazz);
+        byte[] s = setOps().randomMember(key);
+        return redisValueCodecManager.decode(s, clazz);
     }
 
     @Override
     public <T> List<T> randomMembersForSet(RedisKeyBuild redisKeyBuild, long count, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        List list = redisTemplate.opsForSet().randomMembers(key, count);
+        List<byte[]> list = setOps().randomMembers(key, count);
         if (CacheUtil.checkRedisListIsEmpty(list)){
             return new ArrayList<>();
         }
-        return parseObjects(list,clazz);
+        return decode(list, clazz);
     }
 
     @Override
     public <T> Set<T> distinctRandomMembersForSet(RedisKeyBuild redisKeyBuild, long count, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForSet().distinctRandomMembers(key, count);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = setOps().distinctRandomMembers(key, count);
+        return decode(set, clazz);
     }
 
     @Override
@@ -905,8 +868,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotEmpty(value);
         CacheUtil.checkNotEmpty(score);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        redisTemplate.opsForZSet().add(key,jsonValue,score);
+        zSetOps().add(key,encode(redisKeyBuild, value),score);
     }
 
     @Override
@@ -924,15 +886,12 @@ public class RedisCacheImpl implements RedisCache {
     public Long addForSortedSet(RedisKeyBuild redisKeyBuild, Map<?, Double> map) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> collect =
+        Set<ZSetOperations.TypedTuple<byte[]>> collect =
                 map.entrySet()
                         .stream()
-                        .map(item -> {
-                            String entryKey = item.getKey() instanceof String ? (String) item.getKey() : JSON.toJSONString(item.getKey());
-                            return new DefaultTypedTuple<>(entryKey, item.getValue());
-                        })
+                        .map(item -> (ZSetOperations.TypedTuple<byte[]>) new DefaultTypedTuple<>(encode(redisKeyBuild, item.getKey()), item.getValue()))
                         .collect(Collectors.toSet());
-        return redisTemplate.opsForZSet().add(key, collect);
+        return zSetOps().add(key, collect);
     }
 
     @Override
@@ -951,24 +910,23 @@ public class RedisCacheImpl implements RedisCache {
     public <T> Set<T> getRangeForSortedSet(RedisKeyBuild redisKeyBuild, long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set resultSet = redisTemplate.opsForZSet().range(key, start, end);
-        return parseObjects(resultSet,clazz);
+        Set<byte[]> resultSet = zSetOps().range(key, start, end);
+        return decode(resultSet, clazz);
     }
 
     @Override
     public <T> Set<T> getReverseRangeForSortedSet(RedisKeyBuild redisKeyBuild, long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set resultSet = redisTemplate.opsForZSet().reverseRange(key, start, end);
-        return parseObjects(resultSet,clazz);
+        Set<byte[]> resultSet = zSetOps().reverseRange(key, start, end);
+        return decode(resultSet, clazz);
     }
 
     @Override
     public Long delForSortedSet(RedisKeyBuild redisKeyBuild, Object value) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForZSet().remove(key, jsonValue);
+        return zSetOps().remove(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -976,11 +934,8 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(valueCollection);
         String key = redisKeyBuild.getRelKey();
-        List<String> jsonValueList = valueCollection.stream()
-                .map(value -> value instanceof String ? (String) value : JSON.toJSONString(value))
-                .distinct()
-                .collect(Collectors.toList());
-        return redisTemplate.opsForZSet().remove(key,jsonValueList.toArray());
+        List<byte[]> rawValueList = encodeAll(redisKeyBuild, valueCollection.stream().distinct().collect(Collectors.toList()));
+        return zSetOps().remove(key, rawValueList.toArray());
     }
 
     @Override
@@ -995,8 +950,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForZSet().incrementScore(key, jsonValue, delta);
+        return zSetOps().incrementScore(key, encode(redisKeyBuild, value), delta);
     }
 
     @Override
@@ -1011,8 +965,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForZSet().rank(key, jsonValue);
+        return zSetOps().rank(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -1020,35 +973,31 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForZSet().reverseRank(key, jsonValue);
+        return zSetOps().reverseRank(key, encode(redisKeyBuild, value));
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> rangeWithScoreForSortedSet(RedisKeyBuild redisKeyBuild, long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> cacheSet = redisTemplate.opsForZSet().rangeWithScores(key, start, end);
-        if (cacheSet == null) {
-            return new HashSet<>();
-        }
-        return typedTupleStringParseObjects(cacheSet, clazz);
+        Set<ZSetOperations.TypedTuple<byte[]>> cacheSet = zSetOps().rangeWithScores(key, start, end);
+        return decodeTypedTuple(cacheSet, clazz);
     }
 
     @Override
     public <T> Set<T> rangeByScoreForSortedSet(RedisKeyBuild redisKeyBuild, double min, double max, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForZSet().rangeByScore(key, min, max);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = zSetOps().rangeByScore(key, min, max);
+        return decode(set, clazz);
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> rangeByScoreWithScoreForSortedSet(RedisKeyBuild redisKeyBuild, double min, double max, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> cacheSet = redisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max);
-        return typedTupleStringParseObjects(cacheSet, clazz);
+        Set<ZSetOperations.TypedTuple<byte[]>> cacheSet = zSetOps().rangeByScoreWithScores(key, min, max);
+        return decodeTypedTuple(cacheSet, clazz);
     }
 
     @Override
@@ -1056,40 +1005,40 @@ public class RedisCacheImpl implements RedisCache {
                                                                                    long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> cacheSet = redisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max, start, end);
-        return typedTupleStringParseObjects(cacheSet, clazz);
+        Set<ZSetOperations.TypedTuple<byte[]>> cacheSet = zSetOps().rangeByScoreWithScores(key, min, max, start, end);
+        return decodeTypedTuple(cacheSet, clazz);
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> reverseRangeWithScoreForSortedSet(RedisKeyBuild redisKeyBuild, long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> cacheSet = redisTemplate.opsForZSet().reverseRangeWithScores(key, start, end);
-        return typedTupleStringParseObjects(cacheSet, clazz);
+        Set<ZSetOperations.TypedTuple<byte[]>> cacheSet = zSetOps().reverseRangeWithScores(key, start, end);
+        return decodeTypedTuple(cacheSet, clazz);
     }
 
     @Override
     public <T> Set<T> reverseRangeByScoreForSortedSet(RedisKeyBuild redisKeyBuild, double min, double max, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForZSet().reverseRangeByScore(key, min, max);
-        return parseObjects(set,clazz);
+        Set<byte[]> set = zSetOps().reverseRangeByScore(key, min, max);
+        return decode(set, clazz);
     }
 
     @Override
     public <T> Set<ZSetOperations.TypedTuple<T>> reverseRangeByScoreWithScoreForSortedSet(RedisKeyBuild redisKeyBuild, double min, double max, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set<ZSetOperations.TypedTuple<String>> cacheSet = redisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, min, max);
-        return typedTupleStringParseObjects(cacheSet, clazz);
+        Set<ZSetOperations.TypedTuple<byte[]>> cacheSet = zSetOps().reverseRangeByScoreWithScores(key, min, max);
+        return decodeTypedTuple(cacheSet, clazz);
     }
 
     @Override
     public <T> Set<T> reverseRangeByScoreForSortedSet(RedisKeyBuild redisKeyBuild, double min, double max, long start, long end, Class<T> clazz) {
         CacheUtil.checkNotBlank(redisKeyBuild);
         String key = redisKeyBuild.getRelKey();
-        Set set = redisTemplate.opsForZSet().reverseRangeByScore(key, min, max, start, end);
-        return parseObjects(set, clazz);
+        Set<byte[]> set = zSetOps().reverseRangeByScore(key, min, max, start, end);
+        return decode(set, clazz);
     }
 
     @Override
@@ -1111,8 +1060,7 @@ public class RedisCacheImpl implements RedisCache {
         CacheUtil.checkNotBlank(redisKeyBuild);
         CacheUtil.checkNotEmpty(value);
         String key = redisKeyBuild.getRelKey();
-        String jsonValue = value instanceof String ? (String) value : JSON.toJSONString(value);
-        return redisTemplate.opsForZSet().score(key, jsonValue);
+        return zSetOps().score(key, encode(redisKeyBuild, value));
     }
 
     @Override
@@ -1183,11 +1131,15 @@ public class RedisCacheImpl implements RedisCache {
     @Override
     public <T> T getByType(RedisKeyBuild redisKeyBuild, Type genericReturnType){
         String key = redisKeyBuild.getRelKey();
-        String s = redisTemplate.boundValueOps(key).get();
-        if (StringUtil.isEmpty(s)) {
+        byte[] s = valueOps().get(key);
+        if (s == null || s.length == 0) {
             return null;
         }
-        return JSONObject.parseObject(s ,genericReturnType);
+        if (genericReturnType instanceof Class<?> clazz) {
+            return (T) redisValueCodecManager.decode(s, clazz);
+        }
+        // 带泛型的类型只有json编码能够表达，这类key按json写入
+        return JSONObject.parseObject(new String(s, StandardCharsets.UTF_8), genericReturnType);
     }
 
     @Override
@@ -1196,6 +1148,126 @@ public class RedisCacheImpl implements RedisCache {
     }
 
 
+    @Override
+    public RedisBatch batch() {
+        return new RedisBatch(redisTemplate, redisValueCodecManager);
+    }
+    
+    @Override
+    public <T> List<T> multiGet(List<RedisKeyBuild> keyList, Class<T> clazz) {
+        CacheUtil.checkNotEmpty(keyList);
+        List<String> batchKey = CacheUtil.getBatchKey(keyList);
+        List<T> resultList = new ArrayList<>(batchKey.size());
+        if (!isCluster()) {
+            List<byte[]> valueList = valueOps().multiGet(batchKey);
+            for (int i = 0; i < batchKey.size(); i++) {
+                resultList.add(valueList == null ? null : redisValueCodecManager.decode(valueList.get(i), clazz));
+            }
+            return resultList;
+        }
+        // 集群模式下按slot分组，记录每个key在原集合中的位置
+        Map<Integer, List<Integer>> slotIndexMap = new LinkedHashMap<>();
+        for (int i = 0; i < batchKey.size(); i++) {
+            slotIndexMap.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(batchKey.get(i)), k -> new ArrayList<>()).add(i);
+            resultList.add(null);
+        }
+        List<List<Integer>> slotIndexList = new ArrayList<>(slotIndexMap.values());
+        // 每个slot一条mget，通过一次pipeline发送，结果按发送顺序返回，再按记录的位置放回原集合
+        List<Object> slotValueList = valueRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, byte[]> redisOperations = (RedisOperations<String, byte[]>) operations;
+                for (List<Integer> indexList : slotIndexList) {
+                    redisOperations.opsForValue().multiGet(indexList.stream().map(batchKey::get).collect(Collectors.toList()));
+                }
+                return null;
+            }
+        });
+        for (int slot = 0; slot < slotIndexList.size() && slot < slotValueList.size(); slot++) {
+            if (!(slotValueList.get(slot) instanceof List<?> valueList)) {
+                continue;
+            }
+            List<Integer> indexList = slotIndexList.get(slot);
+            for (int i = 0; i < indexList.size() && i < valueList.size(); i++) {
+                resultList.set(indexList.get(i), redisValueCodecManager.decode((byte[]) valueList.get(i), clazz));
+            }
+        }
+        return resultList;
+    }
+    
+    private boolean isCluster() {
+        Boolean isCluster = cluster;
+        if (isCluster == null) {
+            isCluster = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection instanceof RedisClusterConnection);
+            cluster = Boolean.TRUE.equals(isCluster);
+            isCluster = cluster;
+        }
+        return isCluster;
+    }
+
+    private ValueOperations<String, byte[]> valueOps() {
+        return valueRedisTemplate.opsForValue();
+    }
+    
+    private HashOperations<String, String, byte[]> hashOps() {
+        return valueRedisTemplate.opsForHash();
+    }
+    
+    private ListOperations<String, byte[]> listOps() {
+        return valueRedisTemplate.opsForList();
+    }
+    
+    private SetOperations<String, byte[]> setOps() {
+        return valueRedisTemplate.opsForSet();
+    }
+    
+    private ZSetOperations<String, byte[]> zSetOps() {
+        return valueRedisTemplate.opsForZSet();
+    }
+    
+    /**
+     * 按key配置的编码方式编码value
+     */
+    private byte[] encode(RedisKeyBuild redisKeyBuild, Object value) {
+        return redisValueCodecManager.encode(redisKeyBuild.getCodec(), value);
+    }
+    
+    private List<byte[]> encodeAll(RedisKeyBuild redisKeyBuild, Collection<?> values) {
+        List<byte[]> rawValueList = new ArrayList<>(values.size());
+        values.forEach(value -> rawValueList.add(encode(redisKeyBuild, value)));
+        return rawValueList;
+    }
+    
+    private <T> List<T> decode(List<byte[]> sources, Class<T> clazz) {
+        if (sources == null) {
+            return new ArrayList<>();
+        }
+        List<T> resultList = new ArrayList<>(sources.size());
+        sources.forEach(source -> resultList.add(redisValueCodecManager.decode(source, clazz)));
+        return resultList;
+    }
+    
+    private <T> Set<T> decode(Set<byte[]> sources, Class<T> clazz) {
+        if (sources == null) {
+            return new HashSet<>();
+        }
+        Set<T> resultSet = new HashSet<>(sources.size());
+        sources.forEach(source -> resultSet.add(redisValueCodecManager.decode(source, clazz)));
+        return resultSet;
+    }
+    
+    private <T> Set<ZSetOperations.TypedTuple<T>> decodeTypedTuple(Set<ZSetOperations.TypedTuple<byte[]>> sources, Class<T> clazz) {
+        if (sources == null) {
+            return new HashSet<>();
+        }
+        Set<ZSetOperations.TypedTuple<T>> set = new HashSet<>(sources.size());
+        for (ZSetOperations.TypedTuple<byte[]> typedTuple : sources) {
+            set.add(new DefaultTypedTuple<>(redisValueCodecManager.decode(typedTuple.getValue(), clazz), typedTuple.getScore()));
+        }
+        return set;
+    }
+
     public <T> T getComplex(Object source, Class<T> clazz) {
         if (source == null) {
             return null;
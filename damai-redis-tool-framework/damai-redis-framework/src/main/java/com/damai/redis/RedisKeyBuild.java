@@ -2,9 +2,14 @@ package com.damai.redis;
 
 
 import com.damai.core.RedisKeyManage;
+import com.damai.core.RedisKeyTemplate;
 import com.damai.core.SpringUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Getter;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -14,19 +19,50 @@ import java.util.Objects;
  **/
 @Getter
 public final class RedisKeyBuild {
+    
+    /**
+     * 每类key缓存的最大数量，超过后按访问频率淘汰，热点key留在缓存中
+     */
+    private static final int INTERN_MAX_SIZE = 10000;
+    
+    /**
+     * 需要缓存的key，按RedisKeyManage区分，缓存的key为占位符的值，每类key的缓存数量有上限
+     */
+    private static final Map<RedisKeyManage, InternCache> INTERN_CACHE_MAP = new EnumMap<>(RedisKeyManage.class);
+    
+    /**
+     * 当前的key前缀
+     */
+    private static volatile KeyPrefix currentKeyPrefix;
+    
+    static {
+        for (RedisKeyManage redisKeyManage : RedisKeyManage.values()) {
+            if (redisKeyManage.isIntern()) {
+                INTERN_CACHE_MAP.put(redisKeyManage, new InternCache());
+            }
+        }
+    }
+    
     /**
      * 封装后的真实 Redis Key，包含前缀和格式化后的业务key
      */
     private final String relKey;
 
+    /**
+     * value的编码方式，来自RedisKeyManage
+     */
+    private final String codec;
+
     /**
      * 私有构造方法，防止外部直接实例化，
      * 只能通过静态方法构造RedisKeyBuild对象
      *
      * @param relKey 实际使用的完整Redis Key
+     * @param codec  value的编码方式
      */
-    private RedisKeyBuild(String relKey) {
+    private RedisKeyBuild(String relKey, String codec) {
         this.relKey = relKey;
+        this.codec = codec;
     }
 
     /**
@@ -36,20 +72,41 @@ public final class RedisKeyBuild {
      * @param args           占位符的值
      */
     public static RedisKeyBuild createRedisKey(RedisKeyManage redisKeyManage, Object... args) {
-        // 通过 String.format 将模板 Key 中的占位符替换成具体参数
-        String redisRelKey = String.format(redisKeyManage.getKey(), args);
         // 加上全局前缀，保证不同服务或环境的 Key 不会冲突
-        return new RedisKeyBuild(SpringUtil.getPrefixDistinctionName() + "-" + redisRelKey);
+        String prefix = keyPrefix();
+        InternCache internCache = INTERN_CACHE_MAP.get(redisKeyManage);
+        // 通过预编译的模版将占位符替换成具体参数，结果与String.format一致
+        RedisKeyTemplate template = redisKeyManage.getTemplate(SpringUtil.isRedisKeyHashTag());
+        if (internCache != null && args != null && args.length == 1 && args[0] != null) {
+            return internCache.get(prefix, template, args[0], redisKeyManage.getCodec());
+        }
+        return new RedisKeyBuild(template.build(prefix, args), redisKeyManage.getCodec());
     }
 
     /**
      * 获取带前缀的 Redis Key 字符串（不支持格式化参数）
+     * 启用hash tag布局时返回hash tag布局的key
      *
      * @param redisKeyManage
      * @return
      */
     public static String getRedisKey(RedisKeyManage redisKeyManage) {
-        return SpringUtil.getPrefixDistinctionName() + "-" + redisKeyManage.getKey();
+        return keyPrefix().concat(redisKeyManage.getKey(SpringUtil.isRedisKeyHashTag()));
+    }
+
+    /**
+     * 获取key的全局前缀（前缀区分名称 + "-"），前缀区分名称不变时复用同一个字符串
+     *
+     * @return 前缀
+     */
+    private static String keyPrefix() {
+        String prefixDistinctionName = SpringUtil.getPrefixDistinctionName();
+        KeyPrefix keyPrefix = currentKeyPrefix;
+        if (keyPrefix == null || !keyPrefix.prefixDistinctionName.equals(prefixDistinctionName)) {
+            keyPrefix = new KeyPrefix(prefixDistinctionName);
+            currentKeyPrefix = keyPrefix;
+        }
+        return keyPrefix.value;
     }
 
     /**
@@ -79,4 +136,46 @@ public final class RedisKeyBuild {
     public int hashCode() {
         return Objects.hash(relKey);
     }
+
+    /**
+     * 单类key的缓存，容量有上限，前缀或hash tag布局变化时（只会发生在容器启动阶段）整体清空
+     */
+    private static final class InternCache {
+        
+        private volatile String prefix;
+        
+        private volatile RedisKeyTemplate template;
+        
+        private final Cache<Object, RedisKeyBuild> cache = Caffeine.newBuilder()
+                .initialCapacity(256)
+                .maximumSize(INTERN_MAX_SIZE)
+                .build();
+        
+        private RedisKeyBuild get(String currentPrefix, RedisKeyTemplate currentTemplate, Object arg, String codec) {
+            if (!currentPrefix.equals(prefix) || currentTemplate != template) {
+                cache.invalidateAll();
+                prefix = currentPrefix;
+                template = currentTemplate;
+            }
+            RedisKeyBuild redisKeyBuild = cache.getIfPresent(arg);
+            if (redisKeyBuild != null) {
+                return redisKeyBuild;
+            }
+            redisKeyBuild = new RedisKeyBuild(currentTemplate.build(currentPrefix, arg), codec);
+            cache.put(arg, redisKeyBuild);
+            return redisKeyBuild;
+        }
+    }
+    
+    private static final class KeyPrefix {
+        
+        private final String prefixDistinctionName;
+        
+        private final String value;
+        
+        private KeyPrefix(String prefixDistinctionName) {
+            this.prefixDistinctionName = prefixDistinctionName;
+            this.value = prefixDistinctionName + "-";
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package com.damai.redis;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: lua脚本的KEYS参数
+ * 脚本中访问的key都要通过KEYS传入，redis集群才能按key路由到正确的节点并校验是否在同一个槽位上
+ * 参数中需要引用key的地方传入add返回的下标，脚本中通过KEYS[下标]取得key，同一个key只传入一次
+ * @author: 阿星不是程序员
+ **/
+public class RedisScriptKeys {
+
+    /**
+     * key -> 在KEYS中的下标（从1开始，与lua一致）
+     */
+    private final Map<String, Integer> keyIndexMap = new LinkedHashMap<>();
+
+    /**
+     * 添加key
+     *
+     * @param key key
+     * @return key在KEYS中的下标，从1开始
+     */
+    public int add(String key) {
+        return keyIndexMap.computeIfAbsent(key, k -> keyIndexMap.size() + 1);
+    }
+
+    /**
+     * 添加key
+     *
+     * @param redisKeyBuild key包装
+     * @return key在KEYS中的下标，从1开始
+     */
+    public int add(RedisKeyBuild redisKeyBuild) {
+        return add(redisKeyBuild.getRelKey());
+    }
+
+    /**
+     * 按添加顺序排列的key，作为执行脚本时的KEYS参数
+     *
+     * @return key集合
+     */
+    public List<String> getKeys() {
+        return new ArrayList<>(keyIndexMap.keySet());
+    }
+}
@@ -0,0 +1,54 @@
+package com.damai.redis.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 二进制编码读取器
+ * @author: 阿星不是程序员
+ **/
+final class BinaryInput {
+    
+    private final byte[] buffer;
+    
+    private int position;
+    
+    BinaryInput(byte[] buffer, int position) {
+        this.buffer = buffer;
+        this.position = position;
+    }
+    
+    byte readByte() {
+        return buffer[position++];
+    }
+    
+    int readFixedInt() {
+        return ((buffer[position++] & 0xFF) << 24)
+                | ((buffer[position++] & 0xFF) << 16)
+                | ((buffer[position++] & 0xFF) << 8)
+                | (buffer[position++] & 0xFF);
+    }
+    
+    long readFixedLong() {
+        return ((long) readFixedInt() << 32) | (readFixedInt() & 0xFFFFFFFFL);
+    }
+    
+    long readVarLong() {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position++];
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+    
+    String readString() {
+        int length = (int) readVarLong();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
@@ -0,0 +1,369 @@
+package com.damai.redis.codec;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 二进制编解码
+ * 按类结构（字段声明顺序）紧凑写入字段值，不写字段名，整数使用zigzag变长编码，日期写毫秒数
+ * 支持字符串、数字、布尔、BigDecimal、Date、枚举、嵌套对象以及元素类型明确的List，其余类型的字段内嵌json
+ * 数据格式：魔数(1字节) + 版本(1字节) + 类结构指纹(4字节) + 字段数据
+ * 类结构发生变化（增删改字段）时指纹不一致，解码返回null，由调用方按缓存未命中重新加载并覆盖
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class BinaryRedisValueCodec implements RedisValueCodec {
+    
+    /**
+     * 魔数，json文本不会以此字节开头，用于区分新旧编码
+     */
+    public static final byte MAGIC = (byte) 0xDA;
+    
+    private static final byte VERSION = 1;
+    
+    private static final int HEADER_LENGTH = 6;
+    
+    private static final byte NULL_FLAG = 0;
+    
+    private static final byte NOT_NULL_FLAG = 1;
+    
+    private final Map<Class<?>, ClassSchema> schemaCache = new ConcurrentHashMap<>();
+    
+    @Override
+    public String name() {
+        return BINARY_CODEC;
+    }
+    
+    @Override
+    public byte[] encode(Object value) {
+        if (!isBeanType(value.getClass())) {
+            // 字符串、数字、集合等非业务对象按json写入，读取时识别为json
+            return JSON.toJSONString(value).getBytes(StandardCharsets.UTF_8);
+        }
+        ClassSchema schema = getSchema(value.getClass());
+        BinaryOutput output = new BinaryOutput(256);
+        output.writeByte(MAGIC);
+        output.writeByte(VERSION);
+        output.writeFixedInt(schema.fingerprint);
+        writeObject(output, schema, value);
+        return output.toByteArray();
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] data, Class<T> clazz) {
+        if (!canDecode(data) || !isBeanType(clazz)) {
+            return null;
+        }
+        ClassSchema schema = getSchema(clazz);
+        BinaryInput input = new BinaryInput(data, 2);
+        if (input.readFixedInt() != schema.fingerprint) {
+            log.info("binary codec schema changed, class : {}", clazz.getName());
+            return null;
+        }
+        return (T) readObject(input, schema);
+    }
+    
+    @Override
+    public boolean canDecode(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == MAGIC && data[1] == VERSION;
+    }
+    
+    private ClassSchema getSchema(Class<?> clazz) {
+        ClassSchema schema = schemaCache.get(clazz);
+        if (schema == null) {
+            // 嵌套类的结构在使用时再解析，这里不会递归调用computeIfAbsent
+            schema = schemaCache.computeIfAbsent(clazz, ClassSchema::new);
+        }
+        return schema;
+    }
+    
+    private void writeObject(BinaryOutput output, ClassSchema schema, Object value) {
+        for (FieldSchema fieldSchema : schema.fields) {
+            Object fieldValue;
+            try {
+                fieldValue = fieldSchema.field.get(value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            writeValue(output, fieldSchema.kind, fieldSchema.type, fieldSchema.elementKind, fieldSchema.elementType,
+                    fieldSchema.field.getGenericType(), fieldValue);
+        }
+    }
+    
+    private Object readObject(BinaryInput input, ClassSchema schema) {
+        Object value = schema.newInstance();
+        for (FieldSchema fieldSchema : schema.fields) {
+            Object fieldValue = readValue(input, fieldSchema.kind, fieldSchema.type, fieldSchema.elementKind,
+                    fieldSchema.elementType, fieldSchema.field.getGenericType());
+            if (fieldValue == null && fieldSchema.type.isPrimitive()) {
+                continue;
+            }
+            try {
+                fieldSchema.field.set(value, fieldValue);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return value;
+    }
+    
+    private void writeValue(BinaryOutput output, Kind kind, Class<?> type, Kind elementKind, Class<?> elementType,
+                            Type genericType, Object value) {
+        if (value == null) {
+            output.writeByte(NULL_FLAG);
+            return;
+        }
+        output.writeByte(NOT_NULL_FLAG);
+        switch (kind) {
+            case STRING -> output.writeString((String) value);
+            case LONG -> output.writeVarLong((Long) value);
+            case INT -> output.writeVarLong((Integer) value);
+            case SHORT -> output.writeVarLong((Short) value);
+            case BYTE -> output.writeByte((Byte) value);
+            case BOOLEAN -> output.writeByte((Boolean) value ? 1 : 0);
+            case DOUBLE -> output.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+            case FLOAT -> output.writeFixedInt(Float.floatToRawIntBits((Float) value));
+            case BIG_DECIMAL -> output.writeString(((BigDecimal) value).toString());
+            case DATE -> output.writeVarLong(((Date) value).getTime());
+            case ENUM -> output.writeString(((Enum<?>) value).name());
+            case OBJECT -> writeObject(output, getSchema(type), value);
+            case LIST -> {
+                List<?> list = (List<?>) value;
+                output.writeVarLong(list.size());
+                for (Object element : list) {
+                    writeValue(output, elementKind, elementType, null, null, elementType, element);
+                }
+            }
+            default -> output.writeString(JSON.toJSONString(value));
+        }
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue(BinaryInput input, Kind kind, Class<?> type, Kind elementKind, Class<?> elementType,
+                             Type genericType) {
+        if (input.readByte() == NULL_FLAG) {
+            return null;
+        }
+        return switch (kind) {
+            case STRING -> input.readString();
+            case LONG -> input.readVarLong();
+            case INT -> (int) input.readVarLong();
+            case SHORT -> (short) input.readVarLong();
+            case BYTE -> input.readByte();
+            case BOOLEAN -> input.readByte() == 1;
+            case DOUBLE -> Double.longBitsToDouble(input.readFixedLong());
+            case FLOAT -> Float.intBitsToFloat(input.readFixedInt());
+            case BIG_DECIMAL -> new BigDecimal(input.readString());
+            case DATE -> new Date(input.readVarLong());
+            case ENUM -> Enum.valueOf((Class<Enum>) type, input.readString());
+            case OBJECT -> readObject(input, getSchema(type));
+            case LIST -> {
+                int size = (int) input.readVarLong();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input, elementKind, elementType, null, null, elementType));
+                }
+                yield list;
+            }
+            default -> JSON.parseObject(input.readString(), genericType);
+        };
+    }
+    
+    /**
+     * 字段值的编码方式
+     */
+    private enum Kind {
+        STRING, LONG, INT, SHORT, BYTE, BOOLEAN, DOUBLE, FLOAT, BIG_DECIMAL, DATE, ENUM, OBJECT, LIST, JSON
+    }
+    
+    private static Kind scalarKind(Class<?> type) {
+        if (type == String.class) {
+            return Kind.STRING;
+        } else if (type == Long.class || type == long.class) {
+            return Kind.LONG;
+        } else if (type == Integer.class || type == int.class) {
+            return Kind.INT;
+        } else if (type == Short.class || type == short.class) {
+            return Kind.SHORT;
+        } else if (type == Byte.class || type == byte.class) {
+            return Kind.BYTE;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (type == Double.class || type == double.class) {
+            return Kind.DOUBLE;
+        } else if (type == Float.class || type == float.class) {
+            return Kind.FLOAT;
+        } else if (type == BigDecimal.class) {
+            return Kind.BIG_DECIMAL;
+        } else if (type == Date.class) {
+            return Kind.DATE;
+        } else if (type.isEnum()) {
+            return Kind.ENUM;
+        }
+        return null;
+    }
+    
+    /**
+     * 判断是否按嵌套对象编码：业务类、非接口/抽象类、有无参构造
+     */
+    private static boolean isBeanType(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                || type.getName().startsWith("java.") || Collection.class.isAssignableFrom(type)
+                || Map.class.isAssignableFrom(type)) {
+            return false;
+        }
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+    
+    private static Kind elementKind(Class<?> type) {
+        Kind kind = scalarKind(type);
+        if (kind != null) {
+            return kind;
+        }
+        return isBeanType(type) ? Kind.OBJECT : null;
+    }
+    
+    private static List<Field> collectFields(Class<?> clazz) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        List<Field> fieldList = new ArrayList<>();
+        for (Class<?> current : hierarchy) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                fieldList.add(field);
+            }
+        }
+        return fieldList;
+    }
+    
+    /**
+     * 类结构指纹，包含字段名、字段类型以及嵌套类的结构
+     */
+    private static int fingerprint(Class<?> clazz, Set<Class<?>> visiting) {
+        if (!visiting.add(clazz)) {
+            return clazz.getName().hashCode();
+        }
+        int hash = clazz.getName().hashCode();
+        for (Field field : collectFields(clazz)) {
+            hash = 31 * hash + field.getName().hashCode();
+            hash = 31 * hash + field.getGenericType().getTypeName().hashCode();
+            Class<?> type = field.getType();
+            if (scalarKind(type) == null && isBeanType(type)) {
+                hash = 31 * hash + fingerprint(type, visiting);
+            } else if (List.class.isAssignableFrom(type)) {
+                Class<?> elementType = listElementType(field);
+                if (elementType != null && scalarKind(elementType) == null && isBeanType(elementType)) {
+                    hash = 31 * hash + fingerprint(elementType, visiting);
+                }
+            }
+        }
+        visiting.remove(clazz);
+        return hash;
+    }
+    
+    private static Class<?> listElementType(Field field) {
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType parameterizedType) {
+            Type argument = parameterizedType.getActualTypeArguments()[0];
+            if (argument instanceof Class<?> argumentClass) {
+                return argumentClass;
+            }
+        }
+        return null;
+    }
+    
+    private static final class ClassSchema {
+        
+        private final Constructor<?> constructor;
+        
+        private final FieldSchema[] fields;
+        
+        private final int fingerprint;
+        
+        private ClassSchema(Class<?> clazz) {
+            try {
+                this.constructor = clazz.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("binary codec requires a no-arg constructor : " + clazz.getName(), e);
+            }
+            List<Field> fieldList = collectFields(clazz);
+            this.fields = new FieldSchema[fieldList.size()];
+            for (int i = 0; i < fieldList.size(); i++) {
+                this.fields[i] = new FieldSchema(fieldList.get(i));
+            }
+            this.fingerprint = BinaryRedisValueCodec.fingerprint(clazz, new HashSet<>());
+        }
+        
+        private Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    private static final class FieldSchema {
+        
+        private final Field field;
+        
+        private final Class<?> type;
+        
+        private final Kind kind;
+        
+        private final Class<?> elementType;
+        
+        private final Kind elementKind;
+        
+        private FieldSchema(Field field) {
+            field.setAccessible(true);
+            this.field = field;
+            this.type = field.getType();
+            Kind scalarKind = scalarKind(type);
+            Class<?> listElementType = null;
+            Kind listElementKind = null;
+            if (scalarKind != null) {
+                this.kind = scalarKind;
+            } else if (isBeanType(type)) {
+                this.kind = Kind.OBJECT;
+            } else if (type == List.class || type == ArrayList.class) {
+                listElementType = listElementType(field);
+                listElementKind = listElementType == null ? null : elementKind(listElementType);
+                this.kind = listElementKind == null ? Kind.JSON : Kind.LIST;
+            } else {
+                this.kind = Kind.JSON;
+            }
+            this.elementType = listElementType;
+            this.elementKind = listElementKind;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.damai.redis.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.damai.redis.CacheUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: json编解码，与RedisCacheImpl原有的序列化方式保持一致，作为兜底的解码方式
+ * @author: 阿星不是程序员
+ **/
+public class JsonRedisValueCodec implements RedisValueCodec {
+    
+    @Override
+    public String name() {
+        return JSON_CODEC;
+    }
+    
+    @Override
+    public byte[] encode(Object value) {
+        String json = value instanceof String ? (String) value : JSON.toJSONString(value);
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] data, Class<T> clazz) {
+        if (data == null) {
+            return null;
+        }
+        String value = new String(data, StandardCharsets.UTF_8);
+        if (String.class.isAssignableFrom(clazz)) {
+            return (T) value;
+        }
+        return JSON.parseObject(value, CacheUtil.buildType(clazz));
+    }
+    
+    @Override
+    public boolean canDecode(byte[] data) {
+        return data != null;
+    }
+}
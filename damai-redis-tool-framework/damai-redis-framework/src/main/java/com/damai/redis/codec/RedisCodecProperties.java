@@ -0,0 +1,22 @@
+package com.damai.redis.codec;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis value编码配置
+ * @author: 阿星不是程序员
+ **/
+@Data
+@ConfigurationProperties(prefix = RedisCodecProperties.PREFIX)
+public class RedisCodecProperties {
+    
+    public static final String PREFIX = "redis.codec";
+    
+    /**
+     * 是否按RedisKeyManage中配置的非json编码写入，默认关闭
+     * 读取始终兼容json和二进制，所以应在读取这些key的服务都升级后再开启，关闭后新写入的数据恢复为json
+     */
+    private Boolean binaryWriteEnabled = false;
+}
@@ -0,0 +1,70 @@
+package com.damai.redis.codec;
+
+import com.alibaba.fastjson.JSON;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis value编解码扩展点
+ * 通过RedisKeyManage为每类key指定编码方式，业务方也可以注册自定义实现的bean
+ * @author: 阿星不是程序员
+ **/
+public interface RedisValueCodec {
+    
+    /**
+     * json编码
+     */
+    String JSON_CODEC = "json";
+    
+    /**
+     * 二进制编码
+     */
+    String BINARY_CODEC = "binary";
+    
+    /**
+     * 编码名称，与RedisKeyManage中配置的codec对应
+     *
+     * @return 名称
+     */
+    String name();
+    
+    /**
+     * 编码
+     *
+     * @param value 对象
+     * @return 字节数组
+     */
+    byte[] encode(Object value);
+    
+    /**
+     * 解码
+     *
+     * @param data  字节数组
+     * @param clazz 类对象
+     * @param <T>   T
+     * @return 对象，数据无法按当前类结构解析时返回null，由调用方按缓存未命中处理
+     */
+    <T> T decode(byte[] data, Class<T> clazz);
+    
+    /**
+     * 解码集合，默认集合按json写入
+     *
+     * @param data  字节数组
+     * @param clazz 元素类对象
+     * @param <T>   T
+     * @return 集合
+     */
+    default <T> List<T> decodeList(byte[] data, Class<T> clazz) {
+        return JSON.parseArray(new String(data, StandardCharsets.UTF_8), clazz);
+    }
+    
+    /**
+     * 判断数据是否由当前编码写入，用于新旧编码并存时选择解码方式
+     *
+     * @param data 字节数组
+     * @return 是否可以解码
+     */
+    boolean canDecode(byte[] data);
+}
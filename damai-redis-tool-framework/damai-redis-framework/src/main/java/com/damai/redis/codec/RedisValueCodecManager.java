@@ -0,0 +1,105 @@
+package com.damai.redis.codec;
+
+import com.damai.exception.DaMaiFrameException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis value编解码管理
+ * 写入时按key配置的编码方式编码；读取时根据数据本身判断编码方式，迁移期间旧的json数据仍然可以正常读取
+ * @author: 阿星不是程序员
+ **/
+public class RedisValueCodecManager {
+    
+    private final Map<String, RedisValueCodec> codecMap = new HashMap<>();
+    
+    private final RedisValueCodec jsonCodec;
+    
+    /**
+     * 是否允许按非json编码写入，关闭后所有key都按json写入，已写入的非json数据仍然可以读取
+     */
+    private final boolean writeEnabled;
+    
+    public RedisValueCodecManager(List<RedisValueCodec> codecList, boolean writeEnabled) {
+        for (RedisValueCodec codec : codecList) {
+            codecMap.put(codec.name(), codec);
+        }
+        this.jsonCodec = codecMap.computeIfAbsent(RedisValueCodec.JSON_CODEC, name -> new JsonRedisValueCodec());
+        this.writeEnabled = writeEnabled;
+    }
+    
+    /**
+     * 指定的编码方式是否需要走字节读写，json编码沿用原有的字符串读写
+     *
+     * @param codecName 编码名称
+     * @return 是否为非json编码
+     */
+    public boolean isBinary(String codecName) {
+        return codecName != null && !RedisValueCodec.JSON_CODEC.equals(codecName);
+    }
+    
+    /**
+     * 编码
+     *
+     * @param codecName 编码名称，为空时按json编码
+     * @param value     对象
+     * @return 字节数组
+     */
+    public byte[] encode(String codecName, Object value) {
+        if (!writeEnabled || codecName == null || value instanceof String) {
+            return jsonCodec.encode(value);
+        }
+        RedisValueCodec codec = codecMap.get(codecName);
+        if (codec == null) {
+            throw new DaMaiFrameException("redis value codec not exist : " + codecName);
+        }
+        return codec.encode(value);
+    }
+    
+    /**
+     * 解码，优先使用能识别数据的非json编码，都不能识别时按json解码
+     *
+     * @param data  字节数组
+     * @param clazz 类对象
+     * @param <T>   T
+     * @return 对象
+     */
+    public <T> T decode(byte[] data, Class<T> clazz) {
+        if (data == null) {
+            return null;
+        }
+        // 字符串按原样写入，直接按原样读取
+        if (clazz.isAssignableFrom(String.class)) {
+            return jsonCodec.decode(data, clazz);
+        }
+        return getDecodeCodec(data).decode(data, clazz);
+    }
+    
+    /**
+     * 解码集合
+     *
+     * @param data  字节数组
+     * @param clazz 元素类对象
+     * @param <T>   T
+     * @return 集合，数据为空时返回空集合
+     */
+    public <T> List<T> decodeList(byte[] data, Class<T> clazz) {
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+        return getDecodeCodec(data).decodeList(data, clazz);
+    }
+    
+    private RedisValueCodec getDecodeCodec(byte[] data) {
+        for (RedisValueCodec codec : codecMap.values()) {
+            if (codec != jsonCodec && codec.canDecode(data)) {
+                return codec;
+            }
+        }
+        return jsonCodec;
+    }
+}
@@ -1,19 +1,85 @@
 package com.damai.redis.config;
 
+import com.damai.redis.RedisCache;
 import com.damai.redis.RedisCacheImpl;
+import com.damai.redis.codec.BinaryRedisValueCodec;
+import com.damai.redis.codec.JsonRedisValueCodec;
+import com.damai.redis.codec.RedisCodecProperties;
+import com.damai.redis.codec.RedisValueCodec;
+import com.damai.redis.codec.RedisValueCodecManager;
+import com.damai.redis.reference.ReferenceDataManager;
+import com.damai.redis.script.RedisScriptMetrics;
+import com.damai.redis.script.RedisScriptRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: redis封装实现配置
  * @author: 阿星不是程序员
  **/
+@EnableConfigurationProperties(RedisCodecProperties.class)
 public class RedisCacheAutoConfig {
     
     @Bean
-    public RedisCacheImpl redisCache(@Qualifier("redisToolStringRedisTemplate") StringRedisTemplate stringRedisTemplate){
-        return new RedisCacheImpl(stringRedisTemplate);
+    public JsonRedisValueCodec jsonRedisValueCodec(){
+        return new JsonRedisValueCodec();
+    }
+    
+    @Bean
+    public BinaryRedisValueCodec binaryRedisValueCodec(){
+        return new BinaryRedisValueCodec();
+    }
+    
+    @Bean
+    public RedisValueCodecManager redisValueCodecManager(ObjectProvider<RedisValueCodec> redisValueCodecs,
+                                                         RedisCodecProperties redisCodecProperties){
+        List<RedisValueCodec> codecList = new ArrayList<>();
+        redisValueCodecs.orderedStream().forEach(codecList::add);
+        return new RedisValueCodecManager(codecList, Boolean.TRUE.equals(redisCodecProperties.getBinaryWriteEnabled()));
+    }
+    
+    @Bean
+    public RedisCacheImpl redisCache(@Qualifier("redisToolStringRedisTemplate") StringRedisTemplate stringRedisTemplate,
+                                     RedisValueCodecManager redisValueCodecManager){
+        return new RedisCacheImpl(stringRedisTemplate, redisValueCodecManager);
+    }
+    
+    /**
+     * 参考数据本地缓存管理，referenceData.refreshInterval为版本号轮询间隔
+     */
+    @Bean(destroyMethod = "destroy")
+    public ReferenceDataManager referenceDataManager(RedisCache redisCache,
+                                                     @Value("${referenceData.refreshInterval:30s}") Duration refreshInterval){
+        return new ReferenceDataManager(redisCache, refreshInterval);
+    }
+    
+    /**
+     * lua脚本监控指标
+     * 容器中没有MeterRegistry（未引入actuator）时，指标记录为空操作
+     */
+    @Bean
+    public RedisScriptMetrics redisScriptMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider){
+        return new RedisScriptMetrics(meterRegistryProvider.getIfAvailable());
+    }
+    
+    /**
+     * lua脚本注册中心，redis.script.slowThreshold为慢脚本阈值，redis.script.checkInterval为检查脚本是否存在的间隔
+     */
+    @Bean(destroyMethod = "destroy")
+    public RedisScriptRegistry redisScriptRegistry(@Qualifier("redisToolStringRedisTemplate") StringRedisTemplate stringRedisTemplate,
+                                                   RedisScriptMetrics redisScriptMetrics,
+                                                   @Value("${redis.script.slowThreshold:10ms}") Duration slowThreshold,
+                                                   @Value("${redis.script.checkInterval:30s}") Duration checkInterval){
+        return new RedisScriptRegistry(stringRedisTemplate, redisScriptMetrics, slowThreshold, checkInterval);
     }
 }
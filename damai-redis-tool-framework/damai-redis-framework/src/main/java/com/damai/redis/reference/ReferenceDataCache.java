@@ -0,0 +1,190 @@
+package com.damai.redis.reference;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 参考数据本地缓存
+ * 节目类型、渠道数据这类数据量小、几乎不变的数据整表保存在内存中，查询时只读本地的不可变快照，没有网络开销
+ * 两种加载方式：
+ * 1. 整表加载：启动时和版本号变化时通过bulkLoader加载整表，替换快照
+ * 2. 按键加载：没有整表查询的数据，未命中时通过keyLoader加载单条并加入快照，版本号变化时重新加载已有的键
+ *    同一个键同时只有一个线程加载，其他线程等待它的结果；不同的键互不阻塞
+ * 版本号保存在redis中，由ReferenceDataManager定时轮询，数据修改后调用ReferenceDataManager.bumpVersion通知所有实例
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class ReferenceDataCache<V> {
+
+    @Getter
+    private final String name;
+
+    private final Supplier<Map<String, V>> bulkLoader;
+
+    private final Function<String, V> keyLoader;
+
+    /**
+     * 当前快照，只整体替换，不在原对象上修改
+     */
+    private volatile Map<String, V> snapshot = Collections.emptyMap();
+
+    /**
+     * 快照对应的版本号
+     */
+    @Getter
+    private volatile String version;
+
+    /**
+     * 是否已成功加载过，启动时加载失败的缓存在下一次轮询时重试
+     */
+    private volatile boolean loaded;
+
+    /**
+     * 正在按键加载的键，同一个键的并发查询共用一次加载
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<V>> loadingMap = new ConcurrentHashMap<>();
+
+    ReferenceDataCache(String name, Supplier<Map<String, V>> bulkLoader, Function<String, V> keyLoader) {
+        this.name = name;
+        this.bulkLoader = bulkLoader;
+        this.keyLoader = keyLoader;
+    }
+
+    /**
+     * 查询数据
+     * 整表加载的数据只读快照；按键加载的数据未命中时加载该键
+     *
+     * @param key 键
+     * @return 数据，不存在返回null
+     */
+    public V get(String key) {
+        if (key == null) {
+            return null;
+        }
+        V value = snapshot.get(key);
+        if (value != null || keyLoader == null) {
+            return value;
+        }
+        return loadKey(key);
+    }
+
+    /**
+     * 当前快照，不可修改
+     *
+     * @return 快照
+     */
+    public Map<String, V> getAll() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * 按指定版本号重新加载
+     * 整表加载时替换为新的整表，按键加载时重新加载快照中已有的键，加载不到的键被移除
+     *
+     * @param newVersion 加载后记录的版本号
+     */
+    synchronized void reload(String newVersion) {
+        Map<String, V> newSnapshot = new HashMap<>(Math.max(16, snapshot.size() * 2));
+        if (bulkLoader != null) {
+            Map<String, V> bulkData = bulkLoader.get();
+            if (bulkData != null) {
+                bulkData.forEach((k, v) -> {
+                    if (k != null && v != null) {
+                        newSnapshot.put(k, v);
+                    }
+                });
+            }
+        } else {
+            for (String key : snapshot.keySet()) {
+                V value;
+                try {
+                    value = keyLoader.apply(key);
+                } catch (Exception e) {
+                    log.warn("reference data {} reload key {} error, key removed", name, key, e);
+                    continue;
+                }
+                if (value != null) {
+                    newSnapshot.put(key, value);
+                }
+            }
+        }
+        snapshot = Collections.unmodifiableMap(newSnapshot);
+        version = newVersion;
+        loaded = true;
+        log.info("reference data {} reloaded, version : {}, size : {}", name, newVersion, newSnapshot.size());
+    }
+
+    /**
+     * 版本号和快照不一致或还未加载成功时重新加载
+     *
+     * @param currentVersion redis中的版本号
+     */
+    void refreshIfChanged(String currentVersion) {
+        if (!loaded || !Objects.equals(currentVersion, version)) {
+            reload(currentVersion);
+        }
+    }
+
+    private V loadKey(String key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> loading = loadingMap.putIfAbsent(key, future);
+        if (loading != null) {
+            return join(loading);
+        }
+        try {
+            // 可能在拿到加载权之前，其他线程已经加载完成并加入了快照
+            V value = snapshot.get(key);
+            if (value == null) {
+                value = keyLoader.apply(key);
+                if (value != null) {
+                    publish(key, value);
+                }
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(key, future);
+        }
+    }
+
+    /**
+     * 把按键加载的数据加入快照，和reload互斥，避免两边同时替换快照时丢失数据
+     */
+    private synchronized void publish(String key, V value) {
+        Map<String, V> newSnapshot = new HashMap<>(snapshot);
+        newSnapshot.put(key, value);
+        snapshot = Collections.unmodifiableMap(newSnapshot);
+    }
+
+    private V join(CompletableFuture<V> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
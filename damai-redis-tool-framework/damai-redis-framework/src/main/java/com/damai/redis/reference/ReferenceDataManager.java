@@ -0,0 +1,123 @@
+package com.damai.redis.reference;
+
+import com.damai.core.RedisKeyManage;
+import com.damai.redis.RedisCache;
+import com.damai.redis.RedisKeyBuild;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 参考数据本地缓存管理
+ * 负责创建参考数据缓存、启动时加载、定时轮询redis中的版本号，版本号变化时重新加载
+ * 修改参考数据后调用bumpVersion，本实例立即重新加载，其他实例在下一次轮询时重新加载
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class ReferenceDataManager {
+
+    private final Map<String, ReferenceDataCache<?>> cacheMap = new ConcurrentHashMap<>();
+
+    private final RedisCache redisCache;
+
+    private final ScheduledExecutorService scheduledExecutor;
+
+    public ReferenceDataManager(RedisCache redisCache, Duration refreshInterval) {
+        this.redisCache = redisCache;
+        this.scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reference-data-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = refreshInterval.toMillis();
+        scheduledExecutor.scheduleWithFixedDelay(this::refreshAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 创建整表加载的参考数据缓存，并立即加载
+     *
+     * @param name       数据名称，同时用作版本号的键
+     * @param bulkLoader 整表加载方法
+     * @return 参考数据缓存
+     */
+    public <V> ReferenceDataCache<V> register(String name, Supplier<Map<String, V>> bulkLoader) {
+        ReferenceDataCache<V> cache = new ReferenceDataCache<>(name, bulkLoader, null);
+        add(cache);
+        try {
+            cache.reload(readVersion(name));
+        } catch (Exception e) {
+            log.error("reference data {} initial load error, will retry on next refresh", name, e);
+        }
+        return cache;
+    }
+
+    /**
+     * 创建按键加载的参考数据缓存，未命中时才加载
+     *
+     * @param name      数据名称，同时用作版本号的键
+     * @param keyLoader 单条加载方法
+     * @return 参考数据缓存
+     */
+    public <V> ReferenceDataCache<V> registerLazy(String name, Function<String, V> keyLoader) {
+        ReferenceDataCache<V> cache = new ReferenceDataCache<>(name, null, keyLoader);
+        add(cache);
+        try {
+            cache.reload(readVersion(name));
+        } catch (Exception e) {
+            log.error("reference data {} read version error", name, e);
+        }
+        return cache;
+    }
+
+    /**
+     * 参考数据修改后递增版本号，通知所有实例重新加载
+     *
+     * @param name 数据名称
+     */
+    public void bumpVersion(String name) {
+        Long version = redisCache.incrBy(versionKey(name), 1);
+        ReferenceDataCache<?> cache = cacheMap.get(name);
+        if (cache != null) {
+            cache.reload(String.valueOf(version));
+        }
+    }
+
+    /**
+     * 检查所有参考数据的版本号，变化时重新加载
+     */
+    public void refreshAll() {
+        for (ReferenceDataCache<?> cache : cacheMap.values()) {
+            try {
+                cache.refreshIfChanged(readVersion(cache.getName()));
+            } catch (Exception e) {
+                log.error("reference data {} refresh error", cache.getName(), e);
+            }
+        }
+    }
+
+    public void destroy() {
+        scheduledExecutor.shutdownNow();
+    }
+
+    private void add(ReferenceDataCache<?> cache) {
+        if (cacheMap.putIfAbsent(cache.getName(), cache) != null) {
+            throw new IllegalStateException("reference data " + cache.getName() + " already registered");
+        }
+    }
+
+    private String readVersion(String name) {
+        return redisCache.get(versionKey(name), String.class);
+    }
+
+    private RedisKeyBuild versionKey(String name) {
+        return RedisKeyBuild.createRedisKey(RedisKeyManage.REFERENCE_DATA_VERSION, name);
+    }
+}
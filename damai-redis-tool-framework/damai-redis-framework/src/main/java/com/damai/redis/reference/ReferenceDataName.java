@@ -0,0 +1,19 @@
+package com.damai.redis.reference;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 参考数据名称，修改数据的服务和缓存数据的服务使用同一个名称递增和轮询版本号
+ * @author: 阿星不是程序员
+ **/
+public class ReferenceDataName {
+
+    /**
+     * 节目类型
+     */
+    public static final String PROGRAM_CATEGORY = "program_category";
+
+    /**
+     * 渠道数据
+     */
+    public static final String CHANNEL_DATA = "channel_data";
+}
@@ -0,0 +1,59 @@
+package com.damai.redis.script;
+
+import lombok.Getter;
+import org.springframework.data.redis.connection.ReturnType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 注册到RedisScriptRegistry中的lua脚本
+ * 由RedisScriptRegistry.register创建，脚本内容和sha1在注册时确定，之后不再变化
+ * @author: 阿星不是程序员
+ **/
+@Getter
+public class LuaScript<T> {
+
+    /**
+     * 脚本名字，用于监控指标和日志
+     */
+    private final String name;
+
+    /**
+     * 脚本在类路径下的位置
+     */
+    private final String location;
+
+    private final Class<T> resultType;
+
+    private final ReturnType returnType;
+
+    private final byte[] body;
+
+    private final String sha1;
+
+    private final RedisScriptRegistry redisScriptRegistry;
+
+    LuaScript(String name, String location, Class<T> resultType, String body, String sha1,
+              RedisScriptRegistry redisScriptRegistry) {
+        this.name = name;
+        this.location = location;
+        this.resultType = resultType;
+        this.returnType = ReturnType.fromJavaType(resultType);
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.sha1 = sha1;
+        this.redisScriptRegistry = redisScriptRegistry;
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param keys 脚本的KEYS
+     * @param args 脚本的ARGV
+     * @return 执行结果
+     */
+    public T execute(List<String> keys, Object... args) {
+        return redisScriptRegistry.execute(this, keys, args);
+    }
+}
@@ -0,0 +1,109 @@
+package com.damai.redis.script;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: lua脚本监控指标，通过Micrometer导出
+ * redis.script.execution：脚本执行耗时
+ * redis.script.args.size：每次执行传入的KEYS和ARGV的总字节数
+ * redis.script.slow：执行耗时超过慢脚本阈值的次数
+ * redis.script.noscript：redis中没有脚本缓存，退回EVAL执行的次数
+ * redis.script.reload：重新加载全部脚本的次数
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+public class RedisScriptMetrics {
+
+    private static final String SCRIPT = "script";
+
+    private final MeterRegistry meterRegistry;
+
+    public RedisScriptMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录脚本执行耗时
+     *
+     * @param name      脚本名字
+     * @param costNanos 执行耗时纳秒数
+     */
+    public void recordExecution(String name, long costNanos) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Timer.builder("redis.script.execution")
+                .description("脚本执行耗时")
+                .tag(SCRIPT, name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(costNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录脚本参数大小
+     *
+     * @param name      脚本名字
+     * @param argsBytes KEYS和ARGV的总字节数
+     */
+    public void recordArgsSize(String name, long argsBytes) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        DistributionSummary.builder("redis.script.args.size")
+                .description("脚本KEYS和ARGV的总字节数")
+                .baseUnit("bytes")
+                .tag(SCRIPT, name)
+                .register(meterRegistry)
+                .record(argsBytes);
+    }
+
+    /**
+     * 记录慢脚本次数
+     *
+     * @param name 脚本名字
+     */
+    public void recordSlow(String name) {
+        increment("redis.script.slow", "执行耗时超过阈值的次数", name);
+    }
+
+    /**
+     * 记录退回EVAL执行的次数
+     *
+     * @param name 脚本名字
+     */
+    public void recordNoScript(String name) {
+        increment("redis.script.noscript", "redis中没有脚本缓存的次数", name);
+    }
+
+    /**
+     * 记录重新加载全部脚本的次数
+     */
+    public void recordReload() {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Counter.builder("redis.script.reload")
+                .description("重新加载全部脚本的次数")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void increment(String meterName, String description, String name) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Counter.builder(meterName)
+                .description(description)
+                .tag(SCRIPT, name)
+                .register(meterRegistry)
+                .increment();
+    }
+}
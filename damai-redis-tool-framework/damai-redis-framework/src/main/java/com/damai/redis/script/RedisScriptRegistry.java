@@ -0,0 +1,252 @@
+package com.damai.redis.script;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: lua脚本注册中心
+ * 所有lua脚本在这里注册，注册时通过SCRIPT LOAD加载到redis，执行时只发送sha1（EVALSHA），不再每次传输脚本内容
+ * redis重启、主从切换或执行SCRIPT FLUSH后脚本缓存会丢失：
+ * 1. 执行时返回NOSCRIPT，本次退回EVAL执行，同时异步重新加载全部脚本，其他脚本不用再各自经历一次NOSCRIPT
+ * 2. 定时通过SCRIPT EXISTS检查脚本是否还在，不在时重新加载，重连后的第一批请求也能直接命中EVALSHA
+ * 每次执行记录耗时和参数大小，耗时超过慢脚本阈值时打印日志
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class RedisScriptRegistry {
+
+    private static final String NO_SCRIPT = "NOSCRIPT";
+
+    private final Map<String, LuaScript<?>> scriptMap = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisScriptMetrics redisScriptMetrics;
+
+    /**
+     * 慢脚本阈值（纳秒）
+     */
+    private final long slowThresholdNanos;
+
+    private final ScheduledExecutorService scheduledExecutor;
+
+    /**
+     * 是否正在重新加载，NOSCRIPT集中出现时只触发一次重新加载
+     */
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
+
+    public RedisScriptRegistry(StringRedisTemplate stringRedisTemplate, RedisScriptMetrics redisScriptMetrics,
+                               Duration slowThreshold, Duration checkInterval) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisScriptMetrics = redisScriptMetrics;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-script-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = checkInterval.toMillis();
+        scheduledExecutor.scheduleWithFixedDelay(this::checkScripts, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册脚本并加载到redis
+     * 加载失败（如redis暂时不可用）只打印日志，执行时会退回EVAL，定时检查时会再次加载
+     *
+     * @param name       脚本名字，不能重复
+     * @param location   脚本在类路径下的位置
+     * @param resultType 执行结果类型
+     * @return 脚本
+     */
+    public <T> LuaScript<T> register(String name, String location, Class<T> resultType) {
+        String body = read(location);
+        LuaScript<T> script = new LuaScript<>(name, location, resultType, body, sha1(body), this);
+        if (scriptMap.putIfAbsent(name, script) != null) {
+            throw new IllegalStateException("redis script " + name + " already registered");
+        }
+        try {
+            load(script);
+        } catch (Exception e) {
+            log.warn("redis script {} load error, will retry on next check", name, e);
+        }
+        return script;
+    }
+
+    /**
+     * 执行脚本
+     *
+     * @param script 脚本
+     * @param keys   脚本的KEYS
+     * @param args   脚本的ARGV
+     * @return 执行结果
+     */
+    public <T> T execute(LuaScript<T> script, List<String> keys, Object... args) {
+        int keySize = keys == null ? 0 : keys.size();
+        int argSize = args == null ? 0 : args.length;
+        byte[][] keysAndArgs = new byte[keySize + argSize][];
+        long argsBytes = 0;
+        for (int i = 0; i < keySize; i++) {
+            keysAndArgs[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            argsBytes += keysAndArgs[i].length;
+        }
+        for (int i = 0; i < argSize; i++) {
+            keysAndArgs[keySize + i] = String.valueOf(args[i]).getBytes(StandardCharsets.UTF_8);
+            argsBytes += keysAndArgs[keySize + i].length;
+        }
+        long startTime = System.nanoTime();
+        try {
+            Object result = stringRedisTemplate.execute(
+                    (RedisCallback<Object>) connection -> evalSha(connection, script, keySize, keysAndArgs));
+            return convert(script, result);
+        } finally {
+            long cost = System.nanoTime() - startTime;
+            redisScriptMetrics.recordExecution(script.getName(), cost);
+            redisScriptMetrics.recordArgsSize(script.getName(), argsBytes);
+            if (cost > slowThresholdNanos) {
+                redisScriptMetrics.recordSlow(script.getName());
+                log.warn("slow redis script {}, cost : {}ms, key size : {}, args bytes : {}", script.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(cost), keySize, argsBytes);
+            }
+        }
+    }
+
+    /**
+     * 检查redis中是否还有全部脚本，缺少时重新加载
+     */
+    public void checkScripts() {
+        if (scriptMap.isEmpty()) {
+            return;
+        }
+        try {
+            String[] shas = scriptMap.values().stream().map(LuaScript::getSha1).toArray(String[]::new);
+            List<Boolean> exists = stringRedisTemplate.execute(
+                    (RedisCallback<List<Boolean>>) connection -> connection.scriptingCommands().scriptExists(shas));
+            if (exists == null || exists.contains(Boolean.FALSE)) {
+                reloadAll();
+            }
+        } catch (Exception e) {
+            log.warn("redis script check error", e);
+        }
+    }
+
+    /**
+     * 重新加载全部脚本
+     */
+    public void reloadAll() {
+        if (!reloading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (LuaScript<?> script : scriptMap.values()) {
+                load(script);
+            }
+            redisScriptMetrics.recordReload();
+            log.info("redis scripts reloaded, size : {}", scriptMap.size());
+        } catch (Exception e) {
+            log.warn("redis scripts reload error", e);
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    public void destroy() {
+        scheduledExecutor.shutdownNow();
+    }
+
+    private Object evalSha(RedisConnection connection, LuaScript<?> script, int keySize, byte[][] keysAndArgs) {
+        try {
+            return connection.scriptingCommands().evalSha(script.getSha1(), script.getReturnType(), keySize,
+                    keysAndArgs);
+        } catch (Exception e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            redisScriptMetrics.recordNoScript(script.getName());
+            // 本次直接EVAL，EVAL执行后该节点也会缓存脚本；其他脚本异步重新加载
+            scheduledExecutor.execute(this::reloadAll);
+            return connection.scriptingCommands().eval(script.getBody(), script.getReturnType(), keySize,
+                    keysAndArgs);
+        }
+    }
+
+    private void load(LuaScript<?> script) {
+        stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(script.getBody()));
+    }
+
+    /**
+     * 将redis返回的二进制结果转换为字符串，与DefaultScriptExecutor使用StringRedisTemplate时的结果一致
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T convert(LuaScript<T> script, Object result) {
+        Object value = deserialize(result);
+        if (value instanceof Long longValue && Integer.class.equals(script.getResultType())) {
+            return (T) Integer.valueOf(longValue.intValue());
+        }
+        return (T) value;
+    }
+
+    private Object deserialize(Object result) {
+        if (result instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (result instanceof List<?> list) {
+            List<Object> values = new ArrayList<>(list.size());
+            for (Object each : list) {
+                values.add(deserialize(each));
+            }
+            return values;
+        }
+        return result;
+    }
+
+    private boolean isNoScript(Throwable e) {
+        Throwable current = e;
+        while (current != null) {
+            String message = current.getMessage();
+            if (message != null && message.contains(NO_SCRIPT)) {
+                return true;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    private String read(String location) {
+        try (InputStream inputStream = new ClassPathResource(location).getInputStream()) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("redis script " + location + " read error", e);
+        }
+    }
+
+    private String sha1(String body) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(messageDigest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
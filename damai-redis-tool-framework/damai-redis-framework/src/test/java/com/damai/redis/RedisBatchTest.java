@@ -0,0 +1,222 @@
+package com.damai.redis;
+
+import com.alibaba.fastjson.JSON;
+import com.damai.exception.DaMaiFrameException;
+import com.damai.redis.codec.BinaryRedisValueCodec;
+import com.damai.redis.codec.JsonRedisValueCodec;
+import com.damai.redis.codec.RedisValueCodec;
+import com.damai.redis.codec.RedisValueCodecManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis批量操作测试
+ * @author: 阿星不是程序员
+ **/
+@ExtendWith(MockitoExtension.class)
+class RedisBatchTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private RedisConnection connection;
+
+    private RedisValueCodecManager redisValueCodecManager;
+
+    private List<Object> pipelineResults;
+
+    @BeforeEach
+    void setUp() {
+        redisValueCodecManager = new RedisValueCodecManager(
+                Arrays.asList(new JsonRedisValueCodec(), new BinaryRedisValueCodec()), true);
+        pipelineResults = new ArrayList<>();
+    }
+
+    @Test
+    void everyOperationIsCompletedWithItsOwnResult() {
+        mockPipeline();
+        RedisBatch batch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        Program program = new Program(1L, "演唱会");
+        CompletableFuture<Void> setFuture = batch.set(key("program_1", RedisValueCodec.JSON_CODEC), program, 10, TimeUnit.SECONDS);
+        CompletableFuture<Program> getFuture = batch.get(key("program_2", RedisValueCodec.JSON_CODEC), Program.class);
+        CompletableFuture<Boolean> hasKeyFuture = batch.hasKey(key("login_1", RedisValueCodec.JSON_CODEC));
+        CompletableFuture<Long> incrFuture = batch.incrBy(key("count_1", RedisValueCodec.JSON_CODEC), 2);
+        CompletableFuture<Boolean> delFuture = batch.del(key("lock_1", RedisValueCodec.JSON_CODEC));
+        // SET在pipeline中同样返回结果，结果与操作一一对应
+        pipelineResults.addAll(Arrays.asList(Boolean.TRUE, JSON.toJSONString(new Program(2L, "话剧"))
+                .getBytes(StandardCharsets.UTF_8), Boolean.FALSE, 3L, 1L));
+
+        batch.execute();
+
+        assertNull(setFuture.join());
+        assertEquals(2L, getFuture.join().getId());
+        assertEquals("话剧", getFuture.join().getName());
+        assertFalse(hasKeyFuture.join());
+        assertEquals(3L, incrFuture.join());
+        assertTrue(delFuture.join());
+        ArgumentCaptor<Expiration> expirationCaptor = ArgumentCaptor.forClass(Expiration.class);
+        verify(connection.stringCommands()).set(eq(bytes("program_1")), any(byte[].class),
+                expirationCaptor.capture(), eq(RedisStringCommands.SetOption.upsert()));
+        assertEquals(10000L, expirationCaptor.getValue().getExpirationTimeInMilliseconds());
+    }
+
+    @Test
+    void resultSizeMismatchFailsEveryOperation() {
+        mockPipeline();
+        RedisBatch batch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        CompletableFuture<Void> setFuture = batch.set(key("program_1", RedisValueCodec.JSON_CODEC), "value");
+        CompletableFuture<String> getFuture = batch.get(key("program_2", RedisValueCodec.JSON_CODEC), String.class);
+        // 只返回一个结果时无法判断属于哪个操作
+        pipelineResults.add("value".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(DaMaiFrameException.class, batch::execute);
+        assertThrows(CompletionException.class, setFuture::join);
+        assertThrows(CompletionException.class, getFuture::join);
+    }
+
+    @Test
+    void valuesAreWrittenAndReadThroughTheKeyCodec() {
+        mockPipeline();
+        RedisBatch writeBatch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        writeBatch.set(key("program_1", RedisValueCodec.BINARY_CODEC), new Program(1L, "演唱会"));
+        writeBatch.putHash(key("program_group", RedisValueCodec.BINARY_CODEC), "1", new Program(3L, "音乐节"));
+        pipelineResults.addAll(Arrays.asList(Boolean.TRUE, Boolean.TRUE));
+        writeBatch.execute();
+
+        ArgumentCaptor<byte[]> valueCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(connection.stringCommands()).set(eq(bytes("program_1")), valueCaptor.capture());
+        byte[] value = valueCaptor.getValue();
+        assertEquals(BinaryRedisValueCodec.MAGIC, value[0]);
+        ArgumentCaptor<byte[]> hashValueCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(connection.hashCommands()).hSet(eq(bytes("program_group")), eq(bytes("1")), hashValueCaptor.capture());
+        byte[] hashValue = hashValueCaptor.getValue();
+        assertEquals(BinaryRedisValueCodec.MAGIC, hashValue[0]);
+
+        pipelineResults.clear();
+        RedisBatch readBatch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        CompletableFuture<Program> getFuture = readBatch.get(key("program_1", RedisValueCodec.BINARY_CODEC), Program.class);
+        CompletableFuture<Program> hashFuture = readBatch.getForHash(key("program_group", RedisValueCodec.BINARY_CODEC),
+                "1", Program.class);
+        CompletableFuture<List<Program>> listFuture = readBatch.getValueIsList(
+                key("program_list", RedisValueCodec.JSON_CODEC), Program.class);
+        pipelineResults.addAll(Arrays.asList(value, hashValue,
+                JSON.toJSONString(List.of(new Program(4L, "脱口秀"))).getBytes(StandardCharsets.UTF_8)));
+        readBatch.execute();
+
+        assertEquals("演唱会", getFuture.join().getName());
+        assertEquals(3L, hashFuture.join().getId());
+        assertEquals(1, listFuture.join().size());
+        assertEquals("脱口秀", listFuture.join().get(0).getName());
+    }
+
+    @Test
+    void batchCanOnlyBeExecutedOnce() {
+        RedisBatch batch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        batch.execute();
+
+        assertThrows(DaMaiFrameException.class, batch::execute);
+        assertThrows(DaMaiFrameException.class, () -> batch.get(key("program_1", RedisValueCodec.JSON_CODEC), String.class));
+    }
+
+    @Test
+    void missingValueCompletesWithNull() {
+        mockPipeline();
+        RedisBatch batch = new RedisBatch(redisTemplate, redisValueCodecManager);
+        CompletableFuture<Program> getFuture = batch.get(key("program_1", RedisValueCodec.BINARY_CODEC), Program.class);
+        CompletableFuture<List<Program>> listFuture = batch.getValueIsList(key("program_list", RedisValueCodec.JSON_CODEC),
+                Program.class);
+        pipelineResults.addAll(Arrays.asList(null, null));
+
+        batch.execute();
+
+        assertNull(getFuture.join());
+        assertTrue(listFuture.join().isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockPipeline() {
+        when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class))).thenAnswer(invocation -> {
+            RedisCallback<Object> callback = invocation.getArgument(0);
+            // pipeline中命令的返回值为null，结果由pipeline统一返回
+            assertNull(callback.doInRedis(connection));
+            return new ArrayList<>(pipelineResults);
+        });
+    }
+
+    private static RedisKeyBuild key(String relKey, String codec) {
+        try {
+            Constructor<RedisKeyBuild> constructor = RedisKeyBuild.class.getDeclaredConstructor(String.class, String.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(relKey, codec);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static class Program {
+
+        private Long id;
+
+        private String name;
+
+        public Program() {
+        }
+
+        Program(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.damai;
+
+import org.springframework.data.redis.connection.stream.ObjectRecord;
+
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis-stream批量消息消费接口
+ * 一次拉取到的消息整体交给业务处理，处理成功后整批ack，抛出异常则整批留在pending中等待回收重试
+ * @author: 阿星不是程序员
+ **/
+@FunctionalInterface
+public interface BatchMessageConsumer {
+
+    /**
+     * 批量消息处理
+     *
+     * @param messages 消息集合，数量不超过配置的batchSize
+     */
+    void accept(List<ObjectRecord<String, String>> messages);
+}
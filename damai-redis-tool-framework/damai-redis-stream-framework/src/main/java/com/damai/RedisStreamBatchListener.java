@@ -0,0 +1,150 @@
+package com.damai;
+
+import com.damai.constant.RedisStreamConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.ObjectRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis-stream批量消息监听器
+ * 独立线程循环阻塞拉取消息，一次拉取到的消息整体交给业务批量处理，处理成功后一次XACK整批确认
+ * 拉取线程即处理线程，业务处理慢时自然减缓拉取，不会在内存中堆积消息
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class RedisStreamBatchListener {
+    
+    /**
+     * 拉取失败后的退避时间（毫秒）
+     */
+    private static final long ERROR_BACKOFF_MILLIS = 1000L;
+    
+    private final BatchMessageConsumer batchMessageConsumer;
+    
+    private final StringRedisTemplate stringRedisTemplate;
+    
+    private final RedisStreamHandler redisStreamHandler;
+    
+    private final RedisStreamConfigProperties redisStreamConfigProperties;
+    
+    private final boolean group;
+    
+    private volatile boolean running;
+    
+    private Thread pollThread;
+    
+    /**
+     * 广播模式下记录已消费到的位置，从stream起始位置开始
+     */
+    private ReadOffset broadcastOffset = ReadOffset.from("0-0");
+    
+    public RedisStreamBatchListener(BatchMessageConsumer batchMessageConsumer,
+                                    StringRedisTemplate stringRedisTemplate,
+                                    RedisStreamHandler redisStreamHandler,
+                                    RedisStreamConfigProperties redisStreamConfigProperties) {
+        this.batchMessageConsumer = batchMessageConsumer;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisStreamHandler = redisStreamHandler;
+        this.redisStreamConfigProperties = redisStreamConfigProperties;
+        this.group = RedisStreamConstant.GROUP.equals(redisStreamConfigProperties.getConsumerType());
+    }
+    
+    /**
+     * 启动拉取线程
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        pollThread = new Thread(this::pollLoop, "thread-consumer-stream-batch-" + redisStreamConfigProperties.getStreamName());
+        pollThread.setDaemon(true);
+        pollThread.start();
+    }
+    
+    /**
+     * 停止拉取线程，正在处理的批次会处理完成后再退出
+     */
+    public synchronized void stop() {
+        running = false;
+        if (pollThread != null) {
+            pollThread.interrupt();
+        }
+    }
+    
+    private void pollLoop() {
+        while (running) {
+            try {
+                List<ObjectRecord<String, String>> records = poll();
+                if (records == null || records.isEmpty()) {
+                    continue;
+                }
+                dispatch(records);
+                if (!group) {
+                    broadcastOffset = ReadOffset.from(records.get(records.size() - 1).getId());
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("redis stream batch poll error streamName : {}", redisStreamConfigProperties.getStreamName(), e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+    
+    private List<ObjectRecord<String, String>> poll() {
+        StreamReadOptions readOptions = StreamReadOptions.empty()
+                .count(redisStreamConfigProperties.getBatchSize())
+                .block(redisStreamConfigProperties.getPollTimeout());
+        String streamName = redisStreamConfigProperties.getStreamName();
+        if (group) {
+            if (!Boolean.TRUE.equals(redisStreamConfigProperties.getExplicitAck())) {
+                readOptions = readOptions.autoAcknowledge();
+            }
+            return stringRedisTemplate.opsForStream().read(String.class,
+                    Consumer.from(redisStreamConfigProperties.getConsumerGroup(), redisStreamConfigProperties.getConsumerName()),
+                    readOptions, StreamOffset.create(streamName, ReadOffset.lastConsumed()));
+        }
+        return stringRedisTemplate.opsForStream().read(String.class, readOptions,
+                StreamOffset.create(streamName, broadcastOffset));
+    }
+    
+    /**
+     * 把一批消息交给业务处理，成功后整批ack
+     * 业务抛出异常时整批不ack，消息留在pending列表中由回收任务重新投递，业务需保证幂等
+     *
+     * @param records 消息集合
+     */
+    public void dispatch(List<ObjectRecord<String, String>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            log.info("redis stream 批量消费到了数据 streamName : {}, size : {}, firstMessageId : {}",
+                    redisStreamConfigProperties.getStreamName(), records.size(), records.get(0).getId());
+            batchMessageConsumer.accept(records);
+            if (group && Boolean.TRUE.equals(redisStreamConfigProperties.getExplicitAck())) {
+                redisStreamHandler.ack(redisStreamConfigProperties.getStreamName(),
+                        redisStreamConfigProperties.getConsumerGroup(),
+                        records.stream().map(Record::getId).toList());
+            }
+        } catch (Exception e) {
+            log.error("batch onMessage error", e);
+        }
+    }
+}
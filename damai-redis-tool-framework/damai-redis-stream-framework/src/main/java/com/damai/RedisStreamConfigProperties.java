@@ -4,6 +4,8 @@ import com.damai.constant.RedisStreamConstant;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: redis-stream属性配置
@@ -34,5 +36,55 @@ public class RedisStreamConfigProperties {
      * 消费方式 group:消费组(默认)/broadcast:广播
      */
     private String consumerType = RedisStreamConstant.GROUP;
+    
+    /**
+     * 消息拉取阻塞超时时间，超时未拉取到消息则重新拉取
+     */
+    private Duration pollTimeout = Duration.ofSeconds(5);
+    
+    /**
+     * 每次批量拉取的消息数量上限，批量消费者一次收到的消息数也不超过此值
+     */
+    private Integer batchSize = 10;
+    
+    /**
+     * 消费组模式下是否在消费成功后再显式ack，为false时沿用拉取即ack的方式
+     */
+    private Boolean explicitAck = true;
+    
+    /**
+     * 发送消息时stream的最大长度（近似裁剪MAXLEN ~），小于等于0表示不裁剪
+     */
+    private Long maxLen = 0L;
+    
+    /**
+     * 是否开启pending消息回收，仅在消费组模式且显式ack时生效
+     */
+    private Boolean reclaimEnabled = true;
+    
+    /**
+     * pending消息空闲超过此时间才会被当前消费者回收重新消费
+     */
+    private Duration reclaimMinIdle = Duration.ofMinutes(1);
+    
+    /**
+     * pending消息回收的执行间隔
+     */
+    private Duration reclaimInterval = Duration.ofSeconds(30);
+    
+    /**
+     * 每次回收的pending消息数量上限
+     */
+    private Integer reclaimCount = 100;
+    
+    /**
+     * 消息最多投递的次数，回收时已达到此次数的消息不再重新消费，转移到死信stream并ack，小于等于0表示不限制
+     */
+    private Integer reclaimMaxDeliveryCount = 5;
+    
+    /**
+     * 死信stream名字，为空时使用 stream名字 + RedisStreamConstant.DEAD_LETTER_SUFFIX
+     */
+    private String deadLetterStreamName;
 }
 
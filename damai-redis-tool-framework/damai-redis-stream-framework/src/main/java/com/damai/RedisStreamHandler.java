@@ -1,12 +1,23 @@
 package com.damai;
 
 import com.alibaba.fastjson.JSON;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ObjectRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -17,8 +28,12 @@ import java.util.Objects;
  * @author: 阿星不是程序员
  **/
 @Slf4j
-@AllArgsConstructor
 public class RedisStreamHandler {
+    
+    /**
+     * XAUTOCLAIM扫描结束时返回的游标
+     */
+    public static final String AUTO_CLAIM_END_CURSOR = "0-0";
 
     /**
      * 消息推送处理器
@@ -28,6 +43,23 @@ public class RedisStreamHandler {
      * Redis操作模板
      */
     private final StringRedisTemplate stringRedisTemplate;
+    /**
+     * pending消息回收脚本
+     */
+    @SuppressWarnings("rawtypes")
+    private DefaultRedisScript<List> autoClaimScript;
+    
+    public RedisStreamHandler(RedisStreamPushHandler redisStreamPushHandler, StringRedisTemplate stringRedisTemplate) {
+        this.redisStreamPushHandler = redisStreamPushHandler;
+        this.stringRedisTemplate = stringRedisTemplate;
+        try {
+            autoClaimScript = new DefaultRedisScript<>();
+            autoClaimScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/redisStreamAutoClaim.lua")));
+            autoClaimScript.setResultType(List.class);
+        } catch (Exception e) {
+            log.error("redisScript init lua error", e);
+        }
+    }
 
     /**
      * 为指定Stream创建消费组
@@ -88,4 +120,100 @@ public class RedisStreamHandler {
             log.info("initStream streamName : {} group : {}", streamName, group);
         }
     }
+    
+    /**
+     * 消费组中确认消息已处理（XACK），确认后消息从pending列表中移除
+     *
+     * @param streamName Stream名称
+     * @param group      消费组名称
+     * @param recordIds  消息ID集合
+     */
+    public void ack(String streamName, String group, Collection<RecordId> recordIds) {
+        if (recordIds == null || recordIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForStream().acknowledge(streamName, group, recordIds.toArray(new RecordId[0]));
+    }
+    
+    /**
+     * 通过XAUTOCLAIM把空闲超时的pending消息转移给指定消费者，同时通过XPENDING取出每条消息已投递的次数
+     *
+     * @param streamName Stream名称
+     * @param group      消费组名称
+     * @param consumer   接收消息的消费者名称
+     * @param minIdle    最小空闲时间
+     * @param cursor     扫描游标
+     * @param count      回收数量上限
+     * @return 回收结果，pending列表为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public AutoClaimResult autoClaim(String streamName, String group, String consumer, Duration minIdle,
+                                     String cursor, int count) {
+        List<String> result = stringRedisTemplate.execute(autoClaimScript, List.of(streamName), group, consumer,
+                String.valueOf(minIdle.toMillis()), cursor, String.valueOf(count));
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        Map<RecordId, Long> deliveryCountMap = new LinkedHashMap<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            deliveryCountMap.put(RecordId.of(result.get(i)), Long.parseLong(result.get(i + 1)));
+        }
+        return new AutoClaimResult(result.get(0), deliveryCountMap);
+    }
+    
+    /**
+     * 取回已转移到指定消费者的消息内容（XCLAIM），同时累加消息的投递次数
+     * 已被删除或裁剪掉的消息不会返回
+     *
+     * @param streamName Stream名称
+     * @param group      消费组名称
+     * @param consumer   消费者名称
+     * @param recordIds  消息ID集合
+     * @return 消息集合
+     */
+    public List<ObjectRecord<String, String>> claim(String streamName, String group, String consumer,
+                                                    List<RecordId> recordIds) {
+        List<ObjectRecord<String, String>> recordList = new ArrayList<>(recordIds.size());
+        if (recordIds.isEmpty()) {
+            return recordList;
+        }
+        List<MapRecord<String, Object, Object>> mapRecordList = stringRedisTemplate.opsForStream().claim(streamName,
+                group, consumer, XClaimOptions.minIdle(Duration.ZERO).ids(recordIds.toArray(new RecordId[0])));
+        if (mapRecordList == null) {
+            return recordList;
+        }
+        for (MapRecord<String, Object, Object> mapRecord : mapRecordList) {
+            recordList.add(stringRedisTemplate.opsForStream().map(mapRecord, String.class));
+        }
+        return recordList;
+    }
+    
+    /**
+     * 把消息转移到死信stream，写入成功后在原消费组中ack，写入和ack之间宕机时死信中可能出现重复消息
+     *
+     * @param streamName           Stream名称
+     * @param group                消费组名称
+     * @param deadLetterStreamName 死信Stream名称
+     * @param records              消息集合
+     * @param recordIds            需要ack的消息ID集合，包含已被删除或裁剪掉取不到内容的消息
+     */
+    public void deadLetter(String streamName, String group, String deadLetterStreamName,
+                           List<ObjectRecord<String, String>> records, Collection<RecordId> recordIds) {
+        for (ObjectRecord<String, String> record : records) {
+            stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                    .in(deadLetterStreamName)
+                    .ofObject(record.getValue())
+                    .withId(RecordId.autoGenerate()));
+        }
+        ack(streamName, group, recordIds);
+    }
+    
+    /**
+     * pending消息回收结果
+     *
+     * @param cursor           下一次扫描的游标
+     * @param deliveryCountMap 回收到的消息id -> 已投递的次数，按id顺序
+     */
+    public record AutoClaimResult(String cursor, Map<RecordId, Long> deliveryCountMap) {
+    }
 }
@@ -6,6 +6,8 @@ import org.springframework.data.redis.connection.stream.ObjectRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.stream.StreamListener;
 
+import java.util.List;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: redis-stream消息监听器
@@ -20,10 +22,23 @@ public class RedisStreamListener implements StreamListener<String, ObjectRecord<
      * 业务消息消费者，由业务方实现具体的消息处理逻辑
      */
     private final MessageConsumer messageConsumer;
+    /**
+     * Redis Stream核心处理器，用于显式ack
+     */
+    private final RedisStreamHandler redisStreamHandler;
+    /**
+     * 显式ack的消费组名称，为null表示不需要显式ack（广播模式或拉取即ack）
+     */
+    private final String ackGroup;
+    
+    public RedisStreamListener(MessageConsumer messageConsumer) {
+        this(messageConsumer, null, null);
+    }
 
     /**
      * 接受并处理Redis Stream消息的核心方法
      * 实现StreamListener接口的回调方法，当监听到新消息时自动触发
+     * 显式ack模式下只有业务处理成功才ack，失败的消息留在pending列表中由回收任务重新投递
      *
      * @param message 从Redis Stream接收到的消息对象，包含消息ID、所属流名称和消息内容
      */
@@ -38,8 +53,23 @@ public class RedisStreamListener implements StreamListener<String, ObjectRecord<
                     messageId, message.getStream(), value);
             // 3. 将消息转发给业务消费者处理（解耦框架与业务逻辑）
             messageConsumer.accept(message);
+            // 4. 处理成功后显式ack
+            if (ackGroup != null) {
+                redisStreamHandler.ack(message.getStream(), ackGroup, List.of(messageId));
+            }
         } catch (Exception e) {
             log.error("onMessage error", e);
         }
     }
+    
+    /**
+     * 处理回收到的pending消息，逐条走与正常消费相同的流程
+     *
+     * @param messages 回收到的消息
+     */
+    public void onReclaim(List<ObjectRecord<String, String>> messages) {
+        for (ObjectRecord<String, String> message : messages) {
+            onMessage(message);
+        }
+    }
 }
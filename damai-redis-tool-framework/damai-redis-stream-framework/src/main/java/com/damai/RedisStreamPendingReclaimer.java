@@ -0,0 +1,142 @@
+package com.damai;
+
+import com.damai.RedisStreamHandler.AutoClaimResult;
+import com.damai.constant.RedisStreamConstant;
+import com.damai.util.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.stream.ObjectRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: redis-stream pending消息回收器
+ * 消费者拉取消息后宕机或处理失败时，消息会一直停留在消费组的pending列表中
+ * 这里定时通过XAUTOCLAIM把空闲超时的消息转移给当前消费者，再交给监听器重新消费并ack
+ * 已投递次数达到reclaimMaxDeliveryCount的消息不再重新消费，转移到死信stream后ack，避免一直处理失败的消息无限循环
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class RedisStreamPendingReclaimer {
+    
+    /**
+     * 单次执行中最多扫描的轮数，避免pending积压过多时单次执行时间过长
+     */
+    private static final int MAX_SCAN_ROUND = 10;
+    
+    private final RedisStreamHandler redisStreamHandler;
+    
+    private final RedisStreamConfigProperties redisStreamConfigProperties;
+    
+    /**
+     * 回收到的消息的处理逻辑
+     */
+    private final Consumer<List<ObjectRecord<String, String>>> reclaimConsumer;
+    
+    private ScheduledExecutorService scheduledExecutorService;
+    
+    public RedisStreamPendingReclaimer(RedisStreamHandler redisStreamHandler,
+                                       RedisStreamConfigProperties redisStreamConfigProperties,
+                                       Consumer<List<ObjectRecord<String, String>>> reclaimConsumer) {
+        this.redisStreamHandler = redisStreamHandler;
+        this.redisStreamConfigProperties = redisStreamConfigProperties;
+        this.reclaimConsumer = reclaimConsumer;
+    }
+    
+    /**
+     * 启动定时回收任务
+     */
+    public synchronized void start() {
+        if (scheduledExecutorService != null) {
+            return;
+        }
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "thread-stream-reclaim-" + redisStreamConfigProperties.getStreamName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = redisStreamConfigProperties.getReclaimInterval().toMillis();
+        scheduledExecutorService.scheduleWithFixedDelay(this::reclaim, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 停止定时回收任务
+     */
+    public synchronized void stop() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+            scheduledExecutorService = null;
+        }
+    }
+    
+    /**
+     * 执行一次回收，按游标分批扫描pending列表直到扫描完或达到最大轮数
+     */
+    public void reclaim() {
+        String streamName = redisStreamConfigProperties.getStreamName();
+        String group = redisStreamConfigProperties.getConsumerGroup();
+        String consumer = redisStreamConfigProperties.getConsumerName();
+        String cursor = RedisStreamHandler.AUTO_CLAIM_END_CURSOR;
+        try {
+            for (int round = 0; round < MAX_SCAN_ROUND; round++) {
+                AutoClaimResult result = redisStreamHandler.autoClaim(streamName, group, consumer,
+                        redisStreamConfigProperties.getReclaimMinIdle(), cursor,
+                        redisStreamConfigProperties.getReclaimCount());
+                if (result == null) {
+                    return;
+                }
+                cursor = result.cursor();
+                List<RecordId> recordIdList = new ArrayList<>(result.deliveryCountMap().size());
+                List<RecordId> deadLetterIdList = new ArrayList<>();
+                result.deliveryCountMap().forEach((recordId, deliveryCount) -> {
+                    if (exceedMaxDeliveryCount(deliveryCount)) {
+                        deadLetterIdList.add(recordId);
+                    } else {
+                        recordIdList.add(recordId);
+                    }
+                });
+                if (!deadLetterIdList.isEmpty()) {
+                    deadLetter(streamName, group, consumer, deadLetterIdList);
+                }
+                if (!recordIdList.isEmpty()) {
+                    List<ObjectRecord<String, String>> records =
+                            redisStreamHandler.claim(streamName, group, consumer, recordIdList);
+                    log.warn("redis stream 回收pending消息 streamName : {}, group : {}, consumer : {}, size : {}",
+                            streamName, group, consumer, records.size());
+                    reclaimConsumer.accept(records);
+                }
+                if (RedisStreamHandler.AUTO_CLAIM_END_CURSOR.equals(cursor)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("redis stream reclaim error streamName : {}", streamName, e);
+        }
+    }
+    
+    private boolean exceedMaxDeliveryCount(long deliveryCount) {
+        Integer maxDeliveryCount = redisStreamConfigProperties.getReclaimMaxDeliveryCount();
+        return maxDeliveryCount != null && maxDeliveryCount > 0 && deliveryCount >= maxDeliveryCount;
+    }
+    
+    /**
+     * 取回消息内容写入死信stream，再ack原消息
+     */
+    private void deadLetter(String streamName, String group, String consumer, List<RecordId> recordIdList) {
+        String deadLetterStreamName = redisStreamConfigProperties.getDeadLetterStreamName();
+        if (StringUtil.isEmpty(deadLetterStreamName)) {
+            deadLetterStreamName = streamName + RedisStreamConstant.DEAD_LETTER_SUFFIX;
+        }
+        List<ObjectRecord<String, String>> records = redisStreamHandler.claim(streamName, group, consumer, recordIdList);
+        redisStreamHandler.deadLetter(streamName, group, deadLetterStreamName, records, recordIdList);
+        log.error("redis stream 消息超过最大投递次数转入死信 streamName : {}, group : {}, deadLetterStreamName : {}, " +
+                        "maxDeliveryCount : {}, recordIds : {}", streamName, group, deadLetterStreamName,
+                redisStreamConfigProperties.getReclaimMaxDeliveryCount(), recordIdList);
+    }
+}
@@ -5,8 +5,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.stream.ObjectRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: redis-stream发送消息器
@@ -37,15 +43,65 @@ public class RedisStreamPushHandler {
         // - 指定消息所属的Stream（从配置属性中获取流名称）
         // - 设置消息内容（字符串类型）
         // - 自动生成消息ID（格式：时间戳-序列号，确保唯一性和时序性）
-        ObjectRecord<String, String> record = StreamRecords.newRecord()
-                .in(redisStreamConfigProperties.getStreamName())  // 关联到目标Stream
-                .ofObject(msg)  // 设置消息体内容
-                .withId(RecordId.autoGenerate());   // 自动生成消息ID
+        ObjectRecord<String, String> record = buildRecord(msg);
+        RecordId recordId;
         // 2.发送消息到Redis Stream，并获取消息ID
-        RecordId recordId = this.stringRedisTemplate.opsForStream().add(record);
+        if (needTrim()) {
+            // 需要裁剪时发送和裁剪放在同一个pipeline中，只有一次网络往返
+            recordId = pushAll(List.of(msg)).get(0);
+        } else {
+            recordId = this.stringRedisTemplate.opsForStream().add(record);
+        }
         // 3.记录日志
         log.info("redis streamName : {} message : {}", redisStreamConfigProperties.getStreamName(), msg);
         // 4.返回消息ID
         return recordId;
     }
+    
+    /**
+     * 批量向Redis Stream发送消息
+     * 所有XADD通过pipeline一次发送，配置了maxLen时在pipeline末尾追加一次近似裁剪XTRIM MAXLEN ~
+     *
+     * @param msgList 要发送的消息内容集合
+     * @return 按发送顺序排列的消息ID
+     */
+    public List<RecordId> pushAll(Collection<String> msgList) {
+        if (msgList == null || msgList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String streamName = redisStreamConfigProperties.getStreamName();
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> redisOperations = (RedisOperations<String, String>) operations;
+                for (String msg : msgList) {
+                    redisOperations.opsForStream().add(buildRecord(msg));
+                }
+                if (needTrim()) {
+                    // 近似裁剪，redis按宏节点整块删除，开销远小于精确裁剪
+                    redisOperations.opsForStream().trim(streamName, redisStreamConfigProperties.getMaxLen(), true);
+                }
+                return null;
+            }
+        });
+        List<RecordId> recordIdList = new ArrayList<>(msgList.size());
+        for (int i = 0; i < msgList.size(); i++) {
+            recordIdList.add((RecordId) results.get(i));
+        }
+        log.info("redis streamName : {} batch push size : {}", streamName, msgList.size());
+        return recordIdList;
+    }
+    
+    private ObjectRecord<String, String> buildRecord(String msg) {
+        return StreamRecords.newRecord()
+                .in(redisStreamConfigProperties.getStreamName())  // 关联到目标Stream
+                .ofObject(msg)  // 设置消息体内容
+                .withId(RecordId.autoGenerate());   // 自动生成消息ID
+    }
+    
+    private boolean needTrim() {
+        Long maxLen = redisStreamConfigProperties.getMaxLen();
+        return maxLen != null && maxLen > 0;
+    }
 }
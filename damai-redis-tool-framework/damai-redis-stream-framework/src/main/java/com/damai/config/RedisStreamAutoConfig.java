@@ -1,14 +1,18 @@
 package com.damai.config;
 
+import com.damai.BatchMessageConsumer;
 import com.damai.MessageConsumer;
+import com.damai.RedisStreamBatchListener;
 import com.damai.RedisStreamConfigProperties;
 import com.damai.RedisStreamHandler;
 import com.damai.RedisStreamListener;
+import com.damai.RedisStreamPendingReclaimer;
 import com.damai.RedisStreamPushHandler;
 import com.damai.constant.RedisStreamConstant;
 import com.damai.enums.BaseCode;
 import com.damai.exception.DaMaiFrameException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -20,7 +24,6 @@ import org.springframework.data.redis.connection.stream.StreamOffset;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer;
 
-import java.time.Duration;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +66,23 @@ public class RedisStreamAutoConfig {
         return new RedisStreamHandler(redisStreamPushHandler, stringRedisTemplate);
     }
 
+    /**
+     * 初始化Redis Stream逐条消息监听器，消费组显式ack模式下处理成功才ack
+     *
+     * @param redisStreamConfigProperties Redis Stream配置属性
+     * @param redisStreamHandler          Redis Stream核心处理器
+     * @param messageConsumer             消息消费业务逻辑处理器（由业务方实现）
+     * @return RedisStreamListener 消息监听器
+     */
+    @Bean
+    @ConditionalOnBean(MessageConsumer.class)
+    public RedisStreamListener redisStreamListener(RedisStreamConfigProperties redisStreamConfigProperties,
+                                                   RedisStreamHandler redisStreamHandler,
+                                                   MessageConsumer messageConsumer) {
+        return new RedisStreamListener(messageConsumer, redisStreamHandler,
+                explicitAck(redisStreamConfigProperties) ? redisStreamConfigProperties.getConsumerGroup() : null);
+    }
+
     /**
      * 初始化Redis Stream消息监听容器，核心作用：绑定消费者与消息监听器，实现消息的自动接收和处理
      * 主要做的是将OrderStreamListener监听绑定消费者，用于接收消息
@@ -70,7 +90,7 @@ public class RedisStreamAutoConfig {
      * @param redisConnectionFactory      Redis连接工厂，用于创建与Redis的连接
      * @param redisStreamConfigProperties Redis Stream配置属性
      * @param redisStreamHandler          Redis Stream核心处理器
-     * @param messageConsumer             消息消费业务逻辑处理器（由业务方实现）
+     * @param redisStreamListener         消息监听器（绑定业务消费逻辑）
      * @return StreamMessageListenerContainer 消息监听容器实例
      */
     @Bean
@@ -80,12 +100,12 @@ public class RedisStreamAutoConfig {
             RedisConnectionFactory redisConnectionFactory,
             RedisStreamConfigProperties redisStreamConfigProperties,
             RedisStreamHandler redisStreamHandler,
-            MessageConsumer messageConsumer) {
+            RedisStreamListener redisStreamListener) {
         // 1.配置消息监听容器选项
         StreamMessageListenerContainer.StreamMessageListenerContainerOptions<String, ObjectRecord<String, String>>
                 options = StreamMessageListenerContainer.StreamMessageListenerContainerOptions.builder()
-                .pollTimeout(Duration.ofSeconds(5))  // 消息拉取超时时间：5秒未拉取到消息则重试
-                .batchSize(10)  // 每次批量拉取的消息数量上限
+                .pollTimeout(redisStreamConfigProperties.getPollTimeout())  // 消息拉取超时时间：超时未拉取到消息则重试
+                .batchSize(redisStreamConfigProperties.getBatchSize())  // 每次批量拉取的消息数量上限
                 .targetType(String.class)  // 消息体的目标类型
                 .errorHandler(t -> log.error("出现异常", t))   // 全局异常处理器
                 .executor(createThreadPool())   // 指定处理消息的线程池
@@ -95,38 +115,100 @@ public class RedisStreamAutoConfig {
                 StreamMessageListenerContainer.create(redisConnectionFactory, options);
         // 3.校验消费类型
         checkConsumerType(redisStreamConfigProperties.getConsumerType());
-        // 4.创建消息监听器（绑定业务消费逻辑）
-        RedisStreamListener redisStreamListener = new RedisStreamListener(messageConsumer);
-        // 5.根据消费类型配置消息监听模式
+        // 4.根据消费类型配置消息监听模式
         if (RedisStreamConstant.GROUP.equals(redisStreamConfigProperties.getConsumerType())) {
-            // 5.1.消费组模式：创建消费组（若不存在），并从消费组游标位置开始消费
+            // 4.1.消费组模式：创建消费组（若不存在），并从消费组游标位置开始消费
             redisStreamHandler.streamBindingGroup(
                     redisStreamConfigProperties.getStreamName(),   // 流名称
                     redisStreamConfigProperties.getConsumerGroup()   // 消费组名称
             );
-            // 绑定消费组和消费者，使用自动确认机制（消息处理后自动ACK）
-            container.receiveAutoAck(
-                    // 定义消费者（属于指定消费组）
-                    Consumer.from(
-                            redisStreamConfigProperties.getConsumerGroup(),  // 消费组名称
-                            redisStreamConfigProperties.getConsumerName()  // 消费者名称
-                    ),
-                    // 从消费组的最后消费位置继续消费（lastConsumed）
-                    StreamOffset.create(redisStreamConfigProperties.getStreamName(), ReadOffset.lastConsumed()),
-                    redisStreamListener   // 消息监听器（处理消息）
+            // 定义消费者（属于指定消费组）
+            Consumer consumer = Consumer.from(
+                    redisStreamConfigProperties.getConsumerGroup(),  // 消费组名称
+                    redisStreamConfigProperties.getConsumerName()  // 消费者名称
             );
+            // 从消费组的最后消费位置继续消费（lastConsumed）
+            StreamOffset<String> streamOffset =
+                    StreamOffset.create(redisStreamConfigProperties.getStreamName(), ReadOffset.lastConsumed());
+            if (explicitAck(redisStreamConfigProperties)) {
+                // 显式ack：由监听器在业务处理成功后ack，失败的消息留在pending列表中等待回收
+                container.receive(consumer, streamOffset, redisStreamListener);
+            } else {
+                // 使用自动确认机制（拉取消息时即ACK）
+                container.receiveAutoAck(consumer, streamOffset, redisStreamListener);
+            }
         } else {
-            // 5.2.广播模式：从流的起始位置开始消费（所有消费者都能收到全量消息）
+            // 4.2.广播模式：从流的起始位置开始消费（所有消费者都能收到全量消息）
             container.receive(
                     StreamOffset.fromStart(redisStreamConfigProperties.getStreamName()),  // 从第一条消息开始消费
                     redisStreamListener   // 消息监听器
             );
         }
-        // 6.启动消息监听容器
+        // 5.启动消息监听容器
         container.start();
         return container;
     }
 
+    /**
+     * 初始化Redis Stream批量消息监听器，业务方实现BatchMessageConsumer时生效
+     * 一次拉取最多batchSize条消息整体交给业务处理，成功后整批ack
+     *
+     * @param stringRedisTemplate         Redis操作模板
+     * @param redisStreamConfigProperties Redis Stream配置属性
+     * @param redisStreamHandler          Redis Stream核心处理器
+     * @param batchMessageConsumer        批量消息消费业务逻辑处理器（由业务方实现）
+     * @return RedisStreamBatchListener 批量消息监听器
+     */
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnBean(BatchMessageConsumer.class)
+    public RedisStreamBatchListener redisStreamBatchListener(StringRedisTemplate stringRedisTemplate,
+                                                             RedisStreamConfigProperties redisStreamConfigProperties,
+                                                             RedisStreamHandler redisStreamHandler,
+                                                             BatchMessageConsumer batchMessageConsumer) {
+        checkConsumerType(redisStreamConfigProperties.getConsumerType());
+        if (RedisStreamConstant.GROUP.equals(redisStreamConfigProperties.getConsumerType())) {
+            redisStreamHandler.streamBindingGroup(redisStreamConfigProperties.getStreamName(),
+                    redisStreamConfigProperties.getConsumerGroup());
+        }
+        RedisStreamBatchListener redisStreamBatchListener = new RedisStreamBatchListener(batchMessageConsumer,
+                stringRedisTemplate, redisStreamHandler, redisStreamConfigProperties);
+        redisStreamBatchListener.start();
+        return redisStreamBatchListener;
+    }
+    
+    /**
+     * 初始化pending消息回收器，仅在消费组模式、显式ack且开启回收时启动
+     * 存在批量监听器时回收到的消息按批处理，否则逐条交给消息监听器
+     *
+     * @param redisStreamConfigProperties Redis Stream配置属性
+     * @param redisStreamHandler          Redis Stream核心处理器
+     * @param redisStreamListener         逐条消息监听器
+     * @param redisStreamBatchListener    批量消息监听器
+     * @return RedisStreamPendingReclaimer pending消息回收器
+     */
+    @Bean(destroyMethod = "stop")
+    public RedisStreamPendingReclaimer redisStreamPendingReclaimer(RedisStreamConfigProperties redisStreamConfigProperties,
+                                                                   RedisStreamHandler redisStreamHandler,
+                                                                   ObjectProvider<RedisStreamListener> redisStreamListener,
+                                                                   ObjectProvider<RedisStreamBatchListener> redisStreamBatchListener) {
+        RedisStreamBatchListener batchListener = redisStreamBatchListener.getIfAvailable();
+        RedisStreamListener listener = redisStreamListener.getIfAvailable();
+        RedisStreamPendingReclaimer redisStreamPendingReclaimer;
+        if (batchListener != null) {
+            redisStreamPendingReclaimer = new RedisStreamPendingReclaimer(redisStreamHandler,
+                    redisStreamConfigProperties, batchListener::dispatch);
+        } else if (listener != null) {
+            redisStreamPendingReclaimer = new RedisStreamPendingReclaimer(redisStreamHandler,
+                    redisStreamConfigProperties, listener::onReclaim);
+        } else {
+            return new RedisStreamPendingReclaimer(redisStreamHandler, redisStreamConfigProperties, records -> {});
+        }
+        if (explicitAck(redisStreamConfigProperties) && Boolean.TRUE.equals(redisStreamConfigProperties.getReclaimEnabled())) {
+            redisStreamPendingReclaimer.start();
+        }
+        return redisStreamPendingReclaimer;
+    }
+
     /**
      * 创建消息处理专用线程池
      * 用于异步处理接收到的Redis Stream消息
@@ -162,4 +244,15 @@ public class RedisStreamAutoConfig {
             throw new DaMaiFrameException(BaseCode.REDIS_STREAM_CONSUMER_TYPE_NOT_EXIST);
         }
     }
+    
+    /**
+     * 是否为消费组模式下的显式ack
+     *
+     * @param redisStreamConfigProperties Redis Stream配置属性
+     * @return boolean
+     */
+    public boolean explicitAck(RedisStreamConfigProperties redisStreamConfigProperties) {
+        return RedisStreamConstant.GROUP.equals(redisStreamConfigProperties.getConsumerType())
+                && Boolean.TRUE.equals(redisStreamConfigProperties.getExplicitAck());
+    }
 }
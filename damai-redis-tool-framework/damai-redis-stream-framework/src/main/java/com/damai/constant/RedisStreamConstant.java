@@ -11,4 +11,6 @@ public class RedisStreamConstant {
     public static final String GROUP = "group";
     
     public static final String BROADCAST = "broadcast";
+    
+    public static final String DEAD_LETTER_SUFFIX = "-dead-letter";
 }
@@ -0,0 +1,27 @@
+-- 从KEYS数组中获取stream的键名
+local stream_key = KEYS[1]
+-- 消费组名称
+local group = ARGV[1]
+-- 回收后的新消费者名称
+local consumer = ARGV[2]
+-- pending消息的最小空闲毫秒数
+local min_idle = ARGV[3]
+-- 扫描游标，首次为0-0
+local cursor = ARGV[4]
+-- 每次回收的数量上限
+local count = ARGV[5]
+-- JUSTID只转移所有权不返回消息体，也不增加投递次数，消息体由后续XCLAIM取回
+local result = redis.call('XAUTOCLAIM', stream_key, group, consumer, min_idle, cursor, 'COUNT', count, 'JUSTID')
+-- 返回值：第一个元素为下一次扫描的游标，其余依次为回收到的消息id和它已投递的次数
+local ids = { result[1] }
+for _, id in ipairs(result[2]) do
+    -- XPENDING按单个id查询，返回 [id, 消费者, 空闲毫秒数, 投递次数]
+    local pending = redis.call('XPENDING', stream_key, group, id, id, 1)
+    local delivery_count = 0
+    if pending[1] then
+        delivery_count = pending[1][4]
+    end
+    table.insert(ids, id)
+    table.insert(ids, tostring(delivery_count))
+end
+return ids
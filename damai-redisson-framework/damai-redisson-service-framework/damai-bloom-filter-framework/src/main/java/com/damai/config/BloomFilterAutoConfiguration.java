@@ -1,7 +1,11 @@
 package com.damai.config;
 
 import com.damai.handler.BloomFilterHandler;
+import com.damai.handler.BloomFilterMetrics;
+import com.damai.handler.BloomFilterRebuildSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
@@ -14,10 +18,23 @@ import org.springframework.context.annotation.Bean;
 public class BloomFilterAutoConfiguration {
     
     /**
-     * 布隆过滤器
+     * 布隆过滤器监控指标
+     * 容器中没有MeterRegistry（未引入actuator）时，指标记录为空操作
      */
     @Bean
-    public BloomFilterHandler rBloomFilterUtil(RedissonClient redissonClient, BloomFilterProperties bloomFilterProperties) {
-        return new BloomFilterHandler(redissonClient, bloomFilterProperties);
+    public BloomFilterMetrics bloomFilterMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new BloomFilterMetrics(meterRegistryProvider.getIfAvailable());
+    }
+    
+    /**
+     * 布隆过滤器
+     * 业务服务提供了BloomFilterRebuildSource时支持按代际重建
+     */
+    @Bean(destroyMethod = "destroy")
+    public BloomFilterHandler rBloomFilterUtil(RedissonClient redissonClient, BloomFilterProperties bloomFilterProperties,
+                                               ObjectProvider<BloomFilterRebuildSource> rebuildSourceProvider,
+                                               BloomFilterMetrics bloomFilterMetrics) {
+        return new BloomFilterHandler(redissonClient, bloomFilterProperties, rebuildSourceProvider.getIfAvailable(),
+                bloomFilterMetrics);
     }
 }
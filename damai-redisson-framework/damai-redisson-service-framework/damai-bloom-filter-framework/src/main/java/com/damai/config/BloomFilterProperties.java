@@ -3,6 +3,8 @@ package com.damai.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: 布隆过滤器 配置属性
@@ -20,4 +22,26 @@ public class BloomFilterProperties {
     private Long expectedInsertions = 20000L;
     // 布隆过滤器碰撞率
     private Double falseProbability = 0.01D;
+    // 批量添加时每批通过管道写入的数据量
+    private Integer addBatchSize = 10000;
+    // 是否开启本地镜像，开启后存在性判断直接读jvm内存
+    private Boolean localMirrorEnabled = false;
+    // 本地镜像从redis全量刷新的间隔
+    private Duration localMirrorRefreshInterval = Duration.ofMinutes(5);
+    // 本地镜像合并增量事件的时间窗口，窗口内的单条添加合并成一条广播
+    private Duration localMirrorPublishDelay = Duration.ofMillis(50);
+    // 检查误判率和同步代际状态的间隔
+    private Duration rebuildCheckInterval = Duration.ofMinutes(1);
+    // 是否在误判率超过阈值时自动重建（需要服务提供BloomFilterRebuildSource）
+    private Boolean autoRebuildEnabled = false;
+    // 估算误判率超过falseProbability的多少倍时触发重建
+    private Double rebuildThresholdFactor = 2.0D;
+    // 重建时新过滤器容量相对当前估算数量的放大倍数
+    private Double rebuildGrowthFactor = 2.0D;
+    // 重建的最长时间，超时后构建标记失效，各节点停止双写
+    private Duration rebuildTimeout = Duration.ofMinutes(30);
+    // 重建时等待各节点确认开始双写的最长时间，超时放弃本次重建
+    private Duration rebuildAckTimeout = Duration.ofSeconds(30);
+    // 切换后旧代际的过滤器保留多久再删除，留给还没切换的节点继续读
+    private Duration oldGenerationRetention = Duration.ofMinutes(10);
 }
@@ -0,0 +1,244 @@
+package com.damai.handler;
+
+import lombok.Getter;
+import org.redisson.api.BatchResult;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBitSetAsync;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器的一个代际
+ * 每次重建都会生成一个新代际的过滤器，代际号越大越新
+ * 过滤器的容量和哈希次数仍由Redisson的RBloomFilter初始化和保存，位的读写按BloomFilterHash计算下标，通过管道直接操作位数组
+ * 哈希标记不存在的代际是按Redisson内部哈希写入的旧数据，读写仍交给RBloomFilter，也不开启本地镜像，重建后迁移到新的布局
+ * @author: 阿星不是程序员
+ **/
+public class BloomFilterGeneration {
+
+    /**
+     * 代际号
+     */
+    @Getter
+    private final long generation;
+
+    @Getter
+    private final RBloomFilter<String> bloomFilter;
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 是否按BloomFilterHash计算下标
+     */
+    @Getter
+    private final boolean ownHash;
+
+    /**
+     * 本地镜像，未开启时为null
+     */
+    private final BloomFilterLocalMirror localMirror;
+
+    /**
+     * 批量添加时每批通过管道写入的数据量
+     */
+    private final int addBatchSize;
+
+    /**
+     * 位数组大小和哈希次数初始化后不会变化，第一次使用时从redis读取
+     */
+    private volatile long size;
+
+    private volatile int hashIterations;
+
+    public BloomFilterGeneration(long generation, RBloomFilter<String> bloomFilter, RedissonClient redissonClient,
+                                 boolean ownHash, BloomFilterLocalMirror localMirror, int addBatchSize) {
+        this.generation = generation;
+        this.bloomFilter = bloomFilter;
+        this.redissonClient = redissonClient;
+        this.ownHash = ownHash;
+        this.localMirror = localMirror;
+        this.addBatchSize = addBatchSize;
+    }
+
+    /**
+     * 代际的哈希标记，与过滤器同名加后缀，在过滤器初始化之前写入
+     */
+    public static RBucket<String> hashMarker(RedissonClient redissonClient, String name) {
+        return redissonClient.getBucket(name + "__hash", StringCodec.INSTANCE);
+    }
+
+    /**
+     * 开始对外提供读服务，有本地镜像时加载镜像
+     */
+    public void open() {
+        if (localMirror != null) {
+            localMirror.start();
+        }
+    }
+
+    /**
+     * 停止对外提供读服务
+     */
+    public void close() {
+        if (localMirror != null) {
+            localMirror.stop();
+        }
+    }
+
+    public boolean add(String data) {
+        if (!ownHash) {
+            return bloomFilter.add(data);
+        }
+        long[] indexes = BloomFilterHash.indexes(data, hashIterations(), size());
+        RBatch batch = redissonClient.createBatch();
+        RBitSetAsync bitSet = batch.getBitSet(bloomFilter.getName());
+        for (long index : indexes) {
+            bitSet.setAsync(index);
+        }
+        BatchResult<?> batchResult = batch.execute();
+        boolean result = isNew(batchResult.getResponses(), 0, indexes.length);
+        if (localMirror != null) {
+            localMirror.publishAdd(data);
+        }
+        return result;
+    }
+
+    /**
+     * 按addBatchSize分批，每批的所有位操作通过一次管道写入redis，全部写入后通知本地镜像全量刷新
+     */
+    public long addAll(Collection<String> dataList) {
+        long added = 0L;
+        List<String> batch = new ArrayList<>(Math.min(addBatchSize, dataList.size()));
+        for (String data : dataList) {
+            batch.add(data);
+            if (batch.size() >= addBatchSize) {
+                added += addBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            added += addBatch(batch);
+        }
+        if (localMirror != null) {
+            localMirror.publishReload();
+        }
+        return added;
+    }
+
+    public boolean contains(String data) {
+        // 本地镜像已加载时直接读内存，否则回退到redis判断
+        if (localMirror != null && localMirror.isReady()) {
+            return localMirror.contains(data);
+        }
+        if (!ownHash) {
+            return bloomFilter.contains(data);
+        }
+        RBatch batch = redissonClient.createBatch();
+        RBitSetAsync bitSet = batch.getBitSet(bloomFilter.getName());
+        for (long index : BloomFilterHash.indexes(data, hashIterations(), size())) {
+            bitSet.getAsync(index);
+        }
+        for (Object response : batch.execute().getResponses()) {
+            if (!Boolean.TRUE.equals(response)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 估算已添加的数据量
+     */
+    public long count() {
+        return bloomFilter.count();
+    }
+
+    /**
+     * 设置过期时间，哈希标记与过滤器一起过期
+     */
+    public void expire(Duration duration) {
+        bloomFilter.expire(duration);
+        hashMarker(redissonClient, bloomFilter.getName()).expire(duration);
+    }
+
+    /**
+     * 删除过滤器和哈希标记
+     */
+    public void delete() {
+        bloomFilter.delete();
+        hashMarker(redissonClient, bloomFilter.getName()).delete();
+    }
+
+    /**
+     * 根据已添加数量估算当前误判率：(1 - e^(-k * n / m))^k
+     *
+     * @param count 估算的已添加数量
+     * @return 估算的误判率
+     */
+    public double estimateFalseProbability(long count) {
+        double size = size();
+        int hashIterations = hashIterations();
+        return Math.pow(1 - Math.exp(-hashIterations * count / size), hashIterations);
+    }
+
+    private long addBatch(List<String> dataList) {
+        if (!ownHash) {
+            return bloomFilter.add(dataList);
+        }
+        int hashIterations = hashIterations();
+        long size = size();
+        RBatch batch = redissonClient.createBatch();
+        RBitSetAsync bitSet = batch.getBitSet(bloomFilter.getName());
+        for (String data : dataList) {
+            for (long index : BloomFilterHash.indexes(data, hashIterations, size)) {
+                bitSet.setAsync(index);
+            }
+        }
+        List<?> responses = batch.execute().getResponses();
+        long added = 0L;
+        for (int i = 0; i < dataList.size(); i++) {
+            if (isNew(responses, i * hashIterations, hashIterations)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * SETBIT返回置位前的值，只要有一位原来是0就说明是首次添加
+     */
+    private static boolean isNew(List<?> responses, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            if (!Boolean.TRUE.equals(responses.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long size() {
+        long value = size;
+        if (value == 0L) {
+            value = bloomFilter.getSize();
+            size = value;
+        }
+        return value;
+    }
+
+    private int hashIterations() {
+        int value = hashIterations;
+        if (value == 0) {
+            value = bloomFilter.getHashIterations();
+            hashIterations = value;
+        }
+        return value;
+    }
+}
@@ -3,8 +3,24 @@ package com.damai.handler;
 
 import com.damai.config.BloomFilterProperties;
 import com.damai.core.SpringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
 import org.redisson.api.RBloomFilter;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RSet;
+import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -12,44 +28,178 @@ import org.redisson.api.RedissonClient;
  * @description: 布隆过滤器处理器
  * 基于Redisson实现分布式布隆过滤器，用于解决缓存穿透问题
  * 提供数据添加、存在性判断等核心操作，适配分布式环境下的高效查询
+ * 布隆过滤器只能添加不能删除，数据量增长后误判率会超过配置值，因此按代际轮换：
+ * 1. redis中的代际指针记录当前生效的代际，读请求只访问当前代际
+ * 2. 重建时先创建容量更大的新代际并广播，各节点开始双写新旧两个代际后回复确认，全部确认后才开始加载数据
+ * 3. 从数据库加载全部有效数据写入新代际后，更新代际指针并广播切换，旧代际延迟删除
  * @author: 阿星不是程序员
  **/
+@Slf4j
 public class BloomFilterHandler {
 
     /**
-     * Redisson提供的布隆过滤器实例，用于存储数据并执行高效的存在性判断
-     * 泛型为String，表示存储的数据类型为字符串（如节目ID的字符串形式）
+     * 开始构建新代际事件
+     */
+    private static final String BUILD_EVENT = "B:";
+
+    /**
+     * 切换到新代际事件
+     */
+    private static final String SWITCH_EVENT = "S:";
+
+    /**
+     * 取消构建事件
+     */
+    private static final String CANCEL_EVENT = "C:";
+
+    private final RedissonClient redissonClient;
+
+    private final BloomFilterProperties bloomFilterProperties;
+
+    /**
+     * 重建数据源，业务服务未提供时为null，此时不能重建
+     */
+    private final BloomFilterRebuildSource rebuildSource;
+
+    private final BloomFilterMetrics bloomFilterMetrics;
+
+    /**
+     * 区分不同环境的布隆过滤器名字，第0代直接使用此名字，兼容轮换前的数据
+     */
+    private final String baseName;
+
+    /**
+     * 当前生效的代际号
+     */
+    private final RAtomicLong generationPointer;
+
+    /**
+     * 正在构建的代际号，带过期时间，构建节点宕机后自动失效
+     */
+    private final RBucket<Long> buildingMarker;
+
+    private final RLock rebuildLock;
+
+    private final RTopic rotationTopic;
+
+    /**
+     * 当前节点的标识，回复双写确认时使用
      */
-    private final RBloomFilter<String> cachePenetrationBloomFilter;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 当前生效的代际
+     */
+    private final AtomicReference<BloomFilterGeneration> current = new AtomicReference<>();
+
+    /**
+     * 正在构建的代际，不为null时写操作需要双写
+     */
+    private volatile BloomFilterGeneration building;
+
+    /**
+     * 最近一次检查得到的状态，供监控指标读取
+     */
+    private volatile BloomFilterState state = BloomFilterState.EMPTY;
+
+    private final int listenerId;
+
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public BloomFilterHandler(RedissonClient redissonClient, BloomFilterProperties bloomFilterProperties) {
+        this(redissonClient, bloomFilterProperties, null, new BloomFilterMetrics(null));
+    }
 
     /**
      * 构造方法：初始化布隆过滤器
-     * 从配置中读取参数，创建或获取Redisson布隆过滤器实例
+     * 从配置中读取参数，按代际指针创建或获取Redisson布隆过滤器实例
      *
      * @param redissonClient        Redisson客户端，用于操作Redis中的布隆过滤器
      * @param bloomFilterProperties 布隆过滤器配置属性（包含预期插入量、误判率等）
+     * @param rebuildSource         重建数据源，可以为null
+     * @param bloomFilterMetrics    监控指标
      */
-    public BloomFilterHandler(RedissonClient redissonClient, BloomFilterProperties bloomFilterProperties) {
+    public BloomFilterHandler(RedissonClient redissonClient, BloomFilterProperties bloomFilterProperties,
+                              BloomFilterRebuildSource rebuildSource, BloomFilterMetrics bloomFilterMetrics) {
+        this.redissonClient = redissonClient;
+        this.bloomFilterProperties = bloomFilterProperties;
+        this.rebuildSource = rebuildSource;
+        this.bloomFilterMetrics = bloomFilterMetrics;
         // 区分不同环境的布隆过滤器，避免冲突
-        RBloomFilter<String> cachePenetrationBloomFilter = redissonClient.getBloomFilter(
-                SpringUtil.getPrefixDistinctionName() + "-" + bloomFilterProperties.getName());
-        // 初始化布隆过滤器（若不存在则创建）
-        cachePenetrationBloomFilter.tryInit(
-                bloomFilterProperties.getExpectedInsertions(),  // 预期插入的数据量（影响底层位数组大小）
-                bloomFilterProperties.getFalseProbability()   // 可接受的误判概率（值越小，需要的位数组越大，内存占用越高）
-        );
-        this.cachePenetrationBloomFilter = cachePenetrationBloomFilter;
+        this.baseName = SpringUtil.getPrefixDistinctionName() + "-" + bloomFilterProperties.getName();
+        this.generationPointer = redissonClient.getAtomicLong(baseName + "__generation");
+        this.buildingMarker = redissonClient.getBucket(baseName + "__building", LongCodec.INSTANCE);
+        this.rebuildLock = redissonClient.getLock(baseName + "__rebuild");
+        this.rotationTopic = redissonClient.getTopic(baseName + "__rotation", StringCodec.INSTANCE);
+
+        long generation = generationPointer.get();
+        RBloomFilter<String> bloomFilter = redissonClient.getBloomFilter(generationName(generation));
+        BloomFilterGeneration bloomFilterGeneration = newGeneration(generation, bloomFilter, true,
+                initCurrent(bloomFilter));
+        bloomFilterGeneration.open();
+        current.set(bloomFilterGeneration);
+
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "thread-bloom-filter-rotation-" + baseName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 轮换事件的处理会访问redis，交给轮换线程执行，不占用订阅回调线程
+        this.listenerId = rotationTopic.addListener(String.class,
+                (channel, message) -> scheduledExecutorService.execute(() -> onRotationMessage(message)));
+        syncBuilding();
+        long interval = bloomFilterProperties.getRebuildCheckInterval().toMillis();
+        scheduledExecutorService.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+        bloomFilterMetrics.register(baseName, () -> state);
     }
 
     /**
      * 向布隆过滤器添加数据
-     * 数据会通过多个哈希函数映射到位数组，标记为"存在"
+     * 数据会通过多个哈希函数映射到位数组，标记为"存在"，重建期间同时写入新代际
      *
      * @param data 待添加的数据（字符串类型，如节目ID的字符串形式）
      * @return 若数据是首次添加返回true，否则返回false（Redisson实现特性）
      */
     public boolean add(String data) {
-        return cachePenetrationBloomFilter.add(data);
+        // 先读构建中的代际再读当前代际，保证切换发生在两次读取之间时新代际也能写入
+        BloomFilterGeneration next = building;
+        BloomFilterGeneration generation = current.get();
+        boolean result = generation.add(data);
+        if (next != null && next.getGeneration() > generation.getGeneration()) {
+            try {
+                next.add(data);
+            } catch (Exception e) {
+                log.warn("bloom filter dual write error name : {}, generation : {}", baseName,
+                        next.getGeneration(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量向布隆过滤器添加数据
+     * 按addBatchSize分批，每批的所有位操作通过一次管道写入redis，避免逐条添加的网络往返
+     * 全部写入后通知本地镜像全量刷新，不再逐条广播
+     *
+     * @param dataList 待添加的数据集合
+     * @return 首次添加的数据量
+     */
+    public long addAll(Collection<String> dataList) {
+        if (dataList == null || dataList.isEmpty()) {
+            return 0L;
+        }
+        BloomFilterGeneration next = building;
+        BloomFilterGeneration generation = current.get();
+        long added = generation.addAll(dataList);
+        if (next != null && next.getGeneration() > generation.getGeneration()) {
+            try {
+                next.addAll(dataList);
+            } catch (Exception e) {
+                log.warn("bloom filter dual write error name : {}, generation : {}", baseName,
+                        next.getGeneration(), e);
+            }
+        }
+        return added;
     }
 
     /**
@@ -62,15 +212,15 @@ public class BloomFilterHandler {
      * @return 是否可能存在的判断结果
      */
     public boolean contains(String data) {
-        return cachePenetrationBloomFilter.contains(data);
+        return current.get().contains(data);
     }
 
     public long getExpectedInsertions() {
-        return cachePenetrationBloomFilter.getExpectedInsertions();
+        return current.get().getBloomFilter().getExpectedInsertions();
     }
 
     public double getFalseProbability() {
-        return cachePenetrationBloomFilter.getFalseProbability();
+        return current.get().getBloomFilter().getFalseProbability();
     }
 
     /**
@@ -79,11 +229,11 @@ public class BloomFilterHandler {
      * @return 位数组大小
      */
     public long getSize() {
-        return cachePenetrationBloomFilter.getSize();
+        return current.get().getBloomFilter().getSize();
     }
 
     public int getHashIterations() {
-        return cachePenetrationBloomFilter.getHashIterations();
+        return current.get().getBloomFilter().getHashIterations();
     }
 
     /**
@@ -93,6 +243,294 @@ public class BloomFilterHandler {
      * @return 估算的已添加数据量
      */
     public long count() {
-        return cachePenetrationBloomFilter.count();
+        return current.get().count();
+    }
+
+    /**
+     * 当前生效的代际号
+     */
+    public long getGeneration() {
+        return current.get().getGeneration();
+    }
+
+    /**
+     * 最近一次检查得到的状态
+     */
+    public BloomFilterState getState() {
+        return state;
+    }
+
+    /**
+     * 重建布隆过滤器，集群内同一时间只有一个节点执行，其他节点直接返回
+     * 1. 按当前估算数量放大后创建新代际，设置构建标记并广播，各节点开始双写
+     * 2. 等待所有收到广播的节点确认已开始双写，再从数据源加载全部有效数据批量写入新代际
+     *    加载开始之后的新增数据一定会双写到新代际，加载开始之前的新增数据已经在数据库中，会被加载到
+     * 3. 更新代际指针并广播切换，旧代际保留一段时间后由redis过期删除
+     *
+     * @return 是否重建成功
+     */
+    public boolean rebuild() {
+        if (Objects.isNull(rebuildSource)) {
+            log.warn("bloom filter rebuild source not found name : {}", baseName);
+            return false;
+        }
+        if (!rebuildLock.tryLock()) {
+            log.info("bloom filter is rebuilding by other node name : {}", baseName);
+            return false;
+        }
+        long startTime = System.nanoTime();
+        boolean success = false;
+        BloomFilterGeneration old = current.get();
+        long nextGeneration = Math.max(generationPointer.get(), old.getGeneration()) + 1;
+        RBloomFilter<String> nextBloomFilter = redissonClient.getBloomFilter(generationName(nextGeneration));
+        try {
+            long expectedInsertions = Math.max(bloomFilterProperties.getExpectedInsertions(),
+                    (long) Math.ceil(old.count() * bloomFilterProperties.getRebuildGrowthFactor()));
+            // 清理上次构建失败遗留的数据，新代际一律按BloomFilterHash布局，哈希标记在初始化之前写入
+            nextBloomFilter.delete();
+            BloomFilterGeneration.hashMarker(redissonClient, nextBloomFilter.getName()).set(BloomFilterHash.NAME);
+            nextBloomFilter.tryInit(expectedInsertions, bloomFilterProperties.getFalseProbability());
+            BloomFilterGeneration next = newGeneration(nextGeneration, nextBloomFilter, false, true);
+            buildingMarker.set(nextGeneration, bloomFilterProperties.getRebuildTimeout());
+            building = next;
+            // 本节点的轮换线程可能正在执行这次重建，不能等广播回调，直接确认
+            acknowledgeBuilding(nextGeneration);
+            long receivers = rotationTopic.publish(BUILD_EVENT + nextGeneration);
+            log.info("bloom filter rebuild start name : {}, generation : {}, expectedInsertions : {}",
+                    baseName, nextGeneration, expectedInsertions);
+            awaitBuildingAck(nextGeneration, receivers);
+
+            // 所有节点都开始双写后再加载数据，加载期间新增的数据由双写保证不丢
+            Collection<String> dataList = rebuildSource.loadAll();
+            if (dataList != null && !dataList.isEmpty()) {
+                next.addAll(dataList);
+            }
+
+            generationPointer.set(nextGeneration);
+            buildingMarker.delete();
+            buildingAckSet(nextGeneration).delete();
+            switchTo(nextGeneration);
+            rotationTopic.publish(SWITCH_EVENT + nextGeneration);
+            old.expire(bloomFilterProperties.getOldGenerationRetention());
+            success = true;
+            log.info("bloom filter rebuild finish name : {}, generation : {}, size : {}",
+                    baseName, nextGeneration, dataList == null ? 0 : dataList.size());
+            return true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("bloom filter rebuild error name : {}, generation : {}", baseName, nextGeneration, e);
+            cancelBuilding(nextGeneration);
+            return false;
+        } finally {
+            bloomFilterMetrics.recordRebuild(baseName, startTime, success);
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * 停止轮换检查和本地镜像
+     */
+    public void destroy() {
+        rotationTopic.removeListener(listenerId);
+        scheduledExecutorService.shutdownNow();
+        current.get().close();
+    }
+
+    /**
+     * 定时执行：同步代际状态，更新监控状态，误判率超过阈值时自动重建
+     */
+    private void check() {
+        try {
+            long pointer = generationPointer.get();
+            if (pointer > current.get().getGeneration()) {
+                switchTo(pointer);
+            }
+            syncBuilding();
+            BloomFilterGeneration generation = current.get();
+            long count = generation.count();
+            double falseProbability = generation.estimateFalseProbability(count);
+            state = new BloomFilterState(generation.getGeneration(), count, falseProbability,
+                    bloomFilterProperties.getFalseProbability());
+            if (Boolean.TRUE.equals(bloomFilterProperties.getAutoRebuildEnabled())
+                    && Objects.nonNull(rebuildSource)
+                    && Objects.isNull(building)
+                    && falseProbability > bloomFilterProperties.getFalseProbability()
+                    * bloomFilterProperties.getRebuildThresholdFactor()) {
+                log.warn("bloom filter false probability exceeded name : {}, estimate : {}, expected : {}",
+                        baseName, falseProbability, bloomFilterProperties.getFalseProbability());
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("bloom filter check error name : {}", baseName, e);
+        }
+    }
+
+    private void onRotationMessage(String message) {
+        try {
+            if (message.startsWith(BUILD_EVENT)) {
+                long generation = Long.parseLong(message.substring(BUILD_EVENT.length()));
+                attachBuilding(generation);
+            } else if (message.startsWith(SWITCH_EVENT)) {
+                switchTo(Long.parseLong(message.substring(SWITCH_EVENT.length())));
+            } else if (message.startsWith(CANCEL_EVENT)) {
+                long generation = Long.parseLong(message.substring(CANCEL_EVENT.length()));
+                BloomFilterGeneration next = building;
+                if (next != null && next.getGeneration() == generation) {
+                    building = null;
+                }
+            }
+        } catch (Exception e) {
+            log.error("bloom filter rotation message handle error name : {}, message : {}", baseName, message, e);
+        }
+    }
+
+    /**
+     * 以构建标记为准同步双写状态，兜底处理丢失的广播事件
+     */
+    private void syncBuilding() {
+        Long generation = buildingMarker.get();
+        if (generation == null) {
+            building = null;
+        } else {
+            attachBuilding(generation);
+        }
+    }
+
+    private synchronized void attachBuilding(long generation) {
+        BloomFilterGeneration next = building;
+        if (generation <= current.get().getGeneration()) {
+            return;
+        }
+        if (next == null || next.getGeneration() != generation) {
+            // 构建节点已经初始化过新代际，这里只获取不初始化，避免用错误的容量抢先创建
+            RBloomFilter<String> bloomFilter = redissonClient.getBloomFilter(generationName(generation));
+            building = newGeneration(generation, bloomFilter, false, isOwnHash(bloomFilter));
+        }
+        acknowledgeBuilding(generation);
+    }
+
+    /**
+     * 回复已开始双写，必须在building赋值之后调用
+     */
+    private void acknowledgeBuilding(long generation) {
+        RSet<String> ackSet = buildingAckSet(generation);
+        ackSet.add(nodeId);
+        ackSet.expire(bloomFilterProperties.getRebuildTimeout());
+    }
+
+    /**
+     * 等待收到构建广播的所有节点确认，超时说明有节点可能还没开始双写，此时加载数据会丢失这些节点的新增，放弃本次重建
+     *
+     * @param generation 构建中的代际号
+     * @param receivers  收到构建广播的节点数量（包括本节点）
+     */
+    private void awaitBuildingAck(long generation, long receivers) throws InterruptedException {
+        RSet<String> ackSet = buildingAckSet(generation);
+        long deadline = System.nanoTime() + bloomFilterProperties.getRebuildAckTimeout().toNanos();
+        int acknowledged;
+        while ((acknowledged = ackSet.size()) < receivers) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("bloom filter dual write ack timeout, receivers : " + receivers
+                        + ", acknowledged : " + acknowledged);
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private RSet<String> buildingAckSet(long generation) {
+        return redissonClient.getSet(generationName(generation) + "__ack", StringCodec.INSTANCE);
+    }
+
+    /**
+     * 切换到新代际，新代际加载好本地镜像后再替换，保证切换过程中读请求始终可用
+     */
+    private synchronized void switchTo(long generation) {
+        BloomFilterGeneration old = current.get();
+        if (generation <= old.getGeneration()) {
+            return;
+        }
+        RBloomFilter<String> bloomFilter = redissonClient.getBloomFilter(generationName(generation));
+        BloomFilterGeneration next = newGeneration(generation, bloomFilter, true, isOwnHash(bloomFilter));
+        next.open();
+        current.set(next);
+        BloomFilterGeneration buildingGeneration = building;
+        if (buildingGeneration != null && buildingGeneration.getGeneration() <= generation) {
+            building = null;
+        }
+        old.close();
+        log.info("bloom filter switch generation name : {}, from : {}, to : {}",
+                baseName, old.getGeneration(), generation);
+    }
+
+    private void cancelBuilding(long generation) {
+        BloomFilterGeneration next = building;
+        building = null;
+        try {
+            buildingMarker.delete();
+            buildingAckSet(generation).delete();
+            rotationTopic.publish(CANCEL_EVENT + generation);
+            if (next != null && next.getGeneration() == generation) {
+                next.delete();
+            } else {
+                RBloomFilter<String> bloomFilter = redissonClient.getBloomFilter(generationName(generation));
+                bloomFilter.delete();
+                BloomFilterGeneration.hashMarker(redissonClient, bloomFilter.getName()).delete();
+            }
+        } catch (Exception e) {
+            log.error("bloom filter cancel building error name : {}, generation : {}", baseName, generation, e);
+        }
+    }
+
+    /**
+     * 初始化当前代际的过滤器（若不存在则创建），返回是否按BloomFilterHash布局
+     * 加锁保证各节点同时启动时判断一致：新创建的过滤器先写哈希标记再初始化，已存在且没有标记的是旧布局
+     */
+    private boolean initCurrent(RBloomFilter<String> bloomFilter) {
+        RBucket<String> hashMarker = BloomFilterGeneration.hashMarker(redissonClient, bloomFilter.getName());
+        RLock initLock = redissonClient.getLock(baseName + "__init");
+        initLock.lock();
+        try {
+            if (hashMarker.isExists()) {
+                bloomFilter.tryInit(bloomFilterProperties.getExpectedInsertions(),
+                        bloomFilterProperties.getFalseProbability());
+                return true;
+            }
+            hashMarker.set(BloomFilterHash.NAME);
+            boolean created = bloomFilter.tryInit(
+                    bloomFilterProperties.getExpectedInsertions(),  // 预期插入的数据量（影响底层位数组大小）
+                    bloomFilterProperties.getFalseProbability()   // 可接受的误判概率（值越小，需要的位数组越大，内存占用越高）
+            );
+            if (!created) {
+                hashMarker.delete();
+                log.warn("bloom filter uses legacy hash layout and local mirror is disabled, rebuild to migrate name : {}",
+                        bloomFilter.getName());
+            }
+            return created;
+        } finally {
+            initLock.unlock();
+        }
+    }
+
+    private boolean isOwnHash(RBloomFilter<String> bloomFilter) {
+        return BloomFilterGeneration.hashMarker(redissonClient, bloomFilter.getName()).isExists();
+    }
+
+    private BloomFilterGeneration newGeneration(long generation, RBloomFilter<String> bloomFilter, boolean serving,
+                                                boolean ownHash) {
+        BloomFilterLocalMirror localMirror = null;
+        // 只有对外提供读服务的代际才需要本地镜像，构建中的代际只写不读，旧布局的代际无法在本地计算下标
+        if (serving && ownHash && Boolean.TRUE.equals(bloomFilterProperties.getLocalMirrorEnabled())) {
+            localMirror = new BloomFilterLocalMirror(redissonClient, bloomFilter,
+                    bloomFilterProperties.getLocalMirrorRefreshInterval(),
+                    bloomFilterProperties.getLocalMirrorPublishDelay());
+        }
+        return new BloomFilterGeneration(generation, bloomFilter, redissonClient, ownHash, localMirror,
+                bloomFilterProperties.getAddBatchSize());
+    }
+
+    private String generationName(long generation) {
+        return generation == 0 ? baseName : baseName + "-g" + generation;
     }
 }
@@ -0,0 +1,126 @@
+package com.damai.handler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器的哈希计算
+ * 使用标准的MurmurHash3 x64 128位算法（种子为0，与Guava的murmur3_128结果相同），对数据的UTF-8字节计算哈希
+ * 算法由本类自己实现，不依赖Redisson的内部类，redis中的置位和本地镜像都用这里算出的下标，升级依赖不会改变位的布局
+ * @author: 阿星不是程序员
+ **/
+public final class BloomFilterHash {
+
+    /**
+     * 写入代际哈希标记的值，标记了此值的代际按本类计算下标
+     */
+    public static final String NAME = "murmur3_128";
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private BloomFilterHash() {
+    }
+
+    /**
+     * 计算数据在位数组中的全部下标，两个64位哈希值做双重哈希，与Redisson布隆过滤器的取下标方式相同
+     *
+     * @param data           数据
+     * @param hashIterations 哈希次数
+     * @param size           位数组大小
+     * @return 下标数组，长度为hashIterations
+     */
+    public static long[] indexes(String data, int hashIterations, long size) {
+        long[] hashes = hash128(data.getBytes(StandardCharsets.UTF_8));
+        long hash1 = hashes[0];
+        long hash2 = hashes[1];
+        long hash = hash1;
+        long[] indexes = new long[hashIterations];
+        for (int i = 0; i < hashIterations; i++) {
+            indexes[i] = (hash & Long.MAX_VALUE) % size;
+            hash += (i % 2 == 0) ? hash2 : hash1;
+        }
+        return indexes;
+    }
+
+    /**
+     * MurmurHash3 x64 128位
+     *
+     * @param bytes 数据
+     * @return 两个64位哈希值
+     */
+    public static long[] hash128(byte[] bytes) {
+        int length = bytes.length;
+        long h1 = 0L;
+        long h2 = 0L;
+        int blockEnd = length & ~15;
+        for (int i = 0; i < blockEnd; i += 16) {
+            long k1 = getLong(bytes, i);
+            long k2 = getLong(bytes, i + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        int tail = length & 15;
+        if (tail > 8) {
+            long k2 = 0L;
+            for (int i = tail - 1; i >= 8; i--) {
+                k2 ^= (bytes[blockEnd + i] & 0xFFL) << ((i - 8) << 3);
+            }
+            h2 ^= mixK2(k2);
+        }
+        if (tail > 0) {
+            long k1 = 0L;
+            for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+                k1 ^= (bytes[blockEnd + i] & 0xFFL) << (i << 3);
+            }
+            h1 ^= mixK1(k1);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0L;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,346 @@
+package com.damai.handler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器本地镜像
+ * 把redis中布隆过滤器的位数组完整拉取到jvm内存，存在性判断直接读本地内存，不再走网络
+ * 下标由BloomFilterHash计算，与写入redis时使用同一个实现，保证本地与redis判断结果相同
+ * 同步方式：
+ * 1. 启动时和定时全量刷新，从redis拉取位数组替换本地镜像
+ * 2. 单条添加先在本地置位，再在publishDelay内合并成一条增量事件广播，各节点收到后逐条在本地置位
+ * 3. 批量添加完成后广播重新加载事件，各节点全量刷新
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class BloomFilterLocalMirror {
+
+    /**
+     * 增量添加事件前缀，后面跟添加的数据
+     */
+    private static final String ADD_EVENT_PREFIX = "A:";
+
+    /**
+     * 增量事件中多条数据的分隔符，数据本身不能包含换行
+     */
+    private static final char ADD_EVENT_SEPARATOR = '\n';
+
+    /**
+     * 一条增量事件最多合并的数据量，避免单条消息过大
+     */
+    private static final int MAX_ADD_EVENT_SIZE = 1000;
+
+    /**
+     * 重新加载事件
+     */
+    private static final String RELOAD_EVENT = "R";
+
+    private final RedissonClient redissonClient;
+
+    private final RBloomFilter<String> bloomFilter;
+
+    private final Duration refreshInterval;
+
+    /**
+     * 增量事件的合并时间窗口
+     */
+    private final Duration publishDelay;
+
+    private final RTopic topic;
+
+    /**
+     * 等待合并广播的新增数据
+     */
+    private final Queue<String> publishQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 是否已经安排了合并广播的任务
+     */
+    private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+
+    /**
+     * 当前生效的位数组镜像，刷新时整体替换
+     */
+    private volatile Snapshot snapshot;
+
+    private final Object refreshLock = new Object();
+
+    /**
+     * 刷新过程中收到的增量数据，刷新完成后补到新的镜像上，避免拉取期间的添加丢失
+     * 不为null表示正在刷新，由refreshLock保护
+     */
+    private List<String> pendingAddList;
+
+    /**
+     * 刷新过程中又收到了重新加载的请求
+     */
+    private boolean reloadRequested;
+
+    private int listenerId = -1;
+
+    private volatile ScheduledExecutorService scheduledExecutorService;
+
+    public BloomFilterLocalMirror(RedissonClient redissonClient, RBloomFilter<String> bloomFilter,
+                                  Duration refreshInterval, Duration publishDelay) {
+        this.redissonClient = redissonClient;
+        this.bloomFilter = bloomFilter;
+        this.refreshInterval = refreshInterval;
+        this.publishDelay = publishDelay;
+        this.topic = redissonClient.getTopic(bloomFilter.getName() + "__mirror", StringCodec.INSTANCE);
+    }
+
+    /**
+     * 订阅增量事件，加载镜像并启动定时刷新
+     */
+    public synchronized void start() {
+        if (scheduledExecutorService != null) {
+            return;
+        }
+        listenerId = topic.addListener(String.class, (channel, message) -> onMessage(message));
+        refresh();
+        // 两个线程：全量刷新比较耗时，不能阻塞增量事件的合并广播
+        scheduledExecutorService = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "thread-bloom-filter-mirror-" + bloomFilter.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = refreshInterval.toMillis();
+        scheduledExecutorService.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 广播还未发出的增量事件，取消订阅并停止定时刷新
+     */
+    public synchronized void stop() {
+        flushAdd();
+        if (listenerId != -1) {
+            topic.removeListener(listenerId);
+            listenerId = -1;
+        }
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+            scheduledExecutorService = null;
+        }
+    }
+
+    /**
+     * 镜像是否已加载完成，未完成时调用方需要回退到redis判断
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * 本地判断数据是否可能存在
+     *
+     * @param data 待判断的数据
+     * @return 是否可能存在
+     */
+    public boolean contains(String data) {
+        return snapshot.contains(data);
+    }
+
+    /**
+     * 数据已写入redis后调用，先在本地置位，再合并到下一条增量事件中广播给其他节点
+     *
+     * @param data 已添加的数据
+     */
+    public void publishAdd(String data) {
+        applyAdd(data);
+        publishQueue.offer(data);
+        if (publishScheduled.compareAndSet(false, true)) {
+            ScheduledExecutorService executor = scheduledExecutorService;
+            if (executor == null) {
+                flushAdd();
+                return;
+            }
+            try {
+                executor.schedule(this::flushAdd, publishDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                flushAdd();
+            }
+        }
+    }
+
+    /**
+     * 把等待中的新增数据按MAX_ADD_EVENT_SIZE合并成增量事件广播
+     * 先清除已安排标记再取数据，取数据之后加入的数据会安排新的任务，不会遗漏
+     */
+    private void flushAdd() {
+        publishScheduled.set(false);
+        StringBuilder message = new StringBuilder(ADD_EVENT_PREFIX);
+        int count = 0;
+        String data;
+        while ((data = publishQueue.poll()) != null) {
+            if (count > 0) {
+                message.append(ADD_EVENT_SEPARATOR);
+            }
+            message.append(data);
+            if (++count >= MAX_ADD_EVENT_SIZE) {
+                publish(message.toString());
+                message.setLength(ADD_EVENT_PREFIX.length());
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            publish(message.toString());
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            topic.publish(message);
+        } catch (Exception e) {
+            // 广播失败时其他节点等下次全量刷新补上
+            log.error("bloom filter mirror publish error name : {}", bloomFilter.getName(), e);
+        }
+    }
+
+    /**
+     * 批量数据已写入redis后调用，广播所有节点（包括自己）全量刷新
+     */
+    public void publishReload() {
+        topic.publish(RELOAD_EVENT);
+    }
+
+    private void onMessage(String message) {
+        try {
+            if (RELOAD_EVENT.equals(message)) {
+                // 全量拉取比较耗时，交给刷新线程执行，不占用订阅回调线程
+                ScheduledExecutorService executor = scheduledExecutorService;
+                if (executor != null) {
+                    executor.execute(this::refresh);
+                }
+            } else if (message.startsWith(ADD_EVENT_PREFIX)) {
+                int start = ADD_EVENT_PREFIX.length();
+                int end;
+                while ((end = message.indexOf(ADD_EVENT_SEPARATOR, start)) != -1) {
+                    applyAdd(message.substring(start, end));
+                    start = end + 1;
+                }
+                applyAdd(message.substring(start));
+            }
+        } catch (Exception e) {
+            log.error("bloom filter mirror message handle error name : {}", bloomFilter.getName(), e);
+        }
+    }
+
+    private void applyAdd(String data) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.add(data);
+        }
+        synchronized (refreshLock) {
+            if (pendingAddList != null) {
+                pendingAddList.add(data);
+            }
+        }
+    }
+
+    /**
+     * 从redis全量拉取位数组，替换本地镜像
+     */
+    public void refresh() {
+        synchronized (refreshLock) {
+            if (pendingAddList != null) {
+                reloadRequested = true;
+                return;
+            }
+            pendingAddList = new ArrayList<>();
+        }
+        boolean again;
+        do {
+            Snapshot loaded = null;
+            try {
+                loaded = load();
+            } catch (Exception e) {
+                log.error("bloom filter mirror refresh error name : {}", bloomFilter.getName(), e);
+            }
+            synchronized (refreshLock) {
+                if (loaded != null) {
+                    for (String data : pendingAddList) {
+                        loaded.add(data);
+                    }
+                    snapshot = loaded;
+                }
+                again = reloadRequested && loaded != null;
+                reloadRequested = false;
+                pendingAddList = again ? new ArrayList<>() : null;
+            }
+        } while (again);
+    }
+
+    private Snapshot load() {
+        long size = bloomFilter.getSize();
+        int hashIterations = bloomFilter.getHashIterations();
+        // 布隆过滤器的位数组就存放在同名的string中，按原始字节读取
+        byte[] bits = redissonClient.<byte[]>getBucket(bloomFilter.getName(), ByteArrayCodec.INSTANCE).get();
+        return Snapshot.of(bits, size, hashIterations);
+    }
+
+    /**
+     * 位数组镜像，下标与redis SETBIT偏移量一一对应（每个字节高位在前）
+     */
+    private static final class Snapshot {
+
+        private final AtomicLongArray words;
+
+        private final long size;
+
+        private final int hashIterations;
+
+        private Snapshot(AtomicLongArray words, long size, int hashIterations) {
+            this.words = words;
+            this.size = size;
+            this.hashIterations = hashIterations;
+        }
+
+        private static Snapshot of(byte[] bits, long size, int hashIterations) {
+            long[] words = new long[(int) ((size + 63) >>> 6)];
+            if (bits != null) {
+                int length = Math.min(bits.length, words.length << 3);
+                for (int i = 0; i < length; i++) {
+                    words[i >>> 3] |= (bits[i] & 0xFFL) << (56 - ((i & 7) << 3));
+                }
+            }
+            return new Snapshot(new AtomicLongArray(words), size, hashIterations);
+        }
+
+        private boolean contains(String data) {
+            for (long index : BloomFilterHash.indexes(data, hashIterations, size)) {
+                if ((words.get((int) (index >>> 6)) & mask(index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(String data) {
+            for (long index : BloomFilterHash.indexes(data, hashIterations, size)) {
+                long mask = mask(index);
+                words.getAndUpdate((int) (index >>> 6), word -> word | mask);
+            }
+        }
+
+        private static long mask(long index) {
+            return 1L << (63 - (index & 63));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.damai.handler;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器监控指标，通过Micrometer导出
+ * bloom.filter.false.probability：当前代际按已添加数量估算的误判率
+ * bloom.filter.expected.false.probability：配置的误判率
+ * bloom.filter.count：当前代际估算的已添加数量
+ * bloom.filter.generation：当前代际号
+ * bloom.filter.rebuild：重建耗时（按执行结果）
+ * 数值由处理器定时检查时更新，采集时不访问redis；没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+public class BloomFilterMetrics {
+
+    private static final String NAME = "name";
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry meterRegistry;
+
+    public BloomFilterMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 注册过滤器的状态指标
+     *
+     * @param name  过滤器名字
+     * @param state 最近一次检查得到的状态
+     */
+    public void register(String name, Supplier<BloomFilterState> state) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Gauge.builder("bloom.filter.false.probability", state, s -> s.get().getFalseProbability())
+                .description("按已添加数量估算的误判率")
+                .tag(NAME, name)
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.expected.false.probability", state, s -> s.get().getExpectedFalseProbability())
+                .description("配置的误判率")
+                .tag(NAME, name)
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.count", state, s -> s.get().getCount())
+                .description("估算的已添加数量")
+                .tag(NAME, name)
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.generation", state, s -> s.get().getGeneration())
+                .description("当前代际号")
+                .tag(NAME, name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录重建耗时
+     *
+     * @param name      过滤器名字
+     * @param startTime 开始时间（System.nanoTime()）
+     * @param success   是否重建成功
+     */
+    public void recordRebuild(String name, long startTime, boolean success) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Timer.builder("bloom.filter.rebuild")
+                .description("布隆过滤器重建耗时")
+                .tag(NAME, name)
+                .tag(OUTCOME, success ? "success" : "error")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+}
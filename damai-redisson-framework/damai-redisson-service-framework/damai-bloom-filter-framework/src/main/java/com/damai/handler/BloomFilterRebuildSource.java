@@ -0,0 +1,19 @@
+package com.damai.handler;
+
+import java.util.Collection;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器重建数据源
+ * 由业务服务实现并注册为bean，重建新代际的过滤器时从数据库加载当前全部有效数据
+ * @author: 阿星不是程序员
+ **/
+public interface BloomFilterRebuildSource {
+
+    /**
+     * 加载当前全部有效数据
+     *
+     * @return 需要放入布隆过滤器的数据集合
+     */
+    Collection<String> loadAll();
+}
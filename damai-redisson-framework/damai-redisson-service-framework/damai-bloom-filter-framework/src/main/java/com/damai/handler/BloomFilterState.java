@@ -0,0 +1,36 @@
+package com.damai.handler;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器最近一次检查得到的状态
+ * @author: 阿星不是程序员
+ **/
+@Data
+@AllArgsConstructor
+public class BloomFilterState {
+
+    public static final BloomFilterState EMPTY = new BloomFilterState(0L, 0L, Double.NaN, Double.NaN);
+
+    /**
+     * 当前代际号
+     */
+    private long generation;
+
+    /**
+     * 估算的已添加数量
+     */
+    private long count;
+
+    /**
+     * 估算的误判率
+     */
+    private double falseProbability;
+
+    /**
+     * 配置的误判率
+     */
+    private double expectedFalseProbability;
+}
@@ -0,0 +1,45 @@
+package com.damai.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 布隆过滤器哈希测试
+ * @author: 阿星不是程序员
+ **/
+class BloomFilterHashTest {
+
+    @Test
+    void hashMatchesMurmur3ReferenceValues() {
+        assertHash(0x629942693e10f867L, 0x92db0b82baeb5347L, "hell");
+        assertHash(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L, "The quick brown fox jumps over the lazy dog");
+        assertHash(0x658ca970ff85269aL, 0x43fee3eaa68e5c3eL, "The quick brown fox jumps over the lazy cog");
+        assertHash(0L, 0L, "");
+    }
+
+    @Test
+    void indexesAreStableAndInRange() {
+        long size = 95851L;
+        int hashIterations = 7;
+        for (long programId = 1; programId < 1000; programId++) {
+            long[] indexes = BloomFilterHash.indexes(String.valueOf(programId), hashIterations, size);
+            assertEquals(hashIterations, indexes.length);
+            for (long index : indexes) {
+                assertTrue(index >= 0 && index < size);
+            }
+            assertArrayEquals(indexes, BloomFilterHash.indexes(String.valueOf(programId), hashIterations, size));
+        }
+    }
+
+    private static void assertHash(long expected1, long expected2, String data) {
+        long[] hashes = BloomFilterHash.hash128(data.getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected1, hashes[0]);
+        assertEquals(expected2, hashes[1]);
+    }
+}
@@ -1,13 +1,14 @@
 package com.damai.config;
 
 import com.damai.handle.RedissonDataHandle;
-import com.damai.locallock.LocalLockCache;
+import com.damai.locallock.LocalLockTable;
 import com.damai.lockinfo.factory.LockInfoHandleFactory;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.redisson.spring.starter.RedissonAutoConfiguration;
 import org.redisson.spring.starter.RedissonAutoConfigurationV2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -67,8 +68,8 @@ public class RedissonCommonAutoConfiguration {
     }
     
     @Bean
-    public LocalLockCache localLockCache(){
-        return new LocalLockCache();
+    public LocalLockTable localLockTable(@Value("${localLock.stripes:1024}") Integer stripes){
+        return new LocalLockTable(stripes);
     }
     
     @Bean
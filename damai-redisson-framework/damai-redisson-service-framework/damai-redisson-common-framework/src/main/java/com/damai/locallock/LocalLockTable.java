@@ -0,0 +1,161 @@
+package com.damai.locallock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 本地锁表，用于同一JVM内的并发控制，减少分布式锁的网络开销
+ * 提供两种锁：
+ * 1. 分段锁：锁名称按hash映射到固定数量的锁上，锁的数量不随锁名称增长，获取锁只需一次数组寻址，
+ * 适合节目、票档这类请求集中、竞争激烈的锁名称。不同锁名称可能映射到同一把锁上，只能用于阻塞加锁
+ * 2. 名称锁：每个锁名称对应独立的锁，按引用计数管理，没有线程持有或等待时立即移除，
+ * 适合用户维度这类数量多、竞争少，并且tryLock失败需要准确代表同一个锁名称的场景
+ * @author: 阿星不是程序员
+ **/
+public class LocalLockTable {
+
+    /**
+     * 分段锁数组，长度为2的幂
+     */
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    /**
+     * 名称锁，键为锁名称
+     */
+    private final Map<String, KeyLock> keyLocks = new ConcurrentHashMap<>();
+
+    /**
+     * @param stripeCount 分段锁数量，会向上取整为2的幂
+     */
+    public LocalLockTable(int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new PaddedLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * 获取锁名称对应的分段锁（非公平锁）
+     *
+     * @param lockKey 锁名称
+     * @return 分段锁
+     */
+    public ReentrantLock getLock(String lockKey) {
+        return stripes[indexFor(lockKey)];
+    }
+
+    /**
+     * 获取多个锁名称对应的分段锁
+     * 多个锁名称映射到同一把锁时只返回一次，并且按分段下标排序，
+     * 所有线程都按相同顺序加锁，避免同时持有多把分段锁时出现死锁
+     *
+     * @param lockKeys 锁名称集合
+     * @return 去重排序后的分段锁
+     */
+    public List<ReentrantLock> getLocks(Collection<String> lockKeys) {
+        TreeMap<Integer, ReentrantLock> lockMap = new TreeMap<>();
+        for (String lockKey : lockKeys) {
+            int index = indexFor(lockKey);
+            lockMap.put(index, stripes[index]);
+        }
+        return new ArrayList<>(lockMap.values());
+    }
+
+    /**
+     * 尝试获取名称锁，立即返回结果
+     * 获取成功后必须调用unlockKey释放
+     *
+     * @param lockKey 锁名称
+     * @return 是否获取成功
+     */
+    public boolean tryLockKey(String lockKey) {
+        KeyLock keyLock = retain(lockKey);
+        if (keyLock.tryLock()) {
+            return true;
+        }
+        release(lockKey);
+        return false;
+    }
+
+    /**
+     * 释放名称锁
+     *
+     * @param lockKey 锁名称
+     */
+    public void unlockKey(String lockKey) {
+        KeyLock keyLock = keyLocks.get(lockKey);
+        if (keyLock == null) {
+            throw new IllegalMonitorStateException("key lock " + lockKey + " not held");
+        }
+        keyLock.unlock();
+        release(lockKey);
+    }
+
+    /**
+     * 当前存在的名称锁数量
+     *
+     * @return 名称锁数量
+     */
+    public int keyLockSize() {
+        return keyLocks.size();
+    }
+
+    public int stripeSize() {
+        return stripes.length;
+    }
+
+    private int indexFor(String lockKey) {
+        int h = lockKey.hashCode();
+        // 高位参与运算，减少只有低位不同的锁名称落到同一分段
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 引用计数在ConcurrentHashMap的compute中修改，同一锁名称的修改互斥，
+     * 持有或等待锁的线程都占有引用，所以锁被持有期间不会被移除，也就不会出现两个线程拿到不同锁对象的情况
+     */
+    private KeyLock retain(String lockKey) {
+        return keyLocks.compute(lockKey, (k, v) -> {
+            if (v == null) {
+                v = new KeyLock();
+            }
+            v.references++;
+            return v;
+        });
+    }
+
+    private void release(String lockKey) {
+        keyLocks.computeIfPresent(lockKey, (k, v) -> --v.references == 0 ? null : v);
+    }
+
+    /**
+     * 填充字段使相邻分段锁的同步状态落在不同的缓存行上，避免伪共享
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedLock extends ReentrantLock {
+
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        private PaddedLock() {
+            super(false);
+        }
+    }
+
+    private static final class KeyLock extends ReentrantLock {
+
+        private int references;
+    }
+}
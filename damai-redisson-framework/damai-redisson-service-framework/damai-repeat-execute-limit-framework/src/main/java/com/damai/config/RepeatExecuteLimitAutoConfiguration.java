@@ -2,7 +2,7 @@ package com.damai.config;
 
 import com.damai.constant.LockInfoType;
 import com.damai.handle.RedissonDataHandle;
-import com.damai.locallock.LocalLockCache;
+import com.damai.locallock.LocalLockTable;
 import com.damai.lockinfo.LockInfoHandle;
 import com.damai.lockinfo.factory.LockInfoHandleFactory;
 import com.damai.lockinfo.impl.RepeatExecuteLimitLockInfoHandle;
@@ -33,18 +33,18 @@ public class RepeatExecuteLimitAutoConfiguration {
      * 创建重复执行限制的切面Bean（核心组件）
      * 切面负责拦截被@RepeatExecuteLimit注解标记的方法，实现防重复执行的逻辑
      *
-     * @param localLockCache        本地锁缓存，用于本地缓存锁信息，减少分布式锁的网络开销
+     * @param localLockTable        本地锁表，用于获取本地名称锁，减少分布式锁的网络开销
      * @param lockInfoHandleFactory 锁信息处理器工厂，用于根据类型获取对应的LockInfoHandle
      * @param serviceLockFactory    服务锁工厂，用于创建分布式锁实例（如Redisson锁）
      * @param redissonDataHandle    Redisson数据处理器，用于操作Redisson分布式锁
      * @return
      */
     @Bean
-    public RepeatExecuteLimitAspect repeatExecuteLimitAspect(LocalLockCache localLockCache,
+    public RepeatExecuteLimitAspect repeatExecuteLimitAspect(LocalLockTable localLockTable,
                                                              LockInfoHandleFactory lockInfoHandleFactory,
                                                              ServiceLockFactory serviceLockFactory,
                                                              RedissonDataHandle redissonDataHandle) {
-        return new RepeatExecuteLimitAspect(localLockCache, lockInfoHandleFactory, serviceLockFactory, redissonDataHandle);
+        return new RepeatExecuteLimitAspect(localLockTable, lockInfoHandleFactory, serviceLockFactory, redissonDataHandle);
     }
 }
     
\ No newline at end of file
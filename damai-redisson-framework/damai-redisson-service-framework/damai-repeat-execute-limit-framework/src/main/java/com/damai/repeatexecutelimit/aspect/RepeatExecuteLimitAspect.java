@@ -3,7 +3,7 @@ package com.damai.repeatexecutelimit.aspect;
 import com.damai.constant.LockInfoType;
 import com.damai.exception.DaMaiFrameException;
 import com.damai.handle.RedissonDataHandle;
-import com.damai.locallock.LocalLockCache;
+import com.damai.locallock.LocalLockTable;
 import com.damai.lockinfo.LockInfoHandle;
 import com.damai.lockinfo.factory.LockInfoHandleFactory;
 import com.damai.repeatexecutelimit.annotion.RepeatExecuteLimit;
@@ -18,7 +18,6 @@ import org.aspectj.lang.annotation.Aspect;
 import org.springframework.core.annotation.Order;
 
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 
 import static com.damai.repeatexecutelimit.constant.RepeatExecuteLimitConstant.PREFIX_NAME;
 import static com.damai.repeatexecutelimit.constant.RepeatExecuteLimitConstant.SUCCESS_FLAG;
@@ -51,7 +50,7 @@ import static com.damai.repeatexecutelimit.constant.RepeatExecuteLimitConstant.S
  * 3. “本地锁 + 分布式锁” 的协同作用：兼顾性能与一致性（先本地拦截，再分布式控制）
  * (1)本地锁：拦截同一实例内的并发请求（性能优化）
  * 当多个线程在同一服务实例内并发调用被保护的方法（如saveApiData）时：
- * 本地锁（如LocalLockCache中的 ReentrantLock）会先拦截，只允许一个线程通过，其他线程直接失败（或等待）；
+ * 本地锁（如LocalLockTable中的名称锁）会先拦截，只允许一个线程通过，其他线程直接失败（或等待）；
  * 这一步几乎没有性能损耗（纯内存操作），能过滤掉大部分 “同实例内的重复请求”，大幅减少后续分布式锁的竞争压力。
  * (2)分布式锁：控制跨实例的并发请求（一致性保证）
  * 经过本地锁过滤后，可能仍有不同服务实例的线程并发请求（比如实例 A 和实例 B 同时有一个线程通过本地锁）：
@@ -66,8 +65,8 @@ import static com.damai.repeatexecutelimit.constant.RepeatExecuteLimitConstant.S
 @AllArgsConstructor
 public class RepeatExecuteLimitAspect {
 
-    // 本地锁缓存，用于存储本地ReentrantLock，减少分布式锁的网络开销
-    private final LocalLockCache localLockCache;
+    // 本地锁表，用于获取本地名称锁，减少分布式锁的网络开销
+    private final LocalLockTable localLockTable;
     // 锁信息处理器工厂，用于获取防重复执行场景的锁信息处理器
     private final LockInfoHandleFactory lockInfoHandleFactory;
     // 服务锁工厂，用于创建分布式锁
@@ -103,10 +102,9 @@ public class RepeatExecuteLimitAspect {
             // 若存在标记，说明该请求已执行过，直接抛出异常提示
             throw new DaMaiFrameException(message);
         }
-        // 获取本地锁（ReentrantLock），防止同一JVM内的重复请求（减少分布式锁压力）
-        ReentrantLock localLock = localLockCache.getLock(lockName, true);
-        // 尝试获取本地锁（非阻塞，立即返回结果）
-        boolean localLockResult = localLock.tryLock();
+        // 尝试获取本地名称锁（非阻塞，立即返回结果），防止同一JVM内的重复请求（减少分布式锁压力）
+        // 使用名称锁而不是分段锁，避免不同锁名称落到同一分段时把正常请求误判为重复请求
+        boolean localLockResult = localLockTable.tryLockKey(lockName);
         if (!localLockResult) {
             // 本地锁获取失败，说明同一JVM内有重复请求，抛出异常
             throw new DaMaiFrameException(message);
@@ -146,7 +144,7 @@ public class RepeatExecuteLimitAspect {
             }
         } finally {
             // 释放本地锁（必须在finally中执行，避免死锁）
-            localLock.unlock();
+            localLockTable.unlockKey(lockName);
         }
     }
 }
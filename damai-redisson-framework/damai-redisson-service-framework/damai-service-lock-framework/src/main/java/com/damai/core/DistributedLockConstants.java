@@ -136,4 +136,24 @@ public class DistributedLockConstants {
      * 订单服务的订单支付后回调通知
      * */
     public final static String ORDER_PAY_NOTIFY_CHECK = "d_order_pay_notify_check_lock";
+    
+    /**
+     * 节目es增量索引
+     * */
+    public final static String PROGRAM_INDEX_OUTBOX_LOCK = "d_program_index_outbox_lock";
+    
+    /**
+     * 节目服务事务发件箱转发
+     * */
+    public final static String PROGRAM_OUTBOX_RELAY_LOCK = "d_program_outbox_relay_lock";
+    
+    /**
+     * 订单服务事务发件箱转发
+     * */
+    public final static String ORDER_OUTBOX_RELAY_LOCK = "d_order_outbox_relay_lock";
+    
+    /**
+     * 节目座位缓存和数据库对账
+     * */
+    public final static String PROGRAM_SEAT_RECONCILE_LOCK = "d_program_seat_reconcile_lock";
 }
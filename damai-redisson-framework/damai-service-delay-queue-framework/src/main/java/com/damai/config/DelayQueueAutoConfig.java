@@ -3,8 +3,13 @@ package com.damai.config;
 
 import com.damai.context.DelayQueueBasePart;
 import com.damai.context.DelayQueueContext;
+import com.damai.core.DelayQueueMetrics;
 import com.damai.event.DelayQueueInitHandler;
+import com.damai.util.VirtualThreadUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
@@ -17,17 +22,35 @@ import org.springframework.context.annotation.Bean;
 @EnableConfigurationProperties(DelayQueueProperties.class)
 public class DelayQueueAutoConfig {
 
+    /**
+     * 注册延迟队列监控指标
+     * 容器中没有MeterRegistry（未引入actuator）时，指标记录为空操作
+     *
+     * @param meterRegistryProvider Micrometer指标注册中心
+     * @return 延迟队列监控指标实例
+     */
+    @Bean
+    public DelayQueueMetrics delayQueueMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new DelayQueueMetrics(meterRegistryProvider.getIfAvailable());
+    }
+
     /**
      * 注册延迟队列基础组件
      * 封装Redisson分布式延迟队列的核心操作（如发送延迟消息、监听队列）
      *
      * @param redissonClient       Redisson客户端，用于操作Redis分布式队列
      * @param delayQueueProperties 延迟队列配置属性（从配置文件读取的参数）
+     * @param delayQueueMetrics    延迟队列监控指标
+     * @param virtualThreadEnabled 是否开启虚拟线程
      * @return 延迟队列基础组件实例
      */
     @Bean
-    public DelayQueueBasePart delayQueueBasePart(RedissonClient redissonClient, DelayQueueProperties delayQueueProperties) {
-        return new DelayQueueBasePart(redissonClient, delayQueueProperties);
+    public DelayQueueBasePart delayQueueBasePart(RedissonClient redissonClient, DelayQueueProperties delayQueueProperties,
+                                                 DelayQueueMetrics delayQueueMetrics,
+                                                 @Value("${" + VirtualThreadUtil.ENABLED_PROPERTY + ":false}")
+                                                 boolean virtualThreadEnabled) {
+        return new DelayQueueBasePart(redissonClient, delayQueueProperties, delayQueueMetrics,
+                virtualThreadEnabled && VirtualThreadUtil.isAvailable());
     }
 
     /**
@@ -50,4 +50,21 @@ public class DelayQueueProperties {
      * 延时队列的隔离分区数，延时有瓶颈时 可调大次数，但会增大redis的cpu消耗(同一个topic发送者和消费者的隔离分区数必须相同)
      */
     private Integer isolationRegionCount = 5;
+
+    /**
+     * 每个隔离分区的监听线程数量，消息积压时可调大
+     */
+    private Integer listenThreadCount = 1;
+
+    /**
+     * 监听线程从队列单次批量拉取的最大消息数量，阻塞获取到一条消息后，再一次性拉取剩余的已到期消息
+     */
+    private Integer batchSize = 100;
+
+    /**
+     * 发送消息时是否附带计划投递时间（用于统计投递滞后），消费端兼容不带信封的旧消息，
+     * 默认关闭，所有消费端升级后再通过配置开启，否则旧消费端会把信封当作消息内容
+     * 关闭时消费端无法统计投递滞后，消息计入 delay.queue.lateness.unknown
+     */
+    private Boolean envelopeEnabled = false;
 }
@@ -1,6 +1,7 @@
 package com.damai.context;
 
 import com.damai.config.DelayQueueProperties;
+import com.damai.core.DelayQueueMetrics;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.redisson.api.RedissonClient;
@@ -27,4 +28,14 @@ public class DelayQueueBasePart {
      * 配置参数从application.yml等配置文件中读取
      */
     private final DelayQueueProperties delayQueueProperties;
+
+    /**
+     * 延迟队列监控指标
+     */
+    private final DelayQueueMetrics delayQueueMetrics;
+
+    /**
+     * 是否使用虚拟线程监听和消费（开启spring.threads.virtual.enabled且运行在java21及以上）
+     */
+    private final boolean virtualThreadEnabled;
 }
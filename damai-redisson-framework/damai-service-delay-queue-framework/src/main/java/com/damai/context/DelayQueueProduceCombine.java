@@ -41,7 +41,8 @@ public class DelayQueueProduceCombine {
         // 为每个分区创建对应的发送队列（DelayProduceQueue）
         // 分区队列名称格式：主题 + 分区索引（如"order_timeout-0"）
         for (int i = 0; i < isolationRegionCount; i++) {
-            delayProduceQueueList.add(new DelayProduceQueue(delayQueueBasePart.getRedissonClient(), topic + "-" + i));
+            delayProduceQueueList.add(new DelayProduceQueue(delayQueueBasePart.getRedissonClient(), topic + "-" + i,
+                    delayQueueBasePart.getDelayQueueProperties().getEnvelopeEnabled()));
         }
     }
 
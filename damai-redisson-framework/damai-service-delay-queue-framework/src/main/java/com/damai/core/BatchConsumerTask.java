@@ -0,0 +1,19 @@
+package com.damai.core;
+
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 延迟队列 批量消费者接口
+ * 监听线程一次拉取到的到期消息整体交给一个消费任务处理，适合大量消息同时到期、可以合并成集合操作的场景
+ * @author: 阿星不是程序员
+ **/
+public interface BatchConsumerTask extends ConsumerTask {
+
+    /**
+     * 批量消费任务
+     *
+     * @param contentList 一次拉取到的到期消息的具体参数
+     */
+    void executeBatch(List<String> contentList);
+}
@@ -1,8 +1,11 @@
 package com.damai.core;
 
 import com.damai.context.DelayQueuePart;
+import com.damai.util.VirtualThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -15,6 +18,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: 延迟队列消费者实现类，负责监听延迟队列中的到期消息，并调度执行消费逻辑
  * 基于双层线程池（监听线程池+执行线程池）实现消息的可靠获取与高效处理
+ * 消费任务实现BatchConsumerTask时，一次拉取到的消息作为一批交给执行线程池
  * @author: 阿星不是程序员
  **/
 @Slf4j
@@ -50,26 +54,52 @@ public class DelayConsumerQueue extends DelayBaseQueue {
      */
     private final ConsumerTask consumerTask;
 
+    /**
+     * 监听线程数量
+     */
+    private final int listenThreadCount;
+
+    /**
+     * 单次批量拉取的最大消息数量
+     */
+    private final int batchSize;
+
+    /**
+     * 消息主题（不含分区索引），用于监控指标
+     */
+    private final String topic;
+
+    /**
+     * 延迟队列监控指标
+     */
+    private final DelayQueueMetrics delayQueueMetrics;
+
     /**
      * 构造方法：初始化消费者队列，创建线程池并绑定业务消费任务
      *
      * @param delayQueuePart 延迟队列分区组件
      * @param relTopic       分区队列名称
+     * @param partition      分区索引
      */
-    public DelayConsumerQueue(DelayQueuePart delayQueuePart, String relTopic) {
+    public DelayConsumerQueue(DelayQueuePart delayQueuePart, String relTopic, int partition) {
         // 调用父类构造方法，初始化Redis阻塞队列
         super(delayQueuePart.getDelayQueueBasePart().getRedissonClient(), relTopic);
-        // 初始化监听线程池（单线程：核心线程和最大线程均为1）
-        // 启动一个线程持续监听队列，避免频繁创建线程
+        this.listenThreadCount = Math.max(1,
+                delayQueuePart.getDelayQueueBasePart().getDelayQueueProperties().getListenThreadCount());
+        this.batchSize = Math.max(1, delayQueuePart.getDelayQueueBasePart().getDelayQueueProperties().getBatchSize());
+        boolean virtualThreadEnabled = delayQueuePart.getDelayQueueBasePart().isVirtualThreadEnabled();
+        // 初始化监听线程池（线程数为配置的每个分区的监听线程数，默认1）
+        // 启动的线程持续监听队列，避免频繁创建线程
         this.listenStartThreadPool = new ThreadPoolExecutor(
-                1,    // 核心线程数
-                1,              // 最大线程数
+                listenThreadCount,    // 核心线程数
+                listenThreadCount,    // 最大线程数
                 60,             // 空闲线程存活时间：60s
                 TimeUnit.SECONDS,   // 时间单位：秒
                 new LinkedBlockingQueue<>(),  // 任务队列
-                // 线程工厂：生成唯一线程名（如"listen-start-thread-1"）
-                r -> new Thread(Thread.currentThread().getThreadGroup(),
-                        r, "listen-start-thread-" + listenStartThreadCount.getAndIncrement())
+                // 线程工厂：生成唯一线程名（如"listen-start-thread-1"），开启虚拟线程时阻塞拉取不占用载体线程
+                VirtualThreadUtil.threadFactory(virtualThreadEnabled, "listen-start-virtual-thread-",
+                        r -> new Thread(Thread.currentThread().getThreadGroup(),
+                                r, "listen-start-thread-" + listenStartThreadCount.getAndIncrement()))
         );
         // 初始化任务执行线程池，并发执行消费逻辑，避免单线程处理瓶颈
         this.executeTaskThreadPool = new ThreadPoolExecutor(
@@ -83,48 +113,140 @@ public class DelayConsumerQueue extends DelayBaseQueue {
                 delayQueuePart.getDelayQueueBasePart().getDelayQueueProperties().getUnit(),
                 // 任务队列容量：从配置获取（如默认256）
                 new LinkedBlockingQueue<>(delayQueuePart.getDelayQueueBasePart().getDelayQueueProperties().getWorkQueueSize()),
-                // 线程工厂：生成唯一线程名（如"delay-queue-consume-thread-1"）
-                r -> new Thread(Thread.currentThread().getThreadGroup(), r,
-                        "delay-queue-consume-thread-" + executeTaskThreadCount.getAndIncrement()));
+                // 线程工厂：生成唯一线程名（如"delay-queue-consume-thread-1"），开启虚拟线程时消费逻辑中的阻塞io不占用载体线程
+                VirtualThreadUtil.threadFactory(virtualThreadEnabled, "delay-queue-consume-virtual-thread-",
+                        r -> new Thread(Thread.currentThread().getThreadGroup(), r,
+                                "delay-queue-consume-thread-" + executeTaskThreadCount.getAndIncrement())),
+                // 执行线程池满时由监听线程自己执行，减缓拉取速度，避免已经出队的消息被拒绝而丢失
+                (r, executor) -> {
+                    delayQueuePart.getDelayQueueBasePart().getDelayQueueMetrics().recordRejected(
+                            delayQueuePart.getConsumerTask().topic());
+                    if (!executor.isShutdown()) {
+                        r.run();
+                    }
+                });
         // 绑定业务消费任务（具体的消息处理逻辑）
         this.consumerTask = delayQueuePart.getConsumerTask();
+        this.topic = consumerTask.topic();
+        this.delayQueueMetrics = delayQueuePart.getDelayQueueBasePart().getDelayQueueMetrics();
+        // 注册积压指标：未到期的消息在延迟队列中，已到期未消费的消息在阻塞队列中
+        this.delayQueueMetrics.registerQueue(topic, partition, blockingQueue,
+                redissonClient.getDelayedQueue(blockingQueue));
     }
 
     /**
      * 启动消息监听逻辑（线程安全，确保只启动一次）
-     * 核心逻辑：通过监听线程池启动一个持续运行的线程，阻塞获取到期消息并提交给执行线程池处理
+     * 核心逻辑：通过监听线程池启动持续运行的线程，阻塞获取到期消息后批量拉取剩余的到期消息，再提交给执行线程池处理
      */
     public synchronized void listenStart() {
         // 若未启动，则执行初始化
         if (!runFlag.get()) {
             runFlag.set(true);  // 标记为已启动，防止重复执行
-            // 向监听线程池提交任务：启动一个循环线程，持续获取消息
-            listenStartThreadPool.execute(() -> {
-                // 循环监听（直到线程被中断）
-                while (!Thread.interrupted()) {
-                    try {
-                        // 从Redis阻塞队列中获取到期消息（blockingQueue由父类初始化，基于Redisson的RBlockingQueue）
-                        // take()是阻塞方法：若队列无消息，线程会阻塞等待，直到有消息到来
-                        assert blockingQueue != null;
-                        String content = blockingQueue.take();
-                        // 将消息提交给执行线程池，由业务消费任务处理
-                        executeTaskThreadPool.execute(() -> {
-                            try {
-                                // 调用业务层实现的消费逻辑
-                                consumerTask.execute(content);
-                            } catch (Exception e) {
-                                log.error("consumer execute error", e);
-                            }
-                        });
-                    } catch (InterruptedException e) {
-                        // 线程被中断时，销毁执行线程池（释放资源）
-                        destroy(executeTaskThreadPool);
-                    } catch (Throwable e) {
-                        log.error("blockingQueue take error", e);
-                    }
+            // 向监听线程池提交任务：启动循环线程，持续获取消息
+            for (int i = 0; i < listenThreadCount; i++) {
+                listenStartThreadPool.execute(this::listen);
+            }
+        }
+    }
+
+    /**
+     * 循环监听（直到线程被中断）
+     */
+    private void listen() {
+        while (!Thread.interrupted()) {
+            try {
+                List<String> contentList = drain();
+                if (consumerTask instanceof BatchConsumerTask batchConsumerTask) {
+                    executeBatch(batchConsumerTask, contentList);
+                    continue;
+                }
+                for (String message : contentList) {
+                    // 解析消息信封，记录投递滞后
+                    DelayMessageEnvelope delayMessageEnvelope = DelayMessageEnvelope.unwrap(message);
+                    delayQueueMetrics.recordLateness(topic, delayMessageEnvelope.getDeliverTime());
+                    // 将消息提交给执行线程池，由业务消费任务处理
+                    executeTaskThreadPool.execute(() -> {
+                        long startTime = System.nanoTime();
+                        boolean success = false;
+                        try {
+                            // 调用业务层实现的消费逻辑
+                            consumerTask.execute(delayMessageEnvelope.getContent());
+                            success = true;
+                        } catch (Exception e) {
+                            log.error("consumer execute error", e);
+                        } finally {
+                            delayQueueMetrics.recordHandle(topic, startTime, success);
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                // 线程被中断时，销毁执行线程池（释放资源）
+                destroy(executeTaskThreadPool);
+                return;
+            } catch (Throwable e) {
+                log.error("blockingQueue take error", e);
+            }
+        }
+    }
+
+    /**
+     * 一次拉取到的消息整体提交给执行线程池，由批量消费任务处理
+     *
+     * @param batchConsumerTask 批量消费任务
+     * @param messageList       一次拉取到的消息
+     */
+    private void executeBatch(BatchConsumerTask batchConsumerTask, List<String> messageList) {
+        List<String> contentList = new ArrayList<>(messageList.size());
+        for (String message : messageList) {
+            // 解析消息信封，记录投递滞后
+            DelayMessageEnvelope delayMessageEnvelope = DelayMessageEnvelope.unwrap(message);
+            delayQueueMetrics.recordLateness(topic, delayMessageEnvelope.getDeliverTime());
+            contentList.add(delayMessageEnvelope.getContent());
+        }
+        executeTaskThreadPool.execute(() -> {
+            long startTime = System.nanoTime();
+            boolean success = false;
+            try {
+                batchConsumerTask.executeBatch(contentList);
+                success = true;
+            } catch (Exception e) {
+                log.error("consumer execute batch error", e);
+            } finally {
+                delayQueueMetrics.recordHandle(topic, startTime, success);
+            }
+        });
+    }
+
+    /**
+     * 批量获取到期消息
+     * 先通过take()阻塞等待第一条消息（队列为空时不会空转），再通过pollAsync(limit)一次网络往返拉取剩余的到期消息
+     * 大量消息在同一时刻到期时，避免每条消息一次网络往返
+     *
+     * @return 到期消息集合
+     * @throws InterruptedException 线程被中断
+     */
+    private List<String> drain() throws InterruptedException {
+        // 从Redis阻塞队列中获取到期消息（blockingQueue由父类初始化，基于Redisson的RBlockingQueue）
+        // take()是阻塞方法：若队列无消息，线程会阻塞等待，直到有消息到来
+        assert blockingQueue != null;
+        String content = blockingQueue.take();
+        List<String> contentList = new ArrayList<>(batchSize);
+        contentList.add(content);
+        if (batchSize > 1) {
+            try {
+                List<String> moreContentList = blockingQueue.pollAsync(batchSize - 1).toCompletableFuture().get();
+                if (Objects.nonNull(moreContentList)) {
+                    contentList.addAll(moreContentList);
                 }
-            });
+            } catch (InterruptedException e) {
+                // 保留中断标识，已经出队的消息处理完后监听线程退出
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // 批量拉取失败时，已经出队的消息仍然要处理
+                log.error("blockingQueue poll error", e);
+            }
         }
+        return contentList;
     }
 
     /**
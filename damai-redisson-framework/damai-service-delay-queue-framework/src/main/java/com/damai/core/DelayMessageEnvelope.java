@@ -0,0 +1,63 @@
+package com.damai.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 延迟队列消息信封
+ * 发送时在消息内容前附带计划投递时间，消费时用于计算实际投递的延迟（投递滞后时间）
+ * 格式为：#dq#计划投递时间戳#消息内容，不带信封的旧消息按原内容处理，计划投递时间为空
+ * @author: 阿星不是程序员
+ **/
+@Data
+@AllArgsConstructor
+public class DelayMessageEnvelope {
+
+    private static final String PREFIX = "#dq#";
+
+    private static final char SEPARATOR = '#';
+
+    /**
+     * 消息内容
+     */
+    private final String content;
+
+    /**
+     * 计划投递时间（毫秒时间戳），旧消息为空
+     */
+    private final Long deliverTime;
+
+    /**
+     * 将消息内容和计划投递时间组装成信封
+     *
+     * @param content     消息内容
+     * @param deliverTime 计划投递时间（毫秒时间戳）
+     * @return 带信封的消息
+     */
+    public static String wrap(String content, long deliverTime) {
+        return PREFIX + deliverTime + SEPARATOR + content;
+    }
+
+    /**
+     * 解析消息信封
+     *
+     * @param message 队列中的消息
+     * @return 消息信封
+     */
+    public static DelayMessageEnvelope unwrap(String message) {
+        if (message == null || !message.startsWith(PREFIX)) {
+            return new DelayMessageEnvelope(message, null);
+        }
+        int separatorIndex = message.indexOf(SEPARATOR, PREFIX.length());
+        if (separatorIndex < 0) {
+            return new DelayMessageEnvelope(message, null);
+        }
+        try {
+            long deliverTime = Long.parseLong(message.substring(PREFIX.length(), separatorIndex));
+            return new DelayMessageEnvelope(message.substring(separatorIndex + 1), deliverTime);
+        } catch (NumberFormatException e) {
+            return new DelayMessageEnvelope(message, null);
+        }
+    }
+}
@@ -19,18 +19,25 @@ public class DelayProduceQueue extends DelayBaseQueue {
      */
     private final RDelayedQueue<String> delayedQueue;
 
+    /**
+     * 是否在消息中附带计划投递时间
+     */
+    private final boolean envelopeEnabled;
+
     /**
      * 构造方法：初始化延迟队列，关联阻塞队列
      *
-     * @param redissonClient Redisson客户端，用于创建延迟队列
-     * @param relTopic       队列名称（如"order_timeout-0"，含分区索引的主题）
+     * @param redissonClient  Redisson客户端，用于创建延迟队列
+     * @param relTopic        队列名称（如"order_timeout-0"，含分区索引的主题）
+     * @param envelopeEnabled 是否在消息中附带计划投递时间
      */
-    public DelayProduceQueue(RedissonClient redissonClient, final String relTopic) {
+    public DelayProduceQueue(RedissonClient redissonClient, final String relTopic, boolean envelopeEnabled) {
         // 调用父类构造方法，初始化阻塞队列（blockingQueue）
         super(redissonClient, relTopic);
         // 创建Redisson延迟队列，与父类的阻塞队列绑定
         // 原理：delayedQueue负责暂存延迟消息，到期后自动将消息移至blockingQueue，供消费者获取
         this.delayedQueue = redissonClient.getDelayedQueue(blockingQueue);
+        this.envelopeEnabled = envelopeEnabled;
     }
 
     /**
@@ -43,6 +50,10 @@ public class DelayProduceQueue extends DelayBaseQueue {
     public void offer(String content, long delayTime, TimeUnit timeUnit) {
         // 调用Redisson延迟队列的offer方法，发送带延迟的消息
         // 底层逻辑：消息先存储在delayedQueue，到期后自动转移到blockingQueue，被消费者监听获取
+        if (envelopeEnabled) {
+            // 附带计划投递时间，消费端据此统计投递滞后
+            content = DelayMessageEnvelope.wrap(content, System.currentTimeMillis() + timeUnit.toMillis(delayTime));
+        }
         delayedQueue.offer(content, delayTime, timeUnit);
     }
 }
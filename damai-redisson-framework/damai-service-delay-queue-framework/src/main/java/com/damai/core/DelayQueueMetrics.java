@@ -0,0 +1,165 @@
+package com.damai.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RDelayedQueue;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 延迟队列监控指标，通过Micrometer导出
+ * delay.queue.scheduled：延迟队列中还未到期的消息数量（按主题、分区）
+ * delay.queue.ready：已到期等待消费的消息数量（按主题、分区）
+ * delay.queue.lateness：实际投递时间减去计划投递时间
+ * delay.queue.lateness.unknown：不带计划投递时间（未开启信封或旧消息）、无法统计滞后的消息数量
+ * delay.queue.handler：消费任务的执行耗时（按主题、执行结果）
+ * delay.queue.rejected：执行线程池满时被拒绝（转由监听线程执行）的次数
+ * 每个主题的指标在第一次记录时注册并缓存，之后直接复用，不再每条消息重新构建
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class DelayQueueMetrics {
+
+    private static final String TOPIC = "topic";
+
+    private static final String PARTITION = "partition";
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 主题 -> 投递滞后
+     */
+    private final Map<String, Timer> latenessTimerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 主题 -> 无法统计滞后的消息数量
+     */
+    private final Map<String, Counter> unknownLatenessCounterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 主题 -> 执行成功的耗时
+     */
+    private final Map<String, Timer> handleSuccessTimerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 主题 -> 执行失败的耗时
+     */
+    private final Map<String, Timer> handleErrorTimerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 主题 -> 执行线程池拒绝次数
+     */
+    private final Map<String, Counter> rejectedCounterMap = new ConcurrentHashMap<>();
+
+    public DelayQueueMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 注册分区队列的积压指标，数值在指标采集时才从redis读取
+     *
+     * @param topic         主题
+     * @param partition     分区索引
+     * @param blockingQueue 已到期消息的阻塞队列
+     * @param delayedQueue  未到期消息的延迟队列
+     */
+    public void registerQueue(String topic, int partition, RBlockingQueue<String> blockingQueue,
+                              RDelayedQueue<String> delayedQueue) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Gauge.builder("delay.queue.scheduled", delayedQueue, queue -> size(queue::size))
+                .description("延迟队列中未到期的消息数量")
+                .tag(TOPIC, topic)
+                .tag(PARTITION, String.valueOf(partition))
+                .register(meterRegistry);
+        Gauge.builder("delay.queue.ready", blockingQueue, queue -> size(queue::size))
+                .description("已到期等待消费的消息数量")
+                .tag(TOPIC, topic)
+                .tag(PARTITION, String.valueOf(partition))
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录投递滞后时间
+     *
+     * @param topic       主题
+     * @param deliverTime 计划投递时间（毫秒时间戳），为空时记录为无法统计滞后的消息
+     */
+    public void recordLateness(String topic, Long deliverTime) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        if (Objects.isNull(deliverTime)) {
+            unknownLatenessCounterMap.computeIfAbsent(topic, key -> Counter.builder("delay.queue.lateness.unknown")
+                    .description("不带计划投递时间、无法统计投递滞后的消息数量")
+                    .tag(TOPIC, key)
+                    .register(meterRegistry)).increment();
+            return;
+        }
+        latenessTimerMap.computeIfAbsent(topic, key -> Timer.builder("delay.queue.lateness")
+                        .description("实际投递时间减去计划投递时间")
+                        .tag(TOPIC, key)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(Math.max(0, System.currentTimeMillis() - deliverTime), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录消费任务执行耗时
+     *
+     * @param topic     主题
+     * @param startTime 开始时间（System.nanoTime()）
+     * @param success   是否执行成功
+     */
+    public void recordHandle(String topic, long startTime, boolean success) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Map<String, Timer> handleTimerMap = success ? handleSuccessTimerMap : handleErrorTimerMap;
+        handleTimerMap.computeIfAbsent(topic, key -> Timer.builder("delay.queue.handler")
+                        .description("消费任务执行耗时")
+                        .tag(TOPIC, key)
+                        .tag(OUTCOME, success ? "success" : "error")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录执行线程池拒绝次数
+     *
+     * @param topic 主题
+     */
+    public void recordRejected(String topic) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        rejectedCounterMap.computeIfAbsent(topic, key -> Counter.builder("delay.queue.rejected")
+                        .description("执行线程池满时被拒绝的次数")
+                        .tag(TOPIC, key)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private double size(IntSupplier sizeSupplier) {
+        try {
+            return sizeSupplier.getAsInt();
+        } catch (Exception e) {
+            log.warn("delay queue size error message : {}", e.getMessage());
+            return Double.NaN;
+        }
+    }
+}
@@ -31,32 +31,14 @@ public class IsolationRegionSelector {
         this.thresholdValue = thresholdValue;
     }
 
-    /**
-     * 重置计数器为0
-     *
-     * @return 重置后的计数值（0）
-     */
-    private int reset() {
-        count.set(0);
-        return count.get();
-    }
-
     /**
      * 线程安全地获取下一个分区索引（轮询策略）
+     * 基于原子自增取模实现，无需加锁，高并发发送消息时不会在此处串行
      *
      * @return 分区索引（0 ~ thresholdValue-1）
      */
-    public synchronized int getIndex() {
-        // 获取当前计数器值
-        int cur = count.get();
-        // 若当前索引已达到阈值（超过最大分区索引），则重置为0
-        if (cur >= thresholdValue) {
-            cur = reset();
-        } else {
-            // 否则计数器自增（下次获取时使用下一个索引）
-            count.incrementAndGet();
-        }
-        // 返回当前分区索引
-        return cur;
+    public int getIndex() {
+        // 计数器自增后对分区总数取模，floorMod保证计数器溢出为负数后仍然落在合法区间
+        return Math.floorMod(count.getAndIncrement(), thresholdValue);
     }
 }
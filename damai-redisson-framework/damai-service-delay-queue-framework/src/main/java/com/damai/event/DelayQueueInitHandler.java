@@ -48,7 +48,7 @@ public class DelayQueueInitHandler implements ApplicationListener<ApplicationSta
             for (int i = 0; i < isolationRegionCount; i++) {
                 // 构建分区队列名称：主题名 + 分区索引（如"order_timeout-0"、"order_timeout-1"）
                 DelayConsumerQueue delayConsumerQueue = new DelayConsumerQueue(delayQueuePart,
-                        delayQueuePart.getConsumerTask().topic() + "-" + i);
+                        delayQueuePart.getConsumerTask().topic() + "-" + i, i);
                 // 启动消费者监听：开始从延迟队列中获取到期消息，并调用ConsumerTask的逻辑处理
                 delayConsumerQueue.listenStart();
             }
@@ -3,11 +3,15 @@ package com.damai.client;
 import com.damai.common.ApiResponse;
 import com.damai.dto.AccountOrderCountDto;
 import com.damai.dto.OrderCreateDto;
+import com.damai.dto.ProgramSeatOrderStatusDto;
 import com.damai.vo.AccountOrderCountVo;
+import com.damai.vo.SeatOrderStatusVo;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PostMapping;
 
+import java.util.List;
+
 import static com.damai.constant.Constant.SPRING_INJECT_PREFIX_DISTINCTION_NAME;
 
 /**
@@ -36,4 +40,13 @@ public interface OrderClient {
      */
     @PostMapping("/order/account/order/count")
     ApiResponse<AccountOrderCountVo> accountOrderCount(AccountOrderCountDto dto);
+
+    /**
+     * 节目座位对应的有效订单（未支付、已支付）状态
+     *
+     * @param dto 参数
+     * @return 结果
+     */
+    @PostMapping("/order/program/seat/status")
+    ApiResponse<List<SeatOrderStatusVo>> programSeatOrderStatus(ProgramSeatOrderStatusDto dto);
 }
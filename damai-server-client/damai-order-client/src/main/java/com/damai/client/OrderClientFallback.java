@@ -3,10 +3,14 @@ package com.damai.client;
 import com.damai.common.ApiResponse;
 import com.damai.dto.AccountOrderCountDto;
 import com.damai.dto.OrderCreateDto;
+import com.damai.dto.ProgramSeatOrderStatusDto;
 import com.damai.enums.BaseCode;
 import com.damai.vo.AccountOrderCountVo;
+import com.damai.vo.SeatOrderStatusVo;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: 订单服务 feign 异常
@@ -24,4 +28,9 @@ public class OrderClientFallback implements OrderClient {
     public ApiResponse<AccountOrderCountVo> accountOrderCount(final AccountOrderCountDto dto) {
         return ApiResponse.error(BaseCode.SYSTEM_ERROR);
     }
+    
+    @Override
+    public ApiResponse<List<SeatOrderStatusVo>> programSeatOrderStatus(final ProgramSeatOrderStatusDto dto) {
+        return ApiResponse.error(BaseCode.SYSTEM_ERROR);
+    }
 }
@@ -5,9 +5,12 @@ import io.swagger.v3.oas.annotations.media.Schema.RequiredMode;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
+import java.util.Date;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: 订单列表查询 dto
+ * 按游标分页：第一页不传lastCreateOrderTime和lastOrderNumber，之后传入上一页最后一条订单的生成时间和订单编号
  * @author: 阿星不是程序员
  **/
 @Data
@@ -18,4 +21,13 @@ public class OrderListDto {
     @NotNull
     private Long userId;
     
+    @Schema(name ="pageSize", type ="Integer", description ="每页数量，不传时使用默认值，超过上限时按上限查询")
+    private Integer pageSize;
+    
+    @Schema(name ="lastCreateOrderTime", type ="Date", description ="上一页最后一条订单的生成时间")
+    private Date lastCreateOrderTime;
+    
+    @Schema(name ="lastOrderNumber", type ="Long", description ="上一页最后一条订单的订单编号")
+    private Long lastOrderNumber;
+    
 }
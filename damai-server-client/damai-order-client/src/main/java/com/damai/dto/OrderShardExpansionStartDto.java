@@ -0,0 +1,22 @@
+package com.damai.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.media.Schema.RequiredMode;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 订单分库扩容开始 dto
+ * @author: 阿星不是程序员
+ **/
+@Data
+@Schema(title="OrderShardExpansionStartDto", description ="订单分库扩容开始")
+public class OrderShardExpansionStartDto {
+    
+    @Schema(name ="targetShardingCount", type ="Integer", description ="扩容后的分库数量，必须是当前分库数量的2的幂次倍", 
+            requiredMode= RequiredMode.REQUIRED)
+    @NotNull
+    private Integer targetShardingCount;
+    
+}
@@ -0,0 +1,27 @@
+package com.damai.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.media.Schema.RequiredMode;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目座位对应的有效订单状态 dto
+ * @author: 阿星不是程序员
+ **/
+@Data
+@Schema(title="ProgramSeatOrderStatusDto", description ="节目座位对应的有效订单状态")
+public class ProgramSeatOrderStatusDto {
+    
+    @Schema(name ="programId", type ="Long", description ="节目id", requiredMode= RequiredMode.REQUIRED)
+    @NotNull
+    private Long programId;
+    
+    @Schema(name ="seatIdList", type ="List<Long>", description ="座位id集合", requiredMode= RequiredMode.REQUIRED)
+    @NotEmpty
+    private List<Long> seatIdList;
+}
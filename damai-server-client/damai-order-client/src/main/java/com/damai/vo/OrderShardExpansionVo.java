@@ -0,0 +1,35 @@
+package com.damai.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 订单分库扩容状态 vo
+ * @author: 阿星不是程序员
+ **/
+@Data
+@Schema(title="OrderShardExpansionVo", description ="订单分库扩容状态")
+public class OrderShardExpansionVo {
+    
+    @Schema(name ="phase", type ="Integer", description ="扩容阶段 0:未扩容 1:双写复制中 2:已切换读 3:扩容完成")
+    private Integer phase;
+    
+    @Schema(name ="shardingCount", type ="Integer", description ="当前配置的分库数量")
+    private Integer shardingCount;
+    
+    @Schema(name ="targetShardingCount", type ="Integer", description ="扩容后的分库数量")
+    private Integer targetShardingCount;
+    
+    @Schema(name ="copyFinished", type ="Boolean", description ="存量数据是否复制完成")
+    private Boolean copyFinished;
+    
+    @Schema(name ="copiedOrderCount", type ="Long", description ="已复制的订单数量")
+    private Long copiedOrderCount;
+    
+    @Schema(name ="cleanFinished", type ="Boolean", description ="原库中已迁走的数据是否清理完成")
+    private Boolean cleanFinished;
+    
+    @Schema(name ="cleanedOrderCount", type ="Long", description ="已清理的订单数量")
+    private Long cleanedOrderCount;
+}
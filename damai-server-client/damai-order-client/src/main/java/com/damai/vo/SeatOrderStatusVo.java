@@ -0,0 +1,23 @@
+package com.damai.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 座位对应的有效订单状态 vo
+ * @author: 阿星不是程序员
+ **/
+@Data
+@Schema(title="SeatOrderStatusVo", description ="座位对应的有效订单状态")
+public class SeatOrderStatusVo {
+    
+    @Schema(name ="seatId", type ="Long", description ="座位id")
+    private Long seatId;
+    
+    @Schema(name ="orderNumber", type ="Long", description ="订单编号")
+    private Long orderNumber;
+    
+    @Schema(name ="orderStatus", type ="Integer", description ="订单状态 1:未支付 3:已支付")
+    private Integer orderStatus;
+}
@@ -11,6 +11,8 @@ import com.damai.enums.Status;
 import com.damai.mapper.ChannelDataMapper;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.redis.reference.ReferenceDataManager;
+import com.damai.redis.reference.ReferenceDataName;
 import com.damai.util.DateUtils;
 import com.damai.vo.GetChannelDataVo;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +41,9 @@ public class ChannelDataService {
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private ReferenceDataManager referenceDataManager;
+
     /**
      * 根据渠道编码获取渠道数据
      *
@@ -86,5 +91,7 @@ public class ChannelDataService {
         BeanUtils.copyProperties(channelData, getChannelDataVo);
         redisCache.set(RedisKeyBuild
                 .createRedisKey(RedisKeyManage.CHANNEL_DATA, getChannelDataVo.getCode()), getChannelDataVo);
+        // 递增版本号，网关重新加载本地缓存的渠道数据
+        referenceDataManager.bumpVersion(ReferenceDataName.CHANNEL_DATA);
     }
 }
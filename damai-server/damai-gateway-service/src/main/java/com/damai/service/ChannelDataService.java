@@ -8,8 +8,12 @@ import com.damai.enums.BaseCode;
 import com.damai.exception.ArgumentError;
 import com.damai.exception.ArgumentException;
 import com.damai.exception.DaMaiFrameException;
+import com.damai.pool.ThreadPoolRegistry;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.redis.reference.ReferenceDataCache;
+import com.damai.redis.reference.ReferenceDataManager;
+import com.damai.redis.reference.ReferenceDataName;
 import com.damai.util.StringUtil;
 import com.damai.vo.GetChannelDataVo;
 import lombok.extern.slf4j.Slf4j;
@@ -17,12 +21,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -39,6 +44,8 @@ public class ChannelDataService {
 
     private final static String EXCEPTION_MESSAGE = "code参数为空";
 
+    private final static String CHANNEL_DATA_THREAD_POOL = "channel-data";
+
     // 注入远程基础数据客户端，用于远程获取渠道配置信息
     @Lazy
     @Autowired
@@ -48,9 +55,20 @@ public class ChannelDataService {
     @Autowired
     private RedisCache redisCache;
 
-    // 注入线程池，用于执行远程调用
+    // 命名线程池，远程调用使用独立的线程池
+    @Autowired
+    private ThreadPoolRegistry threadPoolRegistry;
+
     @Autowired
-    private ThreadPoolExecutor threadPoolExecutor;
+    private ReferenceDataManager referenceDataManager;
+
+    // 渠道数据本地缓存，每个签名请求都要查询渠道数据，命中时不再访问redis
+    private ReferenceDataCache<GetChannelDataVo> channelDataCache;
+
+    @PostConstruct
+    public void channelDataCacheInit() {
+        channelDataCache = referenceDataManager.registerLazy(ReferenceDataName.CHANNEL_DATA, this::loadChannelData);
+    }
 
     /**
      * 检查code参数是否为空
@@ -77,6 +95,17 @@ public class ChannelDataService {
     public GetChannelDataVo getChannelDataByCode(String code) {
         // 参数校验
         checkCode(code);
+        // 先从本地缓存获取，未命中时通过loadChannelData加载
+        return channelDataCache.get(code);
+    }
+
+    /**
+     * 加载渠道配置信息，先查redis，redis中没有时远程调用并写入redis
+     *
+     * @param code
+     * @return
+     */
+    private GetChannelDataVo loadChannelData(String code) {
         // 先尝试从Redis获取
         GetChannelDataVo channelDataVo = getChannelDataByRedis(code);
         if (Objects.isNull(channelDataVo)) {
@@ -121,7 +150,8 @@ public class ChannelDataService {
         getChannelDataByCodeDto.setCode(code);
         // 通过线程池异步调用远程接口
         Future<ApiResponse<GetChannelDataVo>> future =
-                threadPoolExecutor.submit(() -> baseDataClient.getByCode(getChannelDataByCodeDto));
+                threadPoolRegistry.submit(CHANNEL_DATA_THREAD_POOL,
+                        () -> baseDataClient.getByCode(getChannelDataByCodeDto));
         try {
             // 获取远程调用结果（设置10秒超时）
             ApiResponse<GetChannelDataVo> getChannelDataApiResponse = future.get(10, TimeUnit.SECONDS);
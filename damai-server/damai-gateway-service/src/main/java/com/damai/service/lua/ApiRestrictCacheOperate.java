@@ -1,13 +1,11 @@
 package com.damai.service.lua;
 
 import com.alibaba.fastjson.JSON;
-import com.damai.redis.RedisCache;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import com.damai.service.ApiRestrictData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
@@ -24,28 +22,19 @@ import java.util.List;
 public class ApiRestrictCacheOperate {
 
     @Autowired
-    private RedisCache redisCache;
+    private RedisScriptRegistry redisScriptRegistry;
 
     // redis脚本对象，封装限流逻辑的Lua脚本
-    private DefaultRedisScript<String> redisScript;
+    private LuaScript<String> redisScript;
 
     /**
-     * 初始化方法：在对象创建后加载Lua脚本
+     * 初始化方法：在对象创建后注册Lua脚本
      * 被@PostConstruct注解修饰，会在构造方法执行后、依赖注入完成时自动调用
      */
     @PostConstruct
     public void init() {
-        try {
-            // 初始化redis脚本对象
-            redisScript = new DefaultRedisScript<>();
-            // 从类路径下加载lua文件
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/apiLimit.lua")));
-            // 设置脚本执行结果的类型为String（返回JSON格式的字符串）
-            redisScript.setResultType(String.class);
-        } catch (Exception e) {
-            // 记录脚本加载失败的日志，避免初始化异常导致整个服务启动失败
-            log.error("redisScript init lua error", e);
-        }
+        // 从类路径下加载lua文件，执行结果的类型为String（返回JSON格式的字符串）
+        redisScript = redisScriptRegistry.register("apiLimit", "lua/apiLimit.lua", String.class);
     }
 
     /**
@@ -57,9 +46,8 @@ public class ApiRestrictCacheOperate {
      */
     public ApiRestrictData apiRuleOperate(List<String> keys, Object[] args) {
         // 调用redis执行Lua脚本，获取执行结果（JSON字符串）
-        // redisCache.getInstance()获取原生RedisTemplate，execute方法执行脚本
-        Object object = redisCache.getInstance().execute(redisScript, keys, args);
+        String result = redisScript.execute(keys, args);
         // 将JSON字符串结果解析为ApiRestrictData对象并返回
-        return JSON.parseObject((String) object, ApiRestrictData.class);
+        return JSON.parseObject(result, ApiRestrictData.class);
     }
 }
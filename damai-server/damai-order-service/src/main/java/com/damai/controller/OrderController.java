@@ -8,11 +8,13 @@ import com.damai.dto.OrderGetDto;
 import com.damai.dto.OrderListDto;
 import com.damai.dto.OrderPayCheckDto;
 import com.damai.dto.OrderPayDto;
+import com.damai.dto.ProgramSeatOrderStatusDto;
 import com.damai.service.OrderService;
 import com.damai.vo.AccountOrderCountVo;
 import com.damai.vo.OrderGetVo;
 import com.damai.vo.OrderListVo;
 import com.damai.vo.OrderPayCheckVo;
+import com.damai.vo.SeatOrderStatusVo;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
@@ -80,6 +82,12 @@ public class OrderController {
         return ApiResponse.ok(orderService.accountOrderCount(accountOrderCountDto));
     }
 
+    @Operation(summary = "节目座位对应的有效订单状态(不提供给前端调用，只允许内部program服务调用)")
+    @PostMapping(value = "/program/seat/status")
+    public ApiResponse<List<SeatOrderStatusVo>> programSeatOrderStatus(@Valid @RequestBody ProgramSeatOrderStatusDto programSeatOrderStatusDto) {
+        return ApiResponse.ok(orderService.programSeatOrderStatus(programSeatOrderStatusDto));
+    }
+
     @Operation(summary = "查看缓存中的订单")
     @PostMapping(value = "/get/cache")
     public ApiResponse<String> getCache(@Valid @RequestBody OrderGetDto orderGetDto) {
@@ -0,0 +1,62 @@
+package com.damai.controller;
+
+import com.damai.common.ApiResponse;
+import com.damai.dto.OrderShardExpansionStartDto;
+import com.damai.service.expansion.OrderShardExpansionService;
+import com.damai.vo.OrderShardExpansionVo;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容 控制层（不提供给前端调用，只允许运维调用）
+ * @author: 阿星不是程序员
+ **/
+@RestController
+@RequestMapping("/order/shard/expansion")
+@Tag(name = "order-shard-expansion", description = "订单分库扩容")
+public class OrderShardExpansionController {
+
+    @Autowired
+    private OrderShardExpansionService orderShardExpansionService;
+
+    @Operation(summary = "开始扩容，进入双写并复制存量数据")
+    @PostMapping(value = "/start")
+    public ApiResponse<Boolean> start(@Valid @RequestBody OrderShardExpansionStartDto orderShardExpansionStartDto) {
+        orderShardExpansionService.start(orderShardExpansionStartDto);
+        return ApiResponse.ok(true);
+    }
+
+    @Operation(summary = "切换读到扩容后的分库")
+    @PostMapping(value = "/cutover")
+    public ApiResponse<Boolean> cutover() {
+        orderShardExpansionService.cutover();
+        return ApiResponse.ok(true);
+    }
+
+    @Operation(summary = "完成扩容，停止双写并清理原库中已迁走的数据")
+    @PostMapping(value = "/finish")
+    public ApiResponse<Boolean> finish() {
+        orderShardExpansionService.finish();
+        return ApiResponse.ok(true);
+    }
+
+    @Operation(summary = "配置中的分库数量修改并重启后，回到未扩容阶段")
+    @PostMapping(value = "/reset")
+    public ApiResponse<Boolean> reset() {
+        orderShardExpansionService.reset();
+        return ApiResponse.ok(true);
+    }
+
+    @Operation(summary = "查询扩容状态")
+    @PostMapping(value = "/status")
+    public ApiResponse<OrderShardExpansionVo> status() {
+        return ApiResponse.ok(orderShardExpansionService.status());
+    }
+}
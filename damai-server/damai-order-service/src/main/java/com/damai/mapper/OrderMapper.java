@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.damai.entity.Order;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: 订单 mapper
@@ -25,4 +27,11 @@ public interface OrderMapper extends BaseMapper<Order> {
      * @return 结果
      * */
     Integer relDelOrder();
+    
+    /**
+     * 按订单编号真实删除订单数据
+     * @param orderNumberList 订单编号集合
+     * @return 结果
+     * */
+    Integer relDelOrderByOrderNumbers(@Param("orderNumberList")List<Long> orderNumberList);
 }
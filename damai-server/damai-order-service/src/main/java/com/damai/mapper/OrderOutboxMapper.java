@@ -0,0 +1,22 @@
+package com.damai.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.damai.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 订单服务事务发件箱 mapper
+ * @author: 阿星不是程序员
+ **/
+public interface OrderOutboxMapper extends BaseMapper<OrderOutbox> {
+    
+    /**
+     * 物理删除已经转发完成的事件
+     * @param editTime 早于此时间的记录才删除
+     * @return 结果
+     * */
+    int purgeConsumed(@Param("editTime") Date editTime);
+}
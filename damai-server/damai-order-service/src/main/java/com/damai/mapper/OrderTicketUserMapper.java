@@ -26,5 +26,12 @@ public interface OrderTicketUserMapper extends BaseMapper<OrderTicketUser> {
      * @return 结果
      * */
     Integer relDelOrderTicketUser();
+    
+    /**
+     * 按订单编号真实删除购票人订单数据
+     * @param orderNumberList 订单编号集合
+     * @return 结果
+     * */
+    Integer relDelOrderTicketUserByOrderNumbers(@Param("orderNumberList")List<Long> orderNumberList);
 
 }
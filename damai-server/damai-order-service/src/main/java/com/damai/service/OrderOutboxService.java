@@ -0,0 +1,126 @@
+package com.damai.service;
+
+import com.baidu.fsg.uid.UidGenerator;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.damai.entity.Order;
+import com.damai.entity.OrderOutbox;
+import com.damai.enums.OutboxEventType;
+import com.damai.enums.OutboxStatus;
+import com.damai.mapper.OrderOutboxMapper;
+import com.damai.shardingsphere.OrderShardingExpansion;
+import com.damai.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单服务事务发件箱 service
+ * 订单状态变更后需要执行的节目缓存脚本、需要发送的延迟队列消息先在订单事务中写入发件箱，由OrderOutboxRelay批量转发
+ * 发件箱按订单编号基因分库，每个库一张表；转发时逐个库指定访问
+ * 分库扩容时事件不双写，只写入当前读的库，转发覆盖原库和新库，不会漏掉也不会重复转发
+ * 转发失败的事件记录重试次数并推迟下次转发时间，达到最大重试次数后转为失败状态
+ * @author: 阿星不是程序员
+ **/
+@Service
+public class OrderOutboxService extends ServiceImpl<OrderOutboxMapper, OrderOutbox> {
+
+    @Autowired
+    private UidGenerator uidGenerator;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+
+    /**
+     * 记录一个事件（需要在订单事务中调用，和订单数据一起提交或回滚）
+     *
+     * @param order     订单，提供分片键
+     * @param eventType 事件类型
+     * @param payload   事件内容
+     */
+    public void record(Order order, OutboxEventType eventType, String payload) {
+        OrderOutbox orderOutbox = new OrderOutbox();
+        orderOutbox.setId(uidGenerator.getUid());
+        orderOutbox.setOrderNumber(order.getOrderNumber());
+        orderOutbox.setUserId(order.getUserId());
+        orderOutbox.setProgramId(order.getProgramId());
+        orderOutbox.setEventType(eventType.getCode());
+        orderOutbox.setPayload(payload);
+        orderOutbox.setRetryCount(0);
+        orderOutbox.setNextRetryTime(DateUtils.now());
+        orderOutbox.setStatus(OutboxStatus.PENDING.getCode());
+        orderOutboxMapper.insert(orderOutbox);
+    }
+
+    /**
+     * 需要转发的库数量，扩容中包含新库
+     *
+     * @return 库数量
+     */
+    public int databaseCount() {
+        Integer targetShardingCount = OrderShardingExpansion.current().targetShardingCount();
+        return Objects.isNull(targetShardingCount) ? OrderShardingExpansion.getShardingCount() : targetShardingCount;
+    }
+
+    /**
+     * 按(下次转发时间, id)顺序查询指定库中已到转发时间的待转发事件（逻辑删除字段status=1表示待转发）
+     * 重试中的事件推迟到下次转发时间之后，不会阻塞后面的事件
+     *
+     * @param databaseIndex 库下标
+     * @param batchSize     单批数量
+     * @return 待转发的事件
+     */
+    public List<OrderOutbox> selectPending(int databaseIndex, int batchSize) {
+        return OrderShardingExpansion.onDatabase(databaseIndex, () -> orderOutboxMapper.selectList(
+                Wrappers.lambdaQuery(OrderOutbox.class)
+                        .le(OrderOutbox::getNextRetryTime, DateUtils.now())
+                        .orderByAsc(OrderOutbox::getNextRetryTime)
+                        .orderByAsc(OrderOutbox::getId)
+                        .last("limit " + batchSize)));
+    }
+
+    /**
+     * 记录指定库中事件的一次转发失败
+     *
+     * @param databaseIndex 库下标
+     * @param id            事件id
+     * @param retryCount    本次失败后的重试次数
+     * @param nextRetryTime 下次转发的时间
+     * @param failed        是否达到最大重试次数，达到时转为失败状态
+     */
+    public void markRetry(int databaseIndex, Long id, int retryCount, Date nextRetryTime, boolean failed) {
+        OrderShardingExpansion.onDatabase(databaseIndex, () -> orderOutboxMapper.update(null,
+                Wrappers.lambdaUpdate(OrderOutbox.class)
+                        .set(OrderOutbox::getRetryCount, retryCount)
+                        .set(OrderOutbox::getNextRetryTime, nextRetryTime)
+                        .set(failed, OrderOutbox::getStatus, OutboxStatus.FAILED.getCode())
+                        .eq(OrderOutbox::getId, id)));
+    }
+
+    /**
+     * 将指定库中已转发的事件标记为已消费
+     *
+     * @param databaseIndex 库下标
+     * @param idList        事件id集合
+     */
+    public void markConsumed(int databaseIndex, Collection<Long> idList) {
+        OrderShardingExpansion.onDatabase(databaseIndex, () -> orderOutboxMapper.delete(
+                Wrappers.lambdaQuery(OrderOutbox.class).in(OrderOutbox::getId, idList)));
+    }
+
+    /**
+     * 物理删除指定库中已转发的事件
+     *
+     * @param databaseIndex 库下标
+     * @param editTime      早于此时间的记录才删除
+     * @return 删除的数量
+     */
+    public int purgeConsumed(int databaseIndex, Date editTime) {
+        return OrderShardingExpansion.onDatabase(databaseIndex, () -> orderOutboxMapper.purgeConsumed(editTime));
+    }
+}
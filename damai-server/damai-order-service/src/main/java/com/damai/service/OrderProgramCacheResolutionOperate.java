@@ -1,12 +1,10 @@
 package com.damai.service;
 
-import com.damai.redis.RedisCache;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -21,22 +19,17 @@ import java.util.List;
 public class OrderProgramCacheResolutionOperate {
     
     @Autowired
-    private RedisCache redisCache;
+    private RedisScriptRegistry redisScriptRegistry;
     
-    private DefaultRedisScript redisScript;
+    private LuaScript<Integer> redisScript;
     
     @PostConstruct
     public void init(){
-        try {
-            redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/OrderProgramDataResolution.lua")));
-            redisScript.setResultType(Integer.class);
-        } catch (Exception e) {
-            log.error("redisScript init lua error",e);
-        }
+        redisScript = redisScriptRegistry.register("orderProgramDataResolution", "lua/OrderProgramDataResolution.lua",
+                Integer.class);
     }
     
     public void programCacheReverseOperate(List<String> keys, Object... args){
-        redisCache.getInstance().execute(redisScript, keys, args);
+        redisScript.execute(keys, args);
     }
 }
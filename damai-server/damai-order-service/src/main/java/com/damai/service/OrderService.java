@@ -15,6 +15,7 @@ import com.damai.client.UserClient;
 import com.damai.common.ApiResponse;
 import com.damai.core.RedisKeyManage;
 import com.damai.dto.AccountOrderCountDto;
+import com.damai.dto.DelayOrderCancelDto;
 import com.damai.dto.NotifyDto;
 import com.damai.dto.OrderCancelDto;
 import com.damai.dto.OrderCreateDto;
@@ -25,6 +26,7 @@ import com.damai.dto.OrderPayDto;
 import com.damai.dto.OrderTicketUserCreateDto;
 import com.damai.dto.PayDto;
 import com.damai.dto.ProgramOperateDataDto;
+import com.damai.dto.ProgramSeatOrderStatusDto;
 import com.damai.dto.RefundDto;
 import com.damai.dto.TicketCategoryCountDto;
 import com.damai.dto.TradeCheckDto;
@@ -35,6 +37,7 @@ import com.damai.entity.OrderTicketUserAggregate;
 import com.damai.enums.BaseCode;
 import com.damai.enums.BusinessStatus;
 import com.damai.enums.OrderStatus;
+import com.damai.enums.OutboxEventType;
 import com.damai.enums.PayBillStatus;
 import com.damai.enums.PayChannel;
 import com.damai.enums.SellStatus;
@@ -43,12 +46,15 @@ import com.damai.mapper.OrderMapper;
 import com.damai.mapper.OrderTicketUserMapper;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.redis.RedisScriptKeys;
 import com.damai.repeatexecutelimit.annotion.RepeatExecuteLimit;
 import com.damai.request.CustomizeRequestWrapper;
-import com.damai.service.delaysend.DelayOperateProgramDataSend;
+import com.damai.service.cache.OrderListCache;
+import com.damai.service.outbox.ProgramCacheReverseEvent;
 import com.damai.service.properties.OrderProperties;
 import com.damai.servicelock.LockType;
 import com.damai.servicelock.annotion.ServiceLock;
+import com.damai.shardingsphere.OrderShardingExpansion;
 import com.damai.util.DateUtils;
 import com.damai.util.ServiceLockTool;
 import com.damai.util.StringUtil;
@@ -58,6 +64,7 @@ import com.damai.vo.OrderGetVo;
 import com.damai.vo.OrderListVo;
 import com.damai.vo.OrderPayCheckVo;
 import com.damai.vo.OrderTicketInfoVo;
+import com.damai.vo.SeatOrderStatusVo;
 import com.damai.vo.SeatVo;
 import com.damai.vo.TicketUserInfoVo;
 import com.damai.vo.TicketUserVo;
@@ -69,12 +76,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -132,19 +141,43 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
     private OrderService orderService;
 
     @Autowired
-    private DelayOperateProgramDataSend delayOperateProgramDataSend;
+    private OrderOutboxService orderOutboxService;
 
     @Autowired
     private ServiceLockTool serviceLockTool;
 
+    @Autowired
+    private OrderListCache orderListCache;
+
     /**
-     * 订单创建核心方法
+     * 发件箱事件已执行标记的过期时间（秒），需要大于事件可能重复转发的时间范围
+     */
+    @Value("${orderOutbox.appliedExpireTime:86400}")
+    private long outboxEventAppliedExpireTime;
+
+    /**
+     * 订单创建（节目服务rpc调用）
+     * 延迟取消订单事件在订单的本地事务中写入发件箱，和订单一起提交，由OrderOutboxRelay转发到延迟队列
      *
      * @param orderCreateDto
      * @return
      */
     @Transactional(rollbackFor = Exception.class)
     public String create(OrderCreateDto orderCreateDto) {
+        Order order = insertOrder(orderCreateDto);
+        DelayOrderCancelDto delayOrderCancelDto = new DelayOrderCancelDto();
+        delayOrderCancelDto.setOrderNumber(order.getOrderNumber());
+        orderOutboxService.record(order, OutboxEventType.DELAY_ORDER_CANCEL, JSON.toJSONString(delayOrderCancelDto));
+        return String.valueOf(order.getOrderNumber());
+    }
+
+    /**
+     * 订单创建核心方法
+     *
+     * @param orderCreateDto
+     * @return 创建的订单
+     */
+    private Order insertOrder(OrderCreateDto orderCreateDto) {
         // 1.构建订单查询条件
         LambdaQueryWrapper<Order> orderLambdaQueryWrapper =
                 Wrappers.lambdaQuery(Order.class).eq(Order::getOrderNumber, orderCreateDto.getOrderNumber());
@@ -168,18 +201,20 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
             orderTicketUser.setId(uidGenerator.getUid());  // 生成子订单唯一ID
             orderTicketUserList.add(orderTicketUser);
         }
-        // 4.执行数据库插入操作
-        orderMapper.insert(order);
-        // 批量插入子订单
-        orderTicketUserService.saveBatch(orderTicketUserList);
+        // 4.执行数据库插入操作（分库扩容双写时在原库和新库各插入一次）
+        OrderShardingExpansion.dualWrite(order.getOrderNumber(), () -> {
+            orderMapper.insert(order);
+            // 批量插入子订单
+            return orderTicketUserService.saveBatch(orderTicketUserList);
+        });
+        orderListCache.evict(order.getUserId());
         // 5.更新用户订单计数缓存（用于统计用户对某个节目购买的票数）
         redisCache.incrBy(RedisKeyBuild.createRedisKey(
                         RedisKeyManage.ACCOUNT_ORDER_COUNT,
                         orderCreateDto.getUserId(),
                         orderCreateDto.getProgramId()),
                 orderCreateDto.getOrderTicketUserCreateDtoList().size());  // 本次购买的票数（子订单数量）
-        // 返回主订单号
-        return String.valueOf(order.getOrderNumber());
+        return order;
     }
 
     /**
@@ -194,6 +229,133 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         return true;
     }
 
+    /**
+     * 批量取消超时未支付的订单
+     * 先按基因分组查出仍未支付的订单（同一基因的订单在同一个库的同一张分表中，in条件只路由到一张表），
+     * 再按节目分组，每个节目一个事务完成订单状态的集合更新，并且只记录一个座位和余票的回滚事件，由发件箱转发时执行一次脚本
+     * 不逐个加订单锁，以 order_status = 未支付 作为更新条件，已被支付或取消的订单不会被改动
+     * 某个节目批量取消失败时，该节目的订单逐个取消
+     *
+     * @param orderNumberList 订单编号集合
+     * @return 取消的订单数量
+     */
+    public int batchCancel(List<Long> orderNumberList) {
+        if (CollectionUtil.isEmpty(orderNumberList)) {
+            return 0;
+        }
+        long geneMask = OrderShardingExpansion.geneMask();
+        List<Order> noPayOrderList = new ArrayList<>(orderNumberList.size());
+        orderNumberList.stream().distinct()
+                .collect(Collectors.groupingBy(orderNumber -> orderNumber & geneMask))
+                .values()
+                .forEach(geneOrderNumberList -> noPayOrderList.addAll(orderMapper.selectList(
+                        Wrappers.lambdaQuery(Order.class)
+                                .eq(Order::getOrderStatus, OrderStatus.NO_PAY.getCode())
+                                .in(Order::getOrderNumber, geneOrderNumberList))));
+        int cancelCount = 0;
+        Map<Long, List<Order>> programOrderMap =
+                noPayOrderList.stream().collect(Collectors.groupingBy(Order::getProgramId));
+        for (Map.Entry<Long, List<Order>> entry : programOrderMap.entrySet()) {
+            try {
+                cancelCount += orderService.batchCancelProgramOrder(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("节目订单批量取消失败，逐个取消 programId : {}", entry.getKey(), e);
+                cancelCount += cancelOneByOne(entry.getValue());
+            }
+        }
+        log.info("批量取消订单 size : {}, 未支付 : {}, 取消 : {}",
+                orderNumberList.size(), noPayOrderList.size(), cancelCount);
+        return cancelCount;
+    }
+
+    /**
+     * 批量取消同一个节目的订单
+     * 按基因分组，锁定仍未支付的订单后用集合条件更新订单和购票人订单，全部更新后记录一个节目缓存的回滚事件
+     *
+     * @param programId 节目id
+     * @param orderList 节目下未支付的订单
+     * @return 取消的订单数量
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int batchCancelProgramOrder(Long programId, List<Order> orderList) {
+        long geneMask = OrderShardingExpansion.geneMask();
+        Date cancelOrderTime = DateUtils.now();
+        List<OrderTicketUser> orderTicketUserList = new ArrayList<>();
+        Map<Long, Long> userOrderMap = new HashMap<>(orderList.size());
+        // 回滚事件写入第一个取消的订单所在的库
+        Order eventOrder = null;
+        for (List<Order> geneOrderList : orderList.stream()
+                .collect(Collectors.groupingBy(order -> order.getOrderNumber() & geneMask)).values()) {
+            // 锁定仍未支付的订单，之后的更新数量与锁定的数量一致
+            List<Order> lockOrderList = orderMapper.selectList(Wrappers.lambdaQuery(Order.class)
+                    .select(Order::getOrderNumber, Order::getUserId, Order::getProgramId)
+                    .eq(Order::getOrderStatus, OrderStatus.NO_PAY.getCode())
+                    .in(Order::getOrderNumber, geneOrderList.stream().map(Order::getOrderNumber).toList())
+                    .last("for update"));
+            if (CollectionUtil.isEmpty(lockOrderList)) {
+                continue;
+            }
+            List<Long> lockOrderNumberList = lockOrderList.stream().map(Order::getOrderNumber).toList();
+            Order updateOrder = new Order();
+            updateOrder.setOrderStatus(OrderStatus.CANCEL.getCode());
+            updateOrder.setCancelOrderTime(cancelOrderTime);
+            OrderTicketUser updateOrderTicketUser = new OrderTicketUser();
+            updateOrderTicketUser.setOrderStatus(OrderStatus.CANCEL.getCode());
+            updateOrderTicketUser.setCancelOrderTime(cancelOrderTime);
+            // 同一组的基因相同，分库扩容双写时在原库和新库各更新一次，按锁定数据所在库的结果校验
+            int[] updateResult = OrderShardingExpansion.dualWrite(lockOrderNumberList.get(0), () -> new int[]{
+                    orderMapper.update(updateOrder, Wrappers.lambdaUpdate(Order.class)
+                            .eq(Order::getOrderStatus, OrderStatus.NO_PAY.getCode())
+                            .in(Order::getOrderNumber, lockOrderNumberList)),
+                    orderTicketUserMapper.update(updateOrderTicketUser, Wrappers.lambdaUpdate(OrderTicketUser.class)
+                            .eq(OrderTicketUser::getOrderStatus, OrderStatus.NO_PAY.getCode())
+                            .in(OrderTicketUser::getOrderNumber, lockOrderNumberList))});
+            if (updateResult[0] != lockOrderNumberList.size() || updateResult[1] <= 0) {
+                throw new DaMaiFrameException(BaseCode.ORDER_CANAL_ERROR);
+            }
+            orderTicketUserList.addAll(orderTicketUserMapper.selectList(Wrappers.lambdaQuery(OrderTicketUser.class)
+                    .in(OrderTicketUser::getOrderNumber, lockOrderNumberList)));
+            lockOrderList.forEach(order -> userOrderMap.putIfAbsent(order.getOrderNumber(), order.getUserId()));
+            if (Objects.isNull(eventOrder)) {
+                eventOrder = lockOrderList.get(0);
+            }
+        }
+        if (userOrderMap.isEmpty()) {
+            return 0;
+        }
+        if (CollectionUtil.isEmpty(orderTicketUserList)) {
+            throw new DaMaiFrameException(BaseCode.TICKET_USER_ORDER_NOT_EXIST);
+        }
+        // 合并节目下所有订单的座位：票档ID -> 座位ID列表，只记录一个回滚事件
+        Map<Long, List<Long>> seatMap = orderTicketUserList.stream().collect(Collectors.groupingBy(
+                OrderTicketUser::getTicketCategoryId,
+                Collectors.mapping(OrderTicketUser::getSeatId, Collectors.toList())));
+        recordProgramDataEvent(eventOrder, seatMap, OrderStatus.CANCEL);
+        // 用户购票计数按用户合并后扣减
+        orderTicketUserList.stream()
+                .collect(Collectors.groupingBy(OrderTicketUser::getUserId, Collectors.counting()))
+                .forEach((userId, count) -> redisCache.incrBy(RedisKeyBuild.createRedisKey(
+                        RedisKeyManage.ACCOUNT_ORDER_COUNT, userId, programId), -count));
+        userOrderMap.values().stream().distinct().forEach(orderListCache::evict);
+        return userOrderMap.size();
+    }
+
+    private int cancelOneByOne(List<Order> orderList) {
+        int cancelCount = 0;
+        for (Order order : orderList) {
+            OrderCancelDto orderCancelDto = new OrderCancelDto();
+            orderCancelDto.setOrderNumber(order.getOrderNumber());
+            try {
+                if (orderService.cancel(orderCancelDto)) {
+                    cancelCount++;
+                }
+            } catch (Exception e) {
+                log.error("订单取消失败 orderNumber : {}", order.getOrderNumber(), e);
+            }
+        }
+        return cancelCount;
+    }
+
     /**
      * 处理订单支付请求的核心方法
      *
@@ -271,13 +433,35 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
     /**
      * 支付后订单状态检查
      * 用于前端主动查询订单的支付状态，作为支付宝异步通知的补充机制，确保订单状态与实际支付结果一致
+     * 订单已支付或已退单时直接返回订单状态，不加锁也不查询支付渠道，前端轮询支付结果时大部分请求走这条路径
+     *
+     * @param orderPayCheckDto 订单支付检查请求参数
+     * @return OrderPayCheckVo 订单支付状态检查结果
+     */
+    public OrderPayCheckVo payCheck(OrderPayCheckDto orderPayCheckDto) {
+        Order order = orderMapper.selectOne(
+                Wrappers.lambdaQuery(Order.class).eq(Order::getOrderNumber, orderPayCheckDto.getOrderNumber()));
+        if (Objects.isNull(order)) {
+            throw new DaMaiFrameException(BaseCode.ORDER_NOT_EXIST);
+        }
+        if (Objects.equals(order.getOrderStatus(), OrderStatus.PAY.getCode()) ||
+                Objects.equals(order.getOrderStatus(), OrderStatus.REFUND.getCode())) {
+            OrderPayCheckVo orderPayCheckVo = new OrderPayCheckVo();
+            BeanUtil.copyProperties(order, orderPayCheckVo);
+            return orderPayCheckVo;
+        }
+        return orderService.payCheckWithLock(orderPayCheckDto);
+    }
+
+    /**
+     * 加锁检查订单支付状态
      * 采用订单编号加锁，防止并发场景下的重复更新操作
      *
      * @param orderPayCheckDto 订单支付检查请求参数
      * @return OrderPayCheckVo 订单支付状态检查结果
      */
     @ServiceLock(name = ORDER_PAY_CHECK, keys = {"#orderPayCheckDto.orderNumber"})
-    public OrderPayCheckVo payCheck(OrderPayCheckDto orderPayCheckDto) {
+    public OrderPayCheckVo payCheckWithLock(OrderPayCheckDto orderPayCheckDto) {
         // 初始化返回结果对象，用于封装订单支付状态信息
         OrderPayCheckVo orderPayCheckVo = new OrderPayCheckVo();
         // 根据订单号查询系统中的订单记录
@@ -304,7 +488,9 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
                 Order updateOrder = new Order();
                 updateOrder.setEditTime(DateUtils.now());
                 updateOrder.setOrderStatus(OrderStatus.REFUND.getCode());
-                orderMapper.update(updateOrder, Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, order.getOrderNumber()));
+                OrderShardingExpansion.dualWrite(order.getOrderNumber(), () -> orderMapper.update(updateOrder,
+                        Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, order.getOrderNumber())));
+                orderListCache.evict(order.getUserId());
             } else {
                 log.error("pay服务退款失败 dto : {} response : {}", JSON.toJSONString(refundDto), JSON.toJSONString(response));
             }
@@ -409,7 +595,9 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
                     Order updateOrder = new Order();
                     updateOrder.setEditTime(DateUtils.now());  // 更新时间
                     updateOrder.setOrderStatus(OrderStatus.REFUND.getCode());   // 状态改为已退款
-                    orderMapper.update(updateOrder, Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, outTradeNo));
+                    OrderShardingExpansion.dualWrite(order.getOrderNumber(), () -> orderMapper.update(updateOrder,
+                            Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, outTradeNo)));
+                    orderListCache.evict(order.getUserId());
                 } else {
                     log.error("pay服务退款失败 dto : {} response : {}", JSON.toJSONString(refundDto), JSON.toJSONString(response));
                 }
@@ -484,16 +672,18 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         // 根据订单号更新主订单
         LambdaUpdateWrapper<Order> orderLambdaUpdateWrapper =
                 Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, order.getOrderNumber());
-        int updateOrderResult = orderMapper.update(updateOrder, orderLambdaUpdateWrapper);
         // 根据订单号批量更新子订单（购票人关联表）
         LambdaUpdateWrapper<OrderTicketUser> orderTicketUserLambdaUpdateWrapper =
                 Wrappers.lambdaUpdate(OrderTicketUser.class).eq(OrderTicketUser::getOrderNumber, order.getOrderNumber());
-        int updateTicketUserOrderResult =
-                orderTicketUserMapper.update(updateOrderTicketUser, orderTicketUserLambdaUpdateWrapper);
+        // 分库扩容双写时在原库和新库各更新一次，按当前读的库的结果校验
+        int[] updateResult = OrderShardingExpansion.dualWrite(order.getOrderNumber(), () -> new int[]{
+                orderMapper.update(updateOrder, orderLambdaUpdateWrapper),
+                orderTicketUserMapper.update(updateOrderTicketUser, orderTicketUserLambdaUpdateWrapper)});
         // 校验更新结果：若主订单或子订单更新失败，抛出异常回滚事务
-        if (updateOrderResult <= 0 || updateTicketUserOrderResult <= 0) {
+        if (updateResult[0] <= 0 || updateResult[1] <= 0) {
             throw new DaMaiFrameException(BaseCode.ORDER_CANAL_ERROR);
         }
+        orderListCache.evict(order.getUserId());
         // 根据订单号查询更新后的子订单列表
         LambdaQueryWrapper<OrderTicketUser> orderTicketUserLambdaQueryWrapper =
                 Wrappers.lambdaQuery(OrderTicketUser.class).eq(OrderTicketUser::getOrderNumber, order.getOrderNumber());
@@ -505,7 +695,7 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         // 处理“取消”状态的缓存回滚：用户购票计数减少
         if (Objects.equals(orderStatus.getCode(), OrderStatus.CANCEL.getCode())) {
             redisCache.incrBy(RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT,
-                    order.getUserId(), order.getProgramId()), -updateTicketUserOrderResult); // 减少本次取消的票数（负数表示扣减）
+                    order.getUserId(), order.getProgramId()), -updateResult[1]); // 减少本次取消的票数（负数表示扣减）
         }
         // 按票档ID分组子订单，收集每个票档对应的座位ID
         Long programId = order.getProgramId();  // 节目ID
@@ -518,8 +708,43 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
                 seatMap.put(ticketCategoryId, orderTicketUsers.stream()
                         .map(OrderTicketUser::getSeatId).collect(Collectors.toList()))
         );
-        // 调用方法更新节目相关缓存（座位状态、票档余票等）
-        updateProgramRelatedDataResolution(programId, seatMap, orderStatus);
+        // 记录节目相关数据的变更事件（座位状态、票档余票等），和订单状态一起提交，由发件箱转发执行
+        recordProgramDataEvent(order, seatMap, orderStatus);
+    }
+
+    /**
+     * 记录订单支付或取消后节目数据的变更事件，需要在订单事务中调用
+     * 节目缓存变更事件由发件箱转发时执行脚本；支付时再记录延迟更新节目数据库中座位和余票的事件
+     *
+     * @param order       订单，提供发件箱的分片键
+     * @param seatMap     票档 -> 座位ID列表
+     * @param orderStatus 目标订单状态（PAY或CANCEL）
+     */
+    private void recordProgramDataEvent(Order order, Map<Long, List<Long>> seatMap, OrderStatus orderStatus) {
+        ProgramCacheReverseEvent programCacheReverseEvent = new ProgramCacheReverseEvent();
+        programCacheReverseEvent.setProgramId(order.getProgramId());
+        programCacheReverseEvent.setSeatMap(seatMap);
+        programCacheReverseEvent.setOrderStatus(orderStatus.getCode());
+        orderOutboxService.record(order, OutboxEventType.PROGRAM_CACHE_REVERSE,
+                JSON.toJSONString(programCacheReverseEvent));
+        if (Objects.equals(orderStatus.getCode(), OrderStatus.PAY.getCode())) {
+            List<TicketCategoryCountDto> ticketCategoryCountDtoList = new ArrayList<>(seatMap.size());
+            List<Long> seatIdList = new ArrayList<>();
+            seatMap.forEach((ticketCategoryId, seatIds) -> {
+                TicketCategoryCountDto ticketCategoryCountDto = new TicketCategoryCountDto();
+                ticketCategoryCountDto.setTicketCategoryId(ticketCategoryId);
+                ticketCategoryCountDto.setCount((long) seatIds.size());  // 该票档的座位数量
+                ticketCategoryCountDtoList.add(ticketCategoryCountDto);
+                seatIdList.addAll(seatIds);
+            });
+            ProgramOperateDataDto programOperateDataDto = new ProgramOperateDataDto();
+            programOperateDataDto.setProgramId(order.getProgramId());
+            programOperateDataDto.setSeatIdList(seatIdList);  // 已售座位ID列表
+            programOperateDataDto.setTicketCategoryCountDtoList(ticketCategoryCountDtoList);   // 票档-数量映射
+            programOperateDataDto.setSellStatus(SellStatus.SOLD.getCode());   // 状态为已售
+            orderOutboxService.record(order, OutboxEventType.DELAY_OPERATE_PROGRAM_DATA,
+                    JSON.toJSONString(programOperateDataDto));
+        }
     }
 
     /**
@@ -561,56 +786,78 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
      * @param orderStatus 目标订单状态（PAY或CANCEL）
      */
     public void updateProgramRelatedDataResolution(Long programId, Map<Long, List<Long>> seatMap, OrderStatus orderStatus) {
+        updateProgramRelatedDataResolution(programId, seatMap, orderStatus, null);
+    }
+
+    /**
+     * 更新节目相关缓存数据，发件箱转发时传入事件id
+     * 脚本执行时先写入事件已执行标记，同一个事件重复转发时不会重复变更座位和余票；
+     * 事件已执行后锁定缓存中不再有这些座位，查询不到时直接返回
+     *
+     * @param programId   节目Id
+     * @param seatMap     票档 -> 座位ID列表
+     * @param orderStatus 目标订单状态（PAY或CANCEL）
+     * @param eventId     发件箱事件id，不是由发件箱转发时为null
+     */
+    public void updateProgramRelatedDataResolution(Long programId, Map<Long, List<Long>> seatMap, OrderStatus orderStatus,
+                                                   Long eventId) {
         // 从Redis的“锁定座位缓存”中查询所有涉及的座位详情
         // 按票档ID分组存储（key：票档ID；value：该票档下的座位详情列表）
         Map<Long, List<SeatVo>> seatVoMap = new HashMap<>(seatMap.size());
-        // 批量查询哈希缓存中指定座位ID的详情（转换为SeatVo对象）
+        // 批量查询哈希缓存中指定座位ID的详情（转换为SeatVo对象），过滤掉锁定缓存中已不存在的座位
         // 座位ID转为字符串
-        seatMap.forEach((ticketCategoryId, seatIdList) -> seatVoMap.put(ticketCategoryId, redisCache.multiGetForHash(
-                RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId),
-                seatIdList.stream().map(String::valueOf).collect(Collectors.toList()), SeatVo.class)));
-        // 校验座位详情列表是否为空，若为空则抛出异常
+        seatMap.forEach((ticketCategoryId, seatIdList) -> {
+            List<SeatVo> seatVos = redisCache.multiGetForHash(
+                    RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId),
+                    seatIdList.stream().map(String::valueOf).collect(Collectors.toList()), SeatVo.class)
+                    .stream().filter(Objects::nonNull).collect(Collectors.toList());
+            if (CollectionUtil.isNotEmpty(seatVos)) {
+                seatVoMap.put(ticketCategoryId, seatVos);
+            }
+        });
+        // 校验座位详情列表是否为空
         if (CollectionUtil.isEmpty(seatVoMap)) {
+            if (Objects.nonNull(eventId)) {
+                log.warn("锁定座位缓存中不存在事件的座位，事件已执行 eventId : {} programId : {}", eventId, programId);
+                return;
+            }
             throw new DaMaiFrameException(BaseCode.LOCK_SEAT_LIST_EMPTY);
         }
         // 初始化缓存操作所需的数据容器
+        RedisScriptKeys scriptKeys = new RedisScriptKeys();  // 脚本访问的key，参数中只传key在KEYS中的下标
         JSONArray unLockSeatIdjsonArray = new JSONArray();  // 需从锁定缓存删除的座位信息
         JSONArray addSeatDatajsonArray = new JSONArray();  // 需添加到目标缓存的座位数据
         JSONArray ticketRemainJsonArray = new JSONArray();  // 票档余票变更数据
-        // 票档-座位数映射（用于统计）
-        List<TicketCategoryCountDto> ticketCategoryCountDtoList = new ArrayList<>(seatVoMap.size());
-        // 所有需解锁的座位ID（用于支付场景）
-        List<Long> unLockSeatIdList = new ArrayList<>();
         // 按票档处理座位状态迁移和余票更新
         seatVoMap.forEach((ticketCategoryId, seatVos) -> {
             // 记录需从“锁定缓存”中删除的座位信息
             JSONObject unLockSeatIdjsonObject = new JSONObject();
-            // 锁定座位缓存键（用于删除操作）
-            unLockSeatIdjsonObject.put("programSeatLockHashKey", RedisKeyBuild.createRedisKey(
+            // 锁定座位缓存键的下标（用于删除操作）
+            unLockSeatIdjsonObject.put("seatLockKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
                     RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH,
                     programId,
                     ticketCategoryId
-            ).getRelKey());
+            )));
             // 该票档下需删除的座位ID列表（转为字符串）
             unLockSeatIdjsonObject.put("unLockSeatIdList", seatVos.stream()
                     .map(SeatVo::getId).map(String::valueOf).collect(Collectors.toList()));
             unLockSeatIdjsonArray.add(unLockSeatIdjsonObject);
             // 确定目标缓存键和座位状态（根据订单状态）
-            String targetSeatHashKey = "";  // 目标缓存键（已售/未售）
+            RedisKeyBuild targetSeatHashKey = null;  // 目标缓存键（已售/未售）
             if (Objects.equals(orderStatus.getCode(), OrderStatus.CANCEL.getCode())) {
                 // 订单取消：座位迁移到“未售缓存”，状态更新为“未售”
                 targetSeatHashKey = RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey();
+                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId);
                 seatVos.forEach(seatVo -> seatVo.setSellStatus(SellStatus.NO_SOLD.getCode()));
             } else if (Objects.equals(orderStatus.getCode(), OrderStatus.PAY.getCode())) {
                 // 订单支付：座位迁移到“已售缓存”，状态更新为“已售”
                 targetSeatHashKey = RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey();
+                        RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH, programId, ticketCategoryId);
                 seatVos.forEach(seatVo -> seatVo.setSellStatus(SellStatus.SOLD.getCode()));
             }
             // 记录需添加到目标缓存的座位数据
             JSONObject addSeatjsonObject = new JSONObject();
-            addSeatjsonObject.put("seatHashKeyAdd", targetSeatHashKey);  // 目标缓存键
+            addSeatjsonObject.put("seatAddKeyIndex", scriptKeys.add(targetSeatHashKey));  // 目标缓存键的下标
             // 座位数据列表（格式：[座位ID1, 座位1详情JSON, 座位ID2, 座位2详情JSON, ...]）
             List<String> seatDataList = new ArrayList<>();
             seatVos.forEach(seatVo -> {
@@ -622,56 +869,73 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
             // 记录票档余票变更数据（取消时恢复余票，支付时余票不变但需同步状态）
             JSONObject ticketRemainjsonObject = new JSONObject();
             // 票档余票缓存键（格式：PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION:programId:ticketCategoryId）
-            ticketRemainjsonObject.put("programTicketRemainNumberHashKey", RedisKeyBuild.createRedisKey(
-                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
+            ticketRemainjsonObject.put("remainNumberKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId)));
             // 票档ID
             ticketRemainjsonObject.put("ticketCategoryId", String.valueOf(ticketCategoryId));
             // 变更数量（取消时为正数，恢复余票）
             ticketRemainjsonObject.put("count", seatVos.size());
             ticketRemainJsonArray.add(ticketRemainjsonObject);
-            // 收集辅助数据（用于支付场景的延迟消息）
-            TicketCategoryCountDto ticketCategoryCountDto = new TicketCategoryCountDto();
-            ticketCategoryCountDto.setTicketCategoryId(ticketCategoryId);
-            ticketCategoryCountDto.setCount((long) seatVos.size());  // 该票档的座位数量
-            ticketCategoryCountDtoList.add(ticketCategoryCountDto);
-            // 收集所有需解锁的座位ID
-            unLockSeatIdList.addAll(seatVos.stream().map(SeatVo::getId).toList());
         });
         // 执行Lua脚本
-        List<String> keys = new ArrayList<>();
-        keys.add(String.valueOf(orderStatus.getCode()));  // 传入订单状态码作为参数
-        Object[] data = new String[3];
-        data[0] = JSON.toJSONString(unLockSeatIdjsonArray);  // 解锁座位数据
-        data[1] = JSON.toJSONString(addSeatDatajsonArray);  // 添加座位数据
-        data[2] = JSON.toJSONString(ticketRemainJsonArray);  // 余票变更数据
-        // 调用工具类执行Lua脚本，保证缓存操作的原子性（避免中间状态）
-        orderProgramCacheResolutionOperate.programCacheReverseOperate(keys, data);
-        // 支付状态的额外处理：发送延迟消息（用于异步更新统计数据等）
-        if (Objects.equals(orderStatus.getCode(), OrderStatus.PAY.getCode())) {
-            ProgramOperateDataDto programOperateDataDto = new ProgramOperateDataDto();
-            programOperateDataDto.setProgramId(programId);
-            programOperateDataDto.setSeatIdList(unLockSeatIdList);  // 已售座位ID列表
-            programOperateDataDto.setTicketCategoryCountDtoList(ticketCategoryCountDtoList);   // 票档-数量映射
-            programOperateDataDto.setSellStatus(SellStatus.SOLD.getCode());   // 状态为已售
-            // 发送延迟消息，后续由消费者处理
-            delayOperateProgramDataSend.sendMessage(JSON.toJSONString(programOperateDataDto));
+        Object[] data = new String[Objects.isNull(eventId) ? 4 : 6];
+        data[0] = String.valueOf(orderStatus.getCode());  // 订单状态码
+        data[1] = JSON.toJSONString(unLockSeatIdjsonArray);  // 解锁座位数据
+        data[2] = JSON.toJSONString(addSeatDatajsonArray);  // 添加座位数据
+        data[3] = JSON.toJSONString(ticketRemainJsonArray);  // 余票变更数据
+        if (Objects.nonNull(eventId)) {
+            // 事件已执行标记的缓存键下标和过期秒数，以节目id开头，与节目的座位、余票key在同一个槽位上
+            data[4] = String.valueOf(scriptKeys.add(
+                    RedisKeyBuild.createRedisKey(RedisKeyManage.ORDER_OUTBOX_EVENT_APPLIED, programId, eventId)));
+            data[5] = String.valueOf(outboxEventAppliedExpireTime);
         }
+        // 调用工具类执行Lua脚本，保证缓存操作的原子性（避免中间状态）
+        orderProgramCacheResolutionOperate.programCacheReverseOperate(scriptKeys.getKeys(), data);
     }
 
     /**
-     * 根据用户ID获取订单列表信息
+     * 根据用户ID分页获取订单列表信息
+     * 按(生成时间, 订单编号)降序的游标分页，条件中带有user_id，只路由到用户所在的分片，每次最多扫描一页的数据
+     * 第一页从用户最近订单缓存中截取，翻页时查询数据库
      *
-     * @param orderListDto 用户ID查询DTO
+     * @param orderListDto 用户ID和游标
      * @return 订单列表视图对象集合
      */
     public List<OrderListVo> selectList(OrderListDto orderListDto) {
+        int pageSize = orderListCache.pageSize(orderListDto.getPageSize());
+        // 没有游标时查询第一页
+        if (Objects.isNull(orderListDto.getLastCreateOrderTime()) || Objects.isNull(orderListDto.getLastOrderNumber())) {
+            List<OrderListVo> recentOrderList = orderListCache.get(orderListDto.getUserId(),
+                    () -> selectPage(orderListDto.getUserId(), null, null, orderListCache.getMaxPageSize()));
+            return recentOrderList.size() > pageSize ? new ArrayList<>(recentOrderList.subList(0, pageSize)) : recentOrderList;
+        }
+        return selectPage(orderListDto.getUserId(), orderListDto.getLastCreateOrderTime(),
+                orderListDto.getLastOrderNumber(), pageSize);
+    }
+
+    /**
+     * 从数据库查询一页订单
+     *
+     * @param userId              用户id
+     * @param lastCreateOrderTime 上一页最后一条订单的生成时间，为空时查询第一页
+     * @param lastOrderNumber     上一页最后一条订单的订单编号，为空时查询第一页
+     * @param pageSize            每页数量
+     * @return 订单列表视图对象集合
+     */
+    private List<OrderListVo> selectPage(Long userId, Date lastCreateOrderTime, Long lastOrderNumber, int pageSize) {
         // 初始化返回的订单列表视图集合
         List<OrderListVo> orderListVos = new ArrayList<>();
-        // 根据用户ID查询订单主表信息并按订单创建时间降序排序
+        // 根据用户ID查询订单主表信息，按订单创建时间、订单编号降序排序，从游标之后取一页
         LambdaQueryWrapper<Order> orderLambdaQueryWrapper =
                 Wrappers.lambdaQuery(Order.class)
-                        .eq(Order::getUserId, orderListDto.getUserId())
-                        .orderByDesc(Order::getCreateOrderTime);
+                        .eq(Order::getUserId, userId)
+                        .and(Objects.nonNull(lastCreateOrderTime) && Objects.nonNull(lastOrderNumber),
+                                wrapper -> wrapper.lt(Order::getCreateOrderTime, lastCreateOrderTime)
+                                        .or(w -> w.eq(Order::getCreateOrderTime, lastCreateOrderTime)
+                                                .lt(Order::getOrderNumber, lastOrderNumber)))
+                        .orderByDesc(Order::getCreateOrderTime)
+                        .orderByDesc(Order::getOrderNumber)
+                        .last("limit " + pageSize);
         List<Order> orderList = orderMapper.selectList(orderLambdaQueryWrapper);
         // 如果订单列表为空，直接返回空集合
         if (CollectionUtil.isEmpty(orderList)) {
@@ -802,10 +1066,53 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
     }
 
 
+    /**
+     * 查询节目座位对应的有效订单状态，节目服务对账座位缓存和数据库时用于判断以哪一边为准
+     * 购票人订单按订单编号和用户id分片，这里没有分片键，会查询所有分表，只在对账发现差异的座位上调用
+     * 同一个座位取消后可以再次下单，存在已支付的订单时返回已支付，否则返回未支付，没有有效订单的座位不返回
+     *
+     * @param programSeatOrderStatusDto 节目id和座位id集合
+     * @return 座位的有效订单状态
+     */
+    public List<SeatOrderStatusVo> programSeatOrderStatus(ProgramSeatOrderStatusDto programSeatOrderStatusDto) {
+        List<OrderTicketUser> orderTicketUserList = orderTicketUserMapper.selectList(
+                Wrappers.lambdaQuery(OrderTicketUser.class)
+                        .select(OrderTicketUser::getSeatId, OrderTicketUser::getOrderNumber,
+                                OrderTicketUser::getOrderStatus)
+                        .eq(OrderTicketUser::getProgramId, programSeatOrderStatusDto.getProgramId())
+                        .in(OrderTicketUser::getSeatId, programSeatOrderStatusDto.getSeatIdList())
+                        .in(OrderTicketUser::getOrderStatus, OrderStatus.NO_PAY.getCode(), OrderStatus.PAY.getCode()));
+        Map<Long, SeatOrderStatusVo> seatOrderStatusVoMap = new HashMap<>(orderTicketUserList.size());
+        for (OrderTicketUser orderTicketUser : orderTicketUserList) {
+            SeatOrderStatusVo seatOrderStatusVo = seatOrderStatusVoMap.get(orderTicketUser.getSeatId());
+            if (Objects.nonNull(seatOrderStatusVo) &&
+                    Objects.equals(seatOrderStatusVo.getOrderStatus(), OrderStatus.PAY.getCode())) {
+                continue;
+            }
+            seatOrderStatusVo = new SeatOrderStatusVo();
+            seatOrderStatusVo.setSeatId(orderTicketUser.getSeatId());
+            seatOrderStatusVo.setOrderNumber(orderTicketUser.getOrderNumber());
+            seatOrderStatusVo.setOrderStatus(orderTicketUser.getOrderStatus());
+            seatOrderStatusVoMap.put(orderTicketUser.getSeatId(), seatOrderStatusVo);
+        }
+        return new ArrayList<>(seatOrderStatusVoMap.values());
+    }
+
+    /**
+     * 订单是否已存在，创建订单消息重复投递时用于幂等判断
+     *
+     * @param orderNumber 订单编号
+     * @return 是否存在
+     */
+    public boolean existOrder(Long orderNumber) {
+        return orderMapper.selectCount(Wrappers.lambdaQuery(Order.class).eq(Order::getOrderNumber, orderNumber)) > 0;
+    }
+
     @RepeatExecuteLimit(name = CREATE_PROGRAM_ORDER_MQ, keys = {"#orderCreateDto.orderNumber"})
     @Transactional(rollbackFor = Exception.class)
     public String createMq(OrderCreateDto orderCreateDto) {
-        String orderNumber = create(orderCreateDto);
+        // 延迟取消订单事件已经由节目服务和创建订单事件一起写入节目服务的发件箱
+        String orderNumber = String.valueOf(insertOrder(orderCreateDto).getOrderNumber());
         redisCache.set(RedisKeyBuild.createRedisKey(RedisKeyManage.ORDER_MQ, orderNumber), orderNumber, 1, TimeUnit.MINUTES);
         return orderNumber;
     }
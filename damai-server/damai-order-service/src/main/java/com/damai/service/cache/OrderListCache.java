@@ -0,0 +1,105 @@
+package com.damai.service.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.damai.core.RedisKeyManage;
+import com.damai.redis.RedisCache;
+import com.damai.redis.RedisKeyBuild;
+import com.damai.vo.OrderListVo;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 用户最近订单列表缓存
+ * 订单列表按游标分页，绝大多数请求只查询第一页，每个用户的第一页（最多maxPageSize条）缓存在redis中
+ * 第一页请求按pageSize从缓存中截取，翻页请求直接查询数据库
+ * 订单创建和状态变更时删除缓存，事务提交后再删除一次，防止事务提交前的并发查询把旧数据写回缓存
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class OrderListCache {
+
+    @Autowired
+    private RedisCache redisCache;
+
+    /**
+     * 不传pageSize时的每页数量
+     */
+    @Getter
+    @Value("${orderList.defaultPageSize:10}")
+    private int defaultPageSize;
+
+    /**
+     * 每页数量上限，也是缓存的订单数量
+     */
+    @Getter
+    @Value("${orderList.maxPageSize:20}")
+    private int maxPageSize;
+
+    /**
+     * 缓存时间（分钟）
+     */
+    @Value("${orderList.cacheExpireTime:10}")
+    private Long cacheExpireTime;
+
+    /**
+     * 计算实际的每页数量，限制在1到maxPageSize之间
+     *
+     * @param pageSize 请求的每页数量
+     * @return 每页数量
+     */
+    public int pageSize(Integer pageSize) {
+        if (Objects.isNull(pageSize) || pageSize <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(pageSize, maxPageSize);
+    }
+
+    /**
+     * 查询用户最近的订单，缓存不存在时从数据库加载
+     * 没有订单的用户缓存空集合，避免反复查询数据库
+     *
+     * @param userId   用户id
+     * @param supplier 从数据库加载最近maxPageSize条订单
+     * @return 最近的订单，按生成时间、订单编号降序
+     */
+    public List<OrderListVo> get(Long userId, Supplier<List<OrderListVo>> supplier) {
+        String cachedValue = redisCache.get(key(userId), String.class);
+        if (Objects.nonNull(cachedValue)) {
+            return JSON.parseArray(cachedValue, OrderListVo.class);
+        }
+        List<OrderListVo> orderListVoList = supplier.get();
+        redisCache.set(key(userId), orderListVoList, cacheExpireTime, TimeUnit.MINUTES);
+        return orderListVoList;
+    }
+
+    /**
+     * 删除用户的订单列表缓存，存在事务时在事务提交后再删除一次
+     *
+     * @param userId 用户id
+     */
+    public void evict(Long userId) {
+        redisCache.del(key(userId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    redisCache.del(key(userId));
+                }
+            });
+        }
+    }
+
+    private RedisKeyBuild key(Long userId) {
+        return RedisKeyBuild.createRedisKey(RedisKeyManage.ORDER_USER_RECENT_LIST, userId);
+    }
+}
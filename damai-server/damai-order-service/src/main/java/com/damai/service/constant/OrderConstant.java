@@ -11,6 +11,10 @@ public class OrderConstant {
     
     public static final String DELAY_ORDER_CANCEL_TOPIC ="d_delay_order_cancel_topic";
     
+    public static final Long DELAY_ORDER_CANCEL_TIME = 10L;
+    
+    public static final TimeUnit DELAY_ORDER_CANCEL_TIME_UNIT = TimeUnit.MINUTES;
+    
     public static final String DELAY_OPERATE_PROGRAM_DATA_TOPIC = "d_delay_operate_program_data_topic";
     
     public static final Long DELAY_OPERATE_PROGRAM_DATA_TIME = 1L;
@@ -3,7 +3,7 @@ package com.damai.service.delayconsumer;
 import com.alibaba.fastjson.JSON;
 import com.damai.core.SpringUtil;
 import com.damai.util.StringUtil;
-import com.damai.core.ConsumerTask;
+import com.damai.core.BatchConsumerTask;
 import com.damai.dto.DelayOrderCancelDto;
 import com.damai.dto.OrderCancelDto;
 import com.damai.service.OrderService;
@@ -11,17 +11,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 import static com.damai.service.constant.OrderConstant.DELAY_ORDER_CANCEL_TOPIC;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: 延迟订单取消消息的消费者组件
  * 负责监听延迟队列中的订单取消消息，在订单超时未支付时执行自动取消逻辑
+ * 一次拉取到的到期消息合并为一批，按节目和分片批量取消
  * @author: 阿星不是程序员
  **/
 @Slf4j
 @Component
-public class DelayOrderCancelConsumer implements ConsumerTask {
+public class DelayOrderCancelConsumer implements BatchConsumerTask {
 
     @Autowired
     private OrderService orderService;
@@ -54,6 +59,38 @@ public class DelayOrderCancelConsumer implements ConsumerTask {
         }
     }
 
+    /**
+     * 批量取消一次拉取到的到期订单，解析失败的消息记录日志后跳过
+     *
+     * @param contentList 消息内容集合
+     */
+    @Override
+    public void executeBatch(List<String> contentList) {
+        List<Long> orderNumberList = new ArrayList<>(contentList.size());
+        for (String content : contentList) {
+            if (StringUtil.isEmpty(content)) {
+                continue;
+            }
+            // 逐条解析，格式错误的消息只跳过它自己，不影响同一批的其他订单
+            try {
+                DelayOrderCancelDto delayOrderCancelDto = JSON.parseObject(content, DelayOrderCancelDto.class);
+                if (Objects.nonNull(delayOrderCancelDto) && Objects.nonNull(delayOrderCancelDto.getOrderNumber())) {
+                    orderNumberList.add(delayOrderCancelDto.getOrderNumber());
+                } else {
+                    log.error("延迟订单取消消息缺少订单编号 content : {}", content);
+                }
+            } catch (Exception e) {
+                log.error("延迟订单取消消息解析失败 content : {}", content, e);
+            }
+        }
+        if (orderNumberList.isEmpty()) {
+            log.error("延迟队列消息不存在");
+            return;
+        }
+        int cancelCount = orderService.batchCancel(orderNumberList);
+        log.info("延迟订单批量取消 size : {}, cancelCount : {}", orderNumberList.size(), cancelCount);
+    }
+
     /**
      * 定义当前消费者监听的消息主题
      *
@@ -22,13 +22,13 @@ public class DelayOperateProgramDataSend {
     @Autowired
     private DelayQueueContext delayQueueContext;
     
+    /**
+     * 发送延迟更新节目数据消息，由发件箱转发任务调用，发送失败时抛出异常，事件保留在发件箱中等待重试
+     *
+     * @param message 消息体
+     */
     public void sendMessage(String message){
-        try {
-            delayQueueContext.sendMessage(SpringUtil.getPrefixDistinctionName() + "-" + DELAY_OPERATE_PROGRAM_DATA_TOPIC,
-                    message, DELAY_OPERATE_PROGRAM_DATA_TIME, DELAY_OPERATE_PROGRAM_DATA_TIME_UNIT);
-        }catch (Exception e) {
-            log.error("send message error message : {}",message,e);
-        }
-        
+        delayQueueContext.sendMessage(SpringUtil.getPrefixDistinctionName() + "-" + DELAY_OPERATE_PROGRAM_DATA_TOPIC,
+                message, DELAY_OPERATE_PROGRAM_DATA_TIME, DELAY_OPERATE_PROGRAM_DATA_TIME_UNIT);
     }
 }
@@ -0,0 +1,35 @@
+package com.damai.service.delaysend;
+
+import com.damai.context.DelayQueueContext;
+import com.damai.core.SpringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.damai.service.constant.OrderConstant.DELAY_ORDER_CANCEL_TIME;
+import static com.damai.service.constant.OrderConstant.DELAY_ORDER_CANCEL_TIME_UNIT;
+import static com.damai.service.constant.OrderConstant.DELAY_ORDER_CANCEL_TOPIC;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 延迟取消订单发送（节目服务rpc创建的订单）
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class DelayOrderCancelSend {
+    
+    @Autowired
+    private DelayQueueContext delayQueueContext;
+    
+    /**
+     * 发送延迟取消订单消息，由发件箱转发任务调用，发送失败时抛出异常，事件保留在发件箱中等待重试
+     *
+     * @param message 消息体
+     */
+    public void sendMessage(String message){
+        log.info("延迟订单取消消息进行发送 消息体 : {}", message);
+        delayQueueContext.sendMessage(SpringUtil.getPrefixDistinctionName() + "-" + DELAY_ORDER_CANCEL_TOPIC,
+                message, DELAY_ORDER_CANCEL_TIME, DELAY_ORDER_CANCEL_TIME_UNIT);
+    }
+}
@@ -0,0 +1,258 @@
+package com.damai.service.expansion;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.damai.entity.Order;
+import com.damai.entity.OrderTicketUser;
+import com.damai.mapper.OrderMapper;
+import com.damai.mapper.OrderTicketUserMapper;
+import com.damai.shardingsphere.OrderGeneRouteTable;
+import com.damai.shardingsphere.OrderShardingExpansion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容的数据复制和清理
+ * 按主键顺序分批遍历原库，按扩容后的分库数量计算每个订单的新库，新库与原库不同的订单连同购票人订单复制到新库
+ * 同一批订单按基因分组处理，同一基因的订单在同一个库的同一张分表中，扩容后也是，in查询按第一个订单编号路由到的库表就是全部订单所在的库表
+ * 复制时已处于双写阶段：新订单和之后的修改会同时写入新库，已存在于新库的订单跳过；
+ * 查询新库和插入之间双写插入了同一个订单时逐行捕获主键冲突跳过，不影响同一批的其他订单；
+ * 插入后重新读取原库，插入前被修改过的订单再用原库数据覆盖新库，保证新库不会停留在旧数据上
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class OrderShardExpansionCopier {
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderTicketUserMapper orderTicketUserMapper;
+
+    @Lazy
+    @Autowired
+    private OrderShardExpansionCopier orderShardExpansionCopier;
+
+    /**
+     * 每批遍历的订单数量
+     */
+    @Value("${orderShardExpansion.batchSize:500}")
+    private int batchSize;
+
+    /**
+     * 把需要迁走的订单复制到新库
+     *
+     * @param targetShardingCount 扩容后的分库数量
+     * @param progress            每批复制后回调本次复制的订单数量
+     * @return 复制的订单数量
+     */
+    public long copy(int targetShardingCount, LongConsumer progress) {
+        OrderGeneRouteTable targetRouteTable = OrderShardingExpansion.routeTable(targetShardingCount);
+        long copiedCount = 0;
+        for (int sourceIndex = 0; sourceIndex < OrderShardingExpansion.getShardingCount(); sourceIndex++) {
+            final int source = sourceIndex;
+            long lastId = 0L;
+            List<Order> orderList;
+            while (CollectionUtil.isNotEmpty(orderList = selectBatch(source, lastId))) {
+                lastId = orderList.get(orderList.size() - 1).getId();
+                long batchCopiedCount = 0;
+                for (List<Order> geneOrderList : groupMovingOrders(orderList, source, targetRouteTable).values()) {
+                    int target = targetRouteTable.databaseIndex(geneOrderList.get(0).getOrderNumber());
+                    batchCopiedCount += copyGene(source, target, geneOrderList);
+                }
+                copiedCount += batchCopiedCount;
+                progress.accept(batchCopiedCount);
+            }
+            log.info("order shard expansion copy finished, source database : {}, copied order count : {}",
+                    source, copiedCount);
+        }
+        return copiedCount;
+    }
+
+    /**
+     * 删除原库中已迁到新库的订单和购票人订单，在所有实例都只读写新库之后执行
+     *
+     * @param targetShardingCount 扩容后的分库数量
+     * @param progress            每批删除后回调本次删除的订单数量
+     * @return 删除的订单数量
+     */
+    public long clean(int targetShardingCount, LongConsumer progress) {
+        OrderGeneRouteTable targetRouteTable = OrderShardingExpansion.routeTable(targetShardingCount);
+        long cleanedCount = 0;
+        for (int sourceIndex = 0; sourceIndex < OrderShardingExpansion.getShardingCount(); sourceIndex++) {
+            final int source = sourceIndex;
+            long lastId = 0L;
+            List<Order> orderList;
+            while (CollectionUtil.isNotEmpty(orderList = selectBatch(source, lastId))) {
+                lastId = orderList.get(orderList.size() - 1).getId();
+                long batchCleanedCount = 0;
+                for (List<Order> geneOrderList : groupMovingOrders(orderList, source, targetRouteTable).values()) {
+                    List<Long> orderNumberList = geneOrderList.stream().map(Order::getOrderNumber).toList();
+                    OrderShardingExpansion.onDatabase(source,
+                            () -> orderShardExpansionCopier.delete(orderNumberList));
+                    batchCleanedCount += orderNumberList.size();
+                }
+                cleanedCount += batchCleanedCount;
+                progress.accept(batchCleanedCount);
+            }
+            log.info("order shard expansion clean finished, source database : {}, cleaned order count : {}",
+                    source, cleanedCount);
+        }
+        return cleanedCount;
+    }
+
+    /**
+     * 在新库中逐行插入订单和购票人订单，调用前已通过OrderShardingExpansion.onDatabase指定新库
+     * 双写时订单和购票人订单在同一个事务中插入，订单主键冲突说明双写已插入，连同它的购票人订单一起跳过；
+     * mysql主键冲突只回滚当前语句，事务中已插入的其他行不受影响
+     *
+     * @return 实际插入的订单
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Order> insert(List<Order> orderList, List<OrderTicketUser> orderTicketUserList) {
+        Map<Long, List<OrderTicketUser>> orderTicketUserMap = orderTicketUserList.stream()
+                .collect(Collectors.groupingBy(OrderTicketUser::getOrderNumber));
+        List<Order> insertedOrderList = new ArrayList<>(orderList.size());
+        for (Order order : orderList) {
+            if (!insertIgnoreDuplicate(() -> orderMapper.insert(order), order.getOrderNumber())) {
+                continue;
+            }
+            for (OrderTicketUser orderTicketUser : orderTicketUserMap.getOrDefault(order.getOrderNumber(), List.of())) {
+                insertIgnoreDuplicate(() -> orderTicketUserMapper.insert(orderTicketUser), order.getOrderNumber());
+            }
+            insertedOrderList.add(order);
+        }
+        return insertedOrderList;
+    }
+
+    /**
+     * 插入一行，主键冲突时跳过
+     *
+     * @return 是否插入
+     */
+    private boolean insertIgnoreDuplicate(Runnable insert, Long orderNumber) {
+        try {
+            insert.run();
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.info("order shard expansion copy skip duplicate row, order number : {}", orderNumber);
+            return false;
+        }
+    }
+
+    /**
+     * 删除订单和购票人订单，调用前已通过OrderShardingExpansion.onDatabase指定原库
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Integer delete(List<Long> orderNumberList) {
+        orderTicketUserMapper.relDelOrderTicketUserByOrderNumbers(orderNumberList);
+        return orderMapper.relDelOrderByOrderNumbers(orderNumberList);
+    }
+
+    private List<Order> selectBatch(int source, long lastId) {
+        return OrderShardingExpansion.onDatabase(source, () -> orderMapper.selectList(Wrappers.lambdaQuery(Order.class)
+                .gt(Order::getId, lastId)
+                .orderByAsc(Order::getId)
+                .last("limit " + batchSize)));
+    }
+
+    /**
+     * 筛选出新库与原库不同的订单，按基因分组
+     */
+    private Map<Long, List<Order>> groupMovingOrders(List<Order> orderList, int source,
+                                                     OrderGeneRouteTable targetRouteTable) {
+        long geneMask = OrderShardingExpansion.geneMask();
+        return orderList.stream()
+                .filter(order -> targetRouteTable.databaseIndex(order.getOrderNumber()) != source)
+                .collect(Collectors.groupingBy(order -> order.getOrderNumber() & geneMask));
+    }
+
+    /**
+     * 复制同一基因的一组订单
+     *
+     * @return 复制的订单数量
+     */
+    private long copyGene(int source, int target, List<Order> geneOrderList) {
+        List<Long> orderNumberList = geneOrderList.stream().map(Order::getOrderNumber).toList();
+        Set<Long> existOrderNumberSet = OrderShardingExpansion.onDatabase(target, () -> orderMapper.selectList(
+                        Wrappers.lambdaQuery(Order.class).select(Order::getOrderNumber)
+                                .in(Order::getOrderNumber, orderNumberList)))
+                .stream().map(Order::getOrderNumber).collect(Collectors.toSet());
+        List<Order> insertOrderList = geneOrderList.stream()
+                .filter(order -> !existOrderNumberSet.contains(order.getOrderNumber())).toList();
+        if (CollectionUtil.isEmpty(insertOrderList)) {
+            return 0;
+        }
+        List<Long> insertOrderNumberList = insertOrderList.stream().map(Order::getOrderNumber).toList();
+        List<OrderTicketUser> orderTicketUserList = selectOrderTicketUserList(source, insertOrderNumberList);
+        List<Order> insertedOrderList = OrderShardingExpansion.onDatabase(target,
+                () -> orderShardExpansionCopier.insert(insertOrderList, orderTicketUserList));
+        if (CollectionUtil.isEmpty(insertedOrderList)) {
+            return 0;
+        }
+        resync(source, target, insertedOrderList);
+        return insertedOrderList.size();
+    }
+
+    /**
+     * 重新读取原库，读取原库到插入新库之间被修改的订单，用原库数据覆盖新库
+     */
+    private void resync(int source, int target, List<Order> insertOrderList) {
+        Map<Long, Order> insertOrderMap = insertOrderList.stream()
+                .collect(Collectors.toMap(Order::getOrderNumber, order -> order, (v1, v2) -> v2));
+        List<Order> sourceOrderList = OrderShardingExpansion.onDatabase(source, () -> orderMapper.selectList(
+                Wrappers.lambdaQuery(Order.class).in(Order::getOrderNumber, insertOrderMap.keySet())));
+        List<Order> changedOrderList = new ArrayList<>();
+        for (Order sourceOrder : sourceOrderList) {
+            Order insertOrder = insertOrderMap.get(sourceOrder.getOrderNumber());
+            if (!Objects.equals(insertOrder.getEditTime(), sourceOrder.getEditTime()) ||
+                    !Objects.equals(insertOrder.getOrderStatus(), sourceOrder.getOrderStatus())) {
+                changedOrderList.add(sourceOrder);
+            }
+        }
+        if (CollectionUtil.isEmpty(changedOrderList)) {
+            return;
+        }
+        List<OrderTicketUser> changedOrderTicketUserList = selectOrderTicketUserList(source,
+                changedOrderList.stream().map(Order::getOrderNumber).toList());
+        // 分片键不能出现在更新的字段中，只作为条件
+        OrderShardingExpansion.onDatabase(target, () -> {
+            for (Order order : changedOrderList) {
+                Long orderNumber = order.getOrderNumber();
+                order.setOrderNumber(null);
+                order.setUserId(null);
+                orderMapper.update(order, Wrappers.lambdaUpdate(Order.class).eq(Order::getOrderNumber, orderNumber));
+            }
+            for (OrderTicketUser orderTicketUser : changedOrderTicketUserList) {
+                Long orderNumber = orderTicketUser.getOrderNumber();
+                orderTicketUser.setOrderNumber(null);
+                orderTicketUser.setUserId(null);
+                orderTicketUserMapper.update(orderTicketUser, Wrappers.lambdaUpdate(OrderTicketUser.class)
+                        .eq(OrderTicketUser::getOrderNumber, orderNumber)
+                        .eq(OrderTicketUser::getId, orderTicketUser.getId()));
+            }
+            return changedOrderList.size();
+        });
+        log.info("order shard expansion resync changed orders, size : {}", changedOrderList.size());
+    }
+
+    private List<OrderTicketUser> selectOrderTicketUserList(int source, List<Long> orderNumberList) {
+        return OrderShardingExpansion.onDatabase(source, () -> orderTicketUserMapper.selectList(
+                Wrappers.lambdaQuery(OrderTicketUser.class).in(OrderTicketUser::getOrderNumber, orderNumberList)));
+    }
+}
@@ -0,0 +1,246 @@
+package com.damai.service.expansion;
+
+import com.damai.BusinessThreadPool;
+import com.damai.core.RedisKeyManage;
+import com.damai.dto.OrderShardExpansionStartDto;
+import com.damai.enums.BaseCode;
+import com.damai.enums.ShardingExpansionPhase;
+import com.damai.exception.DaMaiFrameException;
+import com.damai.redis.RedisCache;
+import com.damai.redis.RedisKeyBuild;
+import com.damai.shardingsphere.OrderShardingExpansion;
+import com.damai.vo.OrderShardExpansionVo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容
+ * 分库数量按2的幂次倍扩容（通常翻倍），库下标是基因中表下标之上的位与（库数量 - 1）位与的结果（见 OrderGeneRouteTable），
+ * 原库i中的订单只会留在i或迁到i+原库数量，并按基因均分；分表数量和基因位不变，已生成的订单编号仍然有效
+ * 扩容后的 库数量 x 表数量 不能超过基因数量（gene-count），否则会有分不到基因的库或表，开始扩容时拒绝
+ * 扩容前先在 shardingsphere-order-*.yaml 中声明新库的数据源和 actualDataNodes，sharding-count 保持原值，未启用的新库不会被访问
+ * 1. start：进入双写阶段，等待所有实例同步后后台复制存量数据
+ * 2. cutover：复制完成后切换读到新库，仍然双写，实例之间同步有先后时写入原库的数据也不会丢
+ * 3. finish：只读写新库，等待所有实例同步后删除原库中已迁走的数据
+ * 4. reset：把配置中的 sharding-count 改为扩容后的数量并重启后，回到未扩容阶段
+ * 扩容状态保存在redis中，每个实例定时读取并替换分库算法使用的路由状态
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Service
+public class OrderShardExpansionService {
+
+    @Autowired
+    private RedisCache redisCache;
+
+    @Autowired
+    private OrderShardExpansionCopier orderShardExpansionCopier;
+
+    /**
+     * 同步扩容状态的间隔（毫秒）
+     */
+    @Value("${orderShardExpansion.syncInterval:1000}")
+    private long syncInterval;
+
+    private ScheduledExecutorService scheduledExecutor;
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-shard-expansion-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.scheduleWithFixedDelay(this::sync, 0, syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledExecutor.shutdownNow();
+    }
+
+    /**
+     * 开始扩容：进入双写阶段，所有实例同步后开始复制存量数据
+     *
+     * @param orderShardExpansionStartDto 扩容后的分库数量
+     */
+    public void start(OrderShardExpansionStartDto orderShardExpansionStartDto) {
+        int shardingCount = OrderShardingExpansion.getShardingCount();
+        int targetShardingCount = orderShardExpansionStartDto.getTargetShardingCount();
+        if (targetShardingCount <= shardingCount || targetShardingCount % shardingCount != 0 ||
+                Integer.bitCount(targetShardingCount / shardingCount) != 1) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_EXPANSION_COUNT_ERROR);
+        }
+        // 每个新库的每张表都要能分到基因，否则扩容后会有空库空表，而其余库表仍然拆不开
+        if (!OrderShardingExpansion.routeTable(targetShardingCount).coverAll(OrderShardingExpansion.getGeneCount())) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_GENE_NOT_ENOUGH);
+        }
+        OrderShardExpansionState state = getState();
+        // 复制出错中断时，可以用相同的分库数量重新开始复制，已复制的订单会跳过
+        if (!(Objects.equals(state.getPhase(), ShardingExpansionPhase.DUAL_WRITE.getCode()) &&
+                Objects.equals(state.getTargetShardingCount(), targetShardingCount) &&
+                !Boolean.TRUE.equals(state.getCopyFinished()))) {
+            checkPhase(state, ShardingExpansionPhase.NONE);
+        }
+        state.setPhase(ShardingExpansionPhase.DUAL_WRITE.getCode());
+        state.setTargetShardingCount(targetShardingCount);
+        state.setCopyFinished(false);
+        state.setCopiedOrderCount(0L);
+        state.setCleanFinished(false);
+        state.setCleanedOrderCount(0L);
+        saveState(state);
+        BusinessThreadPool.execute(() -> copy(targetShardingCount));
+    }
+
+    /**
+     * 切换读：存量数据复制完成后，按扩容后的分库数量读
+     */
+    public void cutover() {
+        OrderShardExpansionState state = getState();
+        checkPhase(state, ShardingExpansionPhase.DUAL_WRITE);
+        if (!Boolean.TRUE.equals(state.getCopyFinished())) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_EXPANSION_COPY_NOT_FINISHED);
+        }
+        state.setPhase(ShardingExpansionPhase.CUTOVER.getCode());
+        saveState(state);
+    }
+
+    /**
+     * 完成扩容：只读写新库，所有实例同步后清理原库中已迁走的数据
+     */
+    public void finish() {
+        OrderShardExpansionState state = getState();
+        checkPhase(state, ShardingExpansionPhase.CUTOVER);
+        state.setPhase(ShardingExpansionPhase.FINISHED.getCode());
+        saveState(state);
+        BusinessThreadPool.execute(() -> clean(state.getTargetShardingCount()));
+    }
+
+    /**
+     * 配置中的分库数量改为扩容后的数量并重启后，回到未扩容阶段
+     */
+    public void reset() {
+        OrderShardExpansionState state = getState();
+        checkPhase(state, ShardingExpansionPhase.FINISHED);
+        if (!Boolean.TRUE.equals(state.getCleanFinished()) ||
+                !Objects.equals(state.getTargetShardingCount(), OrderShardingExpansion.getShardingCount())) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_EXPANSION_PHASE_ERROR);
+        }
+        redisCache.del(stateKey());
+        OrderShardingExpansion.update(ShardingExpansionPhase.NONE, null);
+    }
+
+    /**
+     * 查询扩容状态
+     *
+     * @return 扩容状态
+     */
+    public OrderShardExpansionVo status() {
+        OrderShardExpansionState state = getState();
+        OrderShardExpansionVo orderShardExpansionVo = new OrderShardExpansionVo();
+        orderShardExpansionVo.setPhase(state.getPhase());
+        orderShardExpansionVo.setShardingCount(OrderShardingExpansion.getShardingCount());
+        orderShardExpansionVo.setTargetShardingCount(state.getTargetShardingCount());
+        orderShardExpansionVo.setCopyFinished(state.getCopyFinished());
+        orderShardExpansionVo.setCopiedOrderCount(state.getCopiedOrderCount());
+        orderShardExpansionVo.setCleanFinished(state.getCleanFinished());
+        orderShardExpansionVo.setCleanedOrderCount(state.getCleanedOrderCount());
+        return orderShardExpansionVo;
+    }
+
+    private void copy(int targetShardingCount) {
+        try {
+            // 等待所有实例都进入双写后再复制，否则复制之后仍可能有实例只写原库
+            waitSync();
+            AtomicLong copiedOrderCount = new AtomicLong();
+            orderShardExpansionCopier.copy(targetShardingCount, count -> {
+                if (count > 0) {
+                    updateState(state -> state.setCopiedOrderCount(copiedOrderCount.addAndGet(count)));
+                }
+            });
+            updateState(state -> state.setCopyFinished(true));
+            log.info("order shard expansion copy finished, target sharding count : {}, copied order count : {}",
+                    targetShardingCount, copiedOrderCount.get());
+        } catch (Exception e) {
+            log.error("order shard expansion copy error, target sharding count : {}", targetShardingCount, e);
+        }
+    }
+
+    private void clean(int targetShardingCount) {
+        try {
+            // 等待所有实例都只读写新库后再删除原库的数据
+            waitSync();
+            AtomicLong cleanedOrderCount = new AtomicLong();
+            orderShardExpansionCopier.clean(targetShardingCount, count -> {
+                if (count > 0) {
+                    updateState(state -> state.setCleanedOrderCount(cleanedOrderCount.addAndGet(count)));
+                }
+            });
+            updateState(state -> state.setCleanFinished(true));
+            log.info("order shard expansion clean finished, target sharding count : {}, cleaned order count : {}",
+                    targetShardingCount, cleanedOrderCount.get());
+        } catch (Exception e) {
+            log.error("order shard expansion clean error, target sharding count : {}", targetShardingCount, e);
+        }
+    }
+
+    /**
+     * 从redis读取扩容状态，替换分库算法使用的路由状态
+     */
+    private void sync() {
+        try {
+            OrderShardExpansionState state = getState();
+            OrderShardingExpansion.update(ShardingExpansionPhase.getRc(state.getPhase()), state.getTargetShardingCount());
+        } catch (Exception e) {
+            log.warn("order shard expansion state sync error", e);
+        }
+    }
+
+    private void waitSync() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(syncInterval * 3);
+    }
+
+    private void checkPhase(OrderShardExpansionState state, ShardingExpansionPhase phase) {
+        if (!Objects.equals(state.getPhase(), phase.getCode())) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_EXPANSION_PHASE_ERROR);
+        }
+    }
+
+    private void updateState(Consumer<OrderShardExpansionState> consumer) {
+        OrderShardExpansionState state = getState();
+        consumer.accept(state);
+        redisCache.set(stateKey(), state);
+    }
+
+    private void saveState(OrderShardExpansionState state) {
+        redisCache.set(stateKey(), state);
+        OrderShardingExpansion.update(ShardingExpansionPhase.getRc(state.getPhase()), state.getTargetShardingCount());
+        log.info("order shard expansion phase changed, phase : {}, target sharding count : {}",
+                ShardingExpansionPhase.getMsg(state.getPhase()), state.getTargetShardingCount());
+    }
+
+    private OrderShardExpansionState getState() {
+        OrderShardExpansionState state = redisCache.get(stateKey(), OrderShardExpansionState.class);
+        if (Objects.isNull(state)) {
+            state = new OrderShardExpansionState();
+            state.setPhase(ShardingExpansionPhase.NONE.getCode());
+        }
+        return state;
+    }
+
+    private RedisKeyBuild stateKey() {
+        return RedisKeyBuild.createRedisKey(RedisKeyManage.ORDER_SHARD_EXPANSION_STATE);
+    }
+}
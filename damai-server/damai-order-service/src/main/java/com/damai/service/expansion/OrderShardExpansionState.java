@@ -0,0 +1,42 @@
+package com.damai.service.expansion;
+
+import lombok.Data;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容状态，保存在redis中，所有订单服务实例定时同步
+ * @author: 阿星不是程序员
+ **/
+@Data
+public class OrderShardExpansionState {
+
+    /**
+     * 扩容阶段 {@link com.damai.enums.ShardingExpansionPhase}
+     */
+    private Integer phase;
+
+    /**
+     * 扩容后的分库数量
+     */
+    private Integer targetShardingCount;
+
+    /**
+     * 存量数据是否复制完成
+     */
+    private Boolean copyFinished;
+
+    /**
+     * 已复制的订单数量
+     */
+    private Long copiedOrderCount;
+
+    /**
+     * 原库中已迁走的数据是否清理完成
+     */
+    private Boolean cleanFinished;
+
+    /**
+     * 已清理的订单数量
+     */
+    private Long cleanedOrderCount;
+}
@@ -42,17 +42,29 @@ public class CreateOrderConsumer {
                 
                 OrderCreateDto orderCreateDto = JSON.parseObject(value, OrderCreateDto.class);
                 
-                long createOrderTimeTimestamp = orderCreateDto.getCreateOrderTime().getTime();
-                
                 long currentTimeTimestamp = System.currentTimeMillis();
                 
-                long delayTime = currentTimeTimestamp - createOrderTimeTimestamp;
+                long delayTime = currentTimeTimestamp - orderCreateDto.getCreateOrderTime().getTime();
+                
+                // 创建订单消息由发件箱转发，请求链路在写入发件箱后就已经返回，过期时间从转发时kafka生产者发送消息的时间开始计算，
+                // 转发前在发件箱中等待的时间（包括转发失败重试的时间）不计入，避免已经返回给用户的订单因为转发延迟被丢弃
+                long sendTimestamp = consumerRecord.timestamp() >= 0 ? consumerRecord.timestamp() :
+                        orderCreateDto.getCreateOrderTime().getTime();
+                
+                long consumeDelayTime = currentTimeTimestamp - sendTimestamp;
                 
-                log.info("消费到kafka的创建订单消息 消息体: {} 延迟时间 : {} 毫秒",value,delayTime);
+                log.info("消费到kafka的创建订单消息 消息体: {} 延迟时间 : {} 毫秒 发送后延迟时间 : {} 毫秒",
+                        value,delayTime,consumeDelayTime);
+                
+                // 发件箱转发至少一次，重复投递的消息对应的订单已经创建，不能再按过期释放座位
+                if (orderService.existOrder(orderCreateDto.getOrderNumber())) {
+                    log.info("订单已存在 重复的创建订单消息跳过 订单号 : {}",orderCreateDto.getOrderNumber());
+                    return;
+                }
                 
-                if (currentTimeTimestamp - createOrderTimeTimestamp > MESSAGE_DELAY_TIME) {
-                    log.info("消费到kafka的创建订单消息延迟时间大于了 {} 毫秒 此订单消息被丢弃 订单号 : {}",
-                            delayTime,orderCreateDto.getOrderNumber());
+                if (consumeDelayTime > MESSAGE_DELAY_TIME) {
+                    log.info("消费到kafka的创建订单消息发送后延迟时间大于了 {} 毫秒 此订单消息被丢弃 订单号 : {}",
+                            consumeDelayTime,orderCreateDto.getOrderNumber());
                     Map<Long, List<OrderTicketUserCreateDto>> orderTicketUserSeatList =
                             orderCreateDto.getOrderTicketUserCreateDtoList().stream().collect(Collectors.groupingBy(OrderTicketUserCreateDto::getTicketCategoryId));
                     Map<Long,List<Long>> seatMap = new HashMap<>(orderTicketUserSeatList.size());
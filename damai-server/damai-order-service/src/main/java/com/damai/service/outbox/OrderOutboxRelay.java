@@ -0,0 +1,217 @@
+package com.damai.service.outbox;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.alibaba.fastjson.JSON;
+import com.damai.entity.OrderOutbox;
+import com.damai.enums.OrderStatus;
+import com.damai.enums.OutboxEventType;
+import com.damai.outbox.OutboxRelayMetrics;
+import com.damai.outbox.OutboxRetryPolicy;
+import com.damai.service.OrderOutboxService;
+import com.damai.service.OrderService;
+import com.damai.service.delaysend.DelayOperateProgramDataSend;
+import com.damai.service.delaysend.DelayOrderCancelSend;
+import com.damai.servicelock.LockType;
+import com.damai.util.DateUtils;
+import com.damai.util.ServiceLockTool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.damai.core.DistributedLockConstants.ORDER_OUTBOX_RELAY_LOCK;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单服务事务发件箱转发
+ * 定时逐个库按id顺序拉取待转发的事件：节目缓存变更事件执行座位和余票的变更脚本，支付后更新节目数据事件、延迟取消订单事件写入延迟队列，
+ * 转发成功的事件标记为已消费，失败的记录重试次数并按退避时间推迟到之后的调度重试，达到最大重试次数后转为失败状态
+ * 转发至少一次：脚本通过事件已执行标记幂等，节目服务对已售出的座位跳过
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class OrderOutboxRelay {
+
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DelayOperateProgramDataSend delayOperateProgramDataSend;
+
+    @Autowired
+    private DelayOrderCancelSend delayOrderCancelSend;
+
+    @Autowired
+    private ServiceLockTool serviceLockTool;
+
+    @Autowired
+    private OutboxRelayMetrics outboxRelayMetrics;
+
+    @Autowired
+    private OutboxRetryPolicy outboxRetryPolicy;
+
+    /**
+     * 转发间隔（毫秒）
+     */
+    @Value("${orderOutbox.interval:200}")
+    private long interval;
+
+    /**
+     * 每个库单批拉取的事件数量
+     */
+    @Value("${orderOutbox.batchSize:200}")
+    private int batchSize;
+
+    /**
+     * 每个库单次调度最多执行的批次，积压时连续拉取，避免一次调度占用过久
+     */
+    @Value("${orderOutbox.maxBatchCount:20}")
+    private int maxBatchCount;
+
+    /**
+     * 已转发事件的保留天数
+     */
+    @Value("${orderOutbox.retainDays:3}")
+    private int retainDays;
+
+    private ScheduledExecutorService scheduledExecutor;
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.scheduleWithFixedDelay(this::execute, interval, interval, TimeUnit.MILLISECONDS);
+        scheduledExecutor.scheduleWithFixedDelay(this::purge, 1, 24, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledExecutor.shutdownNow();
+    }
+
+    /**
+     * 多实例部署时只需要一个实例执行，拿不到锁的实例直接跳过本次调度
+     */
+    public void execute() {
+        RLock lock = serviceLockTool.getLock(LockType.Reentrant, ORDER_OUTBOX_RELAY_LOCK);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            for (int databaseIndex = 0; databaseIndex < orderOutboxService.databaseCount(); databaseIndex++) {
+                for (int i = 0; i < maxBatchCount; i++) {
+                    if (relayBatch(databaseIndex) < batchSize) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("order outbox relay error", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 物理删除已转发的事件
+     */
+    public void purge() {
+        try {
+            for (int databaseIndex = 0; databaseIndex < orderOutboxService.databaseCount(); databaseIndex++) {
+                int count = orderOutboxService.purgeConsumed(databaseIndex,
+                        DateUtils.addDay(DateUtils.now(), -retainDays));
+                log.info("order outbox purge database : {} count : {}", databaseIndex, count);
+            }
+        } catch (Exception e) {
+            log.error("order outbox purge error", e);
+        }
+    }
+
+    /**
+     * 转发指定库中的一批事件
+     *
+     * @param databaseIndex 库下标
+     * @return 本批拉取到的事件数量
+     */
+    public int relayBatch(int databaseIndex) {
+        List<OrderOutbox> outboxList = orderOutboxService.selectPending(databaseIndex, batchSize);
+        if (CollectionUtil.isEmpty(outboxList)) {
+            return 0;
+        }
+        List<Long> idList = new ArrayList<>(outboxList.size());
+        for (OrderOutbox orderOutbox : outboxList) {
+            OutboxEventType eventType = OutboxEventType.getRc(orderOutbox.getEventType());
+            try {
+                if (eventType == OutboxEventType.PROGRAM_CACHE_REVERSE) {
+                    ProgramCacheReverseEvent event =
+                            JSON.parseObject(orderOutbox.getPayload(), ProgramCacheReverseEvent.class);
+                    orderService.updateProgramRelatedDataResolution(event.getProgramId(), event.getSeatMap(),
+                            OrderStatus.getRc(event.getOrderStatus()), orderOutbox.getId());
+                } else if (eventType == OutboxEventType.DELAY_OPERATE_PROGRAM_DATA) {
+                    delayOperateProgramDataSend.sendMessage(orderOutbox.getPayload());
+                } else if (eventType == OutboxEventType.DELAY_ORDER_CANCEL) {
+                    delayOrderCancelSend.sendMessage(orderOutbox.getPayload());
+                } else {
+                    // 未知的事件类型不会被任何一方处理，直接消费掉，避免一直阻塞在发件箱中
+                    log.error("order outbox unknown event type id : {} eventType : {}",
+                            orderOutbox.getId(), orderOutbox.getEventType());
+                    idList.add(orderOutbox.getId());
+                    continue;
+                }
+                idList.add(orderOutbox.getId());
+                outboxRelayMetrics.recordSuccess(eventType, orderOutbox.getCreateTime());
+            } catch (Exception e) {
+                log.error("order outbox relay event error id : {} eventType : {}", orderOutbox.getId(),
+                        orderOutbox.getEventType(), e);
+                if (Objects.nonNull(eventType)) {
+                    outboxRelayMetrics.recordError(eventType);
+                }
+                retry(databaseIndex, orderOutbox, eventType);
+            }
+        }
+        if (CollectionUtil.isNotEmpty(idList)) {
+            orderOutboxService.markConsumed(databaseIndex, idList);
+        }
+        return outboxList.size();
+    }
+
+    /**
+     * 记录一次转发失败，推迟下次转发时间，达到最大重试次数时转为失败状态
+     * 记录失败时事件保持原来的下次转发时间，下次调度仍会拉取到
+     */
+    private void retry(int databaseIndex, OrderOutbox orderOutbox, OutboxEventType eventType) {
+        int retryCount = (Objects.isNull(orderOutbox.getRetryCount()) ? 0 : orderOutbox.getRetryCount()) + 1;
+        boolean failed = outboxRetryPolicy.exhausted(retryCount);
+        try {
+            orderOutboxService.markRetry(databaseIndex, orderOutbox.getId(), retryCount,
+                    outboxRetryPolicy.nextRetryTime(DateUtils.now(), retryCount), failed);
+        } catch (Exception e) {
+            log.error("order outbox mark retry error id : {}", orderOutbox.getId(), e);
+            return;
+        }
+        if (failed) {
+            log.error("order outbox event failed id : {} eventType : {} retryCount : {}", orderOutbox.getId(),
+                    orderOutbox.getEventType(), retryCount);
+            if (Objects.nonNull(eventType)) {
+                outboxRelayMetrics.recordFailed(eventType);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.damai.service.outbox;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 节目缓存座位和余票变更事件
+ * @author: 阿星不是程序员
+ **/
+@Data
+public class ProgramCacheReverseEvent {
+    
+    /**
+     * 节目id
+     * */
+    private Long programId;
+    
+    /**
+     * 票档id -> 座位id集合
+     * */
+    private Map<Long, List<Long>> seatMap;
+    
+    /**
+     * 订单状态 2:已取消 3:已支付
+     * */
+    private Integer orderStatus;
+}
@@ -0,0 +1,136 @@
+package com.damai.service.outbox;
+
+import com.damai.entity.OrderOutbox;
+import com.damai.enums.OutboxEventType;
+import com.damai.outbox.OutboxRelayMetrics;
+import com.damai.outbox.OutboxRetryPolicy;
+import com.damai.service.OrderOutboxService;
+import com.damai.service.OrderService;
+import com.damai.service.delaysend.DelayOperateProgramDataSend;
+import com.damai.service.delaysend.DelayOrderCancelSend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单服务事务发件箱转发测试
+ * @author: 阿星不是程序员
+ **/
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxRelayTest {
+
+    private static final int DATABASE_INDEX = 1;
+
+    private static final int MAX_RETRY_COUNT = 3;
+
+    private static final long RETRY_INTERVAL = 1000L;
+
+    @Mock
+    private OrderOutboxService orderOutboxService;
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private DelayOperateProgramDataSend delayOperateProgramDataSend;
+
+    @Mock
+    private DelayOrderCancelSend delayOrderCancelSend;
+
+    @Mock
+    private OutboxRelayMetrics outboxRelayMetrics;
+
+    @Spy
+    private OutboxRetryPolicy outboxRetryPolicy = new OutboxRetryPolicy(MAX_RETRY_COUNT, RETRY_INTERVAL, 60000L);
+
+    @InjectMocks
+    private OrderOutboxRelay orderOutboxRelay;
+
+    @Test
+    void relayedAndUnknownEventsAreMarkedConsumed() {
+        when(orderOutboxService.selectPending(eq(DATABASE_INDEX), anyInt())).thenReturn(List.of(
+                outbox(1L, OutboxEventType.DELAY_OPERATE_PROGRAM_DATA.getCode(), 0),
+                outbox(2L, OutboxEventType.DELAY_ORDER_CANCEL.getCode(), 0),
+                outbox(3L, 99, 0)));
+
+        assertEquals(3, orderOutboxRelay.relayBatch(DATABASE_INDEX));
+
+        verify(delayOperateProgramDataSend).sendMessage("payload-1");
+        verify(delayOrderCancelSend).sendMessage("payload-2");
+        verify(orderOutboxService).markConsumed(DATABASE_INDEX, List.of(1L, 2L, 3L));
+        verify(orderOutboxService, never()).markRetry(anyInt(), anyLong(), anyInt(), any(), anyBoolean());
+    }
+
+    @Test
+    void failedEventIsRescheduledWithBackoffAndNotConsumed() {
+        when(orderOutboxService.selectPending(eq(DATABASE_INDEX), anyInt())).thenReturn(List.of(
+                outbox(1L, OutboxEventType.DELAY_OPERATE_PROGRAM_DATA.getCode(), 1),
+                outbox(2L, OutboxEventType.DELAY_OPERATE_PROGRAM_DATA.getCode(), 0)));
+        doThrow(new IllegalStateException("send error")).when(delayOperateProgramDataSend).sendMessage("payload-1");
+        long start = System.currentTimeMillis();
+
+        orderOutboxRelay.relayBatch(DATABASE_INDEX);
+
+        ArgumentCaptor<Date> nextRetryTime = ArgumentCaptor.forClass(Date.class);
+        verify(orderOutboxService).markRetry(eq(DATABASE_INDEX), eq(1L), eq(2), nextRetryTime.capture(), eq(false));
+        // 第二次失败按 重试间隔 x 2 退避
+        assertTrue(nextRetryTime.getValue().getTime() >= start + RETRY_INTERVAL * 2);
+        verify(orderOutboxService).markConsumed(DATABASE_INDEX, List.of(2L));
+        verify(outboxRelayMetrics).recordError(OutboxEventType.DELAY_OPERATE_PROGRAM_DATA);
+        verify(outboxRelayMetrics, never()).recordFailed(any());
+    }
+
+    @Test
+    void eventReachingMaxRetryCountIsMarkedFailed() {
+        when(orderOutboxService.selectPending(eq(DATABASE_INDEX), anyInt())).thenReturn(List.of(
+                outbox(1L, OutboxEventType.DELAY_OPERATE_PROGRAM_DATA.getCode(), MAX_RETRY_COUNT - 1)));
+        doThrow(new IllegalStateException("send error")).when(delayOperateProgramDataSend).sendMessage("payload-1");
+
+        orderOutboxRelay.relayBatch(DATABASE_INDEX);
+
+        verify(orderOutboxService).markRetry(eq(DATABASE_INDEX), eq(1L), eq(MAX_RETRY_COUNT), any(Date.class), eq(true));
+        verify(orderOutboxService, never()).markConsumed(anyInt(), any());
+        verify(outboxRelayMetrics).recordFailed(OutboxEventType.DELAY_OPERATE_PROGRAM_DATA);
+    }
+
+    @Test
+    void emptyBatchDoesNothing() {
+        when(orderOutboxService.selectPending(eq(DATABASE_INDEX), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, orderOutboxRelay.relayBatch(DATABASE_INDEX));
+
+        verify(orderOutboxService, never()).markConsumed(anyInt(), any());
+    }
+
+    private OrderOutbox outbox(Long id, Integer eventType, int retryCount) {
+        OrderOutbox orderOutbox = new OrderOutbox();
+        orderOutbox.setId(id);
+        orderOutbox.setOrderNumber(id * 100);
+        orderOutbox.setProgramId(10L);
+        orderOutbox.setEventType(eventType);
+        orderOutbox.setPayload("payload-" + id);
+        orderOutbox.setRetryCount(retryCount);
+        orderOutbox.setCreateTime(new Date());
+        return orderOutbox;
+    }
+}
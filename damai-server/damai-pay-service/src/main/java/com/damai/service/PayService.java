@@ -3,8 +3,6 @@ package com.damai.service;
 import cn.hutool.core.bean.BeanUtil;
 import com.alibaba.fastjson.JSON;
 import com.baidu.fsg.uid.UidGenerator;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.damai.dto.NotifyDto;
 import com.damai.dto.PayBillDto;
@@ -23,6 +21,7 @@ import com.damai.pay.PayStrategyContext;
 import com.damai.pay.PayStrategyHandler;
 import com.damai.pay.RefundResult;
 import com.damai.pay.TradeResult;
+import com.damai.service.cache.PayBillCache;
 import com.damai.servicelock.annotion.ServiceLock;
 import com.damai.util.DateUtils;
 import com.damai.vo.NotifyVo;
@@ -30,6 +29,7 @@ import com.damai.vo.PayBillVo;
 import com.damai.vo.TradeCheckVo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -63,6 +63,13 @@ public class PayService {
     @Autowired
     private UidGenerator uidGenerator;
 
+    @Autowired
+    private PayBillCache payBillCache;
+
+    @Lazy
+    @Autowired
+    private PayService payService;
+
     /**
      * 通用支付处理方法
      * 同一处理不同支付渠道的支付请求，通过订单号加锁防止重复支付，不依赖第三方支付的幂等性保障
@@ -73,10 +80,8 @@ public class PayService {
     @ServiceLock(name = COMMON_PAY, keys = {"#payDto.orderNumber"})
     @Transactional(rollbackFor = Exception.class)
     public String commonPay(PayDto payDto) {
-        // 根据订单号查询支付账单是否已有支付记录
-        LambdaQueryWrapper<PayBill> payBillLambdaQueryWrapper =
-                Wrappers.lambdaQuery(PayBill.class).eq(PayBill::getOutOrderNo, payDto.getOrderNumber());
-        PayBill payBill = payBillMapper.selectOne(payBillLambdaQueryWrapper);
+        // 根据订单号加锁查询支付账单是否已有支付记录，以数据库为准
+        PayBill payBill = payBillCache.getFromDbForUpdate(String.valueOf(payDto.getOrderNumber()));
         // 如果支付账单存在，并且支付状态不为“未支付”，则抛出异常
         if (Objects.nonNull(payBill) && !Objects.equals(payBill.getPayBillStatus(), PayBillStatus.NO_PAY.getCode())) {
             throw new DaMaiFrameException(BaseCode.PAY_BILL_IS_NOT_NO_PAY);
@@ -105,6 +110,7 @@ public class PayService {
             payBill.setPayBillStatus(PayBillStatus.NO_PAY.getCode());  // 设置账单状态为“未支付”
             payBill.setPayTime(DateUtils.now());  // 设置支付时间
             payBillMapper.insert(payBill);  // 插入支付账单信息到数据库
+            payBillCache.put(payBill);  // 事务提交后写入账单缓存
         }
         // 返回支付结果
         return pay.getBody();
@@ -134,10 +140,8 @@ public class PayService {
             // 直接返回失败结果，支付渠道会重试通知
             return notifyVo;
         }
-        // 根据回调参数中的订单号（out_trade_no）查询系统中的支付账单记录
-        LambdaQueryWrapper<PayBill> payBillLambdaQueryWrapper =
-                Wrappers.lambdaQuery(PayBill.class).eq(PayBill::getOutOrderNo, params.get("out_trade_no"));
-        PayBill payBill = payBillMapper.selectOne(payBillLambdaQueryWrapper);
+        // 根据回调参数中的订单号（out_trade_no）加锁查询系统中的支付账单记录，以数据库为准
+        PayBill payBill = payBillCache.getFromDbForUpdate(params.get("out_trade_no"));
         // 账单是否存在，不存在则返回失败
         if (Objects.isNull(payBill)) {
             log.error("账单为空 notifyDto : {}", JSON.toJSONString(notifyDto));
@@ -174,13 +178,11 @@ public class PayService {
             notifyVo.setPayResult(ALIPAY_NOTIFY_FAILURE_RESULT);
             return notifyVo;
         }
-        // 验证通过，更新支付账单状态为“已支付”
-        PayBill updatePayBill = new PayBill();
-        updatePayBill.setPayBillStatus(PayBillStatus.PAY.getCode());
-        // 根据订单号更新数据库
-        LambdaUpdateWrapper<PayBill> payBillLambdaUpdateWrapper =
-                Wrappers.lambdaUpdate(PayBill.class).eq(PayBill::getOutOrderNo, params.get("out_trade_no"));
-        payBillMapper.update(updatePayBill, payBillLambdaUpdateWrapper);
+        // 验证通过，将支付账单状态变更为“已支付”（账单已加锁，变更失败时返回失败，支付渠道会重试通知）
+        if (!transferStatus(payBill, PayBillStatus.PAY)) {
+            notifyVo.setPayResult(ALIPAY_NOTIFY_FAILURE_RESULT);
+            return notifyVo;
+        }
         // 封装成功结果并返回
         notifyVo.setOutTradeNo(payBill.getOutOrderNo());  // 携带订单号返回
         notifyVo.setPayResult(ALIPAY_NOTIFY_SUCCESS_RESULT);   // 告知支付渠道处理成功
@@ -190,13 +192,33 @@ public class PayService {
     /**
      * 校验订单在支付渠道中的实际交易状态，并同步更新系统内支付账单状态
      * 作为主动查询支付状态的核心方法，确保系统内支付账单状态与第三方支付平台一致
+     * 前端支付后会轮询此方法，账单已是终态（已支付、已退单）时直接返回缓存中的账单状态，不加锁也不调用支付渠道
+     *
+     * @param tradeCheckDto 交易查询参数
+     * @return TradeCheckVo 交易状态查询结果
+     */
+    public TradeCheckVo tradeCheck(TradeCheckDto tradeCheckDto) {
+        PayBill payBill = payBillCache.get(tradeCheckDto.getOutTradeNo());
+        if (Objects.nonNull(payBill) && PayBillStatus.isFinal(payBill.getPayBillStatus())) {
+            TradeCheckVo tradeCheckVo = new TradeCheckVo();
+            tradeCheckVo.setSuccess(true);
+            tradeCheckVo.setOutTradeNo(payBill.getOutOrderNo());
+            tradeCheckVo.setPayBillStatus(payBill.getPayBillStatus());
+            tradeCheckVo.setTotalAmount(payBill.getPayAmount());
+            return tradeCheckVo;
+        }
+        return payService.tradeCheckWithLock(tradeCheckDto);
+    }
+
+    /**
+     * 加锁查询支付渠道的交易状态，并同步更新系统内支付账单状态
      *
      * @param tradeCheckDto 交易查询参数
      * @return TradeCheckVo 交易状态查询结果
      */
     @Transactional(rollbackFor = Exception.class)
     @ServiceLock(name = TRADE_CHECK, keys = {"#tradeCheckDto.outTradeNo"})
-    public TradeCheckVo tradeCheck(TradeCheckDto tradeCheckDto) {
+    public TradeCheckVo tradeCheckWithLock(TradeCheckDto tradeCheckDto) {
         // 初始化交易状态查询结果对象
         TradeCheckVo tradeCheckVo = new TradeCheckVo();
         // 根据支付渠道获取对应的策略处理器
@@ -213,10 +235,8 @@ public class PayService {
         BigDecimal totalAmount = tradeResult.getTotalAmount();  // 第三方记录的支付金额
         String outTradeNo = tradeResult.getOutTradeNo();   // 订单号
         Integer payBillStatus = tradeResult.getPayBillStatus();   // 第三方记录的支付状态（如"已支付"）
-        // 根据订单号查询系统内对应的支付单记录
-        LambdaQueryWrapper<PayBill> payBillLambdaQueryWrapper =
-                Wrappers.lambdaQuery(PayBill.class).eq(PayBill::getOutOrderNo, outTradeNo);
-        PayBill payBill = payBillMapper.selectOne(payBillLambdaQueryWrapper);
+        // 根据订单号加锁查询系统内对应的支付单记录（以数据库为准）
+        PayBill payBill = payBillCache.getFromDbForUpdate(outTradeNo);
         // 账单是否存在，不存在则返回失败
         if (Objects.isNull(payBill)) {
             log.error("账单为空 tradeCheckDto : {}", JSON.toJSONString(tradeCheckDto));
@@ -232,14 +252,11 @@ public class PayService {
         if (!Objects.equals(payBill.getPayBillStatus(), payBillStatus)) {
             log.warn("支付渠道和库中账单交易状态不一致 支付渠道payBillStatus : {}, 库中payBillStatus : {}, tradeCheckDto : {}",
                     payBillStatus, payBill.getPayBillStatus(), JSON.toJSONString(tradeCheckDto));
-            // 构建更新对象，设置目标状态
-            PayBill updatePayBill = new PayBill();
-            updatePayBill.setId(payBill.getId());  // 支付单ID（用于定位记录）
-            updatePayBill.setPayBillStatus(payBillStatus);  // 同步为第三方返回的状态
-            // 执行更新操作（按订单号条件）
-            LambdaUpdateWrapper<PayBill> payBillLambdaUpdateWrapper =
-                    Wrappers.lambdaUpdate(PayBill.class).eq(PayBill::getOutOrderNo, outTradeNo);
-            payBillMapper.update(updatePayBill, payBillLambdaUpdateWrapper);
+            // 按状态机同步为第三方返回的状态
+            PayBillStatus targetPayBillStatus = PayBillStatus.getRc(payBillStatus);
+            if (Objects.nonNull(targetPayBillStatus)) {
+                transferStatus(payBill, targetPayBillStatus);
+            }
         }
         // 返回包含最新状态的查询结果
         return tradeCheckVo;
@@ -248,14 +265,16 @@ public class PayService {
     /**
      * 处理订单退款请求的核心方法
      * 负责校验退款条件、调用支付渠道的退款接口，并记录退款单信息
+     * 在事务中加锁读取账单，先把账单状态变更为已退单再调用支付渠道退款，渠道退款失败时抛出异常回滚状态，
+     * 不会出现渠道已退款而账单仍为已支付的情况；并发的重复退款请求在行锁上等待，之后读到已退单直接失败
      *
      * @param refundDto 退款请求参数
      * @return String 退款单关联的订单号
      */
+    @Transactional(rollbackFor = Exception.class)
     public String refund(RefundDto refundDto) {
-        // 根据订单号查询对应的支付账单记录
-        PayBill payBill = payBillMapper.selectOne(Wrappers.lambdaQuery(PayBill.class)
-                .eq(PayBill::getOutOrderNo, refundDto.getOrderNumber()));
+        // 根据订单号加锁查询对应的支付账单记录，以数据库为准
+        PayBill payBill = payBillCache.getFromDbForUpdate(refundDto.getOrderNumber());
         // 如果支付账单不存在，抛出异常
         if (Objects.isNull(payBill)) {
             throw new DaMaiFrameException(BaseCode.PAY_BILL_NOT_EXIST);
@@ -268,6 +287,10 @@ public class PayService {
         if (refundDto.getAmount().compareTo(payBill.getPayAmount()) > 0) {
             throw new DaMaiFrameException(BaseCode.REFUND_AMOUNT_GREATER_THAN_PAY_AMOUNT);
         }
+        // 先将支付账单状态变更为“已退单”，变更失败时不调用支付渠道
+        if (!transferStatus(payBill, PayBillStatus.REFUND)) {
+            throw new DaMaiFrameException(BaseCode.PAY_BILL_IS_NOT_PAY_STATUS);
+        }
         // 根据支付渠道（如"alipay"）获取对应的支付策略处理器
         PayStrategyHandler payStrategyHandler = payStrategyContext.get(refundDto.getChannel());
         // 调用支付渠道的退款接口（如支付宝的退款API）
@@ -276,24 +299,23 @@ public class PayService {
                 refundDto.getAmount(),   // 退款金额
                 refundDto.getReason()   // 退款原因
         );
-        // 处理退款结果
-        if (refundResult.isSuccess()) {
-            // 如果退款成功，创建退款单记录，保存退款信息
-            RefundBill refundBill = new RefundBill();
-            refundBill.setId(uidGenerator.getUid());  // 生成唯一ID
-            refundBill.setOutOrderNo(payBill.getOutOrderNo());  // 关联的订单号
-            refundBill.setPayBillId(payBill.getId());   // 关联的支付单ID
-            refundBill.setRefundAmount(refundDto.getAmount());   // 退款金额
-            refundBill.setRefundStatus(1);   // 退款状态
-            refundBill.setRefundTime(DateUtils.now());   // 退款时间
-            refundBill.setReason(refundDto.getReason());   // 退款原因
-            // 将退款单插入数据库
-            refundBillMapper.insert(refundBill);
-            // 返回订单号，标识退款成功
-            return refundBill.getOutOrderNo();
-        } else {
+        // 退款失败时抛出异常，账单状态随事务回滚为已支付
+        if (!refundResult.isSuccess()) {
             throw new DaMaiFrameException(refundResult.getMessage());
         }
+        // 退款成功，创建退款单记录，保存退款信息
+        RefundBill refundBill = new RefundBill();
+        refundBill.setId(uidGenerator.getUid());  // 生成唯一ID
+        refundBill.setOutOrderNo(payBill.getOutOrderNo());  // 关联的订单号
+        refundBill.setPayBillId(payBill.getId());   // 关联的支付单ID
+        refundBill.setRefundAmount(refundDto.getAmount());   // 退款金额
+        refundBill.setRefundStatus(1);   // 退款状态
+        refundBill.setRefundTime(DateUtils.now());   // 退款时间
+        refundBill.setReason(refundDto.getReason());   // 退款原因
+        // 将退款单插入数据库
+        refundBillMapper.insert(refundBill);
+        // 返回订单号，标识退款成功
+        return refundBill.getOutOrderNo();
     }
 
     /**
@@ -305,12 +327,43 @@ public class PayService {
     public PayBillVo detail(PayBillDto payBillDto) {
         PayBillVo payBillVo = new PayBillVo();
         // 根据订单号查询支付账单详情
-        LambdaQueryWrapper<PayBill> payBillLambdaQueryWrapper =
-                Wrappers.lambdaQuery(PayBill.class).eq(PayBill::getOutOrderNo, payBillDto.getOrderNumber());
-        PayBill payBill = payBillMapper.selectOne(payBillLambdaQueryWrapper);
+        PayBill payBill = payBillCache.get(payBillDto.getOrderNumber());
         if (Objects.nonNull(payBill)) {
             BeanUtil.copyProperties(payBill, payBillVo);
         }
         return payBillVo;
     }
+
+    /**
+     * 按状态机变更支付账单状态
+     * 调用方已通过 select ... for update 锁住账单，UPDATE ... WHERE pay_bill_status = 当前状态 的条件更新作为兜底，
+     * 更新行数为0说明账单已被并发修改
+     * 变更前删除账单缓存，变更成功后写入新的账单
+     *
+     * @param payBill 当前的支付账单
+     * @param target  目标状态
+     * @return 是否变更成功
+     */
+    private boolean transferStatus(PayBill payBill, PayBillStatus target) {
+        PayBillStatus current = PayBillStatus.getRc(payBill.getPayBillStatus());
+        if (Objects.isNull(current) || !current.canTransferTo(target)) {
+            log.warn("账单状态不允许变更 outOrderNo : {}, 当前状态 : {}, 目标状态 : {}",
+                    payBill.getOutOrderNo(), payBill.getPayBillStatus(), target.getCode());
+            return false;
+        }
+        payBillCache.evict(payBill.getOutOrderNo());
+        PayBill updatePayBill = new PayBill();
+        updatePayBill.setPayBillStatus(target.getCode());
+        int count = payBillMapper.update(updatePayBill, Wrappers.lambdaUpdate(PayBill.class)
+                .eq(PayBill::getOutOrderNo, payBill.getOutOrderNo())
+                .eq(PayBill::getPayBillStatus, current.getCode()));
+        if (count == 0) {
+            log.warn("账单状态已被并发修改 outOrderNo : {}, 期望状态 : {}, 目标状态 : {}",
+                    payBill.getOutOrderNo(), current.getCode(), target.getCode());
+            return false;
+        }
+        payBill.setPayBillStatus(target.getCode());
+        payBillCache.put(payBill);
+        return true;
+    }
 }
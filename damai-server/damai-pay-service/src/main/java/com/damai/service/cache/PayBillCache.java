@@ -0,0 +1,115 @@
+package com.damai.service.cache;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.damai.core.RedisKeyManage;
+import com.damai.entity.PayBill;
+import com.damai.mapper.PayBillMapper;
+import com.damai.redis.RedisCache;
+import com.damai.redis.RedisKeyBuild;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 支付账单缓存
+ * 支付后前端会轮询支付状态，账单按订单号缓存在redis中，查询不再访问数据库
+ * 账单状态每次变更时先删除缓存，事务提交后再写入新的账单（写穿），事务回滚时缓存保持删除，下次查询从数据库加载
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class PayBillCache {
+
+    @Autowired
+    private PayBillMapper payBillMapper;
+
+    @Autowired
+    private RedisCache redisCache;
+
+    /**
+     * 账单缓存时间（分钟）
+     */
+    @Value("${payBill.cacheExpireTime:30}")
+    private Long cacheExpireTime;
+
+    /**
+     * 根据订单号查询账单，缓存不存在时从数据库加载
+     *
+     * @param outOrderNo 订单号
+     * @return 支付账单，不存在返回null
+     */
+    public PayBill get(String outOrderNo) {
+        PayBill payBill = redisCache.get(key(outOrderNo), PayBill.class);
+        if (Objects.nonNull(payBill)) {
+            return payBill;
+        }
+        payBill = getFromDb(outOrderNo);
+        if (Objects.nonNull(payBill)) {
+            redisCache.set(key(outOrderNo), payBill, cacheExpireTime, TimeUnit.MINUTES);
+        }
+        return payBill;
+    }
+
+    /**
+     * 直接从数据库查询账单
+     *
+     * @param outOrderNo 订单号
+     * @return 支付账单，不存在返回null
+     */
+    public PayBill getFromDb(String outOrderNo) {
+        return payBillMapper.selectOne(Wrappers.lambdaQuery(PayBill.class).eq(PayBill::getOutOrderNo, outOrderNo));
+    }
+
+    /**
+     * 从数据库查询账单并加行锁（select ... for update），需要在事务中调用，事务结束前其他修改该账单的事务会等待
+     * 支付、回调、退款以加锁读到的账单状态为准，不使用可能过期的缓存
+     *
+     * @param outOrderNo 订单号
+     * @return 支付账单，不存在返回null
+     */
+    public PayBill getFromDbForUpdate(String outOrderNo) {
+        return payBillMapper.selectOne(Wrappers.lambdaQuery(PayBill.class)
+                .eq(PayBill::getOutOrderNo, outOrderNo)
+                .last("for update"));
+    }
+
+    /**
+     * 删除账单缓存，在修改账单前调用
+     *
+     * @param outOrderNo 订单号
+     */
+    public void evict(String outOrderNo) {
+        redisCache.del(key(outOrderNo));
+    }
+
+    /**
+     * 写入修改后的账单，存在事务时在事务提交后写入
+     *
+     * @param payBill 修改后的账单
+     */
+    public void put(PayBill payBill) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    set(payBill);
+                }
+            });
+            return;
+        }
+        set(payBill);
+    }
+
+    private void set(PayBill payBill) {
+        redisCache.set(key(payBill.getOutOrderNo()), payBill, cacheExpireTime, TimeUnit.MINUTES);
+    }
+
+    private RedisKeyBuild key(String outOrderNo) {
+        return RedisKeyBuild.createRedisKey(RedisKeyManage.PAY_BILL, outOrderNo);
+    }
+}
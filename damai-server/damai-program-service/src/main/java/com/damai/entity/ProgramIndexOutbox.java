@@ -0,0 +1,42 @@
+package com.damai.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.damai.data.BaseTableData;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 节目es索引变更记录 实体
+ * 与节目数据在同一事务中写入，status为1表示待同步，0表示已同步到es
+ * @author: 阿星不是程序员
+ **/
+@Data
+@TableName("d_program_index_outbox")
+public class ProgramIndexOutbox extends BaseTableData implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键id
+     */
+    private Long id;
+
+    /**
+     * 节目表id
+     */
+    private Long programId;
+
+    /**
+     * 分片号，program_id对分片数量取模，分库分表的分片键
+     */
+    private Integer shardNo;
+
+    /**
+     * 变更类型 1:节目 2:演出时间 3:票档 4:节目失效
+     */
+    private Integer changeType;
+}
@@ -0,0 +1,53 @@
+package com.damai.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.damai.data.BaseTableData;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 节目服务事务发件箱 实体
+ * 与业务数据在同一事务中写入，status为1表示待转发，0表示已转发，2表示达到最大重试次数后转发失败
+ * @author: 阿星不是程序员
+ **/
+@Data
+@TableName("d_program_outbox")
+public class ProgramOutbox extends BaseTableData implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键id，同时作为事件id供消费端幂等
+     */
+    private Long id;
+
+    /**
+     * 节目表id
+     */
+    private Long programId;
+
+    /**
+     * 事件类型 1:创建订单 2:延迟取消订单
+     */
+    private Integer eventType;
+
+    /**
+     * 事件内容（json）
+     */
+    private String payload;
+
+    /**
+     * 转发失败的次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次转发的时间，写入时为当前时间
+     */
+    private Date nextRetryTime;
+}
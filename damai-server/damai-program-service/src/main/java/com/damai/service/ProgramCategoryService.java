@@ -16,6 +16,9 @@ import com.damai.entity.ProgramCategory;
 import com.damai.mapper.ProgramCategoryMapper;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.redis.reference.ReferenceDataCache;
+import com.damai.redis.reference.ReferenceDataManager;
+import com.damai.redis.reference.ReferenceDataName;
 import com.damai.servicelock.LockType;
 import com.damai.servicelock.annotion.ServiceLock;
 import com.damai.vo.ProgramCategoryVo;
@@ -23,6 +26,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.annotation.PostConstruct;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +53,20 @@ public class ProgramCategoryService extends ServiceImpl<ProgramCategoryMapper, P
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private ReferenceDataManager referenceDataManager;
+
+    /**
+     * 节目类型本地全量缓存，节目详情查询分类名称时不再访问redis
+     */
+    private ReferenceDataCache<ProgramCategory> programCategoryCache;
+
+    @PostConstruct
+    public void programCategoryCacheInit() {
+        programCategoryCache = referenceDataManager.register(ReferenceDataName.PROGRAM_CATEGORY,
+                this::loadProgramCategoryMap);
+    }
+
     /**
      * 查询所有节目类型
      */
@@ -86,6 +105,8 @@ public class ProgramCategoryService extends ServiceImpl<ProgramCategoryMapper, P
             Map<String, ProgramCategory> programCategoryMap = programCategoryList.stream().collect(
                     Collectors.toMap(p -> String.valueOf(p.getId()), p -> p, (v1, v2) -> v2));
             redisCache.putHash(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_CATEGORY_HASH), programCategoryMap);
+            // 递增版本号，所有实例重新加载本地的节目类型缓存
+            referenceDataManager.bumpVersion(ReferenceDataName.PROGRAM_CATEGORY);
         }
 
     }
@@ -97,8 +118,16 @@ public class ProgramCategoryService extends ServiceImpl<ProgramCategoryMapper, P
      * @return 节目分类对象（ProgramCategory），若不存在则返回null
      */
     public ProgramCategory getProgramCategory(Long programCategoryId) {
-        // 优先从Redis缓存获取分类信息
-        ProgramCategory programCategory = redisCache.getForHash(RedisKeyBuild.createRedisKey(
+        if (Objects.isNull(programCategoryId)) {
+            return null;
+        }
+        // 优先从本地全量缓存获取分类信息
+        ProgramCategory programCategory = programCategoryCache.get(String.valueOf(programCategoryId));
+        if (Objects.nonNull(programCategory)) {
+            return programCategory;
+        }
+        // 本地缓存未命中（刚新增还未轮询到版本号变化），从Redis缓存获取分类信息
+        programCategory = redisCache.getForHash(RedisKeyBuild.createRedisKey(
                 RedisKeyManage.PROGRAM_CATEGORY_HASH), String.valueOf(programCategoryId), ProgramCategory.class);
         // 缓存未命中，从数据库加载并更新缓存
         if (Objects.isNull(programCategory)) {
@@ -112,6 +141,27 @@ public class ProgramCategoryService extends ServiceImpl<ProgramCategoryMapper, P
         return programCategory;
     }
 
+    /**
+     * 加载全部节目分类，供本地全量缓存使用
+     * 优先读取redis中的hash，redis中没有时从数据库加载并写入redis
+     *
+     * @return 节目分类映射表（ID为键，节目分类对象为值）
+     */
+    private Map<String, ProgramCategory> loadProgramCategoryMap() {
+        Map<String, ProgramCategory> programCategoryMap = redisCache.getAllMapForHash(
+                RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_CATEGORY_HASH), ProgramCategory.class);
+        if (CollectionUtil.isNotEmpty(programCategoryMap)) {
+            return programCategoryMap;
+        }
+        List<ProgramCategory> programCategoryList = programCategoryMapper.selectList(Wrappers.emptyWrapper());
+        programCategoryMap = programCategoryList.stream().collect(
+                Collectors.toMap(p -> String.valueOf(p.getId()), p -> p, (v1, v2) -> v2));
+        if (CollectionUtil.isNotEmpty(programCategoryMap)) {
+            redisCache.putHash(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_CATEGORY_HASH), programCategoryMap);
+        }
+        return programCategoryMap;
+    }
+
     /**
      * 初始化节目分类Redis缓存数据
      * 使用写锁保证缓存初始化过程的线程安全，防止并发场景下的数据不一致
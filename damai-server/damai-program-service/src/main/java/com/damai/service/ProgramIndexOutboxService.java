@@ -0,0 +1,144 @@
+package com.damai.service;
+
+import com.baidu.fsg.uid.UidGenerator;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.damai.entity.ProgramIndexOutbox;
+import com.damai.enums.BusinessStatus;
+import com.damai.enums.ProgramIndexChangeType;
+import com.damai.mapper.ProgramIndexOutboxMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目es索引变更记录 service
+ * 节目、演出时间、票档变更时在同一个事务中写入变更记录，由增量索引任务批量同步到es
+ * 分片键为shard_no（program_id对分片数量取模），增量索引按分片号逐个分片拉取和消费，每条语句只路由到一个分片
+ * @author: 阿星不是程序员
+ **/
+@Service
+public class ProgramIndexOutboxService extends ServiceImpl<ProgramIndexOutboxMapper, ProgramIndexOutbox> {
+
+    @Autowired
+    private UidGenerator uidGenerator;
+
+    @Autowired
+    private ProgramIndexOutboxMapper programIndexOutboxMapper;
+
+    /**
+     * 分片数量，需要是分库数量和分表数量的公倍数，保证同一节目的变更记录和节目数据落在同一个库
+     */
+    @Value("${program.index.outbox.shard-count:4}")
+    private Integer shardCount;
+
+    /**
+     * 记录节目的索引变更（需要在业务事务中调用，和业务数据一起提交或回滚）
+     *
+     * @param programId  节目id
+     * @param changeType 变更类型
+     */
+    public void record(Long programId, ProgramIndexChangeType changeType) {
+        ProgramIndexOutbox programIndexOutbox = new ProgramIndexOutbox();
+        programIndexOutbox.setId(uidGenerator.getUid());
+        programIndexOutbox.setProgramId(programId);
+        programIndexOutbox.setShardNo(shardNo(programId));
+        programIndexOutbox.setChangeType(changeType.getCode());
+        programIndexOutbox.setStatus(BusinessStatus.YES.getCode());
+        programIndexOutboxMapper.insert(programIndexOutbox);
+    }
+
+    /**
+     * 批量记录节目的索引变更
+     *
+     * @param programIdList 节目id集合
+     * @param changeType    变更类型
+     */
+    public void record(Collection<Long> programIdList, ProgramIndexChangeType changeType) {
+        for (Long programId : programIdList) {
+            record(programId, changeType);
+        }
+    }
+
+    /**
+     * 分片数量，增量索引按0到shardCount-1逐个分片拉取
+     *
+     * @return 分片数量
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 计算节目的分片号
+     *
+     * @param programId 节目id
+     * @return 分片号
+     */
+    public int shardNo(Long programId) {
+        return (int) Math.floorMod(programId, (long) shardCount);
+    }
+
+    /**
+     * 按id顺序查询一个分片中待同步的变更记录（逻辑删除字段status=1表示待同步）
+     * 带上分片键shard_no，查询只路由到一个分片
+     *
+     * @param shardNo   分片号
+     * @param batchSize 单批数量
+     * @return 待同步的变更记录
+     */
+    public List<ProgramIndexOutbox> selectPending(int shardNo, int batchSize) {
+        LambdaQueryWrapper<ProgramIndexOutbox> programIndexOutboxLambdaQueryWrapper =
+                Wrappers.lambdaQuery(ProgramIndexOutbox.class)
+                        .eq(ProgramIndexOutbox::getShardNo, shardNo)
+                        .orderByAsc(ProgramIndexOutbox::getId)
+                        .last("limit " + batchSize);
+        return programIndexOutboxMapper.selectList(programIndexOutboxLambdaQueryWrapper);
+    }
+
+    /**
+     * 将已同步到es的变更记录标记为已消费，作为增量索引的检查点，服务重启后从未消费的记录继续
+     * 带上分片键shard_no，避免更新语句广播到所有分片
+     *
+     * @param shardNo 分片号
+     * @param idList  变更记录id集合
+     */
+    public void markConsumed(int shardNo, Collection<Long> idList) {
+        LambdaQueryWrapper<ProgramIndexOutbox> programIndexOutboxLambdaQueryWrapper =
+                Wrappers.lambdaQuery(ProgramIndexOutbox.class)
+                        .eq(ProgramIndexOutbox::getShardNo, shardNo)
+                        .in(ProgramIndexOutbox::getId, idList);
+        programIndexOutboxMapper.delete(programIndexOutboxLambdaQueryWrapper);
+    }
+
+    /**
+     * 暂时无法同步的节目重新记录一条完整文档的变更，再将原记录标记为已消费
+     * 新记录id更大，排到分片队尾，不会一直占住每批的前面位置；同一分片在同一个库中，本地事务即可保证不丢
+     *
+     * @param shardNo       分片号
+     * @param programIdList 需要重新同步的节目id集合
+     * @param idList        原变更记录id集合
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void requeue(int shardNo, Collection<Long> programIdList, Collection<Long> idList) {
+        record(programIdList, ProgramIndexChangeType.PROGRAM);
+        markConsumed(shardNo, idList);
+    }
+
+    /**
+     * 物理删除已消费的变更记录
+     *
+     * @param editTime 早于此时间的记录才删除
+     * @return 删除的数量
+     */
+    public int purgeConsumed(Date editTime) {
+        return programIndexOutboxMapper.purgeConsumed(editTime);
+    }
+}
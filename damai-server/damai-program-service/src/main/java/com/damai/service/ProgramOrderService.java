@@ -8,7 +8,6 @@ import com.baidu.fsg.uid.UidGenerator;
 import com.damai.client.OrderClient;
 import com.damai.common.ApiResponse;
 import com.damai.core.RedisKeyManage;
-import com.damai.dto.DelayOrderCancelDto;
 import com.damai.dto.OrderCreateDto;
 import com.damai.dto.OrderTicketUserCreateDto;
 import com.damai.dto.ProgramOrderCreateDto;
@@ -19,9 +18,7 @@ import com.damai.enums.OrderStatus;
 import com.damai.enums.SellStatus;
 import com.damai.exception.DaMaiFrameException;
 import com.damai.redis.RedisKeyBuild;
-import com.damai.service.delaysend.DelayOrderCancelSend;
-import com.damai.service.kafka.CreateOrderMqDomain;
-import com.damai.service.kafka.CreateOrderSend;
+import com.damai.redis.RedisScriptKeys;
 import com.damai.service.lua.ProgramCacheCreateOrderData;
 import com.damai.service.lua.ProgramCacheCreateOrderResolutionOperate;
 import com.damai.service.lua.ProgramCacheResolutionOperate;
@@ -43,11 +40,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import static com.damai.service.constant.ProgramOrderConstant.ORDER_TABLE_COUNT;
+import static com.damai.service.constant.ProgramOrderConstant.ORDER_GENE_COUNT;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -71,10 +67,7 @@ public class ProgramOrderService {
     ProgramCacheCreateOrderResolutionOperate programCacheCreateOrderResolutionOperate;
 
     @Autowired
-    private DelayOrderCancelSend delayOrderCancelSend;
-
-    @Autowired
-    private CreateOrderSend createOrderSend;
+    private ProgramOutboxService programOutboxService;
 
     @Autowired
     private ProgramService programService;
@@ -302,14 +295,15 @@ public class ProgramOrderService {
         Long programId = programOrderCreateDto.getProgramId();
         // 用户选择的座位列表
         List<SeatDto> seatDtoList = programOrderCreateDto.getSeatDtoList();
-        List<String> keys = new ArrayList<>();  // 存储Redis操作相关的键前缀或标识
-        String[] data = new String[2];  // 存储缓存操作的核心数据（JSON格式）
+        // 脚本访问的key，参数中只传key在KEYS中的下标
+        RedisScriptKeys scriptKeys = new RedisScriptKeys();
+        String[] data = new String[3];  // 存储缓存操作的核心数据（JSON格式）
         JSONArray jsonArray = new JSONArray();   // 存储库存扣减相关的参数
         JSONArray addSeatDatajsonArray = new JSONArray();  // 存储座位锁定相关的参数
         // 是否为自主选座还是自动分配座位
         if (CollectionUtil.isNotEmpty(seatDtoList)) {
             // 自主选座
-            keys.add("1");
+            data[0] = "1";
             // 按票档ID分组座位列表
             Map<Long, List<SeatDto>> seatTicketCategoryDtoCount = seatDtoList.stream()
                     .collect(Collectors.groupingBy(SeatDto::getTicketCategoryId));
@@ -319,57 +313,60 @@ public class ProgramOrderService {
                 Long ticketCategoryId = entry.getKey();
                 // 该票档用户要购买的数量
                 int ticketCount = entry.getValue().size();
-                // 构建库存扣减参数：包含Redis中剩余票数的Hash键、票档ID、购票数量
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("programTicketRemainNumberHashKey", RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
-                jsonObject.put("ticketCategoryId", ticketCategoryId);
-                jsonObject.put("ticketCount", ticketCount);
+                // 构建库存扣减参数：包含票档ID、购票数量，以及余票、未售座位、锁定座位key的下标
+                JSONObject jsonObject = buildTicketCountParam(scriptKeys, programId, ticketCategoryId, ticketCount);
                 jsonArray.add(jsonObject);
-                // 构建座位锁定参数：包含Redis中未售座位的Hash键、座位详情列表
+                // 构建座位锁定参数：包含未售座位key的下标、座位详情列表
                 JSONObject seatDatajsonObject = new JSONObject();
-                seatDatajsonObject.put("seatNoSoldHashKey", RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+                seatDatajsonObject.put("seatNoSoldKeyIndex", jsonObject.get("seatNoSoldKeyIndex"));
                 seatDatajsonObject.put("seatDataList", JSON.toJSONString(entry.getValue()));
                 addSeatDatajsonArray.add(seatDatajsonObject);
             }
         } else {
             // 自动分配座位
-            keys.add("2");
-            // 票档ID
-            Long ticketCategoryId = programOrderCreateDto.getTicketCategoryId();
-            // 购买的数量
-            Integer ticketCount = programOrderCreateDto.getTicketCount();
+            data[0] = "2";
             // 构建库存扣减和座位分配的参数
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("programTicketRemainNumberHashKey", RedisKeyBuild.createRedisKey(
-                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
-            jsonObject.put("ticketCategoryId", ticketCategoryId);
-            jsonObject.put("ticketCount", ticketCount);
-            jsonObject.put("seatNoSoldHashKey", RedisKeyBuild.createRedisKey(
-                    RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
-            jsonArray.add(jsonObject);
+            jsonArray.add(buildTicketCountParam(scriptKeys, programId, programOrderCreateDto.getTicketCategoryId(),
+                    programOrderCreateDto.getTicketCount()));
         }
-        // 未售卖座位hash的key(占位符形式)
-        keys.add(RedisKeyBuild.getRedisKey(RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH));
-        // 锁定座位hash的key(占位符形式)
-        keys.add(RedisKeyBuild.getRedisKey(RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH));
-        // 节目ID
-        keys.add(String.valueOf(programOrderCreateDto.getProgramId()));
-        data[0] = JSON.toJSONString(jsonArray);
-        data[1] = JSON.toJSONString(addSeatDatajsonArray);
+        data[1] = JSON.toJSONString(jsonArray);
+        data[2] = JSON.toJSONString(addSeatDatajsonArray);
         // 5.执行Lua脚本
         ProgramCacheCreateOrderData programCacheCreateOrderData =
-                programCacheCreateOrderResolutionOperate.programCacheOperate(keys, data);
+                programCacheCreateOrderResolutionOperate.programCacheOperate(scriptKeys.getKeys(), data);
         if (!Objects.equals(programCacheCreateOrderData.getCode(), BaseCode.SUCCESS.getCode())) {
             throw new DaMaiFrameException(Objects.requireNonNull(BaseCode.getRc(programCacheCreateOrderData.getCode())));
         }
         return programCacheCreateOrderData.getPurchaseSeatList();
     }
 
+    /**
+     * 构建单个票档的库存扣减参数，并把该票档的余票、未售座位、锁定座位key加入KEYS
+     *
+     * @param scriptKeys       脚本的KEYS
+     * @param programId        节目ID
+     * @param ticketCategoryId 票档ID
+     * @param ticketCount      购买数量
+     * @return 库存扣减参数
+     */
+    private JSONObject buildTicketCountParam(RedisScriptKeys scriptKeys, Long programId, Long ticketCategoryId,
+                                             Integer ticketCount) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("ticketCategoryId", ticketCategoryId);
+        jsonObject.put("ticketCount", ticketCount);
+        jsonObject.put("remainNumberKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
+                RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId)));
+        jsonObject.put("seatNoSoldKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
+                RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId)));
+        jsonObject.put("seatLockKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
+                RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId)));
+        return jsonObject;
+    }
+
     /**
      * 执行订单创建的核心逻辑
-     * 负责组装订单参数、调用远程服务创建订单、并发送延迟取消消息（防止订单长期未支付）
+     * 负责组装订单参数、调用远程服务创建订单
+     * 延迟取消订单事件（防止订单长期未支付）由订单服务在创建订单的本地事务中写入订单服务的发件箱，订单和事件一起提交
      *
      * @param programOrderCreateDto 节目订单创建请求参数
      * @param purchaseSeatList      已确认的购买座位列表
@@ -378,27 +375,14 @@ public class ProgramOrderService {
     private String doCreate(ProgramOrderCreateDto programOrderCreateDto, List<SeatVo> purchaseSeatList) {
         // 1.构建通用订单创建参数（转换为底层订单服务所需的格式）
         OrderCreateDto orderCreateDto = buildCreateOrderParam(programOrderCreateDto, purchaseSeatList);
-        // 2.调用远程订单服务创建订单
-        String orderNumber = createOrderByRpc(orderCreateDto, purchaseSeatList);
-        // 3.发送延迟取消订单信息（处理未支付超时场景）
-        DelayOrderCancelDto delayOrderCancelDto = new DelayOrderCancelDto();
-        delayOrderCancelDto.setOrderNumber(orderCreateDto.getOrderNumber());  // 关联订单号
-        // 发送延迟消息
-        delayOrderCancelSend.sendMessage(JSON.toJSONString(delayOrderCancelDto));
-        // 返回创建成功的订单号
-        return orderNumber;
+        // 2.调用远程订单服务创建订单，返回创建成功的订单号
+        return createOrderByRpc(orderCreateDto, purchaseSeatList);
     }
 
     private String doCreateV2(ProgramOrderCreateDto programOrderCreateDto, List<SeatVo> purchaseSeatList) {
         OrderCreateDto orderCreateDto = buildCreateOrderParam(programOrderCreateDto, purchaseSeatList);
 
-        String orderNumber = createOrderByMq(orderCreateDto, purchaseSeatList);
-
-        DelayOrderCancelDto delayOrderCancelDto = new DelayOrderCancelDto();
-        delayOrderCancelDto.setOrderNumber(orderCreateDto.getOrderNumber());
-        delayOrderCancelSend.sendMessage(JSON.toJSONString(delayOrderCancelDto));
-
-        return orderNumber;
+        return createOrderByOutbox(orderCreateDto, purchaseSeatList);
     }
 
     /**
@@ -415,7 +399,7 @@ public class ProgramOrderService {
         OrderCreateDto orderCreateDto = new OrderCreateDto();
         // 3.设置订单核心标识信息
         // 生成唯一订单号（基于用户ID和订单表数量的分布式ID基因生成策略，避免重复和数据跨表）
-        orderCreateDto.setOrderNumber(uidGenerator.getOrderNumber(programOrderCreateDto.getUserId(), ORDER_TABLE_COUNT));
+        orderCreateDto.setOrderNumber(uidGenerator.getOrderNumber(programOrderCreateDto.getUserId(), ORDER_GENE_COUNT));
         orderCreateDto.setProgramId(programOrderCreateDto.getProgramId());  // 关联节目ID
         orderCreateDto.setUserId(programOrderCreateDto.getUserId());  // 下单用户ID
         // 4.设置订单展示信息（用于用户查看订单详情）
@@ -484,31 +468,23 @@ public class ProgramOrderService {
         return createOrderResponse.getData();
     }
 
-    private String createOrderByMq(OrderCreateDto orderCreateDto, List<SeatVo> purchaseSeatList) {
-        CreateOrderMqDomain createOrderMqDomain = new CreateOrderMqDomain();
-        CountDownLatch latch = new CountDownLatch(1);
-        createOrderSend.sendMessage(JSON.toJSONString(orderCreateDto), sendResult -> {
-            createOrderMqDomain.orderNumber = String.valueOf(orderCreateDto.getOrderNumber());
-            assert sendResult != null;
-            log.info("创建订单kafka发送消息成功 topic : {}", sendResult.getRecordMetadata().topic());
-            latch.countDown();
-        }, ex -> {
-            log.error("创建订单kafka发送消息失败 error", ex);
-            log.error("创建订单失败 需人工处理 orderCreateDto : {}", JSON.toJSONString(orderCreateDto));
-            updateProgramCacheDataResolution(orderCreateDto.getProgramId(), purchaseSeatList, OrderStatus.CANCEL);
-            createOrderMqDomain.daMaiFrameException = new DaMaiFrameException(ex);
-            latch.countDown();
-        });
+    /**
+     * 创建订单和延迟取消订单事件写入发件箱后直接返回订单号，由发件箱转发到kafka和延迟队列，请求链路不再等待kafka发送结果
+     * 写入失败时回滚已锁定的座位和余票
+     *
+     * @param orderCreateDto   通用订单创建参数
+     * @param purchaseSeatList 已选中的座位列表
+     * @return 订单号
+     */
+    private String createOrderByOutbox(OrderCreateDto orderCreateDto, List<SeatVo> purchaseSeatList) {
         try {
-            latch.await();
-        } catch (InterruptedException e) {
-            log.error("createOrderByMq InterruptedException", e);
+            programOutboxService.recordOrderCreate(orderCreateDto);
+        } catch (Exception e) {
+            log.error("创建订单事件写入发件箱失败 orderCreateDto : {}", JSON.toJSONString(orderCreateDto), e);
+            updateProgramCacheDataResolution(orderCreateDto.getProgramId(), purchaseSeatList, OrderStatus.CANCEL);
             throw new DaMaiFrameException(e);
         }
-        if (Objects.nonNull(createOrderMqDomain.daMaiFrameException)) {
-            throw createOrderMqDomain.daMaiFrameException;
-        }
-        return createOrderMqDomain.orderNumber;
+        return String.valueOf(orderCreateDto.getOrderNumber());
     }
 
     /**
@@ -528,8 +504,8 @@ public class ProgramOrderService {
             throw new DaMaiFrameException(BaseCode.OPERATE_ORDER_STATUS_NOT_PERMIT);
         }
         // 2.初始化缓存操作所需的参数容器
-        List<String> keys = new ArrayList<>();
-        keys.add("#");  // 占位符键
+        // 脚本访问的key，参数中只传key在KEYS中的下标
+        RedisScriptKeys scriptKeys = new RedisScriptKeys();
         // data数组用于存储三类缓存操作数据（JSON格式）：
         // data[0]：票档余票变更数据；data[1]：需要从原缓存移除的座位ID；data[2]：需要添加到新缓存的座位数据
         String[] data = new String[3];
@@ -542,8 +518,8 @@ public class ProgramOrderService {
         ticketCategoryCountMap.forEach((ticketCategoryId, seatCount) -> {
             JSONObject jsonObject = new JSONObject();
             // 余票缓存键：PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION:{programId}:{ticketCategoryId}
-            jsonObject.put("programTicketRemainNumberHashKey", RedisKeyBuild.createRedisKey(
-                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
+            jsonObject.put("remainNumberKeyIndex", scriptKeys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId)));
             jsonObject.put("ticketCategoryId", String.valueOf(ticketCategoryId));
             // 根据订单状态设置余票变更数量
             if (Objects.equals(orderStatus.getCode(), OrderStatus.NO_PAY.getCode())) {
@@ -565,37 +541,37 @@ public class ProgramOrderService {
         seatVoMap.forEach((ticketCategoryId, seatVos) -> {
             JSONObject delSeatIdjsonObject = new JSONObject();  // 单票档的删除缓存信息
             JSONObject seatDatajsonObject = new JSONObject();   // 单票档的添加缓存信息
-            String seatHashKeyDel = "";  // 需要删除座位的缓存键
-            String seatHashKeyAdd = "";  // 需要添加座位的缓存键
+            RedisKeyBuild seatHashKeyDel = null;  // 需要删除座位的缓存键
+            RedisKeyBuild seatHashKeyAdd = null;  // 需要添加座位的缓存键
             // 根据订单状态确定座位的移动方向和状态更新
             if (Objects.equals(orderStatus.getCode(), OrderStatus.NO_PAY.getCode())) {
                 // 未支付：座位从“未售卖”缓存 -> “锁定”缓存，状态更新为“已锁定”
-                seatHashKeyDel = (RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
-                seatHashKeyAdd = (RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+                seatHashKeyDel = RedisKeyBuild.createRedisKey(
+                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId);
+                seatHashKeyAdd = RedisKeyBuild.createRedisKey(
+                        RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId);
                 // 更新座位状态为“锁定”
                 for (SeatVo seatVo : seatVos) {
                     seatVo.setSellStatus(SellStatus.LOCK.getCode());
                 }
             } else if (Objects.equals(orderStatus.getCode(), OrderStatus.CANCEL.getCode())) {
                 // 已取消：座位从"锁定"缓存 → "未售卖"缓存，状态恢复为"未售卖"
-                seatHashKeyDel = (RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
-                seatHashKeyAdd = (RedisKeyBuild.createRedisKey(
-                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+                seatHashKeyDel = RedisKeyBuild.createRedisKey(
+                        RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId);
+                seatHashKeyAdd = RedisKeyBuild.createRedisKey(
+                        RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId);
                 // 更新座位状态为“未售卖”
                 for (SeatVo seatVo : seatVos) {
                     seatVo.setSellStatus(SellStatus.NO_SOLD.getCode());
                 }
             }
-            // 组装需要删除的座位信息：缓存键 + 座位ID列表
-            delSeatIdjsonObject.put("seatHashKeyDel", seatHashKeyDel);
+            // 组装需要删除的座位信息：缓存键下标 + 座位ID列表
+            delSeatIdjsonObject.put("seatDelKeyIndex", scriptKeys.add(seatHashKeyDel));
             delSeatIdjsonObject.put("seatIdList", seatVos.stream()
                     .map(SeatVo::getId).map(String::valueOf).collect(Collectors.toList()));
             delSeatIdjsonArray.add(delSeatIdjsonObject);
-            // 组装需要添加的座位信息：缓存键 + 座位完整数据（ID + 序列化的SeatVo对象）
-            seatDatajsonObject.put("seatHashKeyAdd", seatHashKeyAdd);
+            // 组装需要添加的座位信息：缓存键下标 + 座位完整数据（ID + 序列化的SeatVo对象）
+            seatDatajsonObject.put("seatAddKeyIndex", scriptKeys.add(seatHashKeyAdd));
             List<String> seatDataList = new ArrayList<>();
             for (SeatVo seatVo : seatVos) {
                 seatDataList.add(String.valueOf(seatVo.getId()));  // 座位ID（作为哈希的field）
@@ -609,6 +585,6 @@ public class ProgramOrderService {
         data[1] = JSON.toJSONString(delSeatIdjsonArray);  // 座位删除数据
         data[2] = JSON.toJSONString(addSeatDatajsonArray);  // 座位添加数据
         // 7.执行Lua脚本
-        programCacheResolutionOperate.programCacheOperate(keys, data);
+        programCacheResolutionOperate.programCacheOperate(scriptKeys.getKeys(), data);
     }
 }
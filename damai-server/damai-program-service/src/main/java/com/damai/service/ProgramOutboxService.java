@@ -0,0 +1,139 @@
+package com.damai.service;
+
+import com.alibaba.fastjson.JSON;
+import com.baidu.fsg.uid.UidGenerator;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.damai.dto.DelayOrderCancelDto;
+import com.damai.dto.OrderCreateDto;
+import com.damai.entity.ProgramOutbox;
+import com.damai.enums.OutboxEventType;
+import com.damai.enums.OutboxStatus;
+import com.damai.mapper.ProgramOutboxMapper;
+import com.damai.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目服务事务发件箱 service
+ * 需要发送的kafka消息、延迟队列消息先在事务中写入发件箱，请求链路不再同步等待消息发送，由ProgramOutboxRelay批量转发
+ * 转发失败的事件记录重试次数并推迟下次转发时间，达到最大重试次数后转为失败状态
+ * @author: 阿星不是程序员
+ **/
+@Service
+public class ProgramOutboxService extends ServiceImpl<ProgramOutboxMapper, ProgramOutbox> {
+
+    @Autowired
+    private UidGenerator uidGenerator;
+
+    @Autowired
+    private ProgramOutboxMapper programOutboxMapper;
+
+    /**
+     * 记录一个事件（需要在业务事务中调用，和业务数据一起提交或回滚）
+     *
+     * @param programId 节目id
+     * @param eventType 事件类型
+     * @param payload   事件内容
+     */
+    public void record(Long programId, OutboxEventType eventType, String payload) {
+        ProgramOutbox programOutbox = new ProgramOutbox();
+        programOutbox.setId(uidGenerator.getUid());
+        programOutbox.setProgramId(programId);
+        programOutbox.setEventType(eventType.getCode());
+        programOutbox.setPayload(payload);
+        programOutbox.setRetryCount(0);
+        programOutbox.setNextRetryTime(DateUtils.now());
+        programOutbox.setStatus(OutboxStatus.PENDING.getCode());
+        programOutboxMapper.insert(programOutbox);
+    }
+
+    /**
+     * 记录创建订单和延迟取消订单事件，两个事件在同一个节目分片中一起提交
+     *
+     * @param orderCreateDto 订单创建参数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void recordOrderCreate(OrderCreateDto orderCreateDto) {
+        record(orderCreateDto.getProgramId(), OutboxEventType.ORDER_CREATE, JSON.toJSONString(orderCreateDto));
+        recordDelayOrderCancel(orderCreateDto.getProgramId(), orderCreateDto.getOrderNumber());
+    }
+
+    /**
+     * 记录延迟取消订单事件
+     *
+     * @param programId   节目id
+     * @param orderNumber 订单编号
+     */
+    public void recordDelayOrderCancel(Long programId, Long orderNumber) {
+        DelayOrderCancelDto delayOrderCancelDto = new DelayOrderCancelDto();
+        delayOrderCancelDto.setOrderNumber(orderNumber);
+        record(programId, OutboxEventType.DELAY_ORDER_CANCEL, JSON.toJSONString(delayOrderCancelDto));
+    }
+
+    /**
+     * 按(下次转发时间, id)顺序查询已到转发时间的待转发事件（逻辑删除字段status=1表示待转发）
+     * 重试中的事件推迟到下次转发时间之后，不会阻塞后面的事件
+     *
+     * @param batchSize 单批数量
+     * @return 待转发的事件
+     */
+    public List<ProgramOutbox> selectPending(int batchSize) {
+        LambdaQueryWrapper<ProgramOutbox> programOutboxLambdaQueryWrapper =
+                Wrappers.lambdaQuery(ProgramOutbox.class)
+                        .le(ProgramOutbox::getNextRetryTime, DateUtils.now())
+                        .orderByAsc(ProgramOutbox::getNextRetryTime)
+                        .orderByAsc(ProgramOutbox::getId)
+                        .last("limit " + batchSize);
+        return programOutboxMapper.selectList(programOutboxLambdaQueryWrapper);
+    }
+
+    /**
+     * 记录事件的一次转发失败，带上分片键program_id
+     *
+     * @param programId     节目id
+     * @param id            事件id
+     * @param retryCount    本次失败后的重试次数
+     * @param nextRetryTime 下次转发的时间
+     * @param failed        是否达到最大重试次数，达到时转为失败状态
+     */
+    public void markRetry(Long programId, Long id, int retryCount, Date nextRetryTime, boolean failed) {
+        programOutboxMapper.update(null, Wrappers.lambdaUpdate(ProgramOutbox.class)
+                .set(ProgramOutbox::getRetryCount, retryCount)
+                .set(ProgramOutbox::getNextRetryTime, nextRetryTime)
+                .set(failed, ProgramOutbox::getStatus, OutboxStatus.FAILED.getCode())
+                .eq(ProgramOutbox::getProgramId, programId)
+                .eq(ProgramOutbox::getId, id));
+    }
+
+    /**
+     * 将已转发的事件标记为已消费，带上分片键program_id，避免更新语句广播到所有分片
+     *
+     * @param programIdList 节目id集合
+     * @param idList        事件id集合
+     */
+    public void markConsumed(Collection<Long> programIdList, Collection<Long> idList) {
+        LambdaQueryWrapper<ProgramOutbox> programOutboxLambdaQueryWrapper =
+                Wrappers.lambdaQuery(ProgramOutbox.class)
+                        .in(ProgramOutbox::getProgramId, programIdList)
+                        .in(ProgramOutbox::getId, idList);
+        programOutboxMapper.delete(programOutboxLambdaQueryWrapper);
+    }
+
+    /**
+     * 物理删除已转发的事件
+     *
+     * @param editTime 早于此时间的记录才删除
+     * @return 删除的数量
+     */
+    public int purgeConsumed(Date editTime) {
+        return programOutboxMapper.purgeConsumed(editTime);
+    }
+}
@@ -9,8 +9,8 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.damai.BusinessThreadPool;
 import com.damai.RedisStreamPushHandler;
+import com.damai.pool.ThreadPoolRegistry;
 import com.damai.client.BaseDataClient;
 import com.damai.client.OrderClient;
 import com.damai.client.UserClient;
@@ -41,6 +41,7 @@ import com.damai.entity.TicketCategoryAggregate;
 import com.damai.enums.BaseCode;
 import com.damai.enums.BusinessStatus;
 import com.damai.enums.CompositeCheckType;
+import com.damai.enums.ProgramIndexChangeType;
 import com.damai.enums.SellStatus;
 import com.damai.exception.DaMaiFrameException;
 import com.damai.initialize.impl.composite.CompositeContainer;
@@ -52,17 +53,17 @@ import com.damai.mapper.SeatMapper;
 import com.damai.mapper.TicketCategoryMapper;
 import com.damai.page.PageUtil;
 import com.damai.page.PageVo;
+import com.damai.redis.RedisBatch;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
 import com.damai.repeatexecutelimit.annotion.RepeatExecuteLimit;
+import com.damai.service.cache.ProgramKeyRegistry;
 import com.damai.service.cache.local.LocalCacheProgram;
-import com.damai.service.cache.local.LocalCacheProgramCategory;
 import com.damai.service.cache.local.LocalCacheProgramGroup;
 import com.damai.service.cache.local.LocalCacheProgramShowTime;
 import com.damai.service.cache.local.LocalCacheTicketCategory;
 import com.damai.service.constant.ProgramTimeType;
 import com.damai.service.es.ProgramEs;
-import com.damai.service.lua.ProgramDelCacheData;
 import com.damai.service.tool.TokenExpireManager;
 import com.damai.servicelock.LockType;
 import com.damai.servicelock.annotion.ServiceLock;
@@ -96,6 +97,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -117,6 +119,11 @@ import static com.damai.util.DateUtils.FORMAT_DATE;
 @Service
 public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
 
+    /**
+     * 预热加载用户数据的线程池名字
+     */
+    private static final String PRELOAD_THREAD_POOL = "program-preload";
+
     /**
      * 分布式唯一ID生成器
      */
@@ -177,6 +184,12 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
     @Autowired
     private OrderClient orderClient;
 
+    /**
+     * 命名线程池，预热加载使用独立的线程池，避免影响其他异步任务
+     */
+    @Autowired
+    private ThreadPoolRegistry threadPoolRegistry;
+
     /**
      * Redis缓存操作工具
      */
@@ -240,12 +253,6 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
     @Autowired
     private LocalCacheProgramGroup localCacheProgramGroup;
 
-    /**
-     * 节目分类本地缓存（内存级缓存）
-     */
-    @Autowired
-    private LocalCacheProgramCategory localCacheProgramCategory;
-
     /**
      * 节目演出时间本地缓存（内存级缓存）
      */
@@ -271,10 +278,16 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
     private TokenExpireManager tokenExpireManager;
 
     /**
-     * 节目缓存删除工具（基于Lua脚本批量清理）
+     * 节目派生缓存key注册表，删除节目缓存时按注册表分批删除
+     */
+    @Autowired
+    private ProgramKeyRegistry programKeyRegistry;
+
+    /**
+     * 节目es索引变更记录服务
      */
     @Autowired
-    private ProgramDelCacheData programDelCacheData;
+    private ProgramIndexOutboxService programIndexOutboxService;
 
     /**
      * 添加节目
@@ -282,11 +295,14 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
      * @param programAddDto 添加节目数据的入参
      * @return 添加节目后的id
      */
+    @Transactional(rollbackFor = Exception.class)
     public Long add(ProgramAddDto programAddDto) {
         Program program = new Program();
         BeanUtil.copyProperties(programAddDto, program);
         program.setId(uidGenerator.getUid());
         programMapper.insert(program);
+        // 记录es索引变更，由增量索引任务同步到es
+        programIndexOutboxService.record(program.getId(), ProgramIndexChangeType.PROGRAM);
         return program.getId();
     }
 
@@ -619,21 +635,19 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
         // 4.查询并设置节目所属的节目组信息
         ProgramGroupVo programGroupVo = programService.getProgramGroup(programVo.getProgramGroupId());
         programVo.setProgramGroupVo(programGroupVo);
-        // 5.预加载用户购票人
-        preloadTicketUserList(programVo.getHighHeat());
-        // 6.预先加载用户下节目订单数量
-        preloadAccountOrderCount(programVo.getId());
-        // 7.查询并设置节目所属分类名称
+        // 5.预加载用户购票人和用户下节目订单数量
+        preloadUserData(programVo.getHighHeat(), programVo.getId());
+        // 6.查询并设置节目所属分类名称
         ProgramCategory programCategory = getProgramCategory(programVo.getProgramCategoryId());
         if (Objects.nonNull(programCategory)) {
             programVo.setProgramCategoryName(programCategory.getName());
         }
-        // 8.查询并设置节目所属父分类名称
+        // 7.查询并设置节目所属父分类名称
         ProgramCategory parentProgramCategory = getProgramCategory(programVo.getParentProgramCategoryId());
         if (Objects.nonNull(parentProgramCategory)) {
             programVo.setParentProgramCategoryName(parentProgramCategory.getName());
         }
-        // 9.查询并设置节目对应的票档信息列表
+        // 8.查询并设置节目对应的票档信息列表
         List<TicketCategoryVo> ticketCategoryVoList = ticketCategoryService.selectTicketCategoryListByProgramId(
                 programVo.getId(),
                 DateUtils.countBetweenSecond(DateUtils.now(), programShowTime.getShowTime()),
@@ -664,16 +678,14 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
         // 从节目分组表获取数据
         ProgramGroupVo programGroupVo = programService.getProgramGroupMultipleCache(programVo.getProgramGroupId());
         programVo.setProgramGroupVo(programGroupVo);
-        // 预加载用户购票人
-        preloadTicketUserList(programVo.getHighHeat());
-        // 预先加载用户下节目订单数量
-        preloadAccountOrderCount(programVo.getId());
+        // 预加载用户购票人和用户下节目订单数量
+        preloadUserData(programVo.getHighHeat(), programVo.getId());
         // 设置节目类型相关信息
-        ProgramCategory programCategory = getProgramCategoryMultipleCache(programVo.getProgramCategoryId());
+        ProgramCategory programCategory = getProgramCategory(programVo.getProgramCategoryId());
         if (Objects.nonNull(programCategory)) {
             programVo.setProgramCategoryName(programCategory.getName());
         }
-        ProgramCategory parentProgramCategory = getProgramCategoryMultipleCache(programVo.getParentProgramCategoryId());
+        ProgramCategory parentProgramCategory = getProgramCategory(programVo.getParentProgramCategoryId());
         if (Objects.nonNull(parentProgramCategory)) {
             programVo.setParentProgramCategoryName(parentProgramCategory.getName());
         }
@@ -898,6 +910,12 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
         if (seatList.size() != seatIdList.size()) {
             throw new DaMaiFrameException(BaseCode.SEAT_UPDATE_REL_COUNT_NOT_EQUAL_PRESET_COUNT);
         }
+        // 同一个支付事件重复投递时座位已经全部售出，余票也已扣减，直接跳过
+        if (seatList.stream().allMatch(seat -> Objects.equals(seat.getSellStatus(), SellStatus.SOLD.getCode()))) {
+            log.info("节目座位已全部售出，重复的节目数据操作跳过 programId : {} seatIdList : {}",
+                    programOperateDataDto.getProgramId(), seatIdList);
+            return;
+        }
         // 校验座位状态：确保所有座位均未售出（防止重复售票）
         for (Seat seat : seatList) {
             if (Objects.equals(seat.getSellStatus(), SellStatus.SOLD.getCode())) {
@@ -1037,47 +1055,66 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
     }
 
     /**
-     * 预热加载当前登录用户的购票人列表到缓存
-     * 仅在节目为高热度且用户已登录时执行，通过异步线程处理避免阻塞主流程
+     * 预热加载当前登录用户的购票人列表和对指定节目的订单数量到缓存
+     * 登录状态、购票人列表缓存、订单数量缓存三个key通过一次pipeline判断，缺失的数据再异步加载，避免阻塞主流程
      *
-     * @param highHeat
+     * @param highHeat  节目是否为高热度
+     * @param programId 节目id
      */
-    private void preloadTicketUserList(Integer highHeat) {
-        // 1.判断节目是否为高热度：若非高热度，直接返回，不执行预热
-        if (Objects.equals(highHeat, BusinessStatus.NO.getCode())) {
-            return;
-        }
-        // 2.从上下文获取用户ID和身份标识code
+    private void preloadUserData(Integer highHeat, Long programId) {
+        // 1.从上下文获取用户ID和身份标识code
         String userId = BaseParameterHolder.getParameter(USER_ID);
         String code = BaseParameterHolder.getParameter(CODE);
-        // 3.若用户ID或code为空（可能为匿名访问），直接返回，无需加载
+        // 2.若用户ID或code为空（可能为匿名访问），直接返回，无需加载
         if (StringUtil.isEmpty(userId) || StringUtil.isEmpty(code)) {
             return;
         }
-        // 4.验证用户是否已登录：检查Redis中是否存在登录状态的缓存
-        Boolean userLogin =
-                redisCache.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.USER_LOGIN, code, userId));
-        if (!userLogin) {
+        // 3.一次pipeline查询用户是否登录、购票人列表和订单数量是否已缓存
+        // 购票人列表仅在节目为高热度时才预热
+        boolean preloadTicketUser = !Objects.equals(highHeat, BusinessStatus.NO.getCode());
+        RedisBatch redisBatch = redisCache.batch();
+        CompletableFuture<Boolean> userLoginFuture =
+                redisBatch.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.USER_LOGIN, code, userId));
+        CompletableFuture<Boolean> ticketUserListExistFuture = preloadTicketUser ?
+                redisBatch.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.TICKET_USER_LIST, userId)) :
+                CompletableFuture.completedFuture(true);
+        CompletableFuture<Boolean> accountOrderCountExistFuture =
+                redisBatch.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT, userId, programId));
+        redisBatch.execute();
+        // 4.用户未登录，无需加载
+        if (!userLoginFuture.join()) {
             return;
         }
-        // 5.通过线程池异步执行购票人列表的预热加载
-        BusinessThreadPool.execute(() -> {
+        // 5.缓存中不存在的数据异步加载
+        if (!ticketUserListExistFuture.join()) {
+            preloadTicketUserList(userId);
+        }
+        if (!accountOrderCountExistFuture.join()) {
+            preloadAccountOrderCount(userId, programId);
+        }
+    }
+
+    /**
+     * 预热加载当前登录用户的购票人列表到缓存
+     * 通过异步线程处理避免阻塞主流程
+     *
+     * @param userId 用户id
+     */
+    private void preloadTicketUserList(String userId) {
+        threadPoolRegistry.execute(PRELOAD_THREAD_POOL, () -> {
             try {
-                // 6.检查Redis中是否已缓存购票人列表，若已缓存则无需重复加载
-                if (!redisCache.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.TICKET_USER_LIST, userId))) {
-                    // 7.构建查询参数，调用用户服务接口获取购票人列表
-                    TicketUserListDto ticketUserListDto = new TicketUserListDto();
-                    ticketUserListDto.setUserId(Long.parseLong(userId));
-                    ApiResponse<List<TicketUserVo>> apiResponse = userClient.list(ticketUserListDto);
-                    // 8.若接口调用成功且返回数据不为空，将购票人列表存入Redis缓存
-                    if (Objects.equals(apiResponse.getCode(), BaseCode.SUCCESS.getCode())) {
-                        Optional.ofNullable(apiResponse.getData())
-                                .filter(CollectionUtil::isNotEmpty)   // 过滤空列表
-                                .ifPresent(ticketUserVoList -> redisCache.set(RedisKeyBuild.createRedisKey(
-                                        RedisKeyManage.TICKET_USER_LIST, userId), ticketUserVoList));
-                    } else {
-                        log.warn("userClient.select 调用失败 apiResponse : {}", JSON.toJSONString(apiResponse));
-                    }
+                // 构建查询参数，调用用户服务接口获取购票人列表
+                TicketUserListDto ticketUserListDto = new TicketUserListDto();
+                ticketUserListDto.setUserId(Long.parseLong(userId));
+                ApiResponse<List<TicketUserVo>> apiResponse = userClient.list(ticketUserListDto);
+                // 若接口调用成功且返回数据不为空，将购票人列表存入Redis缓存
+                if (Objects.equals(apiResponse.getCode(), BaseCode.SUCCESS.getCode())) {
+                    Optional.ofNullable(apiResponse.getData())
+                            .filter(CollectionUtil::isNotEmpty)   // 过滤空列表
+                            .ifPresent(ticketUserVoList -> redisCache.set(RedisKeyBuild.createRedisKey(
+                                    RedisKeyManage.TICKET_USER_LIST, userId), ticketUserVoList));
+                } else {
+                    log.warn("userClient.select 调用失败 apiResponse : {}", JSON.toJSONString(apiResponse));
                 }
             } catch (Exception e) {
                 log.error("预热加载购票人列表失败", e);
@@ -1087,47 +1124,31 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
 
     /**
      * 预热加载当前登录用户对指定节目的订单数量到缓存
-     * 仅在用户已登录时执行，通过异步线程处理避免阻塞主流程
+     * 通过异步线程处理避免阻塞主流程
      *
+     * @param userId    用户id
      * @param programId 节目id
      */
-    private void preloadAccountOrderCount(Long programId) {
-        // 1.从上下文获取用户ID和身份标识code
-        String userId = BaseParameterHolder.getParameter(USER_ID);
-        String code = BaseParameterHolder.getParameter(CODE);
-        // 2.若用户ID或code为空（可能为匿名访问），直接返回，无需加载
-        if (StringUtil.isEmpty(userId) || StringUtil.isEmpty(code)) {
-            return;
-        }
-        // 3.验证用户是否已登录：检查Redis中是否存在登录状态的缓存
-        Boolean userLogin =
-                redisCache.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.USER_LOGIN, code, userId));
-        if (!userLogin) {
-            return;
-        }
-        // 4.通过线程池异步执行订单数量的预热加载
-        BusinessThreadPool.execute(() -> {
+    private void preloadAccountOrderCount(String userId, Long programId) {
+        threadPoolRegistry.execute(PRELOAD_THREAD_POOL, () -> {
             try {
-                // 5.检查缓存中是否已存在该用户对该节目的订单数量：若已存在，无需重复加载
-                if (!redisCache.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT, userId, programId))) {
-                    // 6.构建查询参数，调用订单服务接口获取用户对该节目的订单数量
-                    AccountOrderCountDto accountOrderCountDto = new AccountOrderCountDto();
-                    accountOrderCountDto.setUserId(Long.parseLong(userId));
-                    accountOrderCountDto.setProgramId(programId);
-                    ApiResponse<AccountOrderCountVo> apiResponse = orderClient.accountOrderCount(accountOrderCountDto);
-                    // 7.若接口调用成功且返回数据不为空，将订单数量存入Redis缓存
-                    if (Objects.equals(apiResponse.getCode(), BaseCode.SUCCESS.getCode())) {
-                        Optional.ofNullable(apiResponse.getData())
-                                .ifPresent(accountOrderCountVo -> redisCache.set(
-                                        RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT, userId, programId),
-                                        accountOrderCountVo.getCount(),  // 订单数量
-                                        // 缓存过期时间：token有效期+1分钟，确保与用户登录状态同步
-                                        tokenExpireManager.getTokenExpireTime() + 1,
-                                        TimeUnit.MINUTES)
-                                );
-                    } else {
-                        log.warn("orderClient.accountOrderCount 调用失败 apiResponse : {}", JSON.toJSONString(apiResponse));
-                    }
+                // 构建查询参数，调用订单服务接口获取用户对该节目的订单数量
+                AccountOrderCountDto accountOrderCountDto = new AccountOrderCountDto();
+                accountOrderCountDto.setUserId(Long.parseLong(userId));
+                accountOrderCountDto.setProgramId(programId);
+                ApiResponse<AccountOrderCountVo> apiResponse = orderClient.accountOrderCount(accountOrderCountDto);
+                // 若接口调用成功且返回数据不为空，将订单数量存入Redis缓存
+                if (Objects.equals(apiResponse.getCode(), BaseCode.SUCCESS.getCode())) {
+                    Optional.ofNullable(apiResponse.getData())
+                            .ifPresent(accountOrderCountVo -> redisCache.set(
+                                    RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT, userId, programId),
+                                    accountOrderCountVo.getCount(),  // 订单数量
+                                    // 缓存过期时间：token有效期+1分钟，确保与用户登录状态同步
+                                    tokenExpireManager.getTokenExpireTime() + 1,
+                                    TimeUnit.MINUTES)
+                            );
+                } else {
+                    log.warn("orderClient.accountOrderCount 调用失败 apiResponse : {}", JSON.toJSONString(apiResponse));
                 }
             } catch (Exception e) {
                 log.error("预热加载账户订单数量失败", e);
@@ -1135,21 +1156,9 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
         });
     }
 
-    /**
-     * 基于多级缓存查询节目组详情
-     * 优先从本地缓存获取数据，未命中则通过加载函数查询分布式缓存或数据库，并自动更新本地缓存
-     *
-     * @param programCategoryId
-     * @return
-     */
-    public ProgramCategory getProgramCategoryMultipleCache(Long programCategoryId) {
-        return localCacheProgramCategory.get(String.valueOf(programCategoryId),
-                key -> getProgramCategory(programCategoryId)
-        );
-    }
-
     /**
      * 获取节目分类信息
+     * 节目分类在ProgramCategoryService中整表缓存在本地，查询不访问redis
      *
      * @param programCategoryId
      * @return
@@ -1214,23 +1223,25 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
         keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_GROUP, program.getProgramGroupId()).getRelKey());
         // 节目演出时间缓存键（演出场次、时间等信息）
         keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SHOW_TIME, programId).getRelKey());
-        // 节目未售出座位的分辨率缓存键（带通配符*，匹配该节目下所有相关分辨率的未售座位缓存）
-        keys.add(RedisKeyBuild.createRedisKey(
-                RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, "*").getRelKey());
-        // 节目锁定座位的分辨率缓存键（带通配符，清理所有锁定状态的座位缓存）
-        keys.add(RedisKeyBuild.createRedisKey(
-                RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, "*").getRelKey());
-        // 节目已售出座位的分辨率缓存键（带通配符，清理所有已售座位缓存）
-        keys.add(RedisKeyBuild.createRedisKey(
-                RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH, programId, "*").getRelKey());
         // 节目票档列表缓存键（如该节目下的所有票价类别）
         keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_TICKET_CATEGORY_LIST, programId).getRelKey());
-        // 节目剩余票数的哈希缓存键（带通配符，清理所有票档的剩余票数缓存）
-        keys.add(RedisKeyBuild.createRedisKey(
-                RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, "*").getRelKey());
-        // 调用缓存删除工具类，批量删除收集的缓存键
-        // 第二个参数为额外的删除条件（此处为空，表示直接删除所有收集的键）
-        programDelCacheData.del(keys, new String[]{});
+        // 当前票档的座位、余票缓存键，注册表启用前创建的缓存没有登记，按票档补充
+        List<TicketCategory> ticketCategoryList = ticketCategoryMapper.selectList(
+                Wrappers.lambdaQuery(TicketCategory.class).select(TicketCategory::getId)
+                        .eq(TicketCategory::getProgramId, programId));
+        for (TicketCategory ticketCategory : ticketCategoryList) {
+            Long ticketCategoryId = ticketCategory.getId();
+            keys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+            keys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+            keys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH, programId, ticketCategoryId).getRelKey());
+            keys.add(RedisKeyBuild.createRedisKey(
+                    RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
+        }
+        // 连同注册表中登记的座位、余票缓存键一起按槽位分批删除，不使用keys命令扫描
+        programKeyRegistry.delAll(programId, keys);
     }
 
     /**
@@ -1239,6 +1250,7 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
      * @param programInvalidDto
      * @return
      */
+    @Transactional(rollbackFor = Exception.class)
     public Boolean invalid(final ProgramInvalidDto programInvalidDto) {
         Program program = new Program();
         program.setId(programInvalidDto.getId());  // 设置目标节目ID
@@ -1251,8 +1263,8 @@ public class ProgramService extends ServiceImpl<ProgramMapper, Program> {
             delRedisData(programInvalidDto.getId());
             // 向Redis Stream发送消息（通知其他服务节目已失效，如更新搜索索引、缓存等）
             redisStreamPushHandler.push(String.valueOf(programInvalidDto.getId()));
-            // 删除Elasticsearch中该节目的索引数据
-            programEs.deleteByProgramId(programInvalidDto.getId());
+            // 记录es索引变更，由增量索引任务删除Elasticsearch中该节目的索引数据
+            programIndexOutboxService.record(programInvalidDto.getId(), ProgramIndexChangeType.INVALID);
             return true;
         } else {
             return false;
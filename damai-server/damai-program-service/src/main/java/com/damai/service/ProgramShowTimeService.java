@@ -15,6 +15,7 @@ import com.damai.entity.Program;
 import com.damai.entity.ProgramGroup;
 import com.damai.entity.ProgramShowTime;
 import com.damai.enums.BaseCode;
+import com.damai.enums.ProgramIndexChangeType;
 import com.damai.exception.DaMaiFrameException;
 import com.damai.mapper.ProgramGroupMapper;
 import com.damai.mapper.ProgramMapper;
@@ -74,6 +75,9 @@ public class ProgramShowTimeService extends ServiceImpl<ProgramShowTimeMapper, P
     @Autowired
     private LocalCacheProgramShowTime localCacheProgramShowTime;
 
+    @Autowired
+    private ProgramIndexOutboxService programIndexOutboxService;
+
 
     @Transactional(rollbackFor = Exception.class)
     public Long add(ProgramShowTimeAddDto programShowTimeAddDto) {
@@ -81,6 +85,7 @@ public class ProgramShowTimeService extends ServiceImpl<ProgramShowTimeMapper, P
         BeanUtil.copyProperties(programShowTimeAddDto, programShowTime);
         programShowTime.setId(uidGenerator.getUid());
         programShowTimeMapper.insert(programShowTime);
+        programIndexOutboxService.record(programShowTime.getProgramId(), ProgramIndexChangeType.SHOW_TIME);
         return programShowTime.getId();
     }
 
@@ -262,7 +267,9 @@ public class ProgramShowTimeService extends ServiceImpl<ProgramShowTimeMapper, P
                 programGroupMapper.update(programGroup, programGroupLambdaUpdateWrapper);
             });
         }
-        // 返回所有被更新的节目ID集合，用于触发后续缓存和索引同步
+        // 记录es索引变更，演出时间由增量索引任务局部更新，无需重建整个索引
+        programIndexOutboxService.record(programIdSet, ProgramIndexChangeType.SHOW_TIME);
+        // 返回所有被更新的节目ID集合，用于触发后续缓存同步
         return programIdSet;
     }
 }
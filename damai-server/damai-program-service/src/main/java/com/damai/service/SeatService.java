@@ -22,6 +22,7 @@ import com.damai.exception.DaMaiFrameException;
 import com.damai.mapper.SeatMapper;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.service.cache.ProgramKeyRegistry;
 import com.damai.service.lua.ProgramSeatCacheData;
 import com.damai.servicelock.LockType;
 import com.damai.servicelock.annotion.ServiceLock;
@@ -80,6 +81,9 @@ public class SeatService extends ServiceImpl<SeatMapper, Seat> {
     @Autowired
     private ProgramSeatCacheData programSeatCacheData;
 
+    @Autowired
+    private ProgramKeyRegistry programKeyRegistry;
+
     /**
      * 添加座位
      */
@@ -149,6 +153,8 @@ public class SeatService extends ServiceImpl<SeatMapper, Seat> {
             List<SeatVo> lockSeatVoList = seatMap.get(SellStatus.LOCK.getCode());
             // 已售座位
             List<SeatVo> soldSeatVoList = seatMap.get(SellStatus.SOLD.getCode());
+            // 先登记座位缓存key，删除节目缓存时按注册表删除
+            programKeyRegistry.registerSeatKeys(programId, ticketCategoryId);
             // 将未售座位信息存入Redis缓存
             // 哈希值：座位ID -> 座位信息（防止重复存储）
             if (CollectionUtil.isNotEmpty(noSoldSeatVoList)) {
@@ -261,6 +267,25 @@ public class SeatService extends ServiceImpl<SeatMapper, Seat> {
         return seatRelateInfoVo;
     }
 
+    /**
+     * 对账修复座位的售卖状态，只修改售卖状态仍是对账时读取到的状态的座位
+     *
+     * @param programId      节目id
+     * @param seatIdList     座位id集合
+     * @param fromSellStatus 对账时读取到的售卖状态
+     * @param toSellStatus   修复后的售卖状态
+     * @return 修改的座位数量
+     */
+    public int reconcileSellStatus(Long programId, List<Long> seatIdList, Integer fromSellStatus,
+                                   Integer toSellStatus) {
+        Seat updateSeat = new Seat();
+        updateSeat.setSellStatus(toSellStatus);
+        return seatMapper.update(updateSeat, Wrappers.lambdaUpdate(Seat.class)
+                .eq(Seat::getProgramId, programId)
+                .in(Seat::getId, seatIdList)
+                .eq(Seat::getSellStatus, fromSellStatus));
+    }
+
     @Transactional(rollbackFor = Exception.class)
     public Boolean batchAdd(SeatBatchAddDto seatBatchAddDto) {
         Long programId = seatBatchAddDto.getProgramId();
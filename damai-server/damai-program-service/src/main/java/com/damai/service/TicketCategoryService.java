@@ -11,10 +11,15 @@ import com.damai.core.RedisKeyManage;
 import com.damai.dto.TicketCategoryAddDto;
 import com.damai.dto.TicketCategoryDto;
 import com.damai.dto.TicketCategoryListByProgramDto;
+import com.damai.entity.Seat;
 import com.damai.entity.TicketCategory;
+import com.damai.enums.ProgramIndexChangeType;
+import com.damai.enums.SellStatus;
+import com.damai.mapper.SeatMapper;
 import com.damai.mapper.TicketCategoryMapper;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
+import com.damai.service.cache.ProgramKeyRegistry;
 import com.damai.service.cache.local.LocalCacheTicketCategory;
 import com.damai.servicelock.LockType;
 import com.damai.servicelock.annotion.ServiceLock;
@@ -31,6 +36,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -57,18 +63,28 @@ public class TicketCategoryService extends ServiceImpl<TicketCategoryMapper, Tic
     @Autowired
     private TicketCategoryMapper ticketCategoryMapper;
 
+    @Autowired
+    private SeatMapper seatMapper;
+
     @Autowired
     private ServiceLockTool serviceLockTool;
 
     @Autowired
     private LocalCacheTicketCategory localCacheTicketCategory;
 
+    @Autowired
+    private ProgramKeyRegistry programKeyRegistry;
+
+    @Autowired
+    private ProgramIndexOutboxService programIndexOutboxService;
+
     @Transactional(rollbackFor = Exception.class)
     public Long add(TicketCategoryAddDto ticketCategoryAddDto) {
         TicketCategory ticketCategory = new TicketCategory();
         BeanUtil.copyProperties(ticketCategoryAddDto, ticketCategory);
         ticketCategory.setId(uidGenerator.getUid());
         ticketCategoryMapper.insert(ticketCategory);
+        programIndexOutboxService.record(ticketCategory.getProgramId(), ProgramIndexChangeType.TICKET_CATEGORY);
         return ticketCategory.getId();
     }
 
@@ -189,7 +205,8 @@ public class TicketCategoryService extends ServiceImpl<TicketCategoryMapper, Tic
                             TicketCategory::getRemainNumber,  // 余票数量作为值
                             (v1, v2) -> v2)   // 若有重复ID，保留后者（理论上不会出现）
                     );
-            // 7.将查询结果写入Redis缓存
+            // 7.先登记余票缓存key，再将查询结果写入Redis缓存
+            programKeyRegistry.registerRemainNumberKey(programId, ticketCategoryId);
             redisCache.putHash(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION,
                     programId, ticketCategoryId), map);
             return map;
@@ -199,6 +216,40 @@ public class TicketCategoryService extends ServiceImpl<TicketCategoryMapper, Tic
         }
     }
 
+    /**
+     * 对账修正票档的余票数量
+     * 支付时先修改座位再扣减余票，这里先锁住票档再统计已售座位，和支付并发时统计到的已售座位与余票是同一时刻的
+     * 余票 = 总数量 - 已售座位数量
+     *
+     * @param programId        节目id
+     * @param ticketCategoryId 票档id
+     * @return 余票修正量，没有差异时为0
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public long reconcileRemainNumber(Long programId, Long ticketCategoryId) {
+        TicketCategory ticketCategory = ticketCategoryMapper.selectOne(Wrappers.lambdaQuery(TicketCategory.class)
+                .eq(TicketCategory::getProgramId, programId)
+                .eq(TicketCategory::getId, ticketCategoryId)
+                .last("for update"));
+        if (Objects.isNull(ticketCategory)) {
+            return 0;
+        }
+        Long soldCount = seatMapper.selectCount(Wrappers.lambdaQuery(Seat.class)
+                .eq(Seat::getProgramId, programId)
+                .eq(Seat::getTicketCategoryId, ticketCategoryId)
+                .eq(Seat::getSellStatus, SellStatus.SOLD.getCode()));
+        long expectRemainNumber = ticketCategory.getTotalNumber() - soldCount;
+        if (expectRemainNumber < 0 || Objects.equals(expectRemainNumber, ticketCategory.getRemainNumber())) {
+            return 0;
+        }
+        TicketCategory updateTicketCategory = new TicketCategory();
+        updateTicketCategory.setRemainNumber(expectRemainNumber);
+        ticketCategoryMapper.update(updateTicketCategory, Wrappers.lambdaUpdate(TicketCategory.class)
+                .eq(TicketCategory::getProgramId, programId)
+                .eq(TicketCategory::getId, ticketCategoryId));
+        return expectRemainNumber - ticketCategory.getRemainNumber();
+    }
+
     public TicketCategoryDetailVo detail(TicketCategoryDto ticketCategoryDto) {
         TicketCategory ticketCategory = ticketCategoryMapper.selectById(ticketCategoryDto.getId());
         TicketCategoryDetailVo ticketCategoryDetailVo = new TicketCategoryDetailVo();
@@ -0,0 +1,95 @@
+package com.damai.service.cache;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.damai.core.RedisKeyManage;
+import com.damai.redis.CacheUtil;
+import com.damai.redis.RedisCache;
+import com.damai.redis.RedisKeyBuild;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目派生缓存key注册表
+ * 座位、余票缓存按票档创建，删除节目缓存时原先通过keys命令按通配符查找，keys会遍历整个库并阻塞redis
+ * 现在加载这些缓存前先把key登记到节目的注册表（set）中，删除时只读取注册表，不再扫描整个库
+ * 删除按集群槽位分批执行，集群模式下同一批key都在同一个槽位上
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class ProgramKeyRegistry {
+
+    @Autowired
+    private RedisCache redisCache;
+
+    /**
+     * 每批删除的key数量
+     */
+    @Value("${programKeyRegistry.delBatchSize:100}")
+    private int delBatchSize;
+
+    /**
+     * 登记票档下的座位缓存key（未售、锁定、已售）
+     * 锁定、已售集合加载时可能为空，之后由下单脚本创建，所以三个key都登记
+     *
+     * @param programId        节目id
+     * @param ticketCategoryId 票档id
+     */
+    public void registerSeatKeys(Long programId, Long ticketCategoryId) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        redisCache.addForSet(registryKey(programId), keys);
+    }
+
+    /**
+     * 登记票档的余票缓存key
+     *
+     * @param programId        节目id
+     * @param ticketCategoryId 票档id
+     */
+    public void registerRemainNumberKey(Long programId, Long ticketCategoryId) {
+        redisCache.addForSet(registryKey(programId), RedisKeyBuild.createRedisKey(
+                RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION, programId, ticketCategoryId).getRelKey());
+    }
+
+    /**
+     * 删除节目的缓存：传入的key和注册表中登记的key
+     * 删除后只从注册表中移除本次读取到的key，删除期间新登记的key保留到下一次删除
+     *
+     * @param programId 节目id
+     * @param keys      除注册表外需要删除的key
+     */
+    public void delAll(Long programId, Collection<String> keys) {
+        RedisKeyBuild registryKey = registryKey(programId);
+        Set<String> registeredKeys = redisCache.membersForSet(registryKey, String.class);
+        Set<String> delKeys = new LinkedHashSet<>(keys);
+        if (CollectionUtil.isNotEmpty(registeredKeys)) {
+            delKeys.addAll(registeredKeys);
+        }
+        for (List<String> batch : CacheUtil.partitionBySlot(delKeys, delBatchSize)) {
+            redisCache.getInstance().delete(batch);
+        }
+        if (CollectionUtil.isNotEmpty(registeredKeys)) {
+            redisCache.removeForSet(registryKey, new ArrayList<>(registeredKeys));
+        }
+        log.info("program cache deleted, programId : {}, key size : {}", programId, delKeys.size());
+    }
+
+    private RedisKeyBuild registryKey(Long programId) {
+        return RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_KEY_REGISTRY, programId);
+    }
+}
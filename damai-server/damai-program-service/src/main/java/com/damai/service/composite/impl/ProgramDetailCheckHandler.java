@@ -60,6 +60,11 @@ public class ProgramDetailCheckHandler extends AbstractProgramCheckHandler {
         }
     }
 
+    @Override
+    public boolean executeParallel() {
+        return true;
+    }
+
     @Override
     public Integer executeParentOrder() {
         return 1;
@@ -12,6 +12,7 @@ import com.damai.dto.ProgramOrderCreateDto;
 import com.damai.dto.TicketUserListDto;
 import com.damai.enums.BaseCode;
 import com.damai.exception.DaMaiFrameException;
+import com.damai.redis.RedisBatch;
 import com.damai.redis.RedisCache;
 import com.damai.redis.RedisKeyBuild;
 import com.damai.service.ProgramService;
@@ -28,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -64,9 +66,16 @@ public class ProgramUserExistCheckHandler extends AbstractProgramCheckHandler {
     @Override
     protected void execute(ProgramOrderCreateDto programOrderCreateDto) {
         // 1. 验证用户和购票人信息正确性
-        // 1.1 先从Redis缓存中查询当前用户的购票人列表
-        List<TicketUserVo> ticketUserVoList = redisCache.getValueIsList(RedisKeyBuild.createRedisKey(
-                RedisKeyManage.TICKET_USER_LIST, programOrderCreateDto.getUserId()), TicketUserVo.class);
+        // 1.1 通过一次pipeline从Redis缓存中查询当前用户的购票人列表和已购当前节目的订单数量
+        RedisBatch redisBatch = redisCache.batch();
+        CompletableFuture<List<TicketUserVo>> ticketUserVoListFuture = redisBatch.getValueIsList(
+                RedisKeyBuild.createRedisKey(RedisKeyManage.TICKET_USER_LIST, programOrderCreateDto.getUserId()),
+                TicketUserVo.class);
+        CompletableFuture<Integer> accountOrderCountFuture = redisBatch.get(RedisKeyBuild.createRedisKey(
+                RedisKeyManage.ACCOUNT_ORDER_COUNT, programOrderCreateDto.getUserId(),
+                programOrderCreateDto.getProgramId()), Integer.class);
+        redisBatch.execute();
+        List<TicketUserVo> ticketUserVoList = ticketUserVoListFuture.join();
         // 1.2 若缓存中无数据，则调用用户服务远程查询
         if (CollectionUtil.isEmpty(ticketUserVoList)) {
             TicketUserListDto ticketUserListDto = new TicketUserListDto();
@@ -101,13 +110,10 @@ public class ProgramUserExistCheckHandler extends AbstractProgramCheckHandler {
             throw new DaMaiFrameException(BaseCode.PROGRAM_NOT_EXIST);
         }
         // 3. 校验用户针对当前节目累计购票数量是否超限
-        // 3.1 从Redis查询用户已购当前节目的订单数量（优先缓存）
-        Integer count = 0;
-        if (redisCache.hasKey(RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT,
-                programOrderCreateDto.getUserId(), programOrderCreateDto.getProgramId()))) {
-            count = redisCache.get(RedisKeyBuild.createRedisKey(RedisKeyManage.ACCOUNT_ORDER_COUNT,
-                    programOrderCreateDto.getUserId(), programOrderCreateDto.getProgramId()), Integer.class);
-        } else {
+        // 3.1 用户已购当前节目的订单数量优先使用步骤1.1中从缓存查询到的结果
+        Integer count = accountOrderCountFuture.join();
+        if (Objects.isNull(count)) {
+            count = 0;
             // 3.2 缓存未命中时，调用订单服务查询并更新缓存
             AccountOrderCountDto accountOrderCountDto = new AccountOrderCountDto();
             accountOrderCountDto.setUserId(programOrderCreateDto.getUserId());
@@ -140,6 +146,11 @@ public class ProgramUserExistCheckHandler extends AbstractProgramCheckHandler {
         }
     }
 
+    @Override
+    public boolean executeParallel() {
+        return true;
+    }
+
     @Override
     public Integer executeParentOrder() {
         return 1;
@@ -17,5 +17,9 @@ public class ProgramOrderConstant {
     
     public static final String DELAY_OPERATE_PROGRAM_DATA_TOPIC = "d_delay_operate_program_data_topic";
     
-    public static final Long ORDER_TABLE_COUNT = 4L;
+    /**
+     * 订单编号的基因数量，订单编号低位拼接 用户id % 基因数量，
+     * 需要与订单服务 shardingsphere-order-*.yaml 中分库算法的 gene-count 一致，不小于扩容后的 分库数量 x 分表数量
+     */
+    public static final Long ORDER_GENE_COUNT = 32L;
 }
@@ -20,14 +20,14 @@ public class DelayOrderCancelSend {
     @Autowired
     private DelayQueueContext delayQueueContext;
 
+    /**
+     * 发送延迟取消订单消息，由发件箱转发任务调用，发送失败时抛出异常，事件保留在发件箱中等待重试
+     *
+     * @param message 消息体
+     */
     public void sendMessage(String message) {
-        try {
-            log.info("延迟订单取消消息进行发送 消息体 : {}", message);
-            delayQueueContext.sendMessage(SpringUtil.getPrefixDistinctionName() + "-" + DELAY_ORDER_CANCEL_TOPIC,
-                    message, DELAY_ORDER_CANCEL_TIME, DELAY_ORDER_CANCEL_TIME_UNIT);
-        } catch (Exception e) {
-            log.error("send message error message : {}", message, e);
-        }
-
+        log.info("延迟订单取消消息进行发送 消息体 : {}", message);
+        delayQueueContext.sendMessage(SpringUtil.getPrefixDistinctionName() + "-" + DELAY_ORDER_CANCEL_TOPIC,
+                message, DELAY_ORDER_CANCEL_TIME, DELAY_ORDER_CANCEL_TIME_UNIT);
     }
 }
@@ -0,0 +1,91 @@
+package com.damai.service.es;
+
+import com.damai.entity.ProgramShowTime;
+import com.damai.entity.TicketCategoryAggregate;
+import com.damai.service.init.ProgramDocumentParamName;
+import com.damai.vo.ProgramVo;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目es文档组装
+ * 全量初始化和增量索引共用，保证两条链路写入的字段一致
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class ProgramDocumentBuilder {
+
+    /**
+     * 节目文档id，使用节目id，增量索引按此id做局部更新
+     *
+     * @param programId 节目id
+     * @return 文档id
+     */
+    public String documentId(Long programId) {
+        return String.valueOf(programId);
+    }
+
+    /**
+     * 组装完整的节目文档
+     *
+     * @param programVo               节目详情（包含分类和演出时间）
+     * @param ticketCategoryAggregate 票档统计（最低价、最高价），可以为空
+     * @return 文档字段
+     */
+    public Map<String, Object> buildDocument(ProgramVo programVo, TicketCategoryAggregate ticketCategoryAggregate) {
+        Map<String, Object> map = new HashMap<>(32);
+        map.put(ProgramDocumentParamName.ID, programVo.getId());
+        map.put(ProgramDocumentParamName.PROGRAM_GROUP_ID, programVo.getProgramGroupId());
+        map.put(ProgramDocumentParamName.PRIME, programVo.getPrime());
+        map.put(ProgramDocumentParamName.TITLE, programVo.getTitle());
+        map.put(ProgramDocumentParamName.ACTOR, programVo.getActor());
+        map.put(ProgramDocumentParamName.PLACE, programVo.getPlace());
+        map.put(ProgramDocumentParamName.ITEM_PICTURE, programVo.getItemPicture());
+        map.put(ProgramDocumentParamName.AREA_ID, programVo.getAreaId());
+        map.put(ProgramDocumentParamName.AREA_NAME, programVo.getAreaName());
+        map.put(ProgramDocumentParamName.PROGRAM_CATEGORY_ID, programVo.getProgramCategoryId());
+        map.put(ProgramDocumentParamName.PROGRAM_CATEGORY_NAME, programVo.getProgramCategoryName());
+        map.put(ProgramDocumentParamName.PARENT_PROGRAM_CATEGORY_ID, programVo.getParentProgramCategoryId());
+        map.put(ProgramDocumentParamName.PARENT_PROGRAM_CATEGORY_NAME, programVo.getParentProgramCategoryName());
+        map.put(ProgramDocumentParamName.HIGH_HEAT, programVo.getHighHeat());
+        map.put(ProgramDocumentParamName.ISSUE_TIME, programVo.getIssueTime());
+        map.put(ProgramDocumentParamName.SHOW_TIME, programVo.getShowTime());
+        map.put(ProgramDocumentParamName.SHOW_DAY_TIME, programVo.getShowDayTime());
+        map.put(ProgramDocumentParamName.SHOW_WEEK_TIME, programVo.getShowWeekTime());
+        map.putAll(buildPriceDocument(ticketCategoryAggregate));
+        return map;
+    }
+
+    /**
+     * 组装演出时间的局部文档
+     *
+     * @param programShowTime 演出时间
+     * @return 文档字段
+     */
+    public Map<String, Object> buildShowTimeDocument(ProgramShowTime programShowTime) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put(ProgramDocumentParamName.SHOW_TIME, programShowTime.getShowTime());
+        map.put(ProgramDocumentParamName.SHOW_DAY_TIME, programShowTime.getShowDayTime());
+        map.put(ProgramDocumentParamName.SHOW_WEEK_TIME, programShowTime.getShowWeekTime());
+        return map;
+    }
+
+    /**
+     * 组装票价的局部文档
+     *
+     * @param ticketCategoryAggregate 票档统计，可以为空
+     * @return 文档字段
+     */
+    public Map<String, Object> buildPriceDocument(TicketCategoryAggregate ticketCategoryAggregate) {
+        Map<String, Object> map = new HashMap<>(4);
+        map.put(ProgramDocumentParamName.MIN_PRICE,
+                Optional.ofNullable(ticketCategoryAggregate).map(TicketCategoryAggregate::getMinPrice).orElse(null));
+        map.put(ProgramDocumentParamName.MAX_PRICE,
+                Optional.ofNullable(ticketCategoryAggregate).map(TicketCategoryAggregate::getMaxPrice).orElse(null));
+        return map;
+    }
+}
@@ -0,0 +1,260 @@
+package com.damai.service.es;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.damai.core.SpringUtil;
+import com.damai.dto.EsBulkDocumentDto;
+import com.damai.entity.ProgramIndexOutbox;
+import com.damai.entity.ProgramShowTime;
+import com.damai.entity.TicketCategoryAggregate;
+import com.damai.enums.BusinessStatus;
+import com.damai.enums.ProgramIndexChangeType;
+import com.damai.mapper.ProgramShowTimeMapper;
+import com.damai.service.ProgramIndexOutboxService;
+import com.damai.service.ProgramService;
+import com.damai.service.init.ProgramDocumentParamName;
+import com.damai.servicelock.LockType;
+import com.damai.util.BusinessEsHandle;
+import com.damai.util.DateUtils;
+import com.damai.util.ServiceLockTool;
+import com.damai.vo.ProgramVo;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.damai.core.DistributedLockConstants.PROGRAM_INDEX_OUTBOX_LOCK;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目es增量索引
+ * 定时按分片逐个拉取待同步的变更记录，按节目合并后通过_bulk局部更新es文档，成功后将变更记录标记为已消费
+ * 暂时无法生成完整文档的节目重新入队，不直接消费，也不占住分片队首
+ * 写链路只写一条变更记录，不再同步等待es，es不可用时记录保留，恢复后继续同步
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class ProgramIncrementalIndexer {
+
+    @Autowired
+    private ProgramIndexOutboxService programIndexOutboxService;
+
+    @Autowired
+    private ProgramService programService;
+
+    @Autowired
+    private ProgramShowTimeMapper programShowTimeMapper;
+
+    @Autowired
+    private ProgramDocumentBuilder programDocumentBuilder;
+
+    @Autowired
+    private BusinessEsHandle businessEsHandle;
+
+    @Autowired
+    private ServiceLockTool serviceLockTool;
+
+    /**
+     * 单批拉取的变更记录数量
+     */
+    @Value("${program.index.outbox.batch-size:500}")
+    private Integer batchSize;
+
+    /**
+     * 单次调度最多执行的批次，积压时连续拉取，避免一次调度占用过久
+     */
+    @Value("${program.index.outbox.max-batch-count:20}")
+    private Integer maxBatchCount;
+
+    /**
+     * 已消费记录的保留天数
+     */
+    @Value("${program.index.outbox.retain-days:3}")
+    private Integer retainDays;
+
+    /**
+     * 多实例部署时只需要一个实例执行，拿不到锁的实例直接跳过本次调度
+     */
+    @Scheduled(fixedDelayString = "${program.index.outbox.interval:1000}")
+    public void execute() {
+        RLock lock = serviceLockTool.getLock(LockType.Reentrant, PROGRAM_INDEX_OUTBOX_LOCK);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            for (int shardNo = 0; shardNo < programIndexOutboxService.getShardCount(); shardNo++) {
+                for (int i = 0; i < maxBatchCount; i++) {
+                    if (indexBatch(shardNo) < batchSize) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("program incremental index error", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 定时物理删除已消费的变更记录
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void purge() {
+        try {
+            int count = programIndexOutboxService.purgeConsumed(DateUtils.addDay(DateUtils.now(), -retainDays));
+            log.info("program index outbox purge count : {}", count);
+        } catch (Exception e) {
+            log.error("program index outbox purge error", e);
+        }
+    }
+
+    /**
+     * 执行指定分片的一批增量索引
+     *
+     * @param shardNo 分片号
+     * @return 本批拉取到的变更记录数量
+     */
+    public int indexBatch(int shardNo) {
+        List<ProgramIndexOutbox> outboxList = programIndexOutboxService.selectPending(shardNo, batchSize);
+        if (CollectionUtil.isEmpty(outboxList)) {
+            return 0;
+        }
+        // 同一节目的多条变更合并为一次文档更新
+        Map<Long, Set<ProgramIndexChangeType>> changeMap = new LinkedHashMap<>(outboxList.size());
+        for (ProgramIndexOutbox programIndexOutbox : outboxList) {
+            ProgramIndexChangeType changeType = ProgramIndexChangeType.getRc(programIndexOutbox.getChangeType());
+            if (Objects.isNull(changeType)) {
+                continue;
+            }
+            changeMap.computeIfAbsent(programIndexOutbox.getProgramId(),
+                    k -> EnumSet.noneOf(ProgramIndexChangeType.class)).add(changeType);
+        }
+        String indexName = SpringUtil.getPrefixDistinctionName() + "-" + ProgramDocumentParamName.INDEX_NAME;
+        Set<Long> skipProgramIdSet = new HashSet<>();
+        List<EsBulkDocumentDto> bulkList = buildBulkList(changeMap, skipProgramIdSet);
+        Set<String> failIdSet = new HashSet<>(businessEsHandle.bulk(indexName, ProgramDocumentParamName.INDEX_TYPE, bulkList));
+        if (!failIdSet.isEmpty()) {
+            // 局部更新失败（如文档还不存在）时，使用完整文档重试一次
+            Map<Long, Set<ProgramIndexChangeType>> retryChangeMap = new LinkedHashMap<>(failIdSet.size());
+            for (Long programId : changeMap.keySet()) {
+                if (failIdSet.contains(programDocumentBuilder.documentId(programId))) {
+                    retryChangeMap.put(programId, EnumSet.of(ProgramIndexChangeType.PROGRAM));
+                }
+            }
+            failIdSet = new HashSet<>(businessEsHandle.bulk(indexName, ProgramDocumentParamName.INDEX_TYPE,
+                    buildBulkList(retryChangeMap, skipProgramIdSet)));
+        }
+        // 只消费同步成功的节目的变更记录，es失败的保留到下次调度，跳过的节目重新入队
+        List<Long> idList = new ArrayList<>(outboxList.size());
+        List<Long> skipIdList = new ArrayList<>();
+        for (ProgramIndexOutbox programIndexOutbox : outboxList) {
+            Long programId = programIndexOutbox.getProgramId();
+            if (skipProgramIdSet.contains(programId)) {
+                skipIdList.add(programIndexOutbox.getId());
+            } else if (!failIdSet.contains(programDocumentBuilder.documentId(programId))) {
+                idList.add(programIndexOutbox.getId());
+            }
+        }
+        if (CollectionUtil.isNotEmpty(idList)) {
+            programIndexOutboxService.markConsumed(shardNo, idList);
+        }
+        if (CollectionUtil.isNotEmpty(skipIdList)) {
+            programIndexOutboxService.requeue(shardNo, skipProgramIdSet, skipIdList);
+        }
+        if (!failIdSet.isEmpty()) {
+            log.warn("program incremental index fail programIds : {}", failIdSet);
+        }
+        return outboxList.size();
+    }
+
+    /**
+     * 根据变更类型组装批量文档
+     * 节目自身变更使用完整文档，演出时间、票档变更只更新对应字段，节目失效删除文档
+     *
+     * @param changeMap        节目id -> 变更类型
+     * @param skipProgramIdSet 收集暂时无法生成完整文档而跳过的节目id
+     * @return 批量文档
+     */
+    private List<EsBulkDocumentDto> buildBulkList(Map<Long, Set<ProgramIndexChangeType>> changeMap,
+                                                  Set<Long> skipProgramIdSet) {
+        List<EsBulkDocumentDto> bulkList = new ArrayList<>(changeMap.size());
+        if (changeMap.isEmpty()) {
+            return bulkList;
+        }
+        List<Long> programIdList = new ArrayList<>(changeMap.keySet());
+        Map<Long, TicketCategoryAggregate> ticketCategoryAggregateMap = programService.selectTicketCategorieMap(programIdList);
+        Map<Long, ProgramShowTime> programShowTimeMap = selectProgramShowTimeMap(changeMap);
+        for (Map.Entry<Long, Set<ProgramIndexChangeType>> entry : changeMap.entrySet()) {
+            Long programId = entry.getKey();
+            Set<ProgramIndexChangeType> changeTypeSet = entry.getValue();
+            String documentId = programDocumentBuilder.documentId(programId);
+            if (changeTypeSet.contains(ProgramIndexChangeType.INVALID)) {
+                bulkList.add(new EsBulkDocumentDto(documentId, null, true, false));
+                continue;
+            }
+            if (changeTypeSet.contains(ProgramIndexChangeType.PROGRAM)) {
+                ProgramVo programVo;
+                try {
+                    programVo = programService.getDetailFromDb(programId);
+                } catch (Exception e) {
+                    // 节目或演出时间还不存在，重新入队，下次调度再写入完整文档
+                    log.warn("program document build skip programId : {} message : {}", programId, e.getMessage());
+                    skipProgramIdSet.add(programId);
+                    continue;
+                }
+                if (Objects.equals(programVo.getProgramStatus(), BusinessStatus.NO.getCode())) {
+                    bulkList.add(new EsBulkDocumentDto(documentId, null, true, false));
+                } else {
+                    bulkList.add(new EsBulkDocumentDto(documentId,
+                            programDocumentBuilder.buildDocument(programVo, ticketCategoryAggregateMap.get(programId)),
+                            false, true));
+                }
+                continue;
+            }
+            Map<String, Object> params = new HashMap<>(8);
+            if (changeTypeSet.contains(ProgramIndexChangeType.SHOW_TIME)) {
+                ProgramShowTime programShowTime = programShowTimeMap.get(programId);
+                if (Objects.nonNull(programShowTime)) {
+                    params.putAll(programDocumentBuilder.buildShowTimeDocument(programShowTime));
+                }
+            }
+            if (changeTypeSet.contains(ProgramIndexChangeType.TICKET_CATEGORY)) {
+                params.putAll(programDocumentBuilder.buildPriceDocument(ticketCategoryAggregateMap.get(programId)));
+            }
+            if (!params.isEmpty()) {
+                bulkList.add(new EsBulkDocumentDto(documentId, params, false, false));
+            }
+        }
+        return bulkList;
+    }
+
+    private Map<Long, ProgramShowTime> selectProgramShowTimeMap(Map<Long, Set<ProgramIndexChangeType>> changeMap) {
+        List<Long> programIdList = changeMap.entrySet().stream()
+                .filter(entry -> entry.getValue().contains(ProgramIndexChangeType.SHOW_TIME))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (programIdList.isEmpty()) {
+            return new HashMap<>(0);
+        }
+        LambdaQueryWrapper<ProgramShowTime> programShowTimeLambdaQueryWrapper =
+                Wrappers.lambdaQuery(ProgramShowTime.class).in(ProgramShowTime::getProgramId, programIdList);
+        return programShowTimeMapper.selectList(programShowTimeLambdaQueryWrapper).stream()
+                .collect(Collectors.toMap(ProgramShowTime::getProgramId, programShowTime -> programShowTime, (v1, v2) -> v2));
+    }
+}
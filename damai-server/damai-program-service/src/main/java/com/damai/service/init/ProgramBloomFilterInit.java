@@ -9,6 +9,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -59,8 +60,8 @@ public class ProgramBloomFilterInit extends AbstractApplicationPostConstructHand
         if (CollectionUtil.isEmpty(allProgramIdList)) {
             return;
         }
-        // 遍历所有节目ID，将其转换为字符串添加到布隆过滤器
+        // 将节目ID转换为字符串后批量添加到布隆过滤器，分批通过管道写入，避免逐条添加的网络往返
         // 布隆过滤器会通过哈希算法标记这些ID，支持后续O(1)时间复杂度的存在性判断
-        allProgramIdList.forEach(programId -> bloomFilterHandler.add(String.valueOf(programId)));
+        bloomFilterHandler.addAll(allProgramIdList.stream().map(String::valueOf).collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,34 @@
+package com.damai.service.init;
+
+import com.damai.handler.BloomFilterRebuildSource;
+import com.damai.service.ProgramService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目id布隆过滤器重建数据源
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class ProgramBloomFilterRebuildSource implements BloomFilterRebuildSource {
+    
+    /**
+     * 节目服务依赖布隆过滤器，布隆过滤器又依赖此数据源，延迟注入解决循环依赖
+     */
+    @Lazy
+    @Autowired
+    private ProgramService programService;
+    
+    /**
+     * 只加载有效状态的节目id，已下架的节目在新代际中不再存在
+     */
+    @Override
+    public Collection<String> loadAll() {
+        return programService.getAllProgramIdList().stream().map(String::valueOf).collect(Collectors.toList());
+    }
+}
@@ -6,18 +6,18 @@ import com.damai.dto.EsDocumentMappingDto;
 import com.damai.entity.TicketCategoryAggregate;
 import com.damai.initialize.base.AbstractApplicationPostConstructHandler;
 import com.damai.service.ProgramService;
+import com.damai.service.es.ProgramDocumentBuilder;
 import com.damai.util.BusinessEsHandle;
 import com.damai.vo.ProgramVo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
@@ -40,6 +40,18 @@ public class ProgramElasticsearchInitData extends AbstractApplicationPostConstru
     @Autowired
     private ProgramService programService;
 
+    /**
+     * 节目es文档组装
+     */
+    @Autowired
+    private ProgramDocumentBuilder programDocumentBuilder;
+
+    /**
+     * 索引已存在时是否仍然全量重建，默认不重建，日常变更由增量索引任务同步
+     */
+    @Value("${program.index.full-rebuild:false}")
+    private Boolean fullRebuild;
+
     /**
      * 定义当前初始化处理器的执行顺序
      * 返回值为3，表示在同类型处理器中优先级较低（数值越小优先级越高）
@@ -88,48 +100,28 @@ public class ProgramElasticsearchInitData extends AbstractApplicationPostConstru
         Map<Long, TicketCategoryAggregate> ticketCategorieMap = programService.selectTicketCategorieMap(allProgramIdList);
         for (Long programId : allProgramIdList) {
             ProgramVo programVo = programService.getDetailFromDb(programId);
-            Map<String, Object> map = new HashMap<>(32);
-            map.put(ProgramDocumentParamName.ID, programVo.getId());
-            map.put(ProgramDocumentParamName.PROGRAM_GROUP_ID, programVo.getProgramGroupId());
-            map.put(ProgramDocumentParamName.PRIME, programVo.getPrime());
-            map.put(ProgramDocumentParamName.TITLE, programVo.getTitle());
-            map.put(ProgramDocumentParamName.ACTOR, programVo.getActor());
-            map.put(ProgramDocumentParamName.PLACE, programVo.getPlace());
-            map.put(ProgramDocumentParamName.ITEM_PICTURE, programVo.getItemPicture());
-            map.put(ProgramDocumentParamName.AREA_ID, programVo.getAreaId());
-            map.put(ProgramDocumentParamName.AREA_NAME, programVo.getAreaName());
-            map.put(ProgramDocumentParamName.PROGRAM_CATEGORY_ID, programVo.getProgramCategoryId());
-            map.put(ProgramDocumentParamName.PROGRAM_CATEGORY_NAME, programVo.getProgramCategoryName());
-            map.put(ProgramDocumentParamName.PARENT_PROGRAM_CATEGORY_ID, programVo.getParentProgramCategoryId());
-            map.put(ProgramDocumentParamName.PARENT_PROGRAM_CATEGORY_NAME, programVo.getParentProgramCategoryName());
-            map.put(ProgramDocumentParamName.HIGH_HEAT, programVo.getHighHeat());
-            map.put(ProgramDocumentParamName.ISSUE_TIME, programVo.getIssueTime());
-            map.put(ProgramDocumentParamName.SHOW_TIME, programVo.getShowTime());
-            map.put(ProgramDocumentParamName.SHOW_DAY_TIME, programVo.getShowDayTime());
-            map.put(ProgramDocumentParamName.SHOW_WEEK_TIME, programVo.getShowWeekTime());
-            map.put(ProgramDocumentParamName.MIN_PRICE,
-                    Optional.ofNullable(ticketCategorieMap.get(programVo.getId()))
-                            .map(TicketCategoryAggregate::getMinPrice).orElse(null));
-            map.put(ProgramDocumentParamName.MAX_PRICE,
-                    Optional.ofNullable(ticketCategorieMap.get(programVo.getId()))
-                            .map(TicketCategoryAggregate::getMaxPrice).orElse(null));
+            Map<String, Object> map = programDocumentBuilder.buildDocument(programVo, ticketCategorieMap.get(programId));
+            // 使用节目id作为文档id，增量索引按此id局部更新
             businessEsHandle.add(SpringUtil.getPrefixDistinctionName() + "-" +
-                    ProgramDocumentParamName.INDEX_NAME, ProgramDocumentParamName.INDEX_TYPE, map);
+                    ProgramDocumentParamName.INDEX_NAME, ProgramDocumentParamName.INDEX_TYPE, map,
+                    programDocumentBuilder.documentId(programId));
         }
     }
 
     /**
      * 检查并创建Elasticsearch索引
      *
-     * @return 若索引创建成功（或无需创建），返回true，否则返回false
+     * @return 若索引创建成功，返回true，索引已存在（由增量索引维护）或创建失败返回false
      */
     public boolean indexAdd() {
         // 检查索引是否存在
         boolean indexExists = businessEsHandle.checkIndex(SpringUtil.getPrefixDistinctionName() + "-" +
                 ProgramDocumentParamName.INDEX_NAME, ProgramDocumentParamName.INDEX_TYPE);
-        // 索引已存在，无需重复初始化
+        // 索引已存在，数据由增量索引任务维护，无需重复初始化
         if (indexExists) {
-            // TODO
+            if (!fullRebuild) {
+                return false;
+            }
             businessEsHandle.deleteIndex(SpringUtil.getPrefixDistinctionName() + "-" +
                     ProgramDocumentParamName.INDEX_NAME);
         }
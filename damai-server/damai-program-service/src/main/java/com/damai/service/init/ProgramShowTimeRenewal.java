@@ -1,10 +1,8 @@
 package com.damai.service.init;
 
-import com.damai.core.SpringUtil;
 import com.damai.initialize.base.AbstractApplicationPostConstructHandler;
 import com.damai.service.ProgramService;
 import com.damai.service.ProgramShowTimeService;
-import com.damai.util.BusinessEsHandle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
@@ -33,12 +31,6 @@ public class ProgramShowTimeRenewal extends AbstractApplicationPostConstructHand
     @Autowired
     private ProgramService programService;
 
-    /**
-     * 业务ES处理器，用于操作Elasticsearch搜索引擎的索引数据
-     */
-    @Autowired
-    private BusinessEsHandle businessEsHandle;
-
     /**
      * 定义当前初始化处理器的执行顺序
      * 返回值为2，表示在同类型处理器中优先级中等（数值越小优先级越高）
@@ -54,7 +46,7 @@ public class ProgramShowTimeRenewal extends AbstractApplicationPostConstructHand
     /**
      * 执行节目演出时间更新的初始化逻辑
      * 1. 更新演出信息并获取受影响的节目ID集合
-     * 2. 若有受影响的节目，重建相关ES索引并清理缓存
+     * 2. 若有受影响的节目，清理缓存（ES文档由增量索引任务根据变更记录局部更新）
      *
      * @param context Spring应用上下文（当前实现未直接使用）
      */
@@ -63,9 +55,6 @@ public class ProgramShowTimeRenewal extends AbstractApplicationPostConstructHand
         // 判断节目演出时间是否过期，如果过期了，则更新时间，并返回已经更新演出时间的节目id（也就是过期时间id集合）
         Set<Long> programIdSet = programShowTimeService.renewal();
         if (!programIdSet.isEmpty()) {
-            // 如果更新了，将elasticsearch的整个索引和数据都删除
-            businessEsHandle.deleteIndex(SpringUtil.getPrefixDistinctionName() + "-" +
-                    ProgramDocumentParamName.INDEX_NAME);
             // 遍历过期时间id集合
             for (Long programId : programIdSet) {
                 // 将redis中的数据删除
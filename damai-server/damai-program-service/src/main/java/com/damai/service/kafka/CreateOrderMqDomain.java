@@ -1,15 +0,0 @@
-package com.damai.service.kafka;
-
-import com.damai.exception.DaMaiFrameException;
-
-/**
- * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
- * @description: 数据中转
- * @author: 阿星不是程序员
- **/
-public class CreateOrderMqDomain {
-
-    public String orderNumber;
-    
-    public DaMaiFrameException daMaiFrameException;
-}
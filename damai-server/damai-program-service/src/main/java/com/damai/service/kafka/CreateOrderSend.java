@@ -1,8 +1,6 @@
 package com.damai.service.kafka;
 
 import com.damai.core.SpringUtil;
-import com.damai.mq.callback.FailureCallback;
-import com.damai.mq.callback.SuccessCallback;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +8,12 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: kafka 创建订单 发送
+ * 由发件箱转发任务调用，一批消息全部交给生产者后再统一等待发送结果
  * @author: 阿星不是程序员
  **/
 @Slf4j
@@ -29,18 +27,14 @@ public class CreateOrderSend {
     @Autowired
     private KafkaTopic kafkaTopic;
     
-    
-    public void sendMessage(String message, SuccessCallback<SendResult<String, String>> successCallback, 
-                            FailureCallback failureCallback) {
+    /**
+     * 发送创建订单消息
+     *
+     * @param message 消息体
+     * @return 发送结果
+     */
+    public CompletableFuture<SendResult<String, String>> sendMessage(String message) {
         log.info("创建订单kafka发送消息 消息体 : {}", message);
-        CompletableFuture<SendResult<String, String>> completableFuture = 
-                kafkaTemplate.send(SpringUtil.getPrefixDistinctionName() + "-" + kafkaTopic.getTopic(), message);
-        completableFuture.whenComplete((result,ex) -> {
-            if (Objects.isNull(ex)) {
-                successCallback.onSuccess(result);
-            }else {
-                failureCallback.onFailure(ex);
-            }
-        });
+        return kafkaTemplate.send(SpringUtil.getPrefixDistinctionName() + "-" + kafkaTopic.getTopic(), message);
     }
 }
@@ -1,13 +1,11 @@
 package com.damai.service.lua;
 
 import com.alibaba.fastjson.JSON;
-import com.damai.redis.RedisCache;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -22,23 +20,18 @@ import java.util.List;
 public class ProgramCacheCreateOrderResolutionOperate {
     
     @Autowired
-    private RedisCache redisCache;
+    private RedisScriptRegistry redisScriptRegistry;
     
-    private DefaultRedisScript<String> redisScript;
+    private LuaScript<String> redisScript;
     
     @PostConstruct
     public void init(){
-        try {
-            redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/programDataCreateOrderResolution.lua")));
-            redisScript.setResultType(String.class);
-        } catch (Exception e) {
-            log.error("redisScript init lua error",e);
-        }
+        redisScript = redisScriptRegistry.register("programDataCreateOrderResolution",
+                "lua/programDataCreateOrderResolution.lua", String.class);
     }
     
     public ProgramCacheCreateOrderData programCacheOperate(List<String> keys, String[] args){
-        Object object = redisCache.getInstance().execute(redisScript, keys, args);
-        return JSON.parseObject((String)object, ProgramCacheCreateOrderData.class);
+        String result = redisScript.execute(keys, (Object[]) args);
+        return JSON.parseObject(result, ProgramCacheCreateOrderData.class);
     }
 }
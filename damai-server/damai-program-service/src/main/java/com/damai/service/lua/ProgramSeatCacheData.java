@@ -1,14 +1,12 @@
 package com.damai.service.lua;
 
 import com.alibaba.fastjson.JSON;
-import com.damai.redis.RedisCache;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import com.damai.vo.SeatVo;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -26,21 +24,15 @@ import java.util.stream.Collectors;
 public class ProgramSeatCacheData {
 
     @Autowired
-    private RedisCache redisCache;
+    private RedisScriptRegistry redisScriptRegistry;
 
-    private DefaultRedisScript redisScript;
+    private LuaScript<List> redisScript;
 
     private static final Integer THRESHOLD_VALUE = 2000;
 
     @PostConstruct
     public void init() {
-        try {
-            redisScript = new DefaultRedisScript<>();
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/programSeat.lua")));
-            redisScript.setResultType(Object.class);
-        } catch (Exception e) {
-            log.error("redisScript init lua error", e);
-        }
+        redisScript = redisScriptRegistry.register("programSeat", "lua/programSeat.lua", List.class);
     }
 
     /**
@@ -55,7 +47,7 @@ public class ProgramSeatCacheData {
         List<SeatVo> seatVoList;
         // 执行redis脚本，批量查询多个哈希键的所有字段值
         // 执行结果：返回所有缓存键对应的座位信息字符串列表（如JSON格式）
-        Object object = redisCache.getInstance().execute(redisScript, keys, args);
+        Object object = redisScript.execute(keys, (Object[]) args);
         // 转换查询结果为字符串列表
         List<String> seatVoStrlist = new ArrayList<>();
         // 校验结果非空且为ArrayList类型（脚本返回的列表类型）
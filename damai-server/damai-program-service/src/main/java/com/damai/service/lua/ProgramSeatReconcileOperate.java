@@ -0,0 +1,85 @@
+package com.damai.service.lua;
+
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 座位缓存对账的缓存操作
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class ProgramSeatReconcileOperate {
+
+    /**
+     * 只返回校验和
+     */
+    private static final String CHECKSUM_MODE = "1";
+
+    /**
+     * 返回每个座位的状态
+     */
+    private static final String STATE_MODE = "2";
+
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+
+    private LuaScript<List> stateScript;
+
+    private LuaScript<List> repairScript;
+
+    @PostConstruct
+    public void init() {
+        stateScript = redisScriptRegistry.register("programSeatReconcileState", "lua/programSeatReconcileState.lua",
+                List.class);
+        repairScript = redisScriptRegistry.register("programSeatReconcileRepair", "lua/programSeatReconcileRepair.lua",
+                List.class);
+    }
+
+    /**
+     * 查询一段座位在缓存中的校验和
+     *
+     * @param keys       未售、锁定、已售座位哈希的键
+     * @param seatIdList 按id升序排列的座位id
+     * @return 缓存未加载时为 [0]，否则为 [1, 校验和, 锁定的座位数量]
+     */
+    public List<Long> checksum(List<String> keys, List<Long> seatIdList) {
+        return stateScript.execute(keys, args(CHECKSUM_MODE, seatIdList));
+    }
+
+    /**
+     * 查询一段座位在缓存中的状态
+     *
+     * @param keys       未售、锁定、已售座位哈希的键
+     * @param seatIdList 按id升序排列的座位id
+     * @return 缓存未加载时为 [0]，否则为 [1, 座位1状态, 座位2状态...]
+     */
+    public List<Long> state(List<String> keys, List<Long> seatIdList) {
+        return stateScript.execute(keys, args(STATE_MODE, seatIdList));
+    }
+
+    /**
+     * 修复缓存中的座位状态和票档余票
+     *
+     * @param keys 未售、锁定、已售座位哈希和票档余票哈希的键
+     * @param args 票档id、票档总数量、需要修复的座位
+     * @return [修复的座位数量, 余票修正量]
+     */
+    public List<Long> repair(List<String> keys, String[] args) {
+        return repairScript.execute(keys, (Object[]) args);
+    }
+
+    private Object[] args(String mode, List<Long> seatIdList) {
+        Object[] args = new Object[seatIdList.size() + 1];
+        args[0] = mode;
+        for (int i = 0; i < seatIdList.size(); i++) {
+            args[i + 1] = String.valueOf(seatIdList.get(i));
+        }
+        return args;
+    }
+}
@@ -0,0 +1,215 @@
+package com.damai.service.outbox;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.damai.entity.ProgramOutbox;
+import com.damai.enums.OutboxEventType;
+import com.damai.outbox.OutboxRelayMetrics;
+import com.damai.outbox.OutboxRetryPolicy;
+import com.damai.service.ProgramOutboxService;
+import com.damai.service.delaysend.DelayOrderCancelSend;
+import com.damai.service.kafka.CreateOrderSend;
+import com.damai.servicelock.LockType;
+import com.damai.util.DateUtils;
+import com.damai.util.ServiceLockTool;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.damai.core.DistributedLockConstants.PROGRAM_OUTBOX_RELAY_LOCK;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目服务事务发件箱转发
+ * 定时按id顺序拉取待转发的事件：创建订单消息一批全部交给kafka生产者后统一等待发送结果，延迟取消订单消息写入延迟队列，
+ * 转发成功的事件标记为已消费，失败的记录重试次数并按退避时间推迟到之后的调度重试，达到最大重试次数后转为失败状态
+ * 转发至少一次：标记已消费之前宕机会重复转发，消费端按订单编号幂等
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class ProgramOutboxRelay {
+
+    @Autowired
+    private ProgramOutboxService programOutboxService;
+
+    @Autowired
+    private CreateOrderSend createOrderSend;
+
+    @Autowired
+    private DelayOrderCancelSend delayOrderCancelSend;
+
+    @Autowired
+    private ServiceLockTool serviceLockTool;
+
+    @Autowired
+    private OutboxRelayMetrics outboxRelayMetrics;
+
+    @Autowired
+    private OutboxRetryPolicy outboxRetryPolicy;
+
+    /**
+     * 单批拉取的事件数量
+     */
+    @Value("${program.outbox.batch-size:200}")
+    private Integer batchSize;
+
+    /**
+     * 单次调度最多执行的批次，积压时连续拉取，避免一次调度占用过久
+     */
+    @Value("${program.outbox.max-batch-count:20}")
+    private Integer maxBatchCount;
+
+    /**
+     * 等待kafka发送结果的超时时间（毫秒）
+     */
+    @Value("${program.outbox.send-timeout:3000}")
+    private Long sendTimeout;
+
+    /**
+     * 已转发事件的保留天数
+     */
+    @Value("${program.outbox.retain-days:3}")
+    private Integer retainDays;
+
+    /**
+     * 创建订单消息在订单服务消费时从kafka发送时间开始判断过期，在发件箱中等待转发的时间不计入
+     * 多实例部署时只需要一个实例执行，拿不到锁的实例直接跳过本次调度
+     */
+    @Scheduled(fixedDelayString = "${program.outbox.interval:100}")
+    public void execute() {
+        RLock lock = serviceLockTool.getLock(LockType.Reentrant, PROGRAM_OUTBOX_RELAY_LOCK);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < maxBatchCount; i++) {
+                if (relayBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("program outbox relay error", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 定时物理删除已转发的事件
+     */
+    @Scheduled(cron = "0 40 3 * * ?")
+    public void purge() {
+        try {
+            int count = programOutboxService.purgeConsumed(DateUtils.addDay(DateUtils.now(), -retainDays));
+            log.info("program outbox purge count : {}", count);
+        } catch (Exception e) {
+            log.error("program outbox purge error", e);
+        }
+    }
+
+    /**
+     * 转发一批事件
+     *
+     * @return 本批拉取到的事件数量
+     */
+    public int relayBatch() {
+        List<ProgramOutbox> outboxList = programOutboxService.selectPending(batchSize);
+        if (CollectionUtil.isEmpty(outboxList)) {
+            return 0;
+        }
+        List<ProgramOutbox> successList = new ArrayList<>(outboxList.size());
+        Map<ProgramOutbox, CompletableFuture<SendResult<String, String>>> futureMap = new LinkedHashMap<>();
+        for (ProgramOutbox programOutbox : outboxList) {
+            OutboxEventType eventType = OutboxEventType.getRc(programOutbox.getEventType());
+            try {
+                if (eventType == OutboxEventType.ORDER_CREATE) {
+                    futureMap.put(programOutbox, createOrderSend.sendMessage(programOutbox.getPayload()));
+                } else if (eventType == OutboxEventType.DELAY_ORDER_CANCEL) {
+                    delayOrderCancelSend.sendMessage(programOutbox.getPayload());
+                    success(programOutbox, eventType, successList);
+                } else {
+                    // 未知的事件类型不会被任何一方处理，直接消费掉，避免一直阻塞在发件箱中
+                    log.error("program outbox unknown event type id : {} eventType : {}",
+                            programOutbox.getId(), programOutbox.getEventType());
+                    successList.add(programOutbox);
+                }
+            } catch (Exception e) {
+                error(programOutbox, eventType, e);
+            }
+        }
+        // 一批kafka消息已经全部交给生产者，统一等待发送结果
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+        for (Map.Entry<ProgramOutbox, CompletableFuture<SendResult<String, String>>> entry : futureMap.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                success(entry.getKey(), OutboxEventType.ORDER_CREATE, successList);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error(entry.getKey(), OutboxEventType.ORDER_CREATE, e);
+            } catch (Exception e) {
+                error(entry.getKey(), OutboxEventType.ORDER_CREATE, e);
+            }
+        }
+        if (CollectionUtil.isNotEmpty(successList)) {
+            Set<Long> programIdSet = new HashSet<>();
+            List<Long> idList = new ArrayList<>(successList.size());
+            for (ProgramOutbox programOutbox : successList) {
+                programIdSet.add(programOutbox.getProgramId());
+                idList.add(programOutbox.getId());
+            }
+            programOutboxService.markConsumed(programIdSet, idList);
+        }
+        return outboxList.size();
+    }
+
+    private void success(ProgramOutbox programOutbox, OutboxEventType eventType, List<ProgramOutbox> successList) {
+        successList.add(programOutbox);
+        outboxRelayMetrics.recordSuccess(eventType, programOutbox.getCreateTime());
+    }
+
+    private void error(ProgramOutbox programOutbox, OutboxEventType eventType, Exception e) {
+        log.error("program outbox relay event error id : {} eventType : {}", programOutbox.getId(),
+                programOutbox.getEventType(), e);
+        if (Objects.nonNull(eventType)) {
+            outboxRelayMetrics.recordError(eventType);
+        }
+        retry(programOutbox, eventType);
+    }
+
+    /**
+     * 记录一次转发失败，推迟下次转发时间，达到最大重试次数时转为失败状态
+     * 记录失败时事件保持原来的下次转发时间，下次调度仍会拉取到
+     */
+    private void retry(ProgramOutbox programOutbox, OutboxEventType eventType) {
+        int retryCount = (Objects.isNull(programOutbox.getRetryCount()) ? 0 : programOutbox.getRetryCount()) + 1;
+        boolean failed = outboxRetryPolicy.exhausted(retryCount);
+        try {
+            programOutboxService.markRetry(programOutbox.getProgramId(), programOutbox.getId(), retryCount,
+                    outboxRetryPolicy.nextRetryTime(DateUtils.now(), retryCount), failed);
+        } catch (Exception e) {
+            log.error("program outbox mark retry error id : {}", programOutbox.getId(), e);
+            return;
+        }
+        if (failed) {
+            log.error("program outbox event failed id : {} eventType : {} retryCount : {}", programOutbox.getId(),
+                    programOutbox.getEventType(), retryCount);
+            if (Objects.nonNull(eventType)) {
+                outboxRelayMetrics.recordFailed(eventType);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.damai.service.reconcile;
+
+import com.damai.enums.SellStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 座位缓存和数据库对账监控指标，通过Micrometer导出
+ * program.seat.reconcile.chunks：对账的座位段数量（按校验和是否一致）
+ * program.seat.reconcile.drift：发现的座位状态差异（按缓存/数据库、当前状态、应有状态）
+ * program.seat.reconcile.repair：修复的座位数量（按缓存/数据库）
+ * program.ticket.remain.reconcile.drift：修正的余票数量（按缓存/数据库）
+ * program.seat.reconcile.duration：一轮对账的耗时
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class ProgramSeatReconcileMetrics {
+
+    public static final String SIDE_REDIS = "redis";
+
+    public static final String SIDE_DB = "db";
+
+    private static final String SIDE = "side";
+
+    private final MeterRegistry meterRegistry;
+
+    public ProgramSeatReconcileMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+
+    /**
+     * 记录一段座位的校验和比较结果
+     *
+     * @param match 校验和是否一致
+     */
+    public void recordChunk(boolean match) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Counter.builder("program.seat.reconcile.chunks")
+                .description("对账的座位段数量")
+                .tag("result", match ? "match" : "mismatch")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录一个座位状态差异
+     *
+     * @param side        缓存或数据库
+     * @param state       当前状态，0表示缓存中不存在
+     * @param expectState 应有状态
+     */
+    public void recordDrift(String side, Integer state, Integer expectState) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Counter.builder("program.seat.reconcile.drift")
+                .description("发现的座位状态差异")
+                .tag(SIDE, side)
+                .tag("state", stateName(state))
+                .tag("expect", stateName(expectState))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录修复的座位数量
+     *
+     * @param side  缓存或数据库
+     * @param count 修复的座位数量
+     */
+    public void recordRepair(String side, long count) {
+        if (Objects.isNull(meterRegistry) || count <= 0) {
+            return;
+        }
+        Counter.builder("program.seat.reconcile.repair")
+                .description("修复的座位数量")
+                .tag(SIDE, side)
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * 记录修正的余票数量
+     *
+     * @param side  缓存或数据库
+     * @param drift 余票修正量
+     */
+    public void recordRemainDrift(String side, long drift) {
+        if (Objects.isNull(meterRegistry) || drift == 0) {
+            return;
+        }
+        DistributionSummary.builder("program.ticket.remain.reconcile.drift")
+                .description("修正的余票数量")
+                .tag(SIDE, side)
+                .register(meterRegistry)
+                .record(Math.abs(drift));
+    }
+
+    /**
+     * 记录一轮对账的耗时
+     *
+     * @param nanos 耗时（纳秒）
+     */
+    public void recordRun(long nanos) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Timer.builder("program.seat.reconcile.duration")
+                .description("一轮对账的耗时")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private String stateName(Integer state) {
+        SellStatus sellStatus = SellStatus.getRc(state);
+        return Objects.isNull(sellStatus) ? "MISSING" : sellStatus.name();
+    }
+}
@@ -0,0 +1,446 @@
+package com.damai.service.reconcile;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.collection.ListUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.damai.client.OrderClient;
+import com.damai.common.ApiResponse;
+import com.damai.core.RedisKeyManage;
+import com.damai.dto.ProgramSeatOrderStatusDto;
+import com.damai.entity.Seat;
+import com.damai.entity.TicketCategory;
+import com.damai.enums.OrderStatus;
+import com.damai.enums.SeatType;
+import com.damai.enums.SellStatus;
+import com.damai.mapper.SeatMapper;
+import com.damai.mapper.TicketCategoryMapper;
+import com.damai.redis.RedisKeyBuild;
+import com.damai.service.ProgramService;
+import com.damai.service.SeatService;
+import com.damai.service.TicketCategoryService;
+import com.damai.service.lua.ProgramSeatReconcileOperate;
+import com.damai.servicelock.LockType;
+import com.damai.util.ServiceLockTool;
+import com.damai.vo.SeatOrderStatusVo;
+import com.damai.vo.SeatVo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.damai.core.DistributedLockConstants.PROGRAM_SEAT_RECONCILE_LOCK;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目座位缓存和数据库对账
+ * 缓存中的座位状态和余票由下单、支付、取消脚本实时修改，数据库由支付后的延迟消息异步修改，消息丢失时两边会一直不一致
+ * 每轮按节目、票档遍历座位，按id分段读取数据库的售卖状态，和缓存中这一段座位的校验和比较，一致且没有锁定的座位时跳过，
+ * 否则逐个比较，有差异的座位按订单服务中的有效订单确定应有状态：
+ * 已支付 -> 两边都是已售；未支付 -> 缓存锁定、数据库未售；没有有效订单 -> 两边都是未售
+ * 消息在途时也会出现短暂的差异，同一个差异在间隔 confirmDelay 以上的两轮中都出现才修复，
+ * 修复时只修改状态仍是对账时读取到的状态的座位，对账期间新的下单、支付、取消不会被覆盖，修复座位后按座位状态修正余票
+ * 每段之后按每秒对账的座位数量限速；定时调度的线程和发件箱转发共用，对账耗时较长，所以在单独的线程中执行
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@Component
+public class ProgramSeatReconciler {
+
+    @Autowired
+    private ProgramService programService;
+
+    @Autowired
+    private SeatService seatService;
+
+    @Autowired
+    private TicketCategoryService ticketCategoryService;
+
+    @Autowired
+    private SeatMapper seatMapper;
+
+    @Autowired
+    private TicketCategoryMapper ticketCategoryMapper;
+
+    @Autowired
+    private OrderClient orderClient;
+
+    @Autowired
+    private ProgramSeatReconcileOperate programSeatReconcileOperate;
+
+    @Autowired
+    private ServiceLockTool serviceLockTool;
+
+    @Autowired
+    private ProgramSeatReconcileMetrics programSeatReconcileMetrics;
+
+    /**
+     * 两轮对账的间隔（毫秒）
+     */
+    @Value("${program.reconcile.interval:300000}")
+    private Long interval;
+
+    /**
+     * 每段对账的座位数量
+     */
+    @Value("${program.reconcile.chunk-size:500}")
+    private Integer chunkSize;
+
+    /**
+     * 每秒最多对账的座位数量
+     */
+    @Value("${program.reconcile.seat-rate:5000}")
+    private Integer seatRate;
+
+    /**
+     * 差异持续多久后修复（毫秒），要明显大于创建订单消息的过期时间和发件箱的转发延迟
+     */
+    @Value("${program.reconcile.confirm-delay:30000}")
+    private Long confirmDelay;
+
+    private ScheduledExecutorService scheduledExecutor;
+
+    /**
+     * 上一轮发现的差异，key为 节目id_座位id，只在对账线程中访问
+     */
+    private Map<String, SeatDrift> lastDriftMap = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "program-seat-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.scheduleWithFixedDelay(this::execute, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledExecutor.shutdownNow();
+    }
+
+    /**
+     * 执行一轮对账，多实例部署时只需要一个实例执行，拿不到锁的实例直接跳过
+     */
+    public void execute() {
+        RLock lock = serviceLockTool.getLock(LockType.Reentrant, PROGRAM_SEAT_RECONCILE_LOCK);
+        if (!lock.tryLock()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        try {
+            Map<String, SeatDrift> driftMap = new HashMap<>();
+            for (Long programId : programService.getAllProgramIdList()) {
+                try {
+                    reconcileProgram(programId, driftMap);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("program seat reconcile error programId : {}", programId, e);
+                }
+            }
+            lastDriftMap = driftMap;
+            programSeatReconcileMetrics.recordRun(System.nanoTime() - startTime);
+            log.info("program seat reconcile finished, drift seat count : {}, cost : {}ms", driftMap.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } catch (Exception e) {
+            log.error("program seat reconcile error", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reconcileProgram(Long programId, Map<String, SeatDrift> driftMap) throws InterruptedException {
+        List<TicketCategory> ticketCategoryList = ticketCategoryMapper.selectList(
+                Wrappers.lambdaQuery(TicketCategory.class)
+                        .select(TicketCategory::getId, TicketCategory::getTotalNumber)
+                        .eq(TicketCategory::getProgramId, programId));
+        for (TicketCategory ticketCategory : ticketCategoryList) {
+            reconcileTicketCategory(programId, ticketCategory, driftMap);
+        }
+    }
+
+    /**
+     * 对账一个票档：分段比较座位状态，然后修复确认的差异，最后修正余票
+     */
+    private void reconcileTicketCategory(Long programId, TicketCategory ticketCategory,
+                                         Map<String, SeatDrift> driftMap) throws InterruptedException {
+        Long ticketCategoryId = ticketCategory.getId();
+        List<String> seatKeys = seatKeys(programId, ticketCategoryId);
+        List<SeatDrift> repairList = new ArrayList<>();
+        long lastId = 0L;
+        while (true) {
+            long chunkStartTime = System.nanoTime();
+            List<Seat> seatList = seatMapper.selectList(Wrappers.lambdaQuery(Seat.class)
+                    .select(Seat::getId, Seat::getSellStatus)
+                    .eq(Seat::getProgramId, programId)
+                    .eq(Seat::getTicketCategoryId, ticketCategoryId)
+                    .gt(Seat::getId, lastId)
+                    .orderByAsc(Seat::getId)
+                    .last("limit " + chunkSize));
+            if (CollectionUtil.isEmpty(seatList)) {
+                break;
+            }
+            lastId = seatList.get(seatList.size() - 1).getId();
+            // 座位缓存未加载时没有可以比较的缓存，只修正数据库的余票
+            if (!reconcileChunk(programId, seatKeys, seatList, driftMap, repairList)) {
+                break;
+            }
+            throttle(seatList.size(), chunkStartTime);
+        }
+        repairDb(programId, repairList);
+        long dbRemainDrift = ticketCategoryService.reconcileRemainNumber(programId, ticketCategoryId);
+        if (dbRemainDrift != 0) {
+            programSeatReconcileMetrics.recordRemainDrift(ProgramSeatReconcileMetrics.SIDE_DB, dbRemainDrift);
+            log.warn("节目票档数据库余票修正 programId : {} ticketCategoryId : {} drift : {}",
+                    programId, ticketCategoryId, dbRemainDrift);
+        }
+        repairRedis(programId, ticketCategory, seatKeys, repairList);
+    }
+
+    /**
+     * 对账一段座位
+     *
+     * @return 座位缓存是否已加载
+     */
+    private boolean reconcileChunk(Long programId, List<String> seatKeys, List<Seat> seatList,
+                                   Map<String, SeatDrift> driftMap, List<SeatDrift> repairList) {
+        List<Long> seatIdList = seatList.stream().map(Seat::getId).toList();
+        List<Long> checksumResult = programSeatReconcileOperate.checksum(seatKeys, seatIdList);
+        if (checksumResult.get(0) == 0L) {
+            return false;
+        }
+        // 锁定的座位可能是取消后没有恢复的，需要结合订单状态判断，校验和一致也不能跳过
+        boolean match = checksumResult.get(1) == checksum(seatList) && checksumResult.get(2) == 0L;
+        programSeatReconcileMetrics.recordChunk(match);
+        if (match) {
+            return true;
+        }
+        List<Long> stateResult = programSeatReconcileOperate.state(seatKeys, seatIdList);
+        if (stateResult.get(0) == 0L) {
+            return false;
+        }
+        Map<Long, Integer> redisStateMap = new HashMap<>();
+        List<Seat> candidateList = new ArrayList<>();
+        for (int i = 0; i < seatList.size(); i++) {
+            Seat seat = seatList.get(i);
+            int redisState = stateResult.get(i + 1).intValue();
+            if (normalize(redisState) != normalize(seat.getSellStatus()) ||
+                    redisState == SellStatus.LOCK.getCode()) {
+                redisStateMap.put(seat.getId(), redisState);
+                candidateList.add(seat);
+            }
+        }
+        if (CollectionUtil.isEmpty(candidateList)) {
+            return true;
+        }
+        Map<Long, Integer> orderStatusMap = selectOrderStatus(programId,
+                candidateList.stream().map(Seat::getId).toList());
+        if (Objects.isNull(orderStatusMap)) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        for (Seat seat : candidateList) {
+            Integer orderStatus = orderStatusMap.get(seat.getId());
+            SeatDrift seatDrift = new SeatDrift();
+            seatDrift.setSeatId(seat.getId());
+            seatDrift.setDbState(seat.getSellStatus());
+            seatDrift.setRedisState(redisStateMap.get(seat.getId()));
+            if (Objects.equals(orderStatus, OrderStatus.PAY.getCode())) {
+                seatDrift.setExpectDbState(SellStatus.SOLD.getCode());
+                seatDrift.setExpectRedisState(SellStatus.SOLD.getCode());
+            } else if (Objects.equals(orderStatus, OrderStatus.NO_PAY.getCode())) {
+                seatDrift.setExpectDbState(SellStatus.NO_SOLD.getCode());
+                seatDrift.setExpectRedisState(SellStatus.LOCK.getCode());
+            } else {
+                seatDrift.setExpectDbState(SellStatus.NO_SOLD.getCode());
+                seatDrift.setExpectRedisState(SellStatus.NO_SOLD.getCode());
+            }
+            if (!seatDrift.dbDrift() && !seatDrift.redisDrift()) {
+                continue;
+            }
+            String driftKey = programId + "_" + seat.getId();
+            SeatDrift lastSeatDrift = lastDriftMap.get(driftKey);
+            if (seatDrift.sameAs(lastSeatDrift)) {
+                seatDrift.setFirstSeenTime(lastSeatDrift.getFirstSeenTime());
+            } else {
+                seatDrift.setFirstSeenTime(now);
+                recordDrift(programId, seatDrift);
+            }
+            driftMap.put(driftKey, seatDrift);
+            if (now - seatDrift.getFirstSeenTime() >= confirmDelay) {
+                repairList.add(seatDrift);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查询座位的有效订单状态
+     *
+     * @return 座位id -> 订单状态，没有有效订单的座位不在其中；调用失败时为null，这一段不修复
+     */
+    private Map<Long, Integer> selectOrderStatus(Long programId, List<Long> seatIdList) {
+        ProgramSeatOrderStatusDto programSeatOrderStatusDto = new ProgramSeatOrderStatusDto();
+        programSeatOrderStatusDto.setProgramId(programId);
+        programSeatOrderStatusDto.setSeatIdList(seatIdList);
+        ApiResponse<List<SeatOrderStatusVo>> apiResponse = orderClient.programSeatOrderStatus(programSeatOrderStatusDto);
+        if (!Objects.equals(apiResponse.getCode(), ApiResponse.ok().getCode())) {
+            log.warn("orderClient.programSeatOrderStatus 调用失败 apiResponse : {}", JSON.toJSONString(apiResponse));
+            return null;
+        }
+        Map<Long, Integer> orderStatusMap = new HashMap<>(seatIdList.size());
+        if (CollectionUtil.isNotEmpty(apiResponse.getData())) {
+            for (SeatOrderStatusVo seatOrderStatusVo : apiResponse.getData()) {
+                orderStatusMap.put(seatOrderStatusVo.getSeatId(), seatOrderStatusVo.getOrderStatus());
+            }
+        }
+        return orderStatusMap;
+    }
+
+    /**
+     * 按 对账时的状态 -> 应有状态 分组修复数据库中的座位
+     */
+    private void repairDb(Long programId, List<SeatDrift> repairList) {
+        Map<List<Integer>, List<Long>> seatIdGroupMap = repairList.stream()
+                .filter(SeatDrift::dbDrift)
+                .collect(Collectors.groupingBy(
+                        seatDrift -> List.of(seatDrift.getDbState(), seatDrift.getExpectDbState()),
+                        Collectors.mapping(SeatDrift::getSeatId, Collectors.toList())));
+        for (Map.Entry<List<Integer>, List<Long>> entry : seatIdGroupMap.entrySet()) {
+            Integer fromSellStatus = entry.getKey().get(0);
+            Integer toSellStatus = entry.getKey().get(1);
+            for (List<Long> seatIdList : ListUtil.partition(entry.getValue(), chunkSize)) {
+                int count = seatService.reconcileSellStatus(programId, seatIdList, fromSellStatus, toSellStatus);
+                programSeatReconcileMetrics.recordRepair(ProgramSeatReconcileMetrics.SIDE_DB, count);
+                log.warn("节目座位数据库状态修复 programId : {} seatIdList : {} sellStatus : {} -> {} count : {}",
+                        programId, seatIdList, fromSellStatus, toSellStatus, count);
+            }
+        }
+    }
+
+    /**
+     * 修复缓存中的座位，并按座位状态修正缓存中的余票，没有需要修复的座位时也检查余票
+     */
+    private void repairRedis(Long programId, TicketCategory ticketCategory, List<String> seatKeys,
+                             List<SeatDrift> repairList) {
+        List<SeatDrift> redisRepairList = repairList.stream().filter(SeatDrift::redisDrift).toList();
+        Map<Long, Seat> seatMap = new HashMap<>(redisRepairList.size());
+        for (List<SeatDrift> seatDriftList : ListUtil.partition(redisRepairList, chunkSize)) {
+            seatMap.putAll(seatMapper.selectList(Wrappers.lambdaQuery(Seat.class)
+                            .eq(Seat::getProgramId, programId)
+                            .in(Seat::getId, seatDriftList.stream().map(SeatDrift::getSeatId).toList()))
+                    .stream().collect(Collectors.toMap(Seat::getId, Function.identity(), (v1, v2) -> v2)));
+        }
+        List<String> keys = new ArrayList<>(seatKeys);
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION,
+                programId, ticketCategory.getId()).getRelKey());
+        List<List<SeatDrift>> batchList = CollectionUtil.isEmpty(redisRepairList) ?
+                List.of(redisRepairList) : ListUtil.partition(redisRepairList, chunkSize);
+        long repairCount = 0;
+        long remainDrift = 0;
+        for (List<SeatDrift> seatDriftList : batchList) {
+            JSONArray seatJsonArray = new JSONArray();
+            for (SeatDrift seatDrift : seatDriftList) {
+                Seat seat = seatMap.get(seatDrift.getSeatId());
+                if (Objects.isNull(seat)) {
+                    continue;
+                }
+                SeatVo seatVo = new SeatVo();
+                BeanUtil.copyProperties(seat, seatVo);
+                seatVo.setSeatTypeName(SeatType.getMsg(seat.getSeatType()));
+                seatVo.setSellStatus(seatDrift.getExpectRedisState());
+                JSONObject seatJsonObject = new JSONObject();
+                // 座位id超过lua数字的精度，以字符串传入
+                seatJsonObject.put("seatId", String.valueOf(seatDrift.getSeatId()));
+                seatJsonObject.put("fromState", seatDrift.getRedisState());
+                seatJsonObject.put("toState", seatDrift.getExpectRedisState());
+                seatJsonObject.put("seatData", JSON.toJSONString(seatVo));
+                seatJsonArray.add(seatJsonObject);
+            }
+            String[] args = new String[3];
+            args[0] = String.valueOf(ticketCategory.getId());
+            args[1] = String.valueOf(ticketCategory.getTotalNumber());
+            args[2] = JSON.toJSONString(seatJsonArray);
+            List<Long> result = programSeatReconcileOperate.repair(keys, args);
+            repairCount += result.get(0);
+            remainDrift += result.get(1);
+        }
+        programSeatReconcileMetrics.recordRepair(ProgramSeatReconcileMetrics.SIDE_REDIS, repairCount);
+        programSeatReconcileMetrics.recordRemainDrift(ProgramSeatReconcileMetrics.SIDE_REDIS, remainDrift);
+        if (repairCount > 0 || remainDrift != 0) {
+            log.warn("节目座位缓存修复 programId : {} ticketCategoryId : {} repair seat count : {} remain drift : {}",
+                    programId, ticketCategory.getId(), repairCount, remainDrift);
+        }
+    }
+
+    private void recordDrift(Long programId, SeatDrift seatDrift) {
+        if (seatDrift.dbDrift()) {
+            programSeatReconcileMetrics.recordDrift(ProgramSeatReconcileMetrics.SIDE_DB,
+                    seatDrift.getDbState(), seatDrift.getExpectDbState());
+        }
+        if (seatDrift.redisDrift()) {
+            programSeatReconcileMetrics.recordDrift(ProgramSeatReconcileMetrics.SIDE_REDIS,
+                    seatDrift.getRedisState(), seatDrift.getExpectRedisState());
+        }
+        log.info("节目座位状态差异 programId : {} seatDrift : {}", programId, JSON.toJSONString(seatDrift));
+    }
+
+    /**
+     * 数据库一侧的校验和，算法和对账脚本一致：锁定按未售计算
+     */
+    private long checksum(List<Seat> seatList) {
+        long checksum = 0;
+        for (Seat seat : seatList) {
+            checksum = (checksum * 31 + normalize(seat.getSellStatus())) % 1000000007L;
+        }
+        return checksum;
+    }
+
+    /**
+     * 数据库中没有锁定状态，比较时锁定按未售处理
+     */
+    private int normalize(Integer state) {
+        return Objects.equals(state, SellStatus.LOCK.getCode()) ? SellStatus.NO_SOLD.getCode() : state;
+    }
+
+    /**
+     * 按每秒对账的座位数量限速，这一段用时不足时等待
+     */
+    private void throttle(int seatCount, long startTime) throws InterruptedException {
+        long sleepNanos = TimeUnit.SECONDS.toNanos(seatCount) / seatRate - (System.nanoTime() - startTime);
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+    }
+
+    private List<String> seatKeys(Long programId, Long ticketCategoryId) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_NO_SOLD_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_LOCK_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        keys.add(RedisKeyBuild.createRedisKey(RedisKeyManage.PROGRAM_SEAT_SOLD_RESOLUTION_HASH,
+                programId, ticketCategoryId).getRelKey());
+        return keys;
+    }
+}
@@ -0,0 +1,63 @@
+package com.damai.service.reconcile;
+
+import lombok.Data;
+
+import java.util.Objects;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 对账发现的座位状态差异
+ * @author: 阿星不是程序员
+ **/
+@Data
+public class SeatDrift {
+
+    /**
+     * 座位id
+     */
+    private Long seatId;
+
+    /**
+     * 数据库中的售卖状态
+     */
+    private Integer dbState;
+
+    /**
+     * 缓存中的状态，0表示缓存中不存在
+     */
+    private Integer redisState;
+
+    /**
+     * 按订单状态确定的数据库应有状态
+     */
+    private Integer expectDbState;
+
+    /**
+     * 按订单状态确定的缓存应有状态
+     */
+    private Integer expectRedisState;
+
+    /**
+     * 第一次发现的时间
+     */
+    private Long firstSeenTime;
+
+    /**
+     * 是否和另一轮发现的差异相同
+     */
+    public boolean sameAs(SeatDrift other) {
+        return Objects.nonNull(other) &&
+                Objects.equals(dbState, other.dbState) &&
+                Objects.equals(redisState, other.redisState) &&
+                Objects.equals(expectDbState, other.expectDbState) &&
+                Objects.equals(expectRedisState, other.expectRedisState);
+    }
+
+    public boolean dbDrift() {
+        return !Objects.equals(dbState, expectDbState);
+    }
+
+    public boolean redisDrift() {
+        return !Objects.equals(redisState, expectRedisState);
+    }
+}
@@ -4,7 +4,7 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
 import com.damai.dto.ProgramOrderCreateDto;
 import com.damai.dto.SeatDto;
-import com.damai.locallock.LocalLockCache;
+import com.damai.locallock.LocalLockTable;
 import com.damai.lock.LockTask;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,7 +25,7 @@ import java.util.stream.Collectors;
 public class BaseProgramOrder {
 
     @Autowired
-    private LocalLockCache localLockCache;
+    private LocalLockTable localLockTable;
 
     /**
      * 基于本地锁的订单创建方法，为订单创建过程提供本地锁保护，确保单实例内的并发安全
@@ -50,20 +50,17 @@ public class BaseProgramOrder {
             // 自动分配座位，直接使用订单中的票档ID
             ticketCategoryIdList.add(programOrderCreateDto.getTicketCategoryId());
         }
-        // 存储需要尝试获取的本地锁列表
-        List<ReentrantLock> localLockList = new ArrayList<>(ticketCategoryIdList.size());
-        // 存储成功获取的本地锁列表
-        List<ReentrantLock> localLockSuccessList = new ArrayList<>(ticketCategoryIdList.size());
-        // 遍历票档ID列表，为每个票档ID生成一个本地锁，并尝试获取锁
+        // 存储需要加锁的锁名称列表
+        List<String> lockKeyList = new ArrayList<>(ticketCategoryIdList.size());
+        // 遍历票档ID列表，为每个票档ID生成锁名称
         for (Long ticketCategoryId : ticketCategoryIdList) {
             // 生成锁唯一标识：前缀 + 节目ID + 票档ID，确保锁的细粒度
-            String lockKey = StrUtil.join("-", lockKeyPrefix,
-                    programOrderCreateDto.getProgramId(), ticketCategoryId);
-            // 从本地锁缓存中获取非公平锁
-            ReentrantLock localLock = localLockCache.getLock(lockKey, false);
-            // 将获取到的锁添加到尝试获取的锁列表中
-            localLockList.add(localLock);
+            lockKeyList.add(StrUtil.join("-", lockKeyPrefix, programOrderCreateDto.getProgramId(), ticketCategoryId));
         }
+        // 从本地锁表中获取分段锁（已去重并按固定顺序排列，避免死锁）
+        List<ReentrantLock> localLockList = localLockTable.getLocks(lockKeyList);
+        // 存储成功获取的本地锁列表
+        List<ReentrantLock> localLockSuccessList = new ArrayList<>(localLockList.size());
         // 尝试获取所有本地锁
         for (ReentrantLock reentrantLock : localLockList) {
             try {
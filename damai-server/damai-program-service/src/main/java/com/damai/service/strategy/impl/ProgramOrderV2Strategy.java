@@ -9,7 +9,7 @@ import com.damai.enums.CompositeCheckType;
 import com.damai.enums.ProgramOrderVersion;
 import com.damai.initialize.base.AbstractApplicationCommandLineRunnerHandler;
 import com.damai.initialize.impl.composite.CompositeContainer;
-import com.damai.locallock.LocalLockCache;
+import com.damai.locallock.LocalLockTable;
 import com.damai.repeatexecutelimit.annotion.RepeatExecuteLimit;
 import com.damai.service.ProgramOrderService;
 import com.damai.service.strategy.ProgramOrderContext;
@@ -48,7 +48,7 @@ public class ProgramOrderV2Strategy extends AbstractApplicationCommandLineRunner
     private CompositeContainer compositeContainer;
 
     @Autowired
-    private LocalLockCache localLockCache;
+    private LocalLockTable localLockTable;
 
     /**
      * 创建节目订单的核心方法（V2版本实现）
@@ -76,27 +76,26 @@ public class ProgramOrderV2Strategy extends AbstractApplicationCommandLineRunner
             ticketCategoryIdList.add(programOrderCreateDto.getTicketCategoryId());
         }
         // 初始化锁相关的列表
-        // 本地锁列表：存储所有需要尝试获取的本地锁
-        List<ReentrantLock> localLockList = new ArrayList<>(ticketCategoryIdList.size());
+        // 锁名称列表：每个票档对应一个锁名称
+        List<String> lockKeyList = new ArrayList<>(ticketCategoryIdList.size());
         // 分布式锁列表：存储所有需要尝试获取的分布式锁
         List<RLock> serviceLockList = new ArrayList<>(ticketCategoryIdList.size());
-        // 成功获取的本地锁列表
-        List<ReentrantLock> localLockSuccessList = new ArrayList<>(ticketCategoryIdList.size());
         // 成功获取的分布式锁列表
         List<RLock> serviceLockSuccessList = new ArrayList<>(ticketCategoryIdList.size());
-        // 遍历票档ID列表，为每个票档ID生成对应的本地锁和分布式锁
+        // 遍历票档ID列表，为每个票档ID生成对应的锁名称和分布式锁
         for (Long ticketCategoryId : ticketCategoryIdList) {
             // 生成锁的唯一标识：拼接前缀、节目ID和票档ID
             String lockKey = StrUtil.join("-", PROGRAM_ORDER_CREATE_V2,
                     programOrderCreateDto.getProgramId(), ticketCategoryId);
-            // 获取本地锁（非公平锁）
-            ReentrantLock localLock = localLockCache.getLock(lockKey, false);
             // 获取分布式锁（可重入锁）
             RLock serviceLock = serviceLockTool.getLock(LockType.Reentrant, lockKey);
-            // 将本地锁和分布式锁添加到对应的列表中
-            localLockList.add(localLock);
+            lockKeyList.add(lockKey);
             serviceLockList.add(serviceLock);
         }
+        // 本地锁列表：从本地锁表中获取分段锁（已去重并按固定顺序排列，避免死锁）
+        List<ReentrantLock> localLockList = localLockTable.getLocks(lockKeyList);
+        // 成功获取的本地锁列表
+        List<ReentrantLock> localLockSuccessList = new ArrayList<>(localLockList.size());
         // 尝试获取所有本地锁
         for (ReentrantLock reentrantLock : localLockList) {
             try {
@@ -1,15 +1,16 @@
 -- 用户自主选座（type=1）和自动分配座位（type=2）
+-- 脚本访问的余票、未售座位、锁定座位的key都通过KEYS传入，参数中只传key在KEYS中的下标
+-- 启用hash tag布局时同一节目的key在redis集群的同一个槽位上
 
 -- 操作类型
-local type = tonumber(KEYS[1])
--- 未售座位的Redis哈希键（含有占位符，后续需填充programId和ticketCategoryId）
-local placeholder_seat_no_sold_hash_key = KEYS[2]
--- 锁定座位的Redis哈希键（含有占位符，后续需填充programId和ticketCategoryId）
-local placeholder_seat_lock_hash_key = KEYS[3]
--- 节目ID
-local program_id = KEYS[4]
--- 票档购买信息列表：包含每个票档的库存键、票档ID、购买数量等
-local ticket_count_list = cjson.decode(ARGV[1])
+local type = tonumber(ARGV[1])
+-- 票档购买信息列表：包含每个票档的票档ID、购买数量，以及余票、未售座位、锁定座位key的下标
+local ticket_count_list = cjson.decode(ARGV[2])
+-- 票档ID -> 该票档key的下标信息，用于按票档写入未售和锁定座位
+local ticket_category_key_map = {}
+for index, ticket_count in ipairs(ticket_count_list) do
+    ticket_category_key_map[tostring(ticket_count.ticketCategoryId)] = ticket_count
+end
 -- 最终确认可购买的座位列表
 local purchase_seat_list = {}
 -- 用户请求中携带的座位价格总和
@@ -55,7 +56,7 @@ if (type == 1) then
     -- 1.先校验每个票档的库存是否充足
     for index, ticket_count in ipairs(ticket_count_list) do
         -- 票档库存的Redis哈希键（存储该票档的剩余可售数量）
-        local ticket_remain_number_hash_key = ticket_count.programTicketRemainNumberHashKey
+        local ticket_remain_number_hash_key = KEYS[ticket_count.remainNumberKeyIndex]
         -- 当前票档ID
         local ticket_category_id = ticket_count.ticketCategoryId
         -- 用户购买的该票档数量
@@ -74,10 +75,10 @@ if (type == 1) then
     end
     -- 2.校验用户选中的座位是否有效（未售、未锁定，且价格一致）
     -- 用户选中的座位信息列表
-    local seat_data_list = cjson.decode(ARGV[2])
+    local seat_data_list = cjson.decode(ARGV[3])
     for index, seatData in pairs(seat_data_list) do
         -- 该票档未售座位的Redis哈希键（存储座位ID -> 座位详情）
-        local seat_no_sold_hash_key = seatData.seatNoSoldHashKey;
+        local seat_no_sold_hash_key = KEYS[seatData.seatNoSoldKeyIndex]
         -- 用户选中的具体座位列表（每个座位含ID、价格等）
         local seat_dto_list = cjson.decode(seatData.seatDataList)
         for index2, seat_dto in ipairs(seat_dto_list) do
@@ -121,7 +122,7 @@ if (type == 2) then
     -- 遍历票档列表
     for index, ticket_count in ipairs(ticket_count_list) do
         -- 票档库存的Redis哈希键（存储该票档的剩余可售数量）
-        local ticket_remain_number_hash_key = ticket_count.programTicketRemainNumberHashKey
+        local ticket_remain_number_hash_key = KEYS[ticket_count.remainNumberKeyIndex]
         -- 当前票档ID
         local ticket_category_id = ticket_count.ticketCategoryId
         -- 用户购买的该票档数量
@@ -137,7 +138,7 @@ if (type == 2) then
         end
         -- 查询该票档的所有未售座位
         -- 未售座位的Redis哈希键
-        local seat_no_sold_hash_key = ticket_count.seatNoSoldHashKey
+        local seat_no_sold_hash_key = KEYS[ticket_count.seatNoSoldKeyIndex]
         -- 获取所有未售座位详情
         local seat_vo_no_sold_str_list = redis.call('hvals', seat_no_sold_hash_key)
         -- 解析后的未售座位列表
@@ -184,7 +185,7 @@ end
 -- 扣减票档库存
 for index, ticket_count in ipairs(ticket_count_list) do
     -- 库存键
-    local ticket_remain_number_hash_key = ticket_count.programTicketRemainNumberHashKey
+    local ticket_remain_number_hash_key = KEYS[ticket_count.remainNumberKeyIndex]
     -- 票档ID
     local ticket_category_id = ticket_count.ticketCategoryId
     -- 用户购买的该票档数量
@@ -194,15 +195,15 @@ for index, ticket_count in ipairs(ticket_count_list) do
 end
 -- 将座位从“未售”缓存中移除
 for ticket_category_id, seat_id_array in pairs(seat_id_list) do
-    -- 填充占位符，生成实际的未售座位键（programId+ticketCategoryId）
-    local actual_seat_no_sold_key = string.format(placeholder_seat_no_sold_hash_key, program_id, tostring(ticket_category_id))
+    -- 按票档取得未售座位键
+    local actual_seat_no_sold_key = KEYS[ticket_category_key_map[tostring(ticket_category_id)].seatNoSoldKeyIndex]
     -- hdel：批量删除已锁定的座位（从"未售"中移除）
     redis.call('hdel', actual_seat_no_sold_key, unpack(seat_id_array))
 end
 -- 将座位添加到“锁定”缓存中
 for ticket_category_id, seat_data_array in pairs(seat_data_list) do
-    -- 填充占位符，生成实际的锁定座位键（programId+ticketCategoryId）
-    local actual_seat_lock_key = string.format(placeholder_seat_lock_hash_key, program_id, tostring(ticket_category_id))
+    -- 按票档取得锁定座位键
+    local actual_seat_lock_key = KEYS[ticket_category_key_map[tostring(ticket_category_id)].seatLockKeyIndex]
     -- hmset：批量添加锁定状态的座位（座位ID→锁定状态的详情）
     redis.call('hmset', actual_seat_lock_key, unpack(seat_data_array))
 end
@@ -1,14 +1,15 @@
 -- 订单状态变更时的Redis缓存更新脚本
 -- 功能：处理订单创建/取消时的票档余票更新、座位状态迁移（未售↔锁定）
+-- 脚本访问的key都通过KEYS传入，参数中只传key在KEYS中的下标
 
 -- ARG[1]：票档余票变更数据（JSON数组）
--- 格式示例：[{"programTicketRemainNumberHashKey":"xxx","ticketCategoryId":"1","count":"-2"},...]
+-- 格式示例：[{"remainNumberKeyIndex":1,"ticketCategoryId":"1","count":"-2"},...]
 local ticket_category_list = cjson.decode(ARGV[1])
 -- ARG[2]：需要删除的座位信息（JSON数组）
--- 格式示例：[{"seatHashKeyDel":"xxx","seatIdList":["1","2"]},...]
+-- 格式示例：[{"seatDelKeyIndex":2,"seatIdList":["1","2"]},...]
 local del_seat_list = cjson.decode(ARGV[2])
 -- ARG[3]：需要添加的座位信息（JSON数组）
--- 格式示例：[{"seatHashKeyAdd":"xxx","seatDataList":["1","{...}", "2","{...}"]},...]
+-- 格式示例：[{"seatAddKeyIndex":3,"seatDataList":["1","{...}", "2","{...}"]},...]
 local add_seat_data_list = cjson.decode(ARGV[3])
 
 -- 1.更新票档余票数量
@@ -16,7 +17,7 @@ local add_seat_data_list = cjson.decode(ARGV[3])
 -- 订单取消：count为正数（恢复余票）
 for index, increase_data in ipairs(ticket_category_list) do
     -- 票档余票存储的Redis哈希键（格式：PROGRAM_TICKET_REMAIN_NUMBER_HASH_RESOLUTION:programId:ticketCategoryId）
-    local program_ticket_remain_number_hash_key = increase_data.programTicketRemainNumberHashKey
+    local program_ticket_remain_number_hash_key = KEYS[increase_data.remainNumberKeyIndex]
     -- 票档ID（作为哈希的field）
     local ticket_category_id = increase_data.ticketCategoryId
     -- 变更数量（作为哈希的value）
@@ -31,7 +32,7 @@ end
 -- 订单取消：从“锁定座位哈希”中删除
 for index, seat in pairs(del_seat_list) do
     -- 要删除的座位所在的Redis哈希键（未售/锁定座位哈希）
-    local seat_hash_key_del = seat.seatHashKeyDel
+    local seat_hash_key_del = KEYS[seat.seatDelKeyIndex]
     -- 需要删除的座位ID列表（哈希的field）
     local seat_id_list = seat.seatIdList
     -- 批量删除哈希中的多个field（座位ID）
@@ -44,7 +45,7 @@ end
 -- 订单取消：添加到“未售座位哈希”中
 for index, seat in pairs(add_seat_data_list) do
     -- 要添加的座位目标Redis哈希键（锁定/未售座位哈希）
-    local seat_hash_key_add = seat.seatHashKeyAdd
+    local seat_hash_key_add = KEYS[seat.seatAddKeyIndex]
     -- 需要添加的座位完整数据列表（哈希的field + value）
     local seat_data_list = seat.seatDataList
     -- 批量添加多个field-value对到哈希中（座位ID -> 座位信息）
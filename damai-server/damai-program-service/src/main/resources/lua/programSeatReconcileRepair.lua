@@ -0,0 +1,44 @@
+-- 座位缓存对账：修复缓存中的座位状态和票档余票
+-- KEYS[1]：未售座位哈希 KEYS[2]：锁定座位哈希 KEYS[3]：已售座位哈希 KEYS[4]：票档余票哈希
+-- ARGV[1]：票档id
+-- ARGV[2]：票档总数量
+-- ARGV[3]：需要修复的座位（JSON数组），座位状态 0 缓存中不存在 1 未售 2 锁定 3 已售
+-- 格式示例：[{"seatId":"1","fromState":2,"toState":1,"seatData":"{...}"},...]
+-- 返回值：{修复的座位数量, 余票修正量}
+
+-- 查询座位所在的哈希
+local function seat_state(seat_id)
+    for state = 1, 3 do
+        if (redis.call('HEXISTS', KEYS[state], seat_id) == 1) then
+            return state
+        end
+    end
+    return 0
+end
+
+-- 1.迁移座位状态
+-- 对账读取之后座位可能已经被下单、支付或取消改变，只有当前状态仍然是对账时读取到的状态才迁移
+local repair_count = 0
+for index, seat in ipairs(cjson.decode(ARGV[3])) do
+    if (seat_state(seat.seatId) == seat.fromState) then
+        if (seat.fromState > 0) then
+            redis.call('HDEL', KEYS[seat.fromState], seat.seatId)
+        end
+        redis.call('HSET', KEYS[seat.toState], seat.seatId, seat.seatData)
+        repair_count = repair_count + 1
+    end
+end
+
+-- 2.修正票档余票
+-- 下单锁定座位时扣减余票，取消时恢复，支付不变，所以余票 = 总数量 - 锁定数量 - 已售数量
+-- 座位缓存或余票缓存未加载时不修正
+local remain_drift = 0
+if (redis.call('EXISTS', KEYS[1], KEYS[2], KEYS[3]) > 0 and redis.call('HEXISTS', KEYS[4], ARGV[1]) == 1) then
+    local remain_number = tonumber(redis.call('HGET', KEYS[4], ARGV[1]))
+    local expect_remain_number = tonumber(ARGV[2]) - redis.call('HLEN', KEYS[2]) - redis.call('HLEN', KEYS[3])
+    if (expect_remain_number >= 0 and remain_number ~= expect_remain_number) then
+        redis.call('HSET', KEYS[4], ARGV[1], expect_remain_number)
+        remain_drift = expect_remain_number - remain_number
+    end
+end
+return {repair_count, remain_drift}
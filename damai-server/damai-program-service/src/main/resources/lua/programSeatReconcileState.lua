@@ -0,0 +1,45 @@
+-- 座位缓存对账：读取一段座位在缓存中的状态
+-- KEYS[1]：未售座位哈希 KEYS[2]：锁定座位哈希 KEYS[3]：已售座位哈希
+-- ARGV[1]：1 只返回这一段的校验和，2 返回每个座位的状态
+-- ARGV[2...]：按id升序排列的座位id
+-- 座位状态：0 缓存中不存在 1 未售 2 锁定 3 已售
+-- 返回值第一个元素：三个哈希都不存在（缓存未加载）时为0，否则为1
+
+local mode = tonumber(ARGV[1])
+
+if (redis.call('EXISTS', KEYS[1], KEYS[2], KEYS[3]) == 0) then
+    return {0}
+end
+
+-- 查询座位所在的哈希
+local function seat_state(seat_id)
+    for state = 1, 3 do
+        if (redis.call('HEXISTS', KEYS[state], seat_id) == 1) then
+            return state
+        end
+    end
+    return 0
+end
+
+-- 1.只返回校验和
+-- 数据库中没有锁定状态，锁定按未售计算校验和，和数据库一侧的算法一致，锁定的数量单独返回
+if (mode == 1) then
+    local checksum = 0
+    local lock_count = 0
+    for index = 2, #ARGV do
+        local state = seat_state(ARGV[index])
+        if (state == 2) then
+            lock_count = lock_count + 1
+            state = 1
+        end
+        checksum = (checksum * 31 + state) % 1000000007
+    end
+    return {1, checksum, lock_count}
+end
+
+-- 2.返回每个座位的状态
+local result = {1}
+for index = 2, #ARGV do
+    table.insert(result, seat_state(ARGV[index]))
+end
+return result
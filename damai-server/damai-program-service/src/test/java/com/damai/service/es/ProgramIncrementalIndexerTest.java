@@ -0,0 +1,116 @@
+package com.damai.service.es;
+
+import com.damai.core.SpringUtil;
+import com.damai.entity.ProgramIndexOutbox;
+import com.damai.enums.ProgramIndexChangeType;
+import com.damai.mapper.ProgramShowTimeMapper;
+import com.damai.service.ProgramIndexOutboxService;
+import com.damai.service.ProgramService;
+import com.damai.util.BusinessEsHandle;
+import com.damai.util.ServiceLockTool;
+import com.damai.vo.ProgramVo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目es增量索引测试
+ * @author: 阿星不是程序员
+ **/
+@ExtendWith(MockitoExtension.class)
+class ProgramIncrementalIndexerTest {
+
+    private static final int SHARD_NO = 1;
+
+    @Mock
+    private ProgramIndexOutboxService programIndexOutboxService;
+
+    @Mock
+    private ProgramService programService;
+
+    @Mock
+    private ProgramShowTimeMapper programShowTimeMapper;
+
+    @Mock
+    private ProgramDocumentBuilder programDocumentBuilder;
+
+    @Mock
+    private BusinessEsHandle businessEsHandle;
+
+    @Mock
+    private ServiceLockTool serviceLockTool;
+
+    @InjectMocks
+    private ProgramIncrementalIndexer programIncrementalIndexer;
+
+    @BeforeEach
+    void setUp() throws ReflectiveOperationException {
+        Field batchSizeField = ProgramIncrementalIndexer.class.getDeclaredField("batchSize");
+        batchSizeField.setAccessible(true);
+        batchSizeField.set(programIncrementalIndexer, 500);
+        Field prefixField = SpringUtil.class.getDeclaredField("prefixDistinctionName");
+        prefixField.setAccessible(true);
+        prefixField.set(null, "damai");
+        lenient().when(programDocumentBuilder.documentId(anyLong()))
+                .thenAnswer(invocation -> String.valueOf((Long) invocation.getArgument(0)));
+    }
+
+    @Test
+    void skippedProgramBuildIsRequeuedInsteadOfConsumed() {
+        when(programIndexOutboxService.selectPending(eq(SHARD_NO), anyInt())).thenReturn(List.of(
+                outbox(1L, 10L, ProgramIndexChangeType.PROGRAM),
+                outbox(2L, 20L, ProgramIndexChangeType.TICKET_CATEGORY)));
+        when(programService.getDetailFromDb(10L)).thenThrow(new RuntimeException("show time not found"));
+        when(programDocumentBuilder.buildPriceDocument(any())).thenReturn(Map.of("minPrice", 100));
+
+        assertEquals(2, programIncrementalIndexer.indexBatch(SHARD_NO));
+
+        verify(programIndexOutboxService).markConsumed(SHARD_NO, List.of(2L));
+        verify(programIndexOutboxService).requeue(SHARD_NO, Set.of(10L), List.of(1L));
+    }
+
+    @Test
+    void esFailureKeepsRecordPending() {
+        when(programIndexOutboxService.selectPending(eq(SHARD_NO), anyInt())).thenReturn(List.of(
+                outbox(1L, 20L, ProgramIndexChangeType.TICKET_CATEGORY)));
+        when(programDocumentBuilder.buildPriceDocument(any())).thenReturn(Map.of("minPrice", 100));
+        when(programService.getDetailFromDb(20L)).thenReturn(new ProgramVo());
+        when(businessEsHandle.bulk(anyString(), anyString(), anyList())).thenReturn(List.of("20"));
+
+        assertEquals(1, programIncrementalIndexer.indexBatch(SHARD_NO));
+
+        verify(programIndexOutboxService, never()).markConsumed(anyInt(), anyCollection());
+        verify(programIndexOutboxService, never()).requeue(anyInt(), anyCollection(), anyCollection());
+    }
+
+    private static ProgramIndexOutbox outbox(Long id, Long programId, ProgramIndexChangeType changeType) {
+        ProgramIndexOutbox programIndexOutbox = new ProgramIndexOutbox();
+        programIndexOutbox.setId(id);
+        programIndexOutbox.setProgramId(programId);
+        programIndexOutbox.setShardNo(SHARD_NO);
+        programIndexOutbox.setChangeType(changeType.getCode());
+        return programIndexOutbox;
+    }
+}
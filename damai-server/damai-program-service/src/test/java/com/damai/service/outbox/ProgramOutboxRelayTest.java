@@ -0,0 +1,136 @@
+package com.damai.service.outbox;
+
+import com.damai.entity.ProgramOutbox;
+import com.damai.enums.OutboxEventType;
+import com.damai.outbox.OutboxRelayMetrics;
+import com.damai.outbox.OutboxRetryPolicy;
+import com.damai.service.ProgramOutboxService;
+import com.damai.service.delaysend.DelayOrderCancelSend;
+import com.damai.service.kafka.CreateOrderSend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.SendResult;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 节目服务事务发件箱转发测试
+ * @author: 阿星不是程序员
+ **/
+@ExtendWith(MockitoExtension.class)
+class ProgramOutboxRelayTest {
+
+    private static final int MAX_RETRY_COUNT = 3;
+
+    @Mock
+    private ProgramOutboxService programOutboxService;
+
+    @Mock
+    private CreateOrderSend createOrderSend;
+
+    @Mock
+    private DelayOrderCancelSend delayOrderCancelSend;
+
+    @Mock
+    private OutboxRelayMetrics outboxRelayMetrics;
+
+    @Spy
+    private OutboxRetryPolicy outboxRetryPolicy = new OutboxRetryPolicy(MAX_RETRY_COUNT, 1000L, 60000L);
+
+    @InjectMocks
+    private ProgramOutboxRelay programOutboxRelay;
+
+    @BeforeEach
+    void setUp() throws ReflectiveOperationException {
+        setField("batchSize", 200);
+        setField("sendTimeout", 1000L);
+    }
+
+    @Test
+    void sentEventsAreMarkedConsumedWithTheirProgramIds() {
+        when(programOutboxService.selectPending(anyInt())).thenReturn(List.of(
+                outbox(1L, 10L, OutboxEventType.ORDER_CREATE, 0),
+                outbox(2L, 20L, OutboxEventType.DELAY_ORDER_CANCEL, 0)));
+        when(createOrderSend.sendMessage("payload-1")).thenReturn(sent());
+
+        assertEquals(2, programOutboxRelay.relayBatch());
+
+        verify(delayOrderCancelSend).sendMessage("payload-2");
+        verify(programOutboxService).markConsumed(Set.of(10L, 20L), List.of(2L, 1L));
+        verify(programOutboxService, never()).markRetry(anyLong(), anyLong(), anyInt(), any(), anyBoolean());
+    }
+
+    @Test
+    void failedKafkaSendIsRescheduledAndNotConsumed() {
+        when(programOutboxService.selectPending(anyInt())).thenReturn(List.of(
+                outbox(1L, 10L, OutboxEventType.ORDER_CREATE, 0),
+                outbox(2L, 20L, OutboxEventType.ORDER_CREATE, 0)));
+        when(createOrderSend.sendMessage("payload-1"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("send error")));
+        when(createOrderSend.sendMessage("payload-2")).thenReturn(sent());
+
+        programOutboxRelay.relayBatch();
+
+        verify(programOutboxService).markRetry(eq(10L), eq(1L), eq(1), any(Date.class), eq(false));
+        verify(programOutboxService).markConsumed(Set.of(20L), List.of(2L));
+        verify(outboxRelayMetrics).recordError(OutboxEventType.ORDER_CREATE);
+    }
+
+    @Test
+    void eventReachingMaxRetryCountIsMarkedFailed() {
+        when(programOutboxService.selectPending(anyInt())).thenReturn(List.of(
+                outbox(1L, 10L, OutboxEventType.DELAY_ORDER_CANCEL, MAX_RETRY_COUNT - 1)));
+        doThrow(new IllegalStateException("send error"))
+                .when(delayOrderCancelSend).sendMessage("payload-1");
+
+        programOutboxRelay.relayBatch();
+
+        verify(programOutboxService).markRetry(eq(10L), eq(1L), eq(MAX_RETRY_COUNT), any(Date.class), eq(true));
+        verify(programOutboxService, never()).markConsumed(any(), any());
+        verify(outboxRelayMetrics).recordFailed(OutboxEventType.DELAY_ORDER_CANCEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<SendResult<String, String>> sent() {
+        return CompletableFuture.completedFuture(mock(SendResult.class));
+    }
+
+    private ProgramOutbox outbox(Long id, Long programId, OutboxEventType eventType, int retryCount) {
+        ProgramOutbox programOutbox = new ProgramOutbox();
+        programOutbox.setId(id);
+        programOutbox.setProgramId(programId);
+        programOutbox.setEventType(eventType.getCode());
+        programOutbox.setPayload("payload-" + id);
+        programOutbox.setRetryCount(retryCount);
+        programOutbox.setCreateTime(new Date());
+        return programOutbox;
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = ProgramOutboxRelay.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(programOutboxRelay, value);
+    }
+}
@@ -30,18 +30,26 @@ public class UserExistCheckHandler extends AbstractUserRegisterCheckHandler {
         userService.doExist(userRegisterDto.getMobile());
     }
 
+    @Override
+    public boolean executeParallel() {
+        return true;
+    }
+
     @Override
     public Integer executeParentOrder() {
         return 1;
     }
 
+    /**
+     * 放在请求数检查之后的一层，访问数据库的检查都放在这一层并行执行
+     */
     @Override
     public Integer executeTier() {
-        return 2;
+        return 3;
     }
 
     @Override
     public Integer executeOrder() {
-        return 2;
+        return 1;
     }
 }
@@ -40,6 +40,14 @@ public class UserRegisterCountCheckHandler extends AbstractUserRegisterCheckHand
         }
     }
 
+    /**
+     * 请求数检查不访问数据库，单独放在验证码之后的一层串行执行，超过频率限制的请求不会再执行下一层访问数据库的检查
+     */
+    @Override
+    public boolean executeParallel() {
+        return false;
+    }
+
     @Override
     public Integer executeParentOrder() {
         return 1;
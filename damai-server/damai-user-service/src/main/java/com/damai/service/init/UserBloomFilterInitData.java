@@ -36,7 +36,7 @@ public class UserBloomFilterInitData extends AbstractApplicationPostConstructHan
         BusinessThreadPool.execute(() -> {
             List<String> allMobile = userService.getAllMobile();
             if (CollectionUtil.isNotEmpty(allMobile)) {
-                allMobile.forEach(mobile -> bloomFilterHandler.add(mobile));
+                bloomFilterHandler.addAll(allMobile);
             }
         });
     }
@@ -0,0 +1,30 @@
+package com.damai.service.init;
+
+import com.damai.handler.BloomFilterRebuildSource;
+import com.damai.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 用户手机号布隆过滤器重建数据源
+ * @author: 阿星不是程序员
+ **/
+@Component
+public class UserBloomFilterRebuildSource implements BloomFilterRebuildSource {
+    
+    /**
+     * UserService依赖布隆过滤器，布隆过滤器又依赖此数据源，延迟注入解决循环依赖
+     */
+    @Lazy
+    @Autowired
+    private UserService userService;
+    
+    @Override
+    public Collection<String> loadAll() {
+        return userService.getAllMobile();
+    }
+}
@@ -1,13 +1,11 @@
 package com.damai.service.lua;
 
 import com.damai.initialize.base.AbstractApplicationPostConstructHandler;
-import com.damai.redis.RedisCache;
+import com.damai.redis.script.LuaScript;
+import com.damai.redis.script.RedisScriptRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ConfigurableApplicationContext;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -23,9 +21,9 @@ import java.util.List;
 public class CheckNeedCaptchaOperate extends AbstractApplicationPostConstructHandler {
 
     @Autowired
-    private RedisCache redisCache;
+    private RedisScriptRegistry redisScriptRegistry;
 
-    private DefaultRedisScript<String> redisScript;
+    private LuaScript<String> redisScript;
 
     /**
      * 指定初始化执行顺序
@@ -45,16 +43,8 @@ public class CheckNeedCaptchaOperate extends AbstractApplicationPostConstructHan
      */
     @Override
     public void executeInit(final ConfigurableApplicationContext context) {
-        try {
-            // 初始化Redis脚本对象
-            redisScript = new DefaultRedisScript<>();
-            // 加载classpath下的Lua脚本文件（路径：resources/lua/checkNeedCaptcha.lua）
-            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/checkNeedCaptcha.lua")));
-            // 指定脚本执行结果的类型为String（后续转换为Boolean）
-            redisScript.setResultType(String.class);
-        } catch (Exception e) {
-            log.error("redisScript init lua error", e);
-        }
+        // 注册classpath下的Lua脚本文件（路径：resources/lua/checkNeedCaptcha.lua），执行结果的类型为String（后续转换为Boolean）
+        redisScript = redisScriptRegistry.register("checkNeedCaptcha", "lua/checkNeedCaptcha.lua", String.class);
     }
 
     /**
@@ -65,7 +55,6 @@ public class CheckNeedCaptchaOperate extends AbstractApplicationPostConstructHan
      * @return Boolean 是否需要验证验证码（true-需要，false-不需要）
      */
     public Boolean checkNeedCaptchaOperate(List<String> keys, String[] args) {
-        Object object = redisCache.getInstance().execute(redisScript, keys, args);
-        return Boolean.parseBoolean((String) object);
+        return Boolean.parseBoolean(redisScript.execute(keys, (Object[]) args));
     }
 }
@@ -4,7 +4,17 @@ import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.damai.shardingsphere.ShardingWriteMarkInterceptor;
+import com.damai.sqltrace.SqlTraceInterceptor;
+import com.damai.sqltrace.SqlTraceLogger;
+import com.damai.sqltrace.SqlTraceMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
  * @description: mybatisPlus配置
@@ -29,4 +39,36 @@ public class MybatisPlusAutoConfiguration {
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         return interceptor;
     }
+    
+    /**
+     * 标记写操作，分库扩容双写时没有分片键的写据此广播到原库和新库
+     */
+    @Bean
+    public ShardingWriteMarkInterceptor shardingWriteMarkInterceptor() {
+        return new ShardingWriteMarkInterceptor();
+    }
+    
+    @Bean
+    @ConditionalOnProperty(value = "sqlTrace.enabled", havingValue = "true", matchIfMissing = true)
+    public SqlTraceMetrics sqlTraceMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new SqlTraceMetrics(meterRegistryProvider.getIfAvailable());
+    }
+    
+    @Bean(destroyMethod = "destroy")
+    @ConditionalOnProperty(value = "sqlTrace.enabled", havingValue = "true", matchIfMissing = true)
+    public SqlTraceLogger sqlTraceLogger(SqlTraceMetrics sqlTraceMetrics,
+                                         @Value("${sqlTrace.logQueueCapacity:10000}") int logQueueCapacity) {
+        return new SqlTraceLogger(logQueueCapacity, sqlTraceMetrics);
+    }
+    
+    /**
+     * sql执行追踪，代替StdOutImpl和sql-show
+     */
+    @Bean
+    @ConditionalOnProperty(value = "sqlTrace.enabled", havingValue = "true", matchIfMissing = true)
+    public SqlTraceInterceptor sqlTraceInterceptor(SqlTraceMetrics sqlTraceMetrics, SqlTraceLogger sqlTraceLogger,
+                                                   @Value("${sqlTrace.sampleRate:0.001}") double sampleRate,
+                                                   @Value("${sqlTrace.slowThreshold:200ms}") Duration slowThreshold) {
+        return new SqlTraceInterceptor(sqlTraceMetrics, sqlTraceLogger, sampleRate, slowThreshold);
+    }
 }
@@ -0,0 +1,27 @@
+package com.damai.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料 
+ * @description: 事务发件箱配置
+ * @author: 阿星不是程序员
+ **/
+public class OutboxAutoConfiguration {
+    
+    @Bean
+    public OutboxRelayMetrics outboxRelayMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                                 @Value("${spring.application.name:}") String service) {
+        return new OutboxRelayMetrics(meterRegistryProvider.getIfAvailable(), service);
+    }
+    
+    @Bean
+    public OutboxRetryPolicy outboxRetryPolicy(@Value("${outbox.max-retry-count:10}") int maxRetryCount,
+                                               @Value("${outbox.retry-interval:1000}") long retryInterval,
+                                               @Value("${outbox.max-retry-interval:300000}") long maxRetryInterval) {
+        return new OutboxRetryPolicy(maxRetryCount, retryInterval, maxRetryInterval);
+    }
+}
@@ -0,0 +1,91 @@
+package com.damai.outbox;
+
+import com.damai.enums.OutboxEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 事务发件箱转发监控指标，通过Micrometer导出
+ * outbox.relay.lag：事件从写入发件箱到转发成功的耗时（按服务、事件类型）
+ * outbox.relay.events：转发的事件数量（按服务、事件类型、结果：success、error、failed）
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+public class OutboxRelayMetrics {
+
+    private static final String SERVICE = "service";
+
+    private static final String TYPE = "type";
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry meterRegistry;
+
+    private final String service;
+
+    public OutboxRelayMetrics(MeterRegistry meterRegistry, String service) {
+        this.meterRegistry = meterRegistry;
+        this.service = service;
+    }
+
+    /**
+     * 记录一个事件转发成功
+     *
+     * @param eventType  事件类型
+     * @param createTime 事件写入发件箱的时间
+     */
+    public void recordSuccess(OutboxEventType eventType, Date createTime) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        counter(eventType, "success").increment();
+        if (Objects.nonNull(createTime)) {
+            Timer.builder("outbox.relay.lag")
+                    .description("事件从写入发件箱到转发成功的耗时")
+                    .tag(SERVICE, service)
+                    .tag(TYPE, eventType.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(Math.max(0, System.currentTimeMillis() - createTime.getTime()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 记录一个事件转发失败，事件保留在发件箱中等待下次转发
+     *
+     * @param eventType 事件类型
+     */
+    public void recordError(OutboxEventType eventType) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        counter(eventType, "error").increment();
+    }
+
+    /**
+     * 记录一个事件达到最大重试次数，转为失败状态不再转发
+     *
+     * @param eventType 事件类型
+     */
+    public void recordFailed(OutboxEventType eventType) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        counter(eventType, "failed").increment();
+    }
+
+    private Counter counter(OutboxEventType eventType, String outcome) {
+        return Counter.builder("outbox.relay.events")
+                .description("转发的事件数量")
+                .tag(SERVICE, service)
+                .tag(TYPE, eventType.name())
+                .tag(OUTCOME, outcome)
+                .register(meterRegistry);
+    }
+}
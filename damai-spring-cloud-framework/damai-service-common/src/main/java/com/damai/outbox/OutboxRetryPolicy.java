@@ -0,0 +1,53 @@
+package com.damai.outbox;
+
+import java.util.Date;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 事务发件箱转发失败的重试策略
+ * 每次失败后重试次数加1，下次重试时间按 重试间隔 x 2^(重试次数-1) 退避，不超过最大重试间隔；
+ * 达到最大重试次数后事件转为失败状态，不再拉取，避免一直失败的事件反复占用转发批次
+ * @author: 阿星不是程序员
+ **/
+public class OutboxRetryPolicy {
+
+    private final int maxRetryCount;
+
+    private final long retryInterval;
+
+    private final long maxRetryInterval;
+
+    /**
+     * @param maxRetryCount    最大重试次数
+     * @param retryInterval    第一次重试的间隔（毫秒）
+     * @param maxRetryInterval 最大重试间隔（毫秒）
+     */
+    public OutboxRetryPolicy(int maxRetryCount, long retryInterval, long maxRetryInterval) {
+        this.maxRetryCount = maxRetryCount;
+        this.retryInterval = retryInterval;
+        this.maxRetryInterval = maxRetryInterval;
+    }
+
+    /**
+     * 失败次数是否已经达到最大重试次数
+     *
+     * @param retryCount 本次失败后的重试次数
+     * @return 达到时返回true
+     */
+    public boolean exhausted(int retryCount) {
+        return retryCount >= maxRetryCount;
+    }
+
+    /**
+     * 计算下次重试时间
+     *
+     * @param now        当前时间
+     * @param retryCount 本次失败后的重试次数
+     * @return 下次重试时间
+     */
+    public Date nextRetryTime(Date now, int retryCount) {
+        int shift = Math.min(Math.max(retryCount - 1, 0), 30);
+        long delay = Math.min(retryInterval << shift, maxRetryInterval);
+        return new Date(now.getTime() + delay);
+    }
+}
@@ -1,16 +1,16 @@
 package com.damai.shardingsphere;
 
-import cn.hutool.core.collection.CollectionUtil;
 import com.damai.enums.BaseCode;
+import com.damai.enums.ShardingExpansionPhase;
 import com.damai.exception.DaMaiFrameException;
-import com.damai.util.StringUtil;
+import com.damai.shardingsphere.OrderShardingExpansion.ExpansionRoute;
 import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingAlgorithm;
 import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 
@@ -18,9 +18,13 @@ import java.util.Properties;
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * 使用雪花算法生成全局唯一的 order_number，在生成时会把 user_id 的一部分（或者它的哈希）拼接到雪花ID的低位，作为【基因位】。
  * 这样同一个用户的订单号末尾相似，保证路由时能用基因位把相同用户的数据尽量落到同一个库里、同一个分表里。路由时先解析 order_number 的基因位，
- * 如果没有就退化用 user-id 做分片键。然后对基因位做哈希和位运算，再按数据库数量和分表数量取模，最终定位到目标库和目标表，实现水平分库分表，
+ * 如果没有就退化用 user-id 做分片键。然后对基因位做位运算，低位按分表数量取出表下标，往上的位按数据库数量取出库下标，最终定位到目标库和目标表，实现水平分库分表，
  * 保证热点用户不跨库跨表，查询和扩容都方便。
  * @description: 订单分库
+ * 基因 -> 库下标 的计算见 OrderGeneRouteTable，初始化时校验基因数量能覆盖全部库表
+ * 分库扩容时（见 OrderShardingExpansion）：有分片键时只路由到一个库，双写阶段为原库，切换阶段和完成后为新库，
+ * 写新库（切换阶段写原库）由业务通过 OrderShardingExpansion.dualWrite 显式指定库再执行一次
+ * 没有分片键时广播到当前读的库，双写和切换阶段的写广播到原库和新库，已声明但还未启用的新库不会被访问
  * @author: 阿星不是程序员
  **/
 public class DatabaseOrderComplexGeneArithmetic implements ComplexKeysShardingAlgorithm<Long> {
@@ -29,13 +33,21 @@ public class DatabaseOrderComplexGeneArithmetic implements ComplexKeysShardingAl
     private static final String SHARDING_COUNT_KEY_NAME = "sharding-count";
     // 属性分表名
     private static final String TABLE_SHARDING_COUNT_KEY_NAME = "table-sharding-count";
+    // 属性基因数量，需要与生成订单编号时使用的基因数量一致，未配置时为 分库数量 x 分表数量
+    private static final String GENE_COUNT_KEY_NAME = "gene-count";
+    // 广播路由指标的分片类型
+    private static final String ROUTE_TYPE = "database";
     // 分库数量
     private int shardingCount;
     // 分表数量
     private int tableShardingCount;
+    // 按当前分库数量计算库下标
+    private OrderGeneRouteTable routeTable;
+    // 库下标 -> 库名，第一次路由时按实际库名建立
+    private volatile TargetTable targetTable;
 
     /**
-     * 从配置中读取数据库和表的分片数量，初始化成员变量
+     * 从配置中读取数据库和表的分片数量以及基因数量，校验每个库的每张表都能分到基因
      *
      * @param props
      */
@@ -43,6 +55,13 @@ public class DatabaseOrderComplexGeneArithmetic implements ComplexKeysShardingAl
     public void init(Properties props) {
         this.shardingCount = Integer.parseInt(props.getProperty(SHARDING_COUNT_KEY_NAME));
         this.tableShardingCount = Integer.parseInt(props.getProperty(TABLE_SHARDING_COUNT_KEY_NAME));
+        String geneCountValue = props.getProperty(GENE_COUNT_KEY_NAME);
+        int geneCount = Objects.isNull(geneCountValue) ? shardingCount * tableShardingCount : Integer.parseInt(geneCountValue);
+        this.routeTable = new OrderGeneRouteTable(shardingCount, tableShardingCount);
+        if (!routeTable.coverAll(geneCount)) {
+            throw new DaMaiFrameException(BaseCode.ORDER_SHARD_GENE_NOT_ENOUGH);
+        }
+        OrderShardingExpansion.registerLayout(shardingCount, tableShardingCount, geneCount);
     }
 
     /**
@@ -55,86 +74,81 @@ public class DatabaseOrderComplexGeneArithmetic implements ComplexKeysShardingAl
     @Override
     public Collection<String> doSharding
     (Collection<String> allActualSplitDatabaseNames, ComplexKeysShardingValue<Long> complexKeysShardingValue) {
-        // 初始化结果列表，容量设为所有数据库个数，最后只返回匹配的一个或多个数据库名
-        List<String> actualDatabaseNames = new ArrayList<>(allActualSplitDatabaseNames.size());
-
-        // 获取所有分片键对应的值集合，比如order_number对应的所有值、user_id对应的所有值
-        Map<String, Collection<Long>> columnNameAndShardingValuesMap =
-                complexKeysShardingValue.getColumnNameAndShardingValuesMap();
+        return OrderShardingRouteSupport.traceRoute(ROUTE_TYPE, route(allActualSplitDatabaseNames, complexKeysShardingValue));
+    }
 
-        // 如果没有任何分片键值，默认返回所有数据库（不做分片）
-        if (CollectionUtil.isEmpty(columnNameAndShardingValuesMap)) {
-            return allActualSplitDatabaseNames;
+    private Collection<String> route(Collection<String> allActualSplitDatabaseNames,
+                                     ComplexKeysShardingValue<Long> complexKeysShardingValue) {
+        String[] targets = getTargetTable(allActualSplitDatabaseNames);
+        // 指定了库（扩容复制、清理数据）时直接访问该库
+        Integer databaseIndex = OrderShardingExpansion.getDatabaseIndex();
+        if (Objects.nonNull(databaseIndex)) {
+            return toTargetNames(targets, databaseIndex);
         }
-
-        // 取出 order_number 和 user_id 对应的值集合
-        Collection<Long> orderNumberValues = columnNameAndShardingValuesMap.get("order_number");
-        Collection<Long> userIdValues = columnNameAndShardingValuesMap.get("user_id");
-
-        Long value = null;
+        ExpansionRoute expansionRoute = OrderShardingExpansion.current();
         // 优先使用order_number的第一个值作为分片依据，如果没有则用user_id的第一个值
-        if (CollectionUtil.isNotEmpty(orderNumberValues)) {
-            value = orderNumberValues.stream().findFirst().orElseThrow(
-                    () -> new DaMaiFrameException(BaseCode.ORDER_NUMBER_NOT_EXIST));
-        } else if (CollectionUtil.isNotEmpty(userIdValues)) {
-            value = userIdValues.stream().findFirst().orElseThrow(
-                    () -> new DaMaiFrameException(BaseCode.USER_ID_NOT_EXIST));
+        Long value = OrderShardingRouteSupport.getShardingValue(complexKeysShardingValue.getColumnNameAndShardingValuesMap());
+        // 如果没有找到有效的分片键值，返回当前访问的全部数据库，表示不做分片限制
+        if (Objects.isNull(value)) {
+            OrderShardingRouteSupport.recordBroadcast(ROUTE_TYPE, complexKeysShardingValue.getLogicTableName());
+            int count = expansionRoute.dualWrite() && OrderShardingExpansion.isWrite()
+                    ? expansionRoute.targetShardingCount() : expansionRoute.readShardingCount(shardingCount);
+            return broadcastTargetNames(allActualSplitDatabaseNames, targets, count);
         }
-        // 如果分片键值存在
-        if (Objects.nonNull(value)) {
-            // 计算数据库索引
-            long databaseIndex = calculateDatabaseIndex(shardingCount, value, tableShardingCount);
-            String databaseIndexStr = String.valueOf(databaseIndex);
-            // 遍历所有数据库名，找出名称包含该索引的数据库，比如 damai_order_0 包含 0
-            for (String actualSplitDatabaseName : allActualSplitDatabaseNames) {
-                if (actualSplitDatabaseName.contains(databaseIndexStr)) {
-                    actualDatabaseNames.add(actualSplitDatabaseName);
-                    break;
-                }
-            }
-            // 返回目标数据库名集合
-            return actualDatabaseNames;
-        } else {
-            // 如果没有找到有效的分片键值，返回所有数据库，表示不做分片限制
-            return allActualSplitDatabaseNames;
+        int index = routeTable.databaseIndex(value);
+        if (expansionRoute.phase() == ShardingExpansionPhase.NONE) {
+            // 按库下标直接取出库名，比如 1 -> ds_1
+            return toTargetNames(targets, index);
+        }
+        if (expansionRoute.readShardingCount(shardingCount) == shardingCount) {
+            return toTargetNames(targets, index);
         }
+        // 读写都只路由到一个库，另一个库的写由 OrderShardingExpansion.dualWrite 指定
+        return toTargetNames(targets, OrderShardingExpansion.routeTable(expansionRoute.targetShardingCount()).databaseIndex(value));
     }
 
     /**
-     * 计算给定分片键应该路由到哪个数据库索引
+     * 计算给定分片键应该路由到哪个数据库索引（按当前分库数量）
      *
-     * @param databaseCount 数据库总数
-     * @param splicingKey   分片键
-     * @param tableCount    表总数
+     * @param splicingKey 分片键
      * @return 分配到的数据库编号
      */
-    public long calculateDatabaseIndex(Integer databaseCount, Long splicingKey, Integer tableCount) {
-        // 将分片值转换为二进制字符串
-        String splicingKeyBinary = Long.toBinaryString(splicingKey);
-        // 计算需要截取的二进制长度
-        long replacementLength = log2N(tableCount);
-        // 从分片键二进制末尾截取 replacementLength 位，作为“基因片段”
-        String geneBinaryStr = splicingKeyBinary.substring(splicingKeyBinary.length() - (int) replacementLength);
-        // 如果基因片段不为空
-        if (StringUtil.isNotEmpty(geneBinaryStr)) {
-            int h;
-            // 对基因片段做hash，并用 hash 扰动，提升分布均匀度
-            int geneOptimizeHashCode = (h = geneBinaryStr.hashCode()) ^ (h >>> 16);
-            // 用 hashCode 与（数据库总数 - 1）做位与运算，确保落在[0, databaseCount - 1]区间
-            return (databaseCount - 1) & geneOptimizeHashCode;
+    public long calculateDatabaseIndex(long splicingKey) {
+        return routeTable.databaseIndex(splicingKey);
+    }
+
+    private Collection<String> toTargetNames(String[] targets, int index) {
+        if (index < 0 || index >= targets.length || Objects.isNull(targets[index])) {
+            return Collections.emptyList();
         }
-        // 如果基因片段为空，抛异常
-        throw new DaMaiFrameException(BaseCode.NOT_FOUND_GENE);
+        return Collections.singletonList(targets[index]);
     }
 
-    /**
-     * 计算 log2(count)，即 以 2 为底的对数
-     * 用于推导需要从二进制里截取多少位
-     *
-     * @param count 需要计算的值
-     * @return log2(count) 的结果
-     */
-    public long log2N(long count) {
-        return (long) (Math.log(count) / Math.log(2));
+    private Collection<String> broadcastTargetNames(Collection<String> allActualSplitDatabaseNames, String[] targets,
+                                                    int count) {
+        if (count >= allActualSplitDatabaseNames.size()) {
+            return allActualSplitDatabaseNames;
+        }
+        List<String> actualDatabaseNames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (Objects.nonNull(targets[i])) {
+                actualDatabaseNames.add(targets[i]);
+            }
+        }
+        return actualDatabaseNames;
+    }
+
+    private String[] getTargetTable(Collection<String> allActualSplitDatabaseNames) {
+        TargetTable current = targetTable;
+        // shardingsphere每次传入的是同一个库名集合，引用相同时直接使用已建立的映射
+        if (Objects.isNull(current) || current.targetNames() != allActualSplitDatabaseNames) {
+            current = new TargetTable(allActualSplitDatabaseNames, OrderShardingRouteSupport.buildTargetTable(
+                    allActualSplitDatabaseNames, Math.max(shardingCount, allActualSplitDatabaseNames.size())));
+            targetTable = current;
+        }
+        return current.targets();
+    }
+
+    private record TargetTable(Collection<String> targetNames, String[] targets) {
     }
 }
@@ -0,0 +1,95 @@
+package com.damai.shardingsphere;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单基因 -> 库下标、表下标 映射
+ * 基因是分片值二进制的最低 log2(基因数量) 位，订单编号在生成时拼接 用户id % 基因数量，用户id的低位与之相同
+ * 基因的低 log2(分表数量) 位是表下标，再往上的 log2(分库数量) 位是库下标：
+ * 库下标 = (分片值 >>> log2(分表数量)) & (分库数量 - 1)，表下标 = 分片值 & (分表数量 - 1)
+ * 基因数量不小于 分库数量 x 分表数量 时，每个库的每张表都能分到基因
+ * 库数量翻倍时新下标的低位就是原下标，原库i中的数据只会留在i或迁到i+原库数量，并且按基因均分到两个库中
+ * @author: 阿星不是程序员
+ **/
+public final class OrderGeneRouteTable {
+
+    // 分库数量
+    private final int shardingCount;
+    // 分表数量
+    private final int tableShardingCount;
+    // 表下标占用的位数
+    private final int tableBits;
+    // 库下标掩码
+    private final long databaseMask;
+    // 表下标掩码
+    private final long tableMask;
+
+    /**
+     * @param shardingCount      分库数量，2的幂次
+     * @param tableShardingCount 分表数量，2的幂次
+     */
+    public OrderGeneRouteTable(int shardingCount, int tableShardingCount) {
+        this.shardingCount = shardingCount;
+        this.tableShardingCount = tableShardingCount;
+        this.tableBits = (int) log2N(tableShardingCount);
+        this.databaseMask = shardingCount - 1;
+        this.tableMask = tableShardingCount - 1;
+    }
+
+    /**
+     * 计算给定分片键应该路由到哪个数据库索引
+     *
+     * @param splicingKey 分片键
+     * @return 分配到的数据库编号
+     */
+    public int databaseIndex(long splicingKey) {
+        // 跳过表下标占用的低位，再取 log2(分库数量) 位作为库下标
+        return (int) ((splicingKey >>> tableBits) & databaseMask);
+    }
+
+    /**
+     * 计算给定分片键应该路由到哪张表，与 TableOrderComplexGeneArithmetic 的计算一致
+     *
+     * @param splicingKey 分片键
+     * @return 分配到的表编号
+     */
+    public int tableIndex(long splicingKey) {
+        return (int) (splicingKey & tableMask);
+    }
+
+    /**
+     * 按指定的基因数量生成的分片值，是否每个库的每张表都至少能分到一个基因
+     *
+     * @param geneCount 基因数量
+     * @return 全部库表都能分到基因时返回true
+     */
+    public boolean coverAll(int geneCount) {
+        if (!isPowerOfTwo(shardingCount) || !isPowerOfTwo(tableShardingCount) || !isPowerOfTwo(geneCount)) {
+            return false;
+        }
+        boolean[] covered = new boolean[shardingCount * tableShardingCount];
+        for (int gene = 0; gene < geneCount; gene++) {
+            covered[databaseIndex(gene) * tableShardingCount + tableIndex(gene)] = true;
+        }
+        for (boolean nodeCovered : covered) {
+            if (!nodeCovered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算 log2(count)，即 以 2 为底的对数
+     * 用于推导需要从二进制里截取多少位，与生成订单编号时拼接基因的位数一致
+     *
+     * @param count 需要计算的值
+     * @return log2(count) 的结果
+     */
+    public static long log2N(long count) {
+        return (long) (Math.log(count) / Math.log(2));
+    }
+
+    private static boolean isPowerOfTwo(int count) {
+        return count > 0 && Integer.bitCount(count) == 1;
+    }
+}
@@ -0,0 +1,209 @@
+package com.damai.shardingsphere;
+
+import com.damai.enums.ShardingExpansionPhase;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容的路由状态
+ * 分片算法由shardingsphere创建，不是spring的bean，扩容阶段和目标分库数量放在这里，由业务服务同步后整体替换，
+ * 分库算法每次路由读取一次，同一条sql的路由不会看到一半新一半旧的状态
+ * 双写：分库算法对有分片值的sql只路由到一个库（双写阶段为原库，切换阶段为新库），需要迁移的基因由业务通过dualWrite
+ * 显式在原库和新库上各执行一次，单行insert也不会路由到多个库
+ * 读写区分：通过mybatis执行insert、update、delete时由ShardingWriteMarkInterceptor标记当前线程正在写，
+ * 双写阶段没有分片值的写（比如按条件批量删除）广播到原库和新库，读只访问一边
+ * 指定库：后台复制、清理数据时需要直接访问某一个库，通过onDatabase指定，优先于按分片值路由
+ * @author: 阿星不是程序员
+ **/
+public final class OrderShardingExpansion {
+
+    private static final ThreadLocal<Boolean> WRITE_HOLDER = new ThreadLocal<>();
+
+    private static final ThreadLocal<Integer> DATABASE_INDEX_HOLDER = new ThreadLocal<>();
+
+    /**
+     * 分库数量 -> 库下标的计算
+     */
+    private static final Map<Integer, OrderGeneRouteTable> ROUTE_TABLE_MAP = new ConcurrentHashMap<>();
+
+    private static volatile ExpansionRoute expansionRoute = new ExpansionRoute(ShardingExpansionPhase.NONE, null);
+
+    /**
+     * 分库算法初始化时登记的分库数量
+     */
+    private static volatile int shardingCount;
+
+    /**
+     * 分库算法初始化时登记的分表数量
+     */
+    private static volatile int tableShardingCount;
+
+    /**
+     * 分库算法初始化时登记的基因数量，订单编号低位拼接的是 用户id % 基因数量
+     */
+    private static volatile int geneCount;
+
+    private OrderShardingExpansion() {
+    }
+
+    /**
+     * 替换扩容状态
+     *
+     * @param phase               扩容阶段
+     * @param targetShardingCount 扩容后的分库数量，未扩容时为null
+     */
+    public static void update(ShardingExpansionPhase phase, Integer targetShardingCount) {
+        ExpansionRoute current = expansionRoute;
+        if (current.phase() == phase && Objects.equals(current.targetShardingCount(), targetShardingCount)) {
+            return;
+        }
+        expansionRoute = new ExpansionRoute(phase, targetShardingCount);
+    }
+
+    public static ExpansionRoute current() {
+        return expansionRoute;
+    }
+
+    static void registerLayout(int shardingCount, int tableShardingCount, int geneCount) {
+        OrderShardingExpansion.shardingCount = shardingCount;
+        OrderShardingExpansion.tableShardingCount = tableShardingCount;
+        OrderShardingExpansion.geneCount = geneCount;
+        ROUTE_TABLE_MAP.clear();
+    }
+
+    public static int getShardingCount() {
+        return shardingCount;
+    }
+
+    public static int getTableShardingCount() {
+        return tableShardingCount;
+    }
+
+    public static int getGeneCount() {
+        return geneCount;
+    }
+
+    /**
+     * 基因掩码，基因相同的分片值一定在同一个库的同一张表中，扩容前后都是
+     */
+    public static long geneMask() {
+        return geneCount - 1L;
+    }
+
+    /**
+     * 标记当前线程开始写
+     *
+     * @return 标记前的状态，结束时传给endWrite
+     */
+    public static Boolean beginWrite() {
+        Boolean previous = WRITE_HOLDER.get();
+        WRITE_HOLDER.set(Boolean.TRUE);
+        return previous;
+    }
+
+    /**
+     * 结束写，恢复标记前的状态
+     *
+     * @param previous beginWrite的返回值
+     */
+    public static void endWrite(Boolean previous) {
+        if (Objects.isNull(previous)) {
+            WRITE_HOLDER.remove();
+        } else {
+            WRITE_HOLDER.set(previous);
+        }
+    }
+
+    public static boolean isWrite() {
+        return Boolean.TRUE.equals(WRITE_HOLDER.get());
+    }
+
+    /**
+     * 在指定的库上执行
+     *
+     * @param databaseIndex 库下标
+     * @param supplier      执行的操作
+     * @return 操作结果
+     */
+    public static <T> T onDatabase(int databaseIndex, Supplier<T> supplier) {
+        Integer previous = DATABASE_INDEX_HOLDER.get();
+        DATABASE_INDEX_HOLDER.set(databaseIndex);
+        try {
+            return supplier.get();
+        } finally {
+            if (Objects.isNull(previous)) {
+                DATABASE_INDEX_HOLDER.remove();
+            } else {
+                DATABASE_INDEX_HOLDER.set(previous);
+            }
+        }
+    }
+
+    public static Integer getDatabaseIndex() {
+        return DATABASE_INDEX_HOLDER.get();
+    }
+
+    /**
+     * 按分片值写入，扩容双写时在原库和新库上各执行一次
+     * 未扩容、该基因不需要迁移或已经指定了库时按分片值正常路由执行一次；
+     * 需要迁移时先在当前读的库上执行（双写阶段为原库，切换阶段为新库），再在另一个库上执行，两次都通过onDatabase指定库
+     * 写操作需要可以重复执行，并且在调用方的事务中，任意一个库失败时一起回滚
+     *
+     * @param shardingValue 分片值，订单编号或用户id
+     * @param supplier      写操作
+     * @return 在当前读的库上的执行结果
+     */
+    public static <T> T dualWrite(long shardingValue, Supplier<T> supplier) {
+        ExpansionRoute route = expansionRoute;
+        if (!route.dualWrite() || Objects.nonNull(DATABASE_INDEX_HOLDER.get())) {
+            return supplier.get();
+        }
+        int index = routeTable(shardingCount).databaseIndex(shardingValue);
+        int expansionIndex = routeTable(route.targetShardingCount()).databaseIndex(shardingValue);
+        if (index == expansionIndex) {
+            return supplier.get();
+        }
+        boolean readExpansion = route.readShardingCount(shardingCount) != shardingCount;
+        T result = onDatabase(readExpansion ? expansionIndex : index, supplier);
+        onDatabase(readExpansion ? index : expansionIndex, supplier);
+        return result;
+    }
+
+    /**
+     * 按分库数量取库下标的计算
+     *
+     * @param count 分库数量
+     * @return 路由表
+     */
+    public static OrderGeneRouteTable routeTable(int count) {
+        return ROUTE_TABLE_MAP.computeIfAbsent(count, key -> new OrderGeneRouteTable(key, tableShardingCount));
+    }
+
+    /**
+     * 扩容状态
+     *
+     * @param phase               扩容阶段
+     * @param targetShardingCount 扩容后的分库数量
+     */
+    public record ExpansionRoute(ShardingExpansionPhase phase, Integer targetShardingCount) {
+
+        /**
+         * 读访问的分库数量
+         */
+        public int readShardingCount(int shardingCount) {
+            return phase == ShardingExpansionPhase.CUTOVER || phase == ShardingExpansionPhase.FINISHED
+                    ? targetShardingCount : shardingCount;
+        }
+
+        /**
+         * 是否同时写入原库和新库
+         */
+        public boolean dualWrite() {
+            return phase == ShardingExpansionPhase.DUAL_WRITE || phase == ShardingExpansionPhase.CUTOVER;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.damai.shardingsphere;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.damai.enums.BaseCode;
+import com.damai.exception.DaMaiFrameException;
+import com.damai.sqltrace.SqlTraceContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库分表路由公共方法
+ * 路由目标表：按库名、表名末尾的下标（如 ds_1 的 1、d_order_3 的 3）建立 下标 -> 名称 的数组，路由时按下标直接取出名称，
+ * 不再遍历全部目标用 contains 匹配（contains 在目标超过10个时 1 会匹配到 10、11...）
+ * 广播路由：sql中没有分片键时会路由到全部库表，通过 sharding.route.broadcast 指标记录次数，便于发现误写的全分片扫描。
+ * 分片算法由shardingsphere创建，不是spring的bean，指标注册到Micrometer的全局MeterRegistry，spring boot会把自身的MeterRegistry加入其中
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public final class OrderShardingRouteSupport {
+
+    public static final String ORDER_NUMBER = "order_number";
+
+    public static final String USER_ID = "user_id";
+
+    private static final Map<String, Counter> BROADCAST_COUNTER_MAP = new ConcurrentHashMap<>();
+
+    private OrderShardingRouteSupport() {
+    }
+
+    /**
+     * 取出分片值，优先使用 order_number 的第一个值，没有时使用 user_id 的第一个值
+     *
+     * @param columnNameAndShardingValuesMap 分片键 -> 分片值集合
+     * @return 分片值，都没有时返回null
+     */
+    public static Long getShardingValue(Map<String, Collection<Long>> columnNameAndShardingValuesMap) {
+        if (CollectionUtil.isEmpty(columnNameAndShardingValuesMap)) {
+            return null;
+        }
+        Collection<Long> orderNumberValues = columnNameAndShardingValuesMap.get(ORDER_NUMBER);
+        if (CollectionUtil.isNotEmpty(orderNumberValues)) {
+            return orderNumberValues.stream().findFirst().orElseThrow(
+                    () -> new DaMaiFrameException(BaseCode.ORDER_NUMBER_NOT_EXIST));
+        }
+        Collection<Long> userIdValues = columnNameAndShardingValuesMap.get(USER_ID);
+        if (CollectionUtil.isNotEmpty(userIdValues)) {
+            return userIdValues.stream().findFirst().orElseThrow(
+                    () -> new DaMaiFrameException(BaseCode.USER_ID_NOT_EXIST));
+        }
+        return null;
+    }
+
+    /**
+     * 建立 下标 -> 目标名称 的数组，名称末尾不是 _下标 或下标超出数量的目标忽略
+     *
+     * @param targetNames 全部目标名称
+     * @param count       分片数量
+     * @return 下标 -> 目标名称，没有对应目标的位置为null
+     */
+    public static String[] buildTargetTable(Collection<String> targetNames, int count) {
+        String[] targetTable = new String[count];
+        for (String targetName : targetNames) {
+            int index = suffixIndex(targetName);
+            if (index >= 0 && index < count) {
+                targetTable[index] = targetName;
+            }
+        }
+        return targetTable;
+    }
+
+    /**
+     * 把路由结果记录到sql追踪上下文中
+     *
+     * @param type    分片类型（database、table）
+     * @param targets 路由结果
+     * @return 路由结果
+     */
+    public static Collection<String> traceRoute(String type, Collection<String> targets) {
+        SqlTraceContext.recordRoute(type, targets);
+        return targets;
+    }
+
+    /**
+     * 记录一次广播路由
+     *
+     * @param type           分片类型（database、table）
+     * @param logicTableName 逻辑表名
+     */
+    public static void recordBroadcast(String type, String logicTableName) {
+        // 扩容复制、清理数据时指定了库，按库遍历是预期行为，不计入广播
+        if (Objects.nonNull(OrderShardingExpansion.getDatabaseIndex())) {
+            return;
+        }
+        SqlTraceContext.recordBroadcast();
+        BROADCAST_COUNTER_MAP.computeIfAbsent(type + ":" + logicTableName, k -> Counter.builder("sharding.route.broadcast")
+                .description("没有分片键路由到全部分片的次数")
+                .tag("type", type)
+                .tag("logicTable", logicTableName)
+                .register(Metrics.globalRegistry))
+                .increment();
+        log.debug("sharding broadcast route, type : {}, logicTable : {}", type, logicTableName);
+    }
+
+    private static int suffixIndex(String targetName) {
+        int start = targetName.lastIndexOf('_') + 1;
+        if (start == 0 || start == targetName.length()) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = start; i < targetName.length(); i++) {
+            char c = targetName.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+}
@@ -0,0 +1,30 @@
+package com.damai.shardingsphere;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 标记写操作
+ * mybatis的insert、update、delete都经过Executor.update，执行期间标记当前线程正在写，
+ * 分库扩容的双写阶段分库算法据此把没有分片键的写广播到原库和新库（批量执行时addBatch也在update中完成路由），
+ * 有分片键的写只路由到一个库，另一个库由业务通过 OrderShardingExpansion.dualWrite 指定
+ * @author: 阿星不是程序员
+ **/
+@Intercepts({@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})})
+public class ShardingWriteMarkInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Boolean previous = OrderShardingExpansion.beginWrite();
+        try {
+            return invocation.proceed();
+        } finally {
+            OrderShardingExpansion.endWrite(previous);
+        }
+    }
+}
@@ -1,29 +1,32 @@
 package com.damai.shardingsphere;
 
-import cn.hutool.core.collection.CollectionUtil;
-import com.damai.enums.BaseCode;
-import com.damai.exception.DaMaiFrameException;
 import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingAlgorithm;
 import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: 订单分表
+ * 表下标是分片值与（分表数量 - 1）位与的结果，即基因位；每个逻辑表的 表下标 -> 实际表名 在第一次路由时按实际表名建立，
+ * 路由时不再拼接表名
  * @author: 阿星不是程序员
  **/
 public class TableOrderComplexGeneArithmetic implements ComplexKeysShardingAlgorithm<Long> {
 
     // 属性分表名
     private static final String SHARDING_COUNT_KEY_NAME = "sharding-count";
+    // 广播路由指标的分片类型
+    private static final String ROUTE_TYPE = "table";
     // 分表数量
     private int shardingCount;
+    // 逻辑表名 -> (表下标 -> 实际表名)
+    private final Map<String, String[]> targetTableMap = new ConcurrentHashMap<>();
 
     /**
      * 从配置中读取分表数量
@@ -45,42 +48,25 @@ public class TableOrderComplexGeneArithmetic implements ComplexKeysShardingAlgor
     @Override
     public Collection<String> doSharding(Collection<String> allActualSplitTableNames,
                                          ComplexKeysShardingValue<Long> complexKeysShardingValue) {
-        // 用于存放计算后的目标分表名
-        List<String> actualTableNames = new ArrayList<>(allActualSplitTableNames.size());
+        return OrderShardingRouteSupport.traceRoute(ROUTE_TYPE, route(allActualSplitTableNames, complexKeysShardingValue));
+    }
+
+    private Collection<String> route(Collection<String> allActualSplitTableNames,
+                                     ComplexKeysShardingValue<Long> complexKeysShardingValue) {
         // 获取逻辑表名 d_order
         String logicTableName = complexKeysShardingValue.getLogicTableName();
-        // 拿到分片键值map
-        Map<String, Collection<Long>> columnNameAndShardingValuesMap =
-                complexKeysShardingValue.getColumnNameAndShardingValuesMap();
-        // 如果没有，默认路由到所有表
-        if (CollectionUtil.isEmpty(columnNameAndShardingValuesMap)) {
+        // 优先使用 order_number，如果 order_number 不存在，再使用 user_id
+        Long value = OrderShardingRouteSupport.getShardingValue(complexKeysShardingValue.getColumnNameAndShardingValuesMap());
+        // 如果分片键值为空，则返回所有分表，路由不确定
+        if (Objects.isNull(value)) {
+            OrderShardingRouteSupport.recordBroadcast(ROUTE_TYPE, logicTableName);
             return allActualSplitTableNames;
         }
-        // 获取 order_number 和 user_id 分片键值
-        Collection<Long> orderNumberValues = columnNameAndShardingValuesMap.get("order_number");
-        Collection<Long> userIdValues = columnNameAndShardingValuesMap.get("user_id");
-        Long value = null;
-        // 优先使用 order_number
-        if (CollectionUtil.isNotEmpty(orderNumberValues)) {
-            value = orderNumberValues.stream()
-                    .findFirst()
-                    .orElseThrow(() -> new DaMaiFrameException(BaseCode.ORDER_NUMBER_NOT_EXIST));
-        }
-        // 如果 order_number 不存在，再使用 user_id
-        else if (CollectionUtil.isNotEmpty(userIdValues)) {
-            value = userIdValues.stream()
-                    .findFirst()
-                    .orElseThrow(() -> new DaMaiFrameException(BaseCode.USER_ID_NOT_EXIST));
-        }
-        // 根据分片键值计算分表索引，定位到具体分表
-        if (Objects.nonNull(value)) {
-            // 位运算(value & (shardingCount - 1))，相当于对 shardingCount 取模，保证索引范围 [0, shardingCount - 1]
-            int tableIndex = (shardingCount - 1) & value.intValue();
-            // 拼接逻辑表名 + "_" + 计算出的索引，得到实际分表名，如 d_order_2
-            actualTableNames.add(logicTableName + "_" + tableIndex);
-            return actualTableNames;
-        }
-        // 如果分片键值为空，则返回所有分表，路由不确定
-        return allActualSplitTableNames;
+        // 位运算(value & (shardingCount - 1))，相当于对 shardingCount 取模，保证索引范围 [0, shardingCount - 1]
+        int tableIndex = (int) (value & (shardingCount - 1));
+        // 按表下标取出实际分表名，如 d_order_2
+        String tableName = targetTableMap.computeIfAbsent(logicTableName,
+                k -> OrderShardingRouteSupport.buildTargetTable(allActualSplitTableNames, shardingCount))[tableIndex];
+        return Objects.isNull(tableName) ? Collections.emptyList() : Collections.singletonList(tableName);
     }
 }
@@ -0,0 +1,108 @@
+package com.damai.sqltrace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: sql执行期间的路由信息
+ * shardingsphere在执行sql的线程上调用分片算法，SqlTraceInterceptor执行前开启，分片算法把路由结果记录进来，执行后读取
+ * 没有开启时记录为空操作
+ * @author: 阿星不是程序员
+ **/
+public final class SqlTraceContext {
+
+    /**
+     * 路由类型：没有经过自定义分片算法、路由到一个分片、路由到多个分片、没有分片键广播
+     */
+    public static final String[] ROUTE_TAGS = {"none", "single", "multi", "broadcast"};
+
+    public static final int ROUTE_NONE = 0;
+
+    public static final int ROUTE_SINGLE = 1;
+
+    public static final int ROUTE_MULTI = 2;
+
+    public static final int ROUTE_BROADCAST = 3;
+
+    private static final ThreadLocal<SqlTraceContext> HOLDER = new ThreadLocal<>();
+
+    private int route = ROUTE_NONE;
+
+    /**
+     * 路由结果，只在需要打印sql时拼接成文本
+     */
+    private List<RouteEntry> routeList;
+
+    private SqlTraceContext() {
+    }
+
+    /**
+     * 开启，已开启时（嵌套执行）返回null，由最外层记录
+     *
+     * @return 本次开启的上下文
+     */
+    static SqlTraceContext begin() {
+        if (Objects.nonNull(HOLDER.get())) {
+            return null;
+        }
+        SqlTraceContext sqlTraceContext = new SqlTraceContext();
+        HOLDER.set(sqlTraceContext);
+        return sqlTraceContext;
+    }
+
+    static void end() {
+        HOLDER.remove();
+    }
+
+    /**
+     * 记录分片算法的路由结果
+     *
+     * @param type    分片类型（database、table）
+     * @param targets 路由到的库名或表名
+     */
+    public static void recordRoute(String type, Collection<String> targets) {
+        SqlTraceContext sqlTraceContext = HOLDER.get();
+        if (Objects.isNull(sqlTraceContext)) {
+            return;
+        }
+        int route = targets.size() > 1 ? ROUTE_MULTI : ROUTE_SINGLE;
+        if (route > sqlTraceContext.route) {
+            sqlTraceContext.route = route;
+        }
+        if (Objects.isNull(sqlTraceContext.routeList)) {
+            sqlTraceContext.routeList = new ArrayList<>(4);
+        }
+        sqlTraceContext.routeList.add(new RouteEntry(type, targets));
+    }
+
+    /**
+     * 记录没有分片键的广播路由
+     */
+    public static void recordBroadcast() {
+        SqlTraceContext sqlTraceContext = HOLDER.get();
+        if (Objects.nonNull(sqlTraceContext)) {
+            sqlTraceContext.route = ROUTE_BROADCAST;
+        }
+    }
+
+    int getRoute() {
+        return route;
+    }
+
+    String getRouteText() {
+        if (Objects.isNull(routeList)) {
+            return ROUTE_TAGS[route];
+        }
+        StringBuilder routeText = new StringBuilder(ROUTE_TAGS[route]);
+        for (RouteEntry routeEntry : routeList) {
+            routeText.append(' ').append(routeEntry.type()).append(':').append(routeEntry.targets());
+        }
+        return routeText.toString();
+    }
+
+    private record RouteEntry(String type, Collection<String> targets) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.damai.sqltrace;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: sql执行追踪
+ * 代替 mybatis 的 StdOutImpl 和 shardingsphere 的 sql-show：原先每条sql（包括批量插入的每一行、每条路由后的真实sql）
+ * 都在业务线程上格式化后同步写入System.out
+ * 现在每条sql只记录耗时、行数和路由类型指标；按采样率抽取，或耗时超过慢sql阈值的sql，才拼接带参数值的sql文本，
+ * 放入队列由SqlTraceLogger异步输出
+ * @author: 阿星不是程序员
+ **/
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class})})
+public class SqlTraceInterceptor implements Interceptor {
+
+    private final SqlTraceMetrics sqlTraceMetrics;
+
+    private final SqlTraceLogger sqlTraceLogger;
+
+    /**
+     * 输出完整sql的采样率
+     */
+    private final double sampleRate;
+
+    /**
+     * 慢sql阈值（纳秒）
+     */
+    private final long slowThresholdNanos;
+
+    public SqlTraceInterceptor(SqlTraceMetrics sqlTraceMetrics, SqlTraceLogger sqlTraceLogger, double sampleRate,
+                               Duration slowThreshold) {
+        this.sqlTraceMetrics = sqlTraceMetrics;
+        this.sqlTraceLogger = sqlTraceLogger;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        SqlTraceContext sqlTraceContext = SqlTraceContext.begin();
+        // 嵌套执行（如分页插件先查询总数）时由最外层记录
+        if (Objects.isNull(sqlTraceContext)) {
+            return invocation.proceed();
+        }
+        Object result = null;
+        long startTime = System.nanoTime();
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long cost = System.nanoTime() - startTime;
+            SqlTraceContext.end();
+            trace(invocation, sqlTraceContext, cost, result);
+        }
+    }
+
+    private void trace(Invocation invocation, SqlTraceContext sqlTraceContext, long cost, Object result) {
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        String type = mappedStatement.getSqlCommandType().name();
+        int rows = rows(result);
+        boolean slow = cost > slowThresholdNanos;
+        sqlTraceMetrics.record(mappedStatement.getId(), type, sqlTraceContext.getRoute(), cost, rows, slow);
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : mappedStatement.getBoundSql(args[1]);
+        sqlTraceLogger.offer(new SqlTraceLogger.SqlTraceLog(mappedStatement.getId(), type,
+                TimeUnit.NANOSECONDS.toMillis(cost), rows, sqlTraceContext.getRouteText(),
+                formatSql(mappedStatement.getConfiguration(), boundSql), slow));
+    }
+
+    /**
+     * 查询返回的行数或修改影响的行数，批量执行时在提交前未知，返回-1
+     */
+    private int rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Integer count && count >= 0) {
+            return count;
+        }
+        return -1;
+    }
+
+    /**
+     * 拼接带参数值的sql，参数值的取法与mybatis的DefaultParameterHandler一致
+     */
+    private String formatSql(Configuration configuration, BoundSql boundSql) {
+        String sql = boundSql.getSql().replaceAll("\\s+", " ");
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        Object parameterObject = boundSql.getParameterObject();
+        if (parameterMappings.isEmpty()) {
+            return sql;
+        }
+        StringBuilder params = new StringBuilder();
+        MetaObject metaObject = null;
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String propertyName = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (Objects.isNull(parameterObject)) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (Objects.isNull(metaObject)) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(propertyName);
+            }
+            if (!params.isEmpty()) {
+                params.append(", ");
+            }
+            params.append(value);
+        }
+        return sql + " parameters : [" + params + "]";
+    }
+}
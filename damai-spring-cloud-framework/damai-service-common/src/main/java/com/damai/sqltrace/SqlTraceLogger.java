@@ -0,0 +1,81 @@
+package com.damai.sqltrace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: sql日志异步输出
+ * 执行sql的线程只把日志放入有界队列，由单独的线程输出，队列满时丢弃并记录指标，不阻塞业务线程
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class SqlTraceLogger {
+
+    private final BlockingQueue<SqlTraceLog> queue;
+
+    private final SqlTraceMetrics sqlTraceMetrics;
+
+    private final Thread thread;
+
+    public SqlTraceLogger(int queueCapacity, SqlTraceMetrics sqlTraceMetrics) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sqlTraceMetrics = sqlTraceMetrics;
+        this.thread = new Thread(this::run, "sql-trace-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 放入日志队列
+     *
+     * @param sqlTraceLog sql日志
+     */
+    public void offer(SqlTraceLog sqlTraceLog) {
+        if (!queue.offer(sqlTraceLog)) {
+            sqlTraceMetrics.recordDropped();
+        }
+    }
+
+    public void destroy() {
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                SqlTraceLog sqlTraceLog = queue.take();
+                if (sqlTraceLog.slow()) {
+                    log.warn("slow sql {}, type : {}, cost : {}ms, rows : {}, route : {}, sql : {}",
+                            sqlTraceLog.statementId(), sqlTraceLog.type(), sqlTraceLog.costMillis(),
+                            sqlTraceLog.rows(), sqlTraceLog.route(), sqlTraceLog.sql());
+                } else {
+                    log.info("sql {}, type : {}, cost : {}ms, rows : {}, route : {}, sql : {}",
+                            sqlTraceLog.statementId(), sqlTraceLog.type(), sqlTraceLog.costMillis(),
+                            sqlTraceLog.rows(), sqlTraceLog.route(), sqlTraceLog.sql());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("sql trace log error", e);
+            }
+        }
+    }
+
+    /**
+     * sql日志
+     *
+     * @param statementId mapper方法
+     * @param type        语句类型
+     * @param costMillis  执行耗时毫秒数
+     * @param rows        返回或影响的行数
+     * @param route       路由结果
+     * @param sql         带参数值的sql
+     * @param slow        是否慢sql
+     */
+    public record SqlTraceLog(String statementId, String type, long costMillis, int rows, String route, String sql,
+                              boolean slow) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.damai.sqltrace;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: sql执行监控指标，通过Micrometer导出
+ * sql.statement：每个mapper方法的执行耗时（按语句类型、路由类型）
+ * sql.statement.rows：查询返回或修改影响的行数
+ * sql.statement.slow：执行耗时超过慢sql阈值的次数
+ * sql.trace.log.dropped：日志队列已满被丢弃的sql日志数量
+ * 每个mapper方法的指标在第一次执行时创建后缓存，之后执行不再查找MeterRegistry
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+public class SqlTraceMetrics {
+
+    private static final String STATEMENT = "statement";
+
+    private static final String TYPE = "type";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, StatementMeters> statementMetersMap = new ConcurrentHashMap<>();
+
+    private final Counter droppedCounter;
+
+    public SqlTraceMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.droppedCounter = Objects.isNull(meterRegistry) ? null : Counter.builder("sql.trace.log.dropped")
+                .description("日志队列已满被丢弃的sql日志数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次sql执行
+     *
+     * @param statementId mapper方法（MappedStatement的id）
+     * @param type        语句类型
+     * @param route       路由类型，见SqlTraceContext.ROUTE_TAGS
+     * @param costNanos   执行耗时纳秒数
+     * @param rows        返回或影响的行数，未知时小于0
+     * @param slow        是否慢sql
+     */
+    public void record(String statementId, String type, int route, long costNanos, int rows, boolean slow) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        StatementMeters statementMeters = statementMetersMap.get(statementId);
+        if (Objects.isNull(statementMeters)) {
+            statementMeters = statementMetersMap.computeIfAbsent(statementId, k -> new StatementMeters(k, type));
+        }
+        statementMeters.timer(route).record(costNanos, TimeUnit.NANOSECONDS);
+        if (rows >= 0) {
+            statementMeters.rows.record(rows);
+        }
+        if (slow) {
+            statementMeters.slow.increment();
+        }
+    }
+
+    public void recordDropped() {
+        if (Objects.nonNull(droppedCounter)) {
+            droppedCounter.increment();
+        }
+    }
+
+    private class StatementMeters {
+
+        private final String statementId;
+
+        private final String type;
+
+        private final Timer[] timers = new Timer[SqlTraceContext.ROUTE_TAGS.length];
+
+        private final DistributionSummary rows;
+
+        private final Counter slow;
+
+        StatementMeters(String statementId, String type) {
+            this.statementId = statementId;
+            this.type = type;
+            this.rows = DistributionSummary.builder("sql.statement.rows")
+                    .description("查询返回或修改影响的行数")
+                    .tag(STATEMENT, statementId)
+                    .tag(TYPE, type)
+                    .register(meterRegistry);
+            this.slow = Counter.builder("sql.statement.slow")
+                    .description("执行耗时超过阈值的次数")
+                    .tag(STATEMENT, statementId)
+                    .tag(TYPE, type)
+                    .register(meterRegistry);
+        }
+
+        Timer timer(int route) {
+            Timer timer = timers[route];
+            if (Objects.isNull(timer)) {
+                timer = Timer.builder("sql.statement")
+                        .description("sql执行耗时")
+                        .tag(STATEMENT, statementId)
+                        .tag(TYPE, type)
+                        .tag("route", SqlTraceContext.ROUTE_TAGS[route])
+                        .register(meterRegistry);
+                timers[route] = timer;
+            }
+            return timer;
+        }
+    }
+}
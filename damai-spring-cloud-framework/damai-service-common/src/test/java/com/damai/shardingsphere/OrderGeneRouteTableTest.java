@@ -0,0 +1,80 @@
+package com.damai.shardingsphere;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单基因路由测试
+ * @author: 阿星不是程序员
+ **/
+class OrderGeneRouteTableTest {
+
+    private static final int TABLE_SHARDING_COUNT = 4;
+
+    private static final int GENE_COUNT = 32;
+
+    @Test
+    void everyDatabaseAndTableReceivesTheSameNumberOfGenes() {
+        for (int shardingCount = 1; shardingCount <= GENE_COUNT / TABLE_SHARDING_COUNT; shardingCount <<= 1) {
+            OrderGeneRouteTable routeTable = new OrderGeneRouteTable(shardingCount, TABLE_SHARDING_COUNT);
+            int[][] geneCount = new int[shardingCount][TABLE_SHARDING_COUNT];
+            for (int gene = 0; gene < GENE_COUNT; gene++) {
+                geneCount[routeTable.databaseIndex(gene)][routeTable.tableIndex(gene)]++;
+            }
+            int expected = GENE_COUNT / (shardingCount * TABLE_SHARDING_COUNT);
+            for (int[] databaseGeneCount : geneCount) {
+                for (int tableGeneCount : databaseGeneCount) {
+                    assertEquals(expected, tableGeneCount, "sharding count " + shardingCount);
+                }
+            }
+            assertTrue(routeTable.coverAll(GENE_COUNT));
+        }
+    }
+
+    @Test
+    void doublingKeepsOrMovesByOldCountAndSplitsEvenly() {
+        for (int shardingCount = 1; shardingCount < GENE_COUNT / TABLE_SHARDING_COUNT; shardingCount <<= 1) {
+            OrderGeneRouteTable routeTable = new OrderGeneRouteTable(shardingCount, TABLE_SHARDING_COUNT);
+            OrderGeneRouteTable targetRouteTable = new OrderGeneRouteTable(shardingCount * 2, TABLE_SHARDING_COUNT);
+            int[] stayCount = new int[shardingCount];
+            int[] moveCount = new int[shardingCount];
+            for (int gene = 0; gene < GENE_COUNT; gene++) {
+                int index = routeTable.databaseIndex(gene);
+                int targetIndex = targetRouteTable.databaseIndex(gene);
+                // 表下标不随分库数量变化
+                assertEquals(routeTable.tableIndex(gene), targetRouteTable.tableIndex(gene));
+                if (targetIndex == index) {
+                    stayCount[index]++;
+                } else {
+                    assertEquals(index + shardingCount, targetIndex);
+                    moveCount[index]++;
+                }
+            }
+            for (int i = 0; i < shardingCount; i++) {
+                assertEquals(stayCount[i], moveCount[i], "sharding count " + shardingCount + " database " + i);
+            }
+        }
+    }
+
+    @Test
+    void orderNumberAndUserIdRouteToTheSameDatabaseAndTable() {
+        OrderGeneRouteTable routeTable = new OrderGeneRouteTable(8, TABLE_SHARDING_COUNT);
+        for (long userId = 1; userId < 1000; userId++) {
+            long orderNumber = (userId * 7919L << 12) | (userId % GENE_COUNT);
+            assertEquals(routeTable.databaseIndex(userId), routeTable.databaseIndex(orderNumber));
+            assertEquals(routeTable.tableIndex(userId), routeTable.tableIndex(orderNumber));
+        }
+    }
+
+    @Test
+    void layoutWithoutEnoughGenesIsRejected() {
+        assertFalse(new OrderGeneRouteTable(16, TABLE_SHARDING_COUNT).coverAll(GENE_COUNT));
+        assertFalse(new OrderGeneRouteTable(2, 8).coverAll(8));
+        assertFalse(new OrderGeneRouteTable(3, TABLE_SHARDING_COUNT).coverAll(GENE_COUNT));
+        assertTrue(new OrderGeneRouteTable(8, TABLE_SHARDING_COUNT).coverAll(GENE_COUNT));
+    }
+}
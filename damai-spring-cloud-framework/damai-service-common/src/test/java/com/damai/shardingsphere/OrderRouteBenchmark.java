@@ -0,0 +1,134 @@
+package com.damai.shardingsphere;
+
+import org.apache.shardingsphere.sharding.api.sharding.complex.ComplexKeysShardingValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库分表路由基准测试
+ * 对比原来的二进制字符串截取基因再哈希，与按位取基因查表的库下标计算，以及分库、分表算法完整的doSharding
+ * 类名不以Test结尾，mvn test不会执行，需要时在测试classpath下运行main方法：
+ * mvn -pl damai-spring-cloud-framework/damai-service-common test-compile exec:java
+ * -Dexec.mainClass=com.damai.shardingsphere.OrderRouteBenchmark -Dexec.classpathScope=test
+ * @author: 阿星不是程序员
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderRouteBenchmark {
+
+    private static final int SHARDING_COUNT = 2;
+
+    private static final int TABLE_SHARDING_COUNT = 4;
+
+    private static final int GENE_COUNT = 32;
+
+    private static final int KEY_COUNT = 1024;
+
+    private final long[] orderNumbers = new long[KEY_COUNT];
+
+    private final List<ComplexKeysShardingValue<Long>> shardingValueList = new ArrayList<>(KEY_COUNT);
+
+    private final Collection<String> databaseNames = List.of("ds_0", "ds_1");
+
+    private final Collection<String> tableNames = List.of("d_order_0", "d_order_1", "d_order_2", "d_order_3");
+
+    private OrderGeneRouteTable routeTable;
+
+    private DatabaseOrderComplexGeneArithmetic databaseArithmetic;
+
+    private TableOrderComplexGeneArithmetic tableArithmetic;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            long userId = random.nextLong(1L, 1L << 40);
+            // 订单编号的低位拼接 用户id % 基因数量
+            long orderNumber = (random.nextLong(1L, 1L << 40) << 5) | (userId % GENE_COUNT);
+            orderNumbers[i] = orderNumber;
+            shardingValueList.add(new ComplexKeysShardingValue<>("d_order",
+                    Map.of(OrderShardingRouteSupport.ORDER_NUMBER, Collections.singletonList(orderNumber)),
+                    Collections.emptyMap()));
+        }
+        routeTable = new OrderGeneRouteTable(SHARDING_COUNT, TABLE_SHARDING_COUNT);
+        Properties databaseProps = new Properties();
+        databaseProps.setProperty("sharding-count", String.valueOf(SHARDING_COUNT));
+        databaseProps.setProperty("table-sharding-count", String.valueOf(TABLE_SHARDING_COUNT));
+        databaseProps.setProperty("gene-count", String.valueOf(GENE_COUNT));
+        databaseArithmetic = new DatabaseOrderComplexGeneArithmetic();
+        databaseArithmetic.init(databaseProps);
+        Properties tableProps = new Properties();
+        tableProps.setProperty("sharding-count", String.valueOf(TABLE_SHARDING_COUNT));
+        tableArithmetic = new TableOrderComplexGeneArithmetic();
+        tableArithmetic.init(tableProps);
+    }
+
+    @Benchmark
+    public long legacyDatabaseIndex() {
+        return legacyDatabaseIndex(orderNumbers[next()]);
+    }
+
+    @Benchmark
+    public int geneDatabaseIndex() {
+        return routeTable.databaseIndex(orderNumbers[next()]);
+    }
+
+    @Benchmark
+    public Collection<String> databaseDoSharding() {
+        return databaseArithmetic.doSharding(databaseNames, shardingValueList.get(next()));
+    }
+
+    @Benchmark
+    public Collection<String> tableDoSharding() {
+        return tableArithmetic.doSharding(tableNames, shardingValueList.get(next()));
+    }
+
+    /**
+     * 原来的库下标计算：分片值转二进制字符串，截取末尾 log2(分表数量) 位，对字符串做hash扰动后取模
+     */
+    private static long legacyDatabaseIndex(long splicingKey) {
+        String splicingKeyBinary = Long.toBinaryString(splicingKey);
+        int replacementLength = (int) OrderGeneRouteTable.log2N(TABLE_SHARDING_COUNT);
+        String geneBinaryStr = splicingKeyBinary.substring(splicingKeyBinary.length() - replacementLength);
+        int h;
+        int geneOptimizeHashCode = (h = geneBinaryStr.hashCode()) ^ (h >>> 16);
+        return (SHARDING_COUNT - 1) & geneOptimizeHashCode;
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = (index + 1) & (KEY_COUNT - 1);
+        return index;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderRouteBenchmark.class.getSimpleName()).build()).run();
+    }
+}
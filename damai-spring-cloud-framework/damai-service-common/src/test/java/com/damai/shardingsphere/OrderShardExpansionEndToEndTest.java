@@ -0,0 +1,367 @@
+package com.damai.shardingsphere;
+
+import com.damai.enums.ShardingExpansionPhase;
+import org.apache.shardingsphere.driver.api.yaml.YamlShardingSphereDataSourceFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 订单分库扩容端到端测试
+ * 用4个MySQL模式的H2内存库代替订单库，通过shardingsphere和订单分库分表算法走一遍 2库扩为4库 的完整流程：
+ * 未扩容写入 -> 双写 -> 复制存量数据（与 OrderShardExpansionCopier 的步骤一致）-> 切换读 -> 清理原库 -> 按4库重新配置
+ * 每一步都直接查询各个物理库校验数据所在的位置
+ * @author: 阿星不是程序员
+ **/
+class OrderShardExpansionEndToEndTest {
+
+    private static final int DATABASE_COUNT = 4;
+
+    private static final int TABLE_SHARDING_COUNT = 4;
+
+    private static final int GENE_COUNT = 32;
+
+    private static final int ORDER_COUNT = 256;
+
+    private static final int NO_PAY = 1;
+
+    private static final int CANCEL = 2;
+
+    private final List<DataSource> physicalDataSourceList = new ArrayList<>();
+
+    private final String suffix = UUID.randomUUID().toString().replace("-", "");
+
+    private long sequence;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        for (int i = 0; i < DATABASE_COUNT; i++) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:damai_order_" + i + "_" + suffix +
+                    ";MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                for (int table = 0; table < TABLE_SHARDING_COUNT; table++) {
+                    statement.execute("create table d_order_" + table + " (id bigint primary key, " +
+                            "order_number bigint not null unique, user_id bigint not null, order_status int not null)");
+                }
+            }
+            physicalDataSourceList.add(dataSource);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        OrderShardingExpansion.update(ShardingExpansionPhase.NONE, null);
+    }
+
+    @Test
+    void doubleDatabasesOnline() throws SQLException {
+        DataSource dataSource = createShardingDataSource(2);
+        List<TestOrder> orderList = new ArrayList<>();
+        // 1.未扩容：只写入原来的2个库，新库不会被访问
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            TestOrder order = newOrder(i + 1);
+            insert(dataSource, order);
+            orderList.add(order);
+        }
+        assertLocated(orderList, 2);
+        assertEquals(0, physicalCount(2) + physicalCount(3));
+
+        // 2.双写：需要迁移的基因同时写入原库和新库，读仍然只访问原库
+        OrderShardingExpansion.update(ShardingExpansionPhase.DUAL_WRITE, DATABASE_COUNT);
+        OrderGeneRouteTable routeTable = OrderShardingExpansion.routeTable(2);
+        OrderGeneRouteTable targetRouteTable = OrderShardingExpansion.routeTable(DATABASE_COUNT);
+        for (int i = 0; i < GENE_COUNT * 2; i++) {
+            TestOrder order = newOrder(ORDER_COUNT + i + 1);
+            OrderShardingExpansion.dualWrite(order.orderNumber, () -> call(() -> insert(dataSource, order)));
+            orderList.add(order);
+            assertEquals(1, physicalCount(routeTable.databaseIndex(order.orderNumber), order));
+            assertEquals(1, physicalCount(targetRouteTable.databaseIndex(order.orderNumber), order));
+            assertEquals(order.userId, selectUserId(dataSource, order.orderNumber));
+        }
+
+        // 3.复制存量数据：与双写写入的订单重复时跳过
+        long copiedCount = copy(dataSource, 2, targetRouteTable);
+        assertEquals(ORDER_COUNT / 2, copiedCount);
+        for (TestOrder order : orderList) {
+            assertEquals(1, physicalCount(targetRouteTable.databaseIndex(order.orderNumber), order));
+        }
+
+        // 4.切换读：按4库读，写仍然双写
+        OrderShardingExpansion.update(ShardingExpansionPhase.CUTOVER, DATABASE_COUNT);
+        for (TestOrder order : orderList) {
+            assertEquals(order.userId, selectUserId(dataSource, order.orderNumber));
+        }
+        TestOrder movedOrder = orderList.stream()
+                .filter(order -> targetRouteTable.databaseIndex(order.orderNumber) != routeTable.databaseIndex(order.orderNumber))
+                .findFirst().orElseThrow();
+        int updateCount = OrderShardingExpansion.dualWrite(movedOrder.orderNumber,
+                () -> call(() -> updateStatus(dataSource, movedOrder.orderNumber, CANCEL)));
+        assertEquals(1, updateCount);
+        assertEquals(CANCEL, physicalStatus(routeTable.databaseIndex(movedOrder.orderNumber), movedOrder));
+        assertEquals(CANCEL, physicalStatus(targetRouteTable.databaseIndex(movedOrder.orderNumber), movedOrder));
+
+        // 5.完成：只读写新库，删除原库中已迁走的订单
+        OrderShardingExpansion.update(ShardingExpansionPhase.FINISHED, DATABASE_COUNT);
+        long cleanedCount = clean(dataSource, 2, targetRouteTable);
+        assertEquals(orderList.size() / 2, cleanedCount);
+
+        // 6.配置改为4库重启后回到未扩容阶段，每个订单只在新布局的库表中出现一次，全部库表都有数据
+        OrderShardingExpansion.update(ShardingExpansionPhase.NONE, null);
+        DataSource expandedDataSource = createShardingDataSource(DATABASE_COUNT);
+        assertLocated(orderList, DATABASE_COUNT);
+        for (int database = 0; database < DATABASE_COUNT; database++) {
+            for (int table = 0; table < TABLE_SHARDING_COUNT; table++) {
+                assertTrue(physicalCount(database, table) > 0, "ds_" + database + ".d_order_" + table + " is empty");
+            }
+        }
+        for (TestOrder order : orderList) {
+            assertEquals(order.userId, selectUserId(expandedDataSource, order.orderNumber));
+        }
+        assertEquals(orderList.size(), shardingCount(expandedDataSource));
+    }
+
+    /**
+     * 逐个原库按主键顺序遍历，新库与原库不同的订单插入新库，已存在的跳过
+     */
+    private long copy(DataSource dataSource, int shardingCount, OrderGeneRouteTable targetRouteTable) {
+        long copiedCount = 0;
+        for (int source = 0; source < shardingCount; source++) {
+            List<TestOrder> sourceOrderList = OrderShardingExpansion.onDatabase(source, () -> call(() -> selectAll(dataSource)));
+            for (TestOrder order : sourceOrderList) {
+                int target = targetRouteTable.databaseIndex(order.orderNumber);
+                if (target == source) {
+                    continue;
+                }
+                boolean inserted = OrderShardingExpansion.onDatabase(target, () -> call(() -> {
+                    try {
+                        insert(dataSource, order);
+                        return true;
+                    } catch (SQLException e) {
+                        if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                            return false;
+                        }
+                        throw e;
+                    }
+                }));
+                if (inserted) {
+                    copiedCount++;
+                }
+            }
+        }
+        return copiedCount;
+    }
+
+    private long clean(DataSource dataSource, int shardingCount, OrderGeneRouteTable targetRouteTable) {
+        long cleanedCount = 0;
+        for (int source = 0; source < shardingCount; source++) {
+            final int database = source;
+            List<TestOrder> sourceOrderList = OrderShardingExpansion.onDatabase(database, () -> call(() -> selectAll(dataSource)));
+            for (TestOrder order : sourceOrderList) {
+                if (targetRouteTable.databaseIndex(order.orderNumber) != database) {
+                    cleanedCount += OrderShardingExpansion.onDatabase(database, () -> call(() -> delete(dataSource, order.orderNumber)));
+                }
+            }
+        }
+        return cleanedCount;
+    }
+
+    /**
+     * 每个订单只出现在按指定分库数量计算的库表中
+     */
+    private void assertLocated(List<TestOrder> orderList, int shardingCount) throws SQLException {
+        OrderGeneRouteTable routeTable = new OrderGeneRouteTable(shardingCount, TABLE_SHARDING_COUNT);
+        for (TestOrder order : orderList) {
+            int database = routeTable.databaseIndex(order.orderNumber);
+            for (int i = 0; i < DATABASE_COUNT; i++) {
+                for (int table = 0; table < TABLE_SHARDING_COUNT; table++) {
+                    int expected = i == database && table == routeTable.tableIndex(order.orderNumber) ? 1 : 0;
+                    assertEquals(expected, physicalCount(i, table, order), "order " + order.orderNumber + " ds_" + i + ".d_order_" + table);
+                }
+            }
+        }
+    }
+
+    private DataSource createShardingDataSource(int shardingCount) throws SQLException {
+        Map<String, DataSource> dataSourceMap = new LinkedHashMap<>();
+        for (int i = 0; i < DATABASE_COUNT; i++) {
+            dataSourceMap.put("ds_" + i, physicalDataSourceList.get(i));
+        }
+        String yaml = "databaseName: order_expansion_" + suffix + "_" + shardingCount + "\n" +
+                "rules:\n" +
+                "  - !SHARDING\n" +
+                "    tables:\n" +
+                "      d_order:\n" +
+                "        actualDataNodes: ds_${0.." + (DATABASE_COUNT - 1) + "}.d_order_${0.." + (TABLE_SHARDING_COUNT - 1) + "}\n" +
+                "        databaseStrategy:\n" +
+                "          complex:\n" +
+                "            shardingColumns: order_number,user_id\n" +
+                "            shardingAlgorithmName: databaseOrderComplexGeneArithmetic\n" +
+                "        tableStrategy:\n" +
+                "          complex:\n" +
+                "            shardingColumns: order_number,user_id\n" +
+                "            shardingAlgorithmName: tableOrderComplexGeneArithmetic\n" +
+                "    shardingAlgorithms:\n" +
+                "      databaseOrderComplexGeneArithmetic:\n" +
+                "        type: CLASS_BASED\n" +
+                "        props:\n" +
+                "          sharding-count: " + shardingCount + "\n" +
+                "          table-sharding-count: " + TABLE_SHARDING_COUNT + "\n" +
+                "          gene-count: " + GENE_COUNT + "\n" +
+                "          strategy: complex\n" +
+                "          algorithmClassName: com.damai.shardingsphere.DatabaseOrderComplexGeneArithmetic\n" +
+                "      tableOrderComplexGeneArithmetic:\n" +
+                "        type: CLASS_BASED\n" +
+                "        props:\n" +
+                "          sharding-count: " + TABLE_SHARDING_COUNT + "\n" +
+                "          strategy: complex\n" +
+                "          algorithmClassName: com.damai.shardingsphere.TableOrderComplexGeneArithmetic\n";
+        return YamlShardingSphereDataSourceFactory.createDataSource(dataSourceMap, yaml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 与订单编号的生成方式一致：低位拼接 用户id % 基因数量
+     */
+    private TestOrder newOrder(long userId) {
+        sequence++;
+        return new TestOrder(sequence, (sequence << 12 | 1L << 40) << 5 | userId % GENE_COUNT, userId);
+    }
+
+    private int insert(DataSource dataSource, TestOrder order) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "insert into d_order (id, order_number, user_id, order_status) values (?, ?, ?, ?)")) {
+            statement.setLong(1, order.id);
+            statement.setLong(2, order.orderNumber);
+            statement.setLong(3, order.userId);
+            statement.setInt(4, NO_PAY);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int updateStatus(DataSource dataSource, long orderNumber, int orderStatus) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "update d_order set order_status = ? where order_number = ?")) {
+            statement.setInt(1, orderStatus);
+            statement.setLong(2, orderNumber);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int delete(DataSource dataSource, long orderNumber) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("delete from d_order where order_number = ?")) {
+            statement.setLong(1, orderNumber);
+            return statement.executeUpdate();
+        }
+    }
+
+    private long selectUserId(DataSource dataSource, long orderNumber) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select user_id from d_order where order_number = ?")) {
+            statement.setLong(1, orderNumber);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next(), "order " + orderNumber + " not found");
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private List<TestOrder> selectAll(DataSource dataSource) throws SQLException {
+        List<TestOrder> orderList = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select id, order_number, user_id from d_order")) {
+            while (resultSet.next()) {
+                orderList.add(new TestOrder(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3)));
+            }
+        }
+        return orderList;
+    }
+
+    private long shardingCount(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from d_order")) {
+            assertTrue(resultSet.next());
+            return resultSet.getLong(1);
+        }
+    }
+
+    private long physicalCount(int database) throws SQLException {
+        long count = 0;
+        for (int table = 0; table < TABLE_SHARDING_COUNT; table++) {
+            count += physicalCount(database, table);
+        }
+        return count;
+    }
+
+    private long physicalCount(int database, int table) throws SQLException {
+        return queryLong(database, "select count(*) from d_order_" + table, null);
+    }
+
+    private long physicalCount(int database, TestOrder order) throws SQLException {
+        long count = 0;
+        for (int table = 0; table < TABLE_SHARDING_COUNT; table++) {
+            count += physicalCount(database, table, order);
+        }
+        return count;
+    }
+
+    private long physicalCount(int database, int table, TestOrder order) throws SQLException {
+        return queryLong(database, "select count(*) from d_order_" + table + " where order_number = ?", order.orderNumber);
+    }
+
+    private long physicalStatus(int database, TestOrder order) throws SQLException {
+        OrderGeneRouteTable routeTable = new OrderGeneRouteTable(DATABASE_COUNT, TABLE_SHARDING_COUNT);
+        return queryLong(database, "select order_status from d_order_" + routeTable.tableIndex(order.orderNumber) +
+                " where order_number = ?", order.orderNumber);
+    }
+
+    private long queryLong(int database, String sql, Long parameter) throws SQLException {
+        try (Connection connection = physicalDataSourceList.get(database).getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                statement.setLong(1, parameter);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static <T> T call(SqlCall<T> sqlCall) {
+        try {
+            return sqlCall.call();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlCall<T> {
+
+        T call() throws SQLException;
+    }
+
+    private record TestOrder(long id, long orderNumber, long userId) {
+    }
+}
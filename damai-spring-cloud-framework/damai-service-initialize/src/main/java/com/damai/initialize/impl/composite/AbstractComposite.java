@@ -1,9 +1,17 @@
 package com.damai.initialize.impl.composite;
 
+import com.damai.exception.DaMaiFrameException;
+
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @param <T> 泛型参数，表示执行业务时传递的参数类型
@@ -61,6 +69,17 @@ public abstract class AbstractComposite<T> {
      */
     public abstract Integer executeOrder();
 
+    /**
+     * 当前组件是否可以和同层级的其他组件并行执行
+     * 返回true表示该组件不依赖同层级其他组件的执行结果，也不修改参数对象
+     * 组件之间存在依赖时，应通过executeTier()把被依赖的组件放到上一层级，上一层级全部执行成功后才会执行下一层级
+     *
+     * @return 是否可以并行执行，默认false
+     */
+    public boolean executeParallel() {
+        return false;
+    }
+
     /**
      * 向当前组件添加子组件，构建树形结构
      * 支持链式调用：如parent.add(child1).add(child2)
@@ -80,24 +99,122 @@ public abstract class AbstractComposite<T> {
      * @param param 泛型参数，传递给所有组件的execute()方法
      */
     public void allExecute(T param) {
+        allExecute(param, null);
+    }
+
+    /**
+     * 按树形结构的层级顺序执行所有组件的业务逻辑
+     * 层级之间依然串行，某一层级的组件都声明了executeParallel()时，该层级的组件提交到线程池并行执行：
+     * 1. 某个组件校验失败时，取消同层级中排在它后面的组件
+     * 2. 抛出的异常和串行执行时一致，即同层级中排序最靠前的失败组件的异常，不受组件完成的先后影响
+     *
+     * @param param    泛型参数，传递给所有组件的execute()方法
+     * @param executor 并行执行使用的线程池，为null时全部串行执行
+     */
+    public void allExecute(T param, Executor executor) {
         // 用队列实现广度优先遍历
         Queue<AbstractComposite<T>> queue = new LinkedList<>();
         // 从当前组件（通常是根节点）开始遍历
         queue.add(this);
         // 循环处理队列中的所有组件
         while (!queue.isEmpty()) {
-            // 当前层级的组件数量（控制按层级执行）
-            int levelSize = queue.size();
-            // 处理当前层级的所有组件
-            for (int i = 0; i < levelSize; i++) {
-                // 取出队列头部的组件
-                AbstractComposite<T> current = queue.poll();
-                // 执行当前组件的业务逻辑（子类实现的具体逻辑）
-                assert current != null;
-                current.execute(param);
-                // 将当前组件的所有子组件加入队列，等待下一层级处理
+            // 取出当前层级的所有组件（控制按层级执行）
+            List<AbstractComposite<T>> level = new ArrayList<>(queue);
+            queue.clear();
+            // 执行当前层级所有组件的业务逻辑（子类实现的具体逻辑）
+            if (executor != null && level.size() > 1 && level.stream().allMatch(AbstractComposite::executeParallel)) {
+                parallelExecute(level, param, executor);
+            } else {
+                for (AbstractComposite<T> current : level) {
+                    current.execute(param);
+                }
+            }
+            // 将当前层级所有组件的子组件加入队列，等待下一层级处理
+            for (AbstractComposite<T> current : level) {
                 queue.addAll(current.list);
             }
         }
     }
+
+    /**
+     * 并行执行同一层级的组件
+     * 按组件顺序依次等待结果，遇到第一个失败的组件时取消后面的组件并抛出它的异常
+     * 组件在线程池中失败时也会立即取消排在它后面的组件，不必等到轮到它时才取消
+     * 组件中的feign调用需要请求上下文透传请求头，由命名线程池把当前线程的MDC、业务参数和请求上下文带到执行线程
+     *
+     * @param level    同一层级的组件，已按executeOrder()排序
+     * @param param    业务参数
+     * @param executor 线程池
+     */
+    private static <T> void parallelExecute(List<AbstractComposite<T>> level, T param, Executor executor) {
+        int size = level.size();
+        // 已失败组件中最小的下标，排在它后面的组件不再执行
+        AtomicInteger failedIndex = new AtomicInteger(Integer.MAX_VALUE);
+        List<FutureTask<Void>> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = i;
+            AbstractComposite<T> current = level.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                if (failedIndex.get() < index) {
+                    return null;
+                }
+                try {
+                    current.execute(param);
+                } catch (RuntimeException | Error e) {
+                    cancelAfter(tasks, index, failedIndex);
+                    throw e;
+                }
+                return null;
+            }));
+        }
+        // 线程池已满时，被拒绝的组件留到轮到它时在当前线程执行
+        boolean[] rejected = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (RejectedExecutionException e) {
+                rejected[i] = true;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            FutureTask<Void> task = tasks.get(i);
+            if (rejected[i]) {
+                task.run();
+            }
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                cancelAfter(tasks, i, failedIndex);
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new DaMaiFrameException(cause);
+            } catch (InterruptedException e) {
+                cancelAfter(tasks, -1, failedIndex);
+                Thread.currentThread().interrupt();
+                throw new DaMaiFrameException(e);
+            } catch (CancellationException e) {
+                // 只有排在失败组件后面的组件才会被取消，而失败组件的异常一定先于它被抛出，这里不会走到
+                throw new DaMaiFrameException(e);
+            }
+        }
+    }
+
+    /**
+     * 记录失败组件的下标，并取消排在它后面的组件
+     *
+     * @param tasks       同一层级的组件任务
+     * @param index       失败组件的下标
+     * @param failedIndex 已失败组件中最小的下标
+     */
+    private static void cancelAfter(List<FutureTask<Void>> tasks, int index, AtomicInteger failedIndex) {
+        failedIndex.accumulateAndGet(index, Math::min);
+        for (int i = index + 1; i < tasks.size(); i++) {
+            tasks.get(i).cancel(true);
+        }
+    }
 }
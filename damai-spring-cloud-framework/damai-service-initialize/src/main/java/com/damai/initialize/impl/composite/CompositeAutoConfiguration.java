@@ -1,8 +1,12 @@
 package com.damai.initialize.impl.composite;
 
 import com.damai.initialize.impl.composite.init.CompositeInit;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 
+import java.util.concurrent.Executor;
+
 /**
  * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
  * @description: 组合模式配置。负责将组合模式核心组件注册为Spring Bean，实现与Spring框架的集成
@@ -14,11 +18,13 @@ public class CompositeAutoConfiguration {
      * 注册组合模式容器为Spring Bean
      * CompositeContainer是组件树的核心管理器，负责组件收集、树构建和执行控制
      *
+     * @param compositeExecutorProvider 同层级组件并行执行的线程池，不存在时组件全部串行执行
      * @return CompositeContainer实例，将被Spring容器管理
      */
     @Bean
-    public CompositeContainer compositeContainer() {
-        return new CompositeContainer();
+    public CompositeContainer compositeContainer(@Qualifier(CompositeExecutorAutoConfiguration.COMPOSITE_EXECUTOR)
+                                                 ObjectProvider<Executor> compositeExecutorProvider) {
+        return new CompositeContainer(compositeExecutorProvider.getIfAvailable());
     }
 
     /**
@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
  * @description: 组合模式容器类
  * 负责管理所有业务组件的生命周期：从Spring容器中收集组件、按规则构建树形结构、存储根节点、触发执行
  * 支持按组件类型（type）隔离管理多棵组件树
+ * 配置了线程池时，同层级中都声明可并行的组件并行执行
  * @author: 阿星不是程序员
  **/
 public class CompositeContainer<T> {
@@ -29,6 +31,19 @@ public class CompositeContainer<T> {
      */
     private final Map<String, AbstractComposite> allCompositeInterfaceMap = new HashMap<>();
 
+    /**
+     * 同层级组件并行执行使用的线程池，为null时全部串行执行
+     */
+    private final Executor executor;
+
+    public CompositeContainer() {
+        this(null);
+    }
+
+    public CompositeContainer(Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * 初始化方法：从Spring容器中收集所有组件，按类型分组并构建组件树
      * 流程：收集组件 -> 按type分组 -> 为每组构建树形结构 -> 存储根节点
@@ -64,7 +79,7 @@ public class CompositeContainer<T> {
         AbstractComposite compositeInterface = Optional.ofNullable(allCompositeInterfaceMap.get(type))
                 .orElseThrow(() -> new DaMaiFrameException(BaseCode.COMPOSITE_NOT_EXIST));
         // 调用根节点的allExecute方法，触发整颗树的层级执行
-        compositeInterface.allExecute(param);
+        compositeInterface.allExecute(param, executor);
     }
 
     /**
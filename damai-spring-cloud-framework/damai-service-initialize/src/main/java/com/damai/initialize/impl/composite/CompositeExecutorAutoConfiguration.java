@@ -0,0 +1,27 @@
+package com.damai.initialize.impl.composite;
+
+import com.damai.pool.ThreadPoolRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+import java.util.concurrent.Executor;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 组合模式并行执行线程池配置
+ * 引入了命名线程池（damai-thread-pool-framework）的服务，同层级可并行的组件使用composite-check线程池执行，
+ * 线程池大小通过thread-pool.pools.composite-check调整，未引入时组件全部串行执行
+ * @author: 阿星不是程序员
+ **/
+@ConditionalOnClass(name = "com.damai.pool.ThreadPoolRegistry")
+public class CompositeExecutorAutoConfiguration {
+
+    public static final String COMPOSITE_EXECUTOR = "compositeExecutor";
+
+    public static final String COMPOSITE_THREAD_POOL = "composite-check";
+
+    @Bean(COMPOSITE_EXECUTOR)
+    public Executor compositeExecutor(ThreadPoolRegistry threadPoolRegistry) {
+        return threadPoolRegistry.getExecutor(COMPOSITE_THREAD_POOL);
+    }
+}
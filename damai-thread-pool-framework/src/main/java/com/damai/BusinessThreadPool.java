@@ -4,6 +4,8 @@ package com.damai;
 import com.damai.base.BaseThreadPool;
 import com.damai.namefactory.BusinessNameThreadFactory;
 import com.damai.rejectedexecutionhandler.ThreadPoolRejectedExecutionHandler;
+import com.damai.util.VirtualThreadUtil;
+import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -18,11 +20,17 @@ import java.util.concurrent.TimeUnit;
  * @description: 线程池
  * @author: 阿星不是程序员
  **/
-
+@Slf4j
 public class BusinessThreadPool extends BaseThreadPool {
 
+    /**
+     * 虚拟线程模式下最大线程数相对平台线程模式的放大倍数
+     * 虚拟线程阻塞在io上时不占用载体线程，创建成本也很低，可以承载更多并发的阻塞任务
+     */
+    private static final int VIRTUAL_THREAD_POOL_SIZE_FACTOR = 10;
+
     // 线程池执行器实例，静态变量确保全局唯一
-    private static ThreadPoolExecutor execute = null;
+    private static volatile ThreadPoolExecutor execute = null;
 
     // 静态初始化块，在类加载时初始化线程池
     static {
@@ -55,6 +63,32 @@ public class BusinessThreadPool extends BaseThreadPool {
                 .divide(new BigDecimal("0.2"), 0, RoundingMode.HALF_UP).intValue();
     }
 
+    /**
+     * 切换为虚拟线程执行，jvm不支持虚拟线程时保持平台线程
+     * 新线程池使用虚拟线程工厂，线程数上限放大，空闲线程超时后退出；原线程池不再接收新任务，已提交的任务继续执行完
+     */
+    public static synchronized void useVirtualThreads() {
+        if (!VirtualThreadUtil.isAvailable()) {
+            log.warn("virtual thread not available in java {}, business thread pool keep platform thread",
+                    Runtime.version().feature());
+            return;
+        }
+        int poolSize = maximumPoolSize() * VIRTUAL_THREAD_POOL_SIZE_FACTOR;
+        ThreadPoolExecutor virtualExecute = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(600),
+                VirtualThreadUtil.threadFactory(true, "task-pool-virtual--thread--", new BusinessNameThreadFactory()),
+                new ThreadPoolRejectedExecutionHandler.BusinessAbortPolicy());
+        virtualExecute.allowCoreThreadTimeOut(true);
+        ThreadPoolExecutor old = execute;
+        execute = virtualExecute;
+        old.shutdown();
+        log.info("business thread pool switch to virtual thread, poolSize : {}", poolSize);
+    }
+
     /**
      * 提交Runnable任务到线程池执行
      * 对任务进行包装，添加上下文信息（从父类获取）
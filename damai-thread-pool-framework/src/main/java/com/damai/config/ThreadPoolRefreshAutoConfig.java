@@ -0,0 +1,24 @@
+package com.damai.config;
+
+import com.damai.pool.ThreadPoolRefreshListener;
+import com.damai.pool.ThreadPoolRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池动态调整 配置，引入了spring-cloud-context（配置中心刷新）时生效
+ * @author: 阿星不是程序员
+ **/
+@AutoConfigureAfter(ThreadPoolRegistryAutoConfig.class)
+@ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+public class ThreadPoolRefreshAutoConfig {
+
+    @Bean
+    public ThreadPoolRefreshListener threadPoolRefreshListener(ThreadPoolRegistry threadPoolRegistry,
+                                                               Environment environment) {
+        return new ThreadPoolRefreshListener(threadPoolRegistry, environment);
+    }
+}
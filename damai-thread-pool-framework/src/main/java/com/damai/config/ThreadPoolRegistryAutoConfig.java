@@ -0,0 +1,51 @@
+package com.damai.config;
+
+import com.damai.BusinessThreadPool;
+import com.damai.pool.ThreadPoolMetrics;
+import com.damai.pool.ThreadPoolRegistry;
+import com.damai.util.VirtualThreadUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池 配置
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+@EnableConfigurationProperties(ThreadPoolRegistryProperties.class)
+public class ThreadPoolRegistryAutoConfig {
+
+    /**
+     * 线程池监控指标
+     * 容器中没有MeterRegistry（未引入actuator）时，指标记录为空操作
+     */
+    @Bean
+    public ThreadPoolMetrics threadPoolMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new ThreadPoolMetrics(meterRegistryProvider.getIfAvailable());
+    }
+
+    /**
+     * 命名线程池注册中心
+     * 开启spring.threads.virtual.enabled且运行在java21及以上时，命名线程池和BusinessThreadPool都切换为虚拟线程执行
+     */
+    @Bean(destroyMethod = "destroy")
+    public ThreadPoolRegistry threadPoolRegistry(ThreadPoolRegistryProperties threadPoolRegistryProperties,
+                                                 ThreadPoolMetrics threadPoolMetrics,
+                                                 @Value("${" + VirtualThreadUtil.ENABLED_PROPERTY + ":false}")
+                                                 boolean virtualThreadEnabled) {
+        boolean virtual = virtualThreadEnabled && VirtualThreadUtil.isAvailable();
+        if (virtualThreadEnabled && !virtual) {
+            log.warn("virtual thread not available in java {}, thread pools keep platform thread",
+                    Runtime.version().feature());
+        }
+        if (virtual) {
+            BusinessThreadPool.useVirtualThreads();
+        }
+        return new ThreadPoolRegistry(threadPoolRegistryProperties, threadPoolMetrics, virtual);
+    }
+}
@@ -0,0 +1,26 @@
+package com.damai.config;
+
+import com.damai.pool.ThreadPoolDefinition;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池配置属性
+ * 例子：thread-pool.pools.preload.corePoolSize=8
+ * @author: 阿星不是程序员
+ **/
+@Data
+@ConfigurationProperties(prefix = ThreadPoolRegistryProperties.PREFIX)
+public class ThreadPoolRegistryProperties {
+
+    public static final String PREFIX = "thread-pool";
+
+    /**
+     * 线程池名字 -> 线程池配置，未配置的名字使用默认配置
+     */
+    private Map<String, ThreadPoolDefinition> pools = new LinkedHashMap<>();
+}
@@ -0,0 +1,58 @@
+package com.damai.pool;
+
+import com.damai.base.BaseThreadPool;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Objects;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 复用BaseThreadPool的上下文传递，把提交线程的MDC和业务参数带到执行线程
+ * 引入了spring-web时同时传递请求上下文，执行线程中的feign调用才能透传链路id、灰度标记等请求头
+ * @author: 阿星不是程序员
+ **/
+final class ContextTaskWrapper extends BaseThreadPool {
+
+    private static final boolean REQUEST_CONTEXT_PRESENT = ClassUtils.isPresent(
+            "org.springframework.web.context.request.RequestContextHolder", ContextTaskWrapper.class.getClassLoader());
+
+    private ContextTaskWrapper() {
+    }
+
+    static Runnable wrap(Runnable runnable) {
+        Runnable task = wrapTask(runnable, getContextForTask(), getContextForHold());
+        return REQUEST_CONTEXT_PRESENT ? RequestContextPropagation.wrap(task) : task;
+    }
+
+    /**
+     * 在提交线程取出请求上下文，执行前设置到执行线程，执行后恢复执行线程原有的请求上下文
+     * 单独放在内部类中，没有引入spring-web时不会加载
+     */
+    private static final class RequestContextPropagation {
+
+        private RequestContextPropagation() {
+        }
+
+        static Runnable wrap(Runnable runnable) {
+            RequestAttributes parentRequestAttributes = RequestContextHolder.getRequestAttributes();
+            if (Objects.isNull(parentRequestAttributes)) {
+                return runnable;
+            }
+            return () -> {
+                RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+                RequestContextHolder.setRequestAttributes(parentRequestAttributes);
+                try {
+                    runnable.run();
+                } finally {
+                    if (Objects.isNull(requestAttributes)) {
+                        RequestContextHolder.resetRequestAttributes();
+                    } else {
+                        RequestContextHolder.setRequestAttributes(requestAttributes);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.damai.pool;
+
+import com.damai.util.VirtualThreadUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池
+ * 1. 提交的任务统一带上提交线程的MDC和业务参数上下文（与BusinessThreadPool一致），以及spring-web的请求上下文
+ * 2. 记录任务等待时间、执行耗时和拒绝次数
+ * 3. 核心线程数、最大线程数、队列容量、存活时间、拒绝策略都支持运行时调整
+ * 4. 开启虚拟线程时使用虚拟线程执行任务，线程数配置作为并发上限
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class NamedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 拒绝时交给线程池自身处理，以便记录指标并按当前配置的策略执行
+     */
+    private static final RejectedExecutionHandler REJECTED_HANDLER =
+            (r, executor) -> ((NamedThreadPoolExecutor) executor).reject(r);
+
+    @Getter
+    private final String name;
+
+    private final ResizableCapacityBlockingQueue<Runnable> queue;
+
+    private final ThreadPoolMetrics threadPoolMetrics;
+
+    private volatile boolean callerRuns;
+
+    public NamedThreadPoolExecutor(String name, ThreadPoolDefinition definition, ThreadPoolMetrics threadPoolMetrics,
+                                   boolean virtual) {
+        this(name, definition, new ResizableCapacityBlockingQueue<>(definition.getQueueCapacity()), threadPoolMetrics,
+                virtual);
+    }
+
+    private NamedThreadPoolExecutor(String name, ThreadPoolDefinition definition,
+                                    ResizableCapacityBlockingQueue<Runnable> queue, ThreadPoolMetrics threadPoolMetrics,
+                                    boolean virtual) {
+        super(definition.getCorePoolSize(), definition.getMaximumPoolSize(), definition.getKeepAlive().toMillis(),
+                TimeUnit.MILLISECONDS, queue,
+                VirtualThreadUtil.threadFactory(virtual, name + "--virtual--", platformThreadFactory(name)),
+                REJECTED_HANDLER);
+        this.name = name;
+        this.queue = queue;
+        this.threadPoolMetrics = threadPoolMetrics;
+        this.callerRuns = Boolean.TRUE.equals(definition.getCallerRuns());
+        // 虚拟线程不需要常驻，空闲后连同核心线程一起退出
+        if (virtual && VirtualThreadUtil.isAvailable()) {
+            allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new TimedTask(ContextTaskWrapper.wrap(command), System.nanoTime()));
+    }
+
+    /**
+     * 按新的配置调整线程池
+     * 调大时先调最大线程数再调核心线程数，调小时相反，避免出现核心线程数大于最大线程数的中间状态
+     *
+     * @param definition 新的配置
+     */
+    public synchronized void apply(ThreadPoolDefinition definition) {
+        int corePoolSize = definition.getCorePoolSize();
+        int maximumPoolSize = definition.getMaximumPoolSize();
+        if (corePoolSize > maximumPoolSize) {
+            log.error("thread pool {} corePoolSize : {} greater than maximumPoolSize : {}, ignored",
+                    name, corePoolSize, maximumPoolSize);
+            return;
+        }
+        if (corePoolSize > getMaximumPoolSize()) {
+            setMaximumPoolSize(maximumPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaximumPoolSize(maximumPoolSize);
+        }
+        setKeepAliveTime(definition.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        queue.setCapacity(definition.getQueueCapacity());
+        callerRuns = Boolean.TRUE.equals(definition.getCallerRuns());
+        log.info("thread pool {} resized corePoolSize : {}, maximumPoolSize : {}, queueCapacity : {}, callerRuns : {}",
+                name, corePoolSize, maximumPoolSize, definition.getQueueCapacity(), callerRuns);
+    }
+
+    private void reject(Runnable r) {
+        threadPoolMetrics.recordRejected(name);
+        if (callerRuns) {
+            if (!isShutdown()) {
+                r.run();
+            }
+            return;
+        }
+        throw new RejectedExecutionException("thread pool " + name + " task " + r + " rejected from " + this);
+    }
+
+    private static ThreadFactory platformThreadFactory(String name) {
+        AtomicLong threadNum = new AtomicLong(1);
+        return r -> {
+            Thread thread = new Thread(r, name + "--thread--" + threadNum.getAndIncrement());
+            thread.setDaemon(false);
+            thread.setPriority(Thread.NORM_PRIORITY);
+            return thread;
+        };
+    }
+
+    /**
+     * 记录等待时间和执行耗时的任务包装
+     */
+    private final class TimedTask implements Runnable {
+
+        private final Runnable delegate;
+
+        private final long submitTime;
+
+        private TimedTask(Runnable delegate, long submitTime) {
+            this.delegate = delegate;
+            this.submitTime = submitTime;
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            threadPoolMetrics.recordWait(name, startTime - submitTime);
+            try {
+                delegate.run();
+            } finally {
+                threadPoolMetrics.recordExecution(name, startTime);
+            }
+        }
+    }
+}
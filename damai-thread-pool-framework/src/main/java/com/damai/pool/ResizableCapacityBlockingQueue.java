@@ -0,0 +1,55 @@
+package com.damai.pool;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 容量可动态调整的阻塞队列
+ * ArrayBlockingQueue和LinkedBlockingQueue的容量创建后都不能修改，这里在入队时按当前容量判断
+ * 线程池只通过offer入队，容量检查与入队之间不加锁，并发入队时可能短暂超出容量几个元素
+ * @author: 阿星不是程序员
+ **/
+public class ResizableCapacityBlockingQueue<E> extends LinkedBlockingQueue<E> {
+
+    private volatile int capacity;
+
+    public ResizableCapacityBlockingQueue(int capacity) {
+        super(Integer.MAX_VALUE);
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 调整容量，调小时已在队列中的任务不受影响，只是暂时不再接收新任务
+     *
+     * @param capacity 新容量
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (size() >= capacity) {
+            return false;
+        }
+        return super.offer(e, timeout, unit);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+}
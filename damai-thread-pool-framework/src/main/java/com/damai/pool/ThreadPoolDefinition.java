@@ -0,0 +1,39 @@
+package com.damai.pool;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池的配置定义，默认值与BusinessThreadPool保持一致
+ * @author: 阿星不是程序员
+ **/
+@Data
+public class ThreadPoolDefinition {
+
+    /**
+     * 核心线程数
+     */
+    private Integer corePoolSize = Runtime.getRuntime().availableProcessors() + 1;
+
+    /**
+     * 最大线程数
+     */
+    private Integer maximumPoolSize = Runtime.getRuntime().availableProcessors() * 5;
+
+    /**
+     * 队列容量
+     */
+    private Integer queueCapacity = 600;
+
+    /**
+     * 非核心线程空闲存活时间
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    /**
+     * 线程池和队列都满时是否由提交任务的线程执行，默认直接拒绝抛出异常
+     */
+    private Boolean callerRuns = false;
+}
@@ -0,0 +1,120 @@
+package com.damai.pool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池监控指标，通过Micrometer导出
+ * thread.pool.size / thread.pool.core.size / thread.pool.max.size：当前线程数、核心线程数、最大线程数
+ * thread.pool.active：正在执行任务的线程数
+ * thread.pool.queue.size / thread.pool.queue.remaining：队列中等待的任务数、队列剩余容量
+ * thread.pool.task.wait：任务从提交到开始执行的等待时间
+ * thread.pool.task.execution：任务执行耗时
+ * thread.pool.rejected：被拒绝的任务数
+ * 没有MeterRegistry时所有方法为空操作
+ * @author: 阿星不是程序员
+ **/
+public class ThreadPoolMetrics {
+
+    private static final String POOL = "pool";
+
+    private final MeterRegistry meterRegistry;
+
+    public ThreadPoolMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 注册线程池的状态指标，数值在指标采集时从线程池读取
+     *
+     * @param executor 线程池
+     */
+    public void registerPool(NamedThreadPoolExecutor executor) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        String name = executor.getName();
+        Gauge.builder("thread.pool.size", executor, NamedThreadPoolExecutor::getPoolSize)
+                .description("当前线程数")
+                .tag(POOL, name)
+                .register(meterRegistry);
+        Gauge.builder("thread.pool.core.size", executor, NamedThreadPoolExecutor::getCorePoolSize)
+                .description("核心线程数")
+                .tag(POOL, name)
+                .register(meterRegistry);
+        Gauge.builder("thread.pool.max.size", executor, NamedThreadPoolExecutor::getMaximumPoolSize)
+                .description("最大线程数")
+                .tag(POOL, name)
+                .register(meterRegistry);
+        Gauge.builder("thread.pool.active", executor, NamedThreadPoolExecutor::getActiveCount)
+                .description("正在执行任务的线程数")
+                .tag(POOL, name)
+                .register(meterRegistry);
+        Gauge.builder("thread.pool.queue.size", executor, e -> e.getQueue().size())
+                .description("队列中等待的任务数")
+                .tag(POOL, name)
+                .register(meterRegistry);
+        Gauge.builder("thread.pool.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("队列剩余容量")
+                .tag(POOL, name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录任务等待时间
+     *
+     * @param name      线程池名字
+     * @param waitNanos 从提交到开始执行的纳秒数
+     */
+    public void recordWait(String name, long waitNanos) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Timer.builder("thread.pool.task.wait")
+                .description("任务从提交到开始执行的等待时间")
+                .tag(POOL, name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录任务执行耗时
+     *
+     * @param name      线程池名字
+     * @param startTime 开始时间（System.nanoTime()）
+     */
+    public void recordExecution(String name, long startTime) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Timer.builder("thread.pool.task.execution")
+                .description("任务执行耗时")
+                .tag(POOL, name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录拒绝次数
+     *
+     * @param name 线程池名字
+     */
+    public void recordRejected(String name) {
+        if (Objects.isNull(meterRegistry)) {
+            return;
+        }
+        Counter.builder("thread.pool.rejected")
+                .description("被拒绝的任务数")
+                .tag(POOL, name)
+                .register(meterRegistry)
+                .increment();
+    }
+}
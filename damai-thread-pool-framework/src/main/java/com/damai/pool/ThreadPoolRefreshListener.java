@@ -0,0 +1,38 @@
+package com.damai.pool;
+
+import com.damai.config.ThreadPoolRegistryProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 配置中心（如nacos）推送变更后调整命名线程池
+ * 直接从Environment重新绑定配置，不依赖配置属性bean的重新绑定顺序
+ * @author: 阿星不是程序员
+ **/
+public class ThreadPoolRefreshListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final Environment environment;
+
+    public ThreadPoolRefreshListener(ThreadPoolRegistry threadPoolRegistry, Environment environment) {
+        this.threadPoolRegistry = threadPoolRegistry;
+        this.environment = environment;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        boolean changed = event.getKeys().stream()
+                .anyMatch(key -> key.startsWith(ThreadPoolRegistryProperties.PREFIX + "."));
+        if (!changed) {
+            return;
+        }
+        ThreadPoolRegistryProperties threadPoolRegistryProperties = Binder.get(environment)
+                .bind(ThreadPoolRegistryProperties.PREFIX, ThreadPoolRegistryProperties.class)
+                .orElseGet(ThreadPoolRegistryProperties::new);
+        threadPoolRegistry.refresh(threadPoolRegistryProperties);
+    }
+}
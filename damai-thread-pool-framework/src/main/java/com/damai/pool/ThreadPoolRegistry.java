@@ -0,0 +1,108 @@
+package com.damai.pool;
+
+import com.damai.config.ThreadPoolRegistryProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * @program: 极度真实还原大麦网高并发实战项目。 添加 阿星不是程序员 微信，添加时备注 大麦 来获取项目的完整资料
+ * @description: 命名线程池注册中心
+ * 不同业务使用各自隔离的线程池，避免一个业务的突发流量占满共享线程池导致其他业务任务被拒绝
+ * 线程池在配置thread-pool.pools中声明，未声明的名字第一次使用时按默认配置创建
+ * @author: 阿星不是程序员
+ **/
+@Slf4j
+public class ThreadPoolRegistry {
+
+    private final Map<String, NamedThreadPoolExecutor> executorMap = new ConcurrentHashMap<>();
+
+    private final ThreadPoolMetrics threadPoolMetrics;
+
+    /**
+     * 是否使用虚拟线程执行任务
+     */
+    private final boolean virtual;
+
+    private volatile ThreadPoolRegistryProperties threadPoolRegistryProperties;
+
+    public ThreadPoolRegistry(ThreadPoolRegistryProperties threadPoolRegistryProperties,
+                              ThreadPoolMetrics threadPoolMetrics, boolean virtual) {
+        this.threadPoolRegistryProperties = threadPoolRegistryProperties;
+        this.threadPoolMetrics = threadPoolMetrics;
+        this.virtual = virtual;
+        threadPoolRegistryProperties.getPools().keySet().forEach(this::getExecutor);
+    }
+
+    /**
+     * 获取命名线程池，不存在时按配置创建
+     *
+     * @param name 线程池名字
+     * @return 线程池
+     */
+    public NamedThreadPoolExecutor getExecutor(String name) {
+        return executorMap.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * 提交Runnable任务到指定线程池执行
+     *
+     * @param name 线程池名字
+     * @param r    待执行的任务
+     */
+    public void execute(String name, Runnable r) {
+        getExecutor(name).execute(r);
+    }
+
+    /**
+     * 提交Callable任务到指定线程池执行，并返回Future对象
+     *
+     * @param name 线程池名字
+     * @param c    待执行的Callable任务
+     * @param <T>  任务返回值类型
+     * @return Future对象
+     */
+    public <T> Future<T> submit(String name, Callable<T> c) {
+        return getExecutor(name).submit(c);
+    }
+
+    public Map<String, NamedThreadPoolExecutor> getExecutors() {
+        return Collections.unmodifiableMap(executorMap);
+    }
+
+    /**
+     * 配置变更后调整已创建的线程池，新声明的线程池直接创建
+     *
+     * @param threadPoolRegistryProperties 新的配置
+     */
+    public synchronized void refresh(ThreadPoolRegistryProperties threadPoolRegistryProperties) {
+        this.threadPoolRegistryProperties = threadPoolRegistryProperties;
+        threadPoolRegistryProperties.getPools().forEach((name, definition) -> {
+            NamedThreadPoolExecutor executor = executorMap.get(name);
+            if (executor == null) {
+                getExecutor(name);
+            } else {
+                executor.apply(definition);
+            }
+        });
+    }
+
+    public void destroy() {
+        executorMap.values().forEach(NamedThreadPoolExecutor::shutdown);
+    }
+
+    private NamedThreadPoolExecutor create(String name) {
+        ThreadPoolDefinition definition = threadPoolRegistryProperties.getPools().get(name);
+        if (definition == null) {
+            log.info("thread pool {} not configured, use default definition", name);
+            definition = new ThreadPoolDefinition();
+        }
+        NamedThreadPoolExecutor executor = new NamedThreadPoolExecutor(name, definition, threadPoolMetrics, virtual);
+        threadPoolMetrics.registerPool(executor);
+        return executor;
+    }
+}
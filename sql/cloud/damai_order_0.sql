@@ -26,7 +26,7 @@ CREATE TABLE `d_order_0` (
   `status` tinyint(1) DEFAULT '1' COMMENT '1:正常 0:删除',
   PRIMARY KEY (`id`),
   UNIQUE KEY `d_order_order_number_IDX` (`order_number`) USING BTREE,
-  KEY `user_id_IDX` (`user_id`) USING BTREE,
+  KEY `user_id_create_order_time_IDX` (`user_id`,`create_order_time`,`order_number`) USING BTREE,
   KEY `program_id_IDX` (`program_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -70,7 +70,7 @@ CREATE TABLE `d_order_1` (
   `status` tinyint(1) DEFAULT '1' COMMENT '1:正常 0:删除',
   PRIMARY KEY (`id`),
   UNIQUE KEY `d_order_order_number_IDX` (`order_number`) USING BTREE,
-  KEY `user_id_IDX` (`user_id`) USING BTREE,
+  KEY `user_id_create_order_time_IDX` (`user_id`,`create_order_time`,`order_number`) USING BTREE,
   KEY `program_id_IDX` (`program_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -114,7 +114,7 @@ CREATE TABLE `d_order_2` (
   `status` tinyint(1) DEFAULT '1' COMMENT '1:正常 0:删除',
   PRIMARY KEY (`id`),
   UNIQUE KEY `d_order_order_number_IDX` (`order_number`) USING BTREE,
-  KEY `user_id_IDX` (`user_id`) USING BTREE,
+  KEY `user_id_create_order_time_IDX` (`user_id`,`create_order_time`,`order_number`) USING BTREE,
   KEY `program_id_IDX` (`program_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -158,7 +158,7 @@ CREATE TABLE `d_order_3` (
   `status` tinyint(1) DEFAULT '1' COMMENT '1:正常 0:删除',
   PRIMARY KEY (`id`),
   UNIQUE KEY `d_order_order_number_IDX` (`order_number`) USING BTREE,
-  KEY `user_id_IDX` (`user_id`) USING BTREE,
+  KEY `user_id_create_order_time_IDX` (`user_id`,`create_order_time`,`order_number`) USING BTREE,
   KEY `program_id_IDX` (`program_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -176,6 +176,30 @@ UNLOCK TABLES;
 -- Table structure for table `d_order_4`
 --
 
+--
+-- Table structure for table `d_order_outbox`
+--
+
+DROP TABLE IF EXISTS `d_order_outbox`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `d_order_outbox` (
+  `id` bigint(20) NOT NULL COMMENT '主键id',
+  `order_number` bigint(20) NOT NULL COMMENT '订单编号',
+  `user_id` bigint(20) NOT NULL COMMENT '用户id',
+  `program_id` bigint(20) NOT NULL COMMENT '节目表id',
+  `event_type` tinyint(1) NOT NULL COMMENT '事件类型 2:延迟取消订单 3:节目缓存座位和余票变更 4:支付后更新节目数据',
+  `payload` text NOT NULL COMMENT '事件内容',
+  `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '转发失败的次数',
+  `next_retry_time` datetime NOT NULL COMMENT '下次转发的时间',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `edit_time` datetime DEFAULT NULL COMMENT '编辑时间',
+  `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '1:待转发 0:已转发 2:转发失败',
+  PRIMARY KEY (`id`),
+  KEY `status_next_retry_time_idx` (`status`,`next_retry_time`,`id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单服务事务发件箱表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `d_order_ticket_user_0`
 --
@@ -206,7 +230,8 @@ CREATE TABLE `d_order_ticket_user_0` (
   KEY `d_order_ticket_user_order_id_IDX` (`order_number`) USING BTREE,
   KEY `d_order_ticket_user_user_id_IDX` (`user_id`) USING BTREE,
   KEY `d_order_ticket_user_ticket_user_id_IDX` (`ticket_user_id`) USING BTREE,
-  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE
+  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE,
+  KEY `d_order_ticket_user_program_id_seat_id_IDX` (`program_id`,`seat_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='购票人订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -249,7 +274,8 @@ CREATE TABLE `d_order_ticket_user_1` (
   KEY `d_order_ticket_user_order_id_IDX` (`order_number`) USING BTREE,
   KEY `d_order_ticket_user_user_id_IDX` (`user_id`) USING BTREE,
   KEY `d_order_ticket_user_ticket_user_id_IDX` (`ticket_user_id`) USING BTREE,
-  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE
+  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE,
+  KEY `d_order_ticket_user_program_id_seat_id_IDX` (`program_id`,`seat_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='购票人订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -292,7 +318,8 @@ CREATE TABLE `d_order_ticket_user_2` (
   KEY `d_order_ticket_user_order_id_IDX` (`order_number`) USING BTREE,
   KEY `d_order_ticket_user_user_id_IDX` (`user_id`) USING BTREE,
   KEY `d_order_ticket_user_ticket_user_id_IDX` (`ticket_user_id`) USING BTREE,
-  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE
+  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE,
+  KEY `d_order_ticket_user_program_id_seat_id_IDX` (`program_id`,`seat_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='购票人订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -335,7 +362,8 @@ CREATE TABLE `d_order_ticket_user_3` (
   KEY `d_order_ticket_user_order_id_IDX` (`order_number`) USING BTREE,
   KEY `d_order_ticket_user_user_id_IDX` (`user_id`) USING BTREE,
   KEY `d_order_ticket_user_ticket_user_id_IDX` (`ticket_user_id`) USING BTREE,
-  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE
+  KEY `d_order_ticket_user_create_order_time_IDX` (`create_order_time`) USING BTREE,
+  KEY `d_order_ticket_user_program_id_seat_id_IDX` (`program_id`,`seat_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='购票人订单表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
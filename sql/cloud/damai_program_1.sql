@@ -227,6 +227,92 @@ INSERT INTO `d_program_group_1` VALUES (1,'[{\"programId\":1,\"areaId\":2,\"area
 /*!40000 ALTER TABLE `d_program_group_1` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `d_program_index_outbox_0`
+--
+
+DROP TABLE IF EXISTS `d_program_index_outbox_0`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `d_program_index_outbox_0` (
+  `id` bigint(20) NOT NULL COMMENT '主键id',
+  `program_id` bigint(20) NOT NULL COMMENT '节目表id',
+  `shard_no` int(11) NOT NULL COMMENT '分片号 program_id对分片数量取模，分库分表的分片键',
+  `change_type` tinyint(1) NOT NULL COMMENT '变更类型 1:节目 2:演出时间 3:票档 4:节目失效',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `edit_time` datetime DEFAULT NULL COMMENT '编辑时间',
+  `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '1:待同步 0:已同步',
+  PRIMARY KEY (`id`),
+  KEY `shard_no_status_id_idx` (`shard_no`,`status`,`id`) USING BTREE,
+  KEY `program_id_idx` (`program_id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='节目es索引变更记录表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `d_program_index_outbox_1`
+--
+
+DROP TABLE IF EXISTS `d_program_index_outbox_1`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `d_program_index_outbox_1` (
+  `id` bigint(20) NOT NULL COMMENT '主键id',
+  `program_id` bigint(20) NOT NULL COMMENT '节目表id',
+  `shard_no` int(11) NOT NULL COMMENT '分片号 program_id对分片数量取模，分库分表的分片键',
+  `change_type` tinyint(1) NOT NULL COMMENT '变更类型 1:节目 2:演出时间 3:票档 4:节目失效',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `edit_time` datetime DEFAULT NULL COMMENT '编辑时间',
+  `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '1:待同步 0:已同步',
+  PRIMARY KEY (`id`),
+  KEY `shard_no_status_id_idx` (`shard_no`,`status`,`id`) USING BTREE,
+  KEY `program_id_idx` (`program_id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='节目es索引变更记录表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `d_program_outbox_0`
+--
+
+DROP TABLE IF EXISTS `d_program_outbox_0`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `d_program_outbox_0` (
+  `id` bigint(20) NOT NULL COMMENT '主键id',
+  `program_id` bigint(20) NOT NULL COMMENT '节目表id',
+  `event_type` tinyint(1) NOT NULL COMMENT '事件类型 1:创建订单 2:延迟取消订单',
+  `payload` text NOT NULL COMMENT '事件内容',
+  `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '转发失败的次数',
+  `next_retry_time` datetime NOT NULL COMMENT '下次转发的时间',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `edit_time` datetime DEFAULT NULL COMMENT '编辑时间',
+  `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '1:待转发 0:已转发 2:转发失败',
+  PRIMARY KEY (`id`),
+  KEY `status_next_retry_time_idx` (`status`,`next_retry_time`,`id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='节目服务事务发件箱表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `d_program_outbox_1`
+--
+
+DROP TABLE IF EXISTS `d_program_outbox_1`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `d_program_outbox_1` (
+  `id` bigint(20) NOT NULL COMMENT '主键id',
+  `program_id` bigint(20) NOT NULL COMMENT '节目表id',
+  `event_type` tinyint(1) NOT NULL COMMENT '事件类型 1:创建订单 2:延迟取消订单',
+  `payload` text NOT NULL COMMENT '事件内容',
+  `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '转发失败的次数',
+  `next_retry_time` datetime NOT NULL COMMENT '下次转发的时间',
+  `create_time` datetime DEFAULT NULL COMMENT '创建时间',
+  `edit_time` datetime DEFAULT NULL COMMENT '编辑时间',
+  `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '1:待转发 0:已转发 2:转发失败',
+  PRIMARY KEY (`id`),
+  KEY `status_next_retry_time_idx` (`status`,`next_retry_time`,`id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='节目服务事务发件箱表';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `d_program_show_time_0`
 --
@@ -316,7 +402,8 @@ CREATE TABLE `d_seat_0` (
   PRIMARY KEY (`id`),
   KEY `program_id_idx` (`program_id`) USING BTREE,
   KEY `row_code_idx` (`row_code`) USING BTREE,
-  KEY `col_code_idx` (`col_code`) USING BTREE
+  KEY `col_code_idx` (`col_code`) USING BTREE,
+  KEY `program_id_ticket_category_id_idx` (`program_id`,`ticket_category_id`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='座位表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -351,7 +438,8 @@ CREATE TABLE `d_seat_1` (
   PRIMARY KEY (`id`),
   KEY `program_id_idx` (`program_id`) USING BTREE,
   KEY `row_code_idx` (`row_code`) USING BTREE,
-  KEY `col_code_idx` (`col_code`) USING BTREE
+  KEY `col_code_idx` (`col_code`) USING BTREE,
+  KEY `program_id_ticket_category_id_idx` (`program_id`,`ticket_category_id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=1291 DEFAULT CHARSET=utf8mb4 COMMENT='座位表';
 /*!40101 SET character_set_client = @saved_cs_client */;
 